@@ -3,10 +3,15 @@ package airline.entity;
 
 import airline.entity.comparators.CompareType;
 import airline.entity.planes.Plane;
+import airline.entity.planes.PlaneChangeListener;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class AirlineCompany {
     /**
@@ -17,6 +22,54 @@ public class AirlineCompany {
      * List of planes that contains this company.
      */
     private List<Plane> planesList;
+    /**
+     * Listeners of company mutations.
+     */
+    private final List<CompanyListener> listeners = new CopyOnWriteArrayList<>();
+    /**
+     * Version of planes list. Is incremented by every tracked change of planes (addition, deletion,
+     * change through setters, sorting and replacement of the list).
+     */
+    private final AtomicLong version = new AtomicLong();
+    /**
+     * Totals, minimal and maximal values of planes, that are updated on every tracked change.
+     */
+    private final FleetAggregates aggregates = new FleetAggregates();
+    /**
+     * Planes, that are being changed through setters, with flags: false, if plane wasn't counted in aggregates.
+     * Guarded by the company monitor.
+     */
+    private final Map<Plane, Boolean> changingPlanes = new IdentityHashMap<>();
+    /**
+     * Forwards changes of planes to company listeners. Setters are called without the company monitor,
+     * so aggregates are updated under it, the same as by Controller mutators.
+     */
+    private final PlaneChangeListener planeChangeListener = new PlaneChangeListener() {
+        @Override
+        public void beforeChange(Plane plane) {
+            synchronized (AirlineCompany.this) {
+                changingPlanes.put(plane, aggregates.remove(plane));
+                for (CompanyListener listener : listeners) {
+                    listener.planeChanging(plane);
+                }
+            }
+        }
+
+        @Override
+        public void afterChange(Plane plane) {
+            synchronized (AirlineCompany.this) {
+                version.incrementAndGet();
+                boolean counted = Boolean.TRUE.equals(changingPlanes.remove(plane));
+                if (counted) {
+                    aggregates.add(plane);
+                }
+                checkAggregates(counted);
+                for (CompanyListener listener : listeners) {
+                    listener.planeChanged(plane);
+                }
+            }
+        }
+    };
 
     /**
      * Initializes company with given name.
@@ -38,11 +91,55 @@ public class AirlineCompany {
      * planes list and given name.
      *
      * @param name       - company's name
-     * @param planesList - already existing list of planes.
+     * @param planesList - already existing list of planes, for example {@code ColumnarPlaneList}.
      */
     public AirlineCompany(String name, List<Plane> planesList) {
         this.name = name;
         this.planesList = planesList;
+        listenPlanes();
+    }
+
+    /**
+     * Starts forwarding of changes of planes in {@code planesList} and counts their aggregates. Columnar list
+     * notifies about changes of all its views itself, so its planes aren't touched.
+     */
+    private void listenPlanes() {
+        aggregates.addAll(planesList);
+        if (planesList instanceof ColumnarPlaneList) {
+            ((ColumnarPlaneList) planesList).addChangeListener(planeChangeListener);
+            return;
+        }
+        for (Plane plane : planesList) {
+            plane.addChangeListener(planeChangeListener);
+        }
+    }
+
+    /**
+     * Recounts aggregates, if they don't match planes list, for example because planes were added or removed
+     * directly through {@code getPlanesList()}.
+     *
+     * @param counted - false, if changed plane wasn't found in aggregates
+     */
+    private void checkAggregates(boolean counted) {
+        if (!counted || aggregates.getFleet().getCount() != planesList.size()) {
+            aggregates.rebuild(planesList);
+        }
+    }
+
+    /**Adds listener of company mutations.
+     *
+     * @param listener - CompanyListener obj
+     */
+    public void addListener(CompanyListener listener) {
+        listeners.add(listener);
+    }
+
+    /**Removes listener of company mutations.
+     *
+     * @param listener - CompanyListener obj
+     */
+    public void removeListener(CompanyListener listener) {
+        listeners.remove(listener);
     }
 
     /**Adds constructed Plane object.
@@ -51,6 +148,21 @@ public class AirlineCompany {
      */
     public void addPlane(Plane newPlane) {
         planesList.add(newPlane);
+        version.incrementAndGet();
+        aggregates.add(newPlane);
+        checkAggregates(true);
+        if (planesList instanceof ColumnarPlaneList) {
+            if (listeners.isEmpty()) {
+                return;
+            }
+            // list keeps values of the plane, listeners get the view of the stored row
+            newPlane = planesList.get(planesList.size() - 1);
+        } else {
+            newPlane.addChangeListener(planeChangeListener);
+        }
+        for (CompanyListener listener : listeners) {
+            listener.planeAdded(newPlane);
+        }
     }
 
     /**Deletes plane by it's index in planes list.
@@ -58,7 +170,15 @@ public class AirlineCompany {
      * @param index - number of plane in {@code planesList}
      */
     public void deletePlane(int index) {
-        planesList.remove(index);
+        Plane removedPlane = planesList.remove(index);
+        version.incrementAndGet();
+        checkAggregates(aggregates.remove(removedPlane));
+        if (!(planesList instanceof ColumnarPlaneList)) {
+            removedPlane.removeChangeListener(planeChangeListener);
+        }
+        for (CompanyListener listener : listeners) {
+            listener.planeRemoved(index, removedPlane);
+        }
     }
 
     /**Deletes first met plane in plane's list by given model name.
@@ -68,7 +188,7 @@ public class AirlineCompany {
     public void deletePlane(String modelName) {
         for (int index = 0; index < planesList.size(); index++) {
             if (planesList.get(index).getModelName().equals(modelName)) {
-                planesList.remove(index);
+                deletePlane(index);
                 break;
             }
         }
@@ -82,13 +202,45 @@ public class AirlineCompany {
      * @param planesList - {@code List<Plane>} realization
      */
     public void setPlanesList(List<Plane> planesList) {
+        if (this.planesList instanceof ColumnarPlaneList) {
+            ((ColumnarPlaneList) this.planesList).removeChangeListener(planeChangeListener);
+        } else {
+            for (Plane plane : this.planesList) {
+                plane.removeChangeListener(planeChangeListener);
+            }
+        }
         this.planesList = planesList;
+        version.incrementAndGet();
+        aggregates.clear();
+        listenPlanes();
+        for (CompanyListener listener : listeners) {
+            listener.planesListReplaced();
+        }
     }
 
     public List<Plane> getPlanesList() {
         return planesList;
     }
 
+    /**
+     * Returns version of planes list. Equal versions mean, that planes weren't changed between calls
+     * (except changes, made directly through {@code getPlanesList()}).
+     *
+     * @return version number
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Returns aggregates of planes, that are kept up to date by the company, so reading costs O(1).
+     *
+     * @return aggregates of the whole fleet, of plane types and of engines
+     */
+    public FleetAggregates getAggregates() {
+        return aggregates;
+    }
+
     public int amountOfPlanes() {
         return planesList.size();
     }
@@ -112,10 +264,17 @@ public class AirlineCompany {
 
     public void setName(String name) {
         this.name = name;
+        for (CompanyListener listener : listeners) {
+            listener.nameChanged(name);
+        }
     }
 
     public void sortPlanes(CompareType sortMode) {
         planesList.sort(sortMode);
+        version.incrementAndGet();
+        for (CompanyListener listener : listeners) {
+            listener.planesSorted(sortMode);
+        }
     }
 
     @Override
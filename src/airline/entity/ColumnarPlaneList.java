@@ -0,0 +1,712 @@
+package airline.entity;
+
+import airline.entity.components.Engine;
+import airline.entity.planes.CargoPlane;
+import airline.entity.planes.PassengerPlane;
+import airline.entity.planes.Plane;
+import airline.entity.planes.PlaneChangeListener;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Columnar storage of planes for AirlineCompany.
+ * <p>
+ * Planes are kept in parallel primitive columns (serial numbers, capacities, crew sizes, engine and type codes)
+ * and canonical model names, not as separate objects. Column methods ({@link #sum(Column)},
+ * {@link #count(Column, int, int)}, {@link #filter(Column, int, int)}, {@link #countByEngine(Engine)}) run
+ * plain counted loops over one array without calls and branches, so JIT can unroll and vectorize them
+ * and scans are bound by memory bandwidth.
+ * <p>
+ * For List API planes are returned as views of rows: {@code PassengerPlane} and {@code CargoPlane} objects,
+ * which getters and setters read and write columns. View is created on access and is cached by weak reference,
+ * so a row has one identity while somebody (for example, indexes of the company) keeps its view, and views,
+ * that nobody keeps, are collected: the list itself holds only columns. Column methods and
+ * {@link #getValue(int, Column)}, {@link #getEngine(int)}, {@link #getType(int)} never create views.
+ * Removed view is detached: it keeps values of the row and can be used as a usual plane.
+ * <p>
+ * Used as {@code new AirlineCompany(name, new ColumnarPlaneList())}. List isn't thread safe.
+ */
+public class ColumnarPlaneList extends AbstractList<Plane> implements RandomAccess {
+    private static final Engine[] ENGINES = Engine.values();
+    private static final byte PASSENGER_TYPE = 1;
+    private static final byte CARGO_TYPE = 2;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final PlaneChangeListener[] NO_LISTENERS = new PlaneChangeListener[0];
+
+    /**
+     * Numeric columns, that can be scanned.
+     */
+    public enum Column {
+        SERIAL_NUMBER,
+        PASSENGER_CAPACITY,
+        CARGO_CAPACITY,
+        CREW_SIZE;
+
+        /**
+         * @param plane - Plane obj.
+         * @return value of the attribute of the plane
+         */
+        public int get(Plane plane) {
+            switch (this) {
+                case SERIAL_NUMBER:
+                    return plane.getSerialNumber();
+                case PASSENGER_CAPACITY:
+                    return plane.getPassengerCapacity();
+                case CARGO_CAPACITY:
+                    return plane.getCargoCapacity();
+                default:
+                    return plane.getCrewSize();
+            }
+        }
+    }
+
+    private int[] serialNumbers = new int[INITIAL_CAPACITY];
+    private int[] passengerCapacities = new int[INITIAL_CAPACITY];
+    private int[] cargoCapacities = new int[INITIAL_CAPACITY];
+    private int[] crewSizes = new int[INITIAL_CAPACITY];
+    /**
+     * Ordinals of engines.
+     */
+    private byte[] engines = new byte[INITIAL_CAPACITY];
+    /**
+     * 1 - passenger plane, 2 - cargo plane (the same codes, as in {@code Plane.constructPlane()}).
+     */
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private String[] modelNames = new String[INITIAL_CAPACITY];
+    /**
+     * Weak references to created views of rows, null if view of the row wasn't requested or was collected.
+     */
+    private ViewReference[] views = new ViewReference[INITIAL_CAPACITY];
+    /**
+     * References of collected views, that are still in {@code views}.
+     */
+    private final ReferenceQueue<Plane> collectedViews = new ReferenceQueue<>();
+    private int size;
+    /**
+     * Listeners, that are notified about changes of every view of the list.
+     */
+    private PlaneChangeListener[] changeListeners = NO_LISTENERS;
+
+    public ColumnarPlaneList() {
+    }
+
+    /**
+     * Constructs list with values of given planes.
+     *
+     * @param planes - planes to copy
+     */
+    public ColumnarPlaneList(List<Plane> planes) {
+        ensureCapacity(planes.size());
+        for (Plane plane : planes) {
+            add(plane);
+        }
+    }
+
+    /**
+     * Adds listener, that will be notified about changes of planes through views of this list.
+     * Owner of the list (AirlineCompany) uses it instead of listeners of every plane.
+     *
+     * @param listener - PlaneChangeListener obj
+     */
+    public void addChangeListener(PlaneChangeListener listener) {
+        PlaneChangeListener[] listeners = Arrays.copyOf(changeListeners, changeListeners.length + 1);
+        listeners[changeListeners.length] = listener;
+        changeListeners = listeners;
+    }
+
+    /**
+     * Removes one occurrence of given listener.
+     *
+     * @param listener - PlaneChangeListener obj
+     */
+    public void removeChangeListener(PlaneChangeListener listener) {
+        for (int index = 0; index < changeListeners.length; index++) {
+            if (changeListeners[index] == listener) {
+                PlaneChangeListener[] listeners = new PlaneChangeListener[changeListeners.length - 1];
+                System.arraycopy(changeListeners, 0, listeners, 0, index);
+                System.arraycopy(changeListeners, index + 1, listeners, index, listeners.length - index);
+                changeListeners = listeners.length == 0 ? NO_LISTENERS : listeners;
+                return;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Plane get(int index) {
+        checkIndex(index, size);
+        Plane view = viewOf(index);
+        if (view == null) {
+            expungeCollectedViews();
+            Row row = new Row(this, index);
+            view = newView(row);
+            views[index] = new ViewReference(view, row, collectedViews);
+        }
+        return view;
+    }
+
+    @Override
+    public boolean add(Plane plane) {
+        add(size, plane);
+        return true;
+    }
+
+    @Override
+    public void add(int index, Plane plane) {
+        checkIndex(index, size + 1);
+        byte type = typeOf(plane);
+        ensureCapacity(size + 1);
+        if (index < size) {
+            shift(index, index + 1, size - index);
+        }
+        size++;
+        modCount++;
+        views[index] = null;
+        writeRow(index, plane, type);
+    }
+
+    @Override
+    public Plane set(int index, Plane plane) {
+        checkIndex(index, size);
+        if (plane != null && viewOf(index) == plane) {
+            return plane;
+        }
+        byte type = typeOf(plane);
+        Plane previous = detach(index);
+        views[index] = null;
+        writeRow(index, plane, type);
+        return previous;
+    }
+
+    @Override
+    public Plane remove(int index) {
+        checkIndex(index, size);
+        Plane removed = detach(index);
+        if (index < size - 1) {
+            shift(index + 1, index, size - index - 1);
+        }
+        size--;
+        modCount++;
+        views[size] = null;
+        modelNames[size] = null;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        for (int index = 0; index < size; index++) {
+            if (views[index] != null) {
+                detach(index);
+                views[index] = null;
+            }
+        }
+        expungeCollectedViews();
+        Arrays.fill(modelNames, 0, size, null);
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Sorts rows stably by permutation of columns. Comparator gets views of rows, temporary ones
+     * for rows without live view.
+     *
+     * @param comparator - comparator of planes
+     */
+    @Override
+    public void sort(Comparator<? super Plane> comparator) {
+        int[] order = new int[size];
+        for (int index = 0; index < size; index++) {
+            order[index] = index;
+        }
+        mergeSort(order.clone(), order, 0, size, comparator);
+        serialNumbers = permute(serialNumbers, order);
+        passengerCapacities = permute(passengerCapacities, order);
+        cargoCapacities = permute(cargoCapacities, order);
+        crewSizes = permute(crewSizes, order);
+        byte[] sortedEngines = new byte[engines.length];
+        byte[] sortedTypes = new byte[types.length];
+        String[] sortedModelNames = new String[modelNames.length];
+        ViewReference[] sortedViews = new ViewReference[views.length];
+        for (int index = 0; index < size; index++) {
+            sortedEngines[index] = engines[order[index]];
+            sortedTypes[index] = types[order[index]];
+            sortedModelNames[index] = modelNames[order[index]];
+            sortedViews[index] = views[order[index]];
+            if (sortedViews[index] != null) {
+                sortedViews[index].row.index = index;
+            }
+        }
+        engines = sortedEngines;
+        types = sortedTypes;
+        modelNames = sortedModelNames;
+        views = sortedViews;
+        modCount++;
+    }
+
+    /**
+     * Returns value of the column without creating view of the row.
+     *
+     * @param index  - index of the row
+     * @param column - numeric column
+     * @return value
+     */
+    public int getValue(int index, Column column) {
+        checkIndex(index, size);
+        return column(column)[index];
+    }
+
+    /**
+     * Returns engine of the row without creating view of the row.
+     *
+     * @param index - index of the row
+     * @return engine
+     */
+    public Engine getEngine(int index) {
+        checkIndex(index, size);
+        return ENGINES[engines[index]];
+    }
+
+    /**
+     * Returns type of the row without creating view of the row.
+     *
+     * @param index - index of the row
+     * @return {@code PassengerPlane.class} or {@code CargoPlane.class}
+     */
+    public Class<? extends Plane> getType(int index) {
+        checkIndex(index, size);
+        return types[index] == CARGO_TYPE ? CargoPlane.class : PassengerPlane.class;
+    }
+
+    /**
+     * Sums values of the column.
+     *
+     * @param column - numeric column
+     * @return sum of all values
+     */
+    public long sum(Column column) {
+        int[] values = column(column);
+        long sum = 0;
+        for (int index = 0; index < size; index++) {
+            sum += values[index];
+        }
+        return sum;
+    }
+
+    /**
+     * Counts rows, which value of the column is between min and max (including both).
+     *
+     * @param column - numeric column
+     * @param min    - minimal value
+     * @param max    - maximal value
+     * @return amount of rows
+     */
+    public int count(Column column, int min, int max) {
+        int[] values = column(column);
+        int count = 0;
+        for (int index = 0; index < size; index++) {
+            int value = values[index];
+            count += (value >= min & value <= max) ? 1 : 0;
+        }
+        return count;
+    }
+
+    /**
+     * Returns views of rows, which value of the column is between min and max (including both),
+     * in the order of the list.
+     *
+     * @param column - numeric column
+     * @param min    - minimal value
+     * @param max    - maximal value
+     * @return {@code List<Plane>}, empty if nothing found
+     */
+    public List<Plane> filter(Column column, int min, int max) {
+        int[] values = column(column);
+        int[] rows = new int[size + 1];
+        int found = 0;
+        // branch-free compaction: index is always written, position moves only for matched rows
+        for (int index = 0; index < size; index++) {
+            int value = values[index];
+            rows[found] = index;
+            found += (value >= min & value <= max) ? 1 : 0;
+        }
+        List<Plane> planes = new ArrayList<>(found);
+        for (int index = 0; index < found; index++) {
+            planes.add(get(rows[index]));
+        }
+        return planes;
+    }
+
+    /**
+     * @param engine - engine
+     * @return amount of rows with the engine
+     */
+    public int countByEngine(Engine engine) {
+        byte code = (byte) engine.ordinal();
+        int count = 0;
+        for (int index = 0; index < size; index++) {
+            count += engines[index] == code ? 1 : 0;
+        }
+        return count;
+    }
+
+    private int[] column(Column column) {
+        switch (column) {
+            case SERIAL_NUMBER:
+                return serialNumbers;
+            case PASSENGER_CAPACITY:
+                return passengerCapacities;
+            case CARGO_CAPACITY:
+                return cargoCapacities;
+            default:
+                return crewSizes;
+        }
+    }
+
+    private static byte typeOf(Plane plane) {
+        if (plane instanceof CargoPlane) {
+            return CARGO_TYPE;
+        }
+        if (plane instanceof PassengerPlane) {
+            return PASSENGER_TYPE;
+        }
+        throw new IllegalArgumentException("Unsupported plane type: " + plane);
+    }
+
+    private static void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + (bound));
+        }
+    }
+
+    private void writeRow(int index, Plane plane, byte type) {
+        serialNumbers[index] = plane.getSerialNumber();
+        passengerCapacities[index] = plane.getPassengerCapacity();
+        cargoCapacities[index] = plane.getCargoCapacity();
+        crewSizes[index] = plane.getCrewSize();
+        engines[index] = (byte) plane.getEngine().ordinal();
+        types[index] = type;
+        modelNames[index] = plane.getModelName();
+    }
+
+    /**
+     * @return live view of the row or null
+     */
+    private Plane viewOf(int index) {
+        ViewReference reference = views[index];
+        return reference == null ? null : reference.get();
+    }
+
+    /**
+     * Forgets references of collected views, so rows don't keep them.
+     */
+    private void expungeCollectedViews() {
+        Object collected;
+        while ((collected = collectedViews.poll()) != null) {
+            Row row = ((ViewReference) collected).row;
+            if (row.list == this && views[row.index] == collected) {
+                views[row.index] = null;
+            }
+        }
+    }
+
+    /**
+     * Detaches view of the row or creates usual plane with values of the row, if there is no view.
+     */
+    private Plane detach(int index) {
+        Plane view = viewOf(index);
+        if (view == null) {
+            if (views[index] != null) {
+                views[index].row.list = null;
+            }
+            return Plane.constructPlane(types[index], serialNumbers[index], modelNames[index], crewSizes[index],
+                    cargoCapacities[index], passengerCapacities[index], ENGINES[engines[index]]);
+        }
+        Row row = views[index].row;
+        row.passengerCapacity = passengerCapacities[index];
+        row.cargoCapacity = cargoCapacities[index];
+        row.crewSize = crewSizes[index];
+        row.list = null;
+        return view;
+    }
+
+    /**
+     * Moves rows inside columns and updates positions of moved views.
+     */
+    private void shift(int from, int to, int length) {
+        System.arraycopy(serialNumbers, from, serialNumbers, to, length);
+        System.arraycopy(passengerCapacities, from, passengerCapacities, to, length);
+        System.arraycopy(cargoCapacities, from, cargoCapacities, to, length);
+        System.arraycopy(crewSizes, from, crewSizes, to, length);
+        System.arraycopy(engines, from, engines, to, length);
+        System.arraycopy(types, from, types, to, length);
+        System.arraycopy(modelNames, from, modelNames, to, length);
+        System.arraycopy(views, from, views, to, length);
+        for (int index = to; index < to + length; index++) {
+            if (views[index] != null) {
+                views[index].row.index = index;
+            }
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= serialNumbers.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, serialNumbers.length + (serialNumbers.length >> 1));
+        serialNumbers = Arrays.copyOf(serialNumbers, newCapacity);
+        passengerCapacities = Arrays.copyOf(passengerCapacities, newCapacity);
+        cargoCapacities = Arrays.copyOf(cargoCapacities, newCapacity);
+        crewSizes = Arrays.copyOf(crewSizes, newCapacity);
+        engines = Arrays.copyOf(engines, newCapacity);
+        types = Arrays.copyOf(types, newCapacity);
+        modelNames = Arrays.copyOf(modelNames, newCapacity);
+        views = Arrays.copyOf(views, newCapacity);
+    }
+
+    private static int[] permute(int[] values, int[] order) {
+        int[] permuted = new int[values.length];
+        for (int index = 0; index < order.length; index++) {
+            permuted[index] = values[order[index]];
+        }
+        return permuted;
+    }
+
+    /**
+     * Sorts range of target array of rows, using source array (with the same content) as buffer.
+     */
+    private void mergeSort(int[] source, int[] target, int from, int to, Comparator<? super Plane> comparator) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(target, source, from, middle, comparator);
+        mergeSort(target, source, middle, to, comparator);
+        int left = from;
+        int right = middle;
+        for (int index = from; index < to; index++) {
+            if (right >= to || left < middle
+                    && comparator.compare(comparable(source[left]), comparable(source[right])) <= 0) {
+                target[index] = source[left++];
+            } else {
+                target[index] = source[right++];
+            }
+        }
+    }
+
+    private Plane newView(Row row) {
+        int index = row.index;
+        if (types[index] == CARGO_TYPE) {
+            return new CargoView(row, serialNumbers[index], modelNames[index], ENGINES[engines[index]]);
+        }
+        return new PassengerView(row, serialNumbers[index], modelNames[index], ENGINES[engines[index]]);
+    }
+
+    /**
+     * Returns view of the row for comparator: live one or temporary, that isn't kept.
+     */
+    private Plane comparable(int index) {
+        Plane view = viewOf(index);
+        return view != null ? view : newView(new Row(this, index));
+    }
+
+    /**
+     * Weak reference to view with its row, so position of the row is updated and the reference is forgotten
+     * after the view is collected.
+     */
+    private static final class ViewReference extends WeakReference<Plane> {
+        private final Row row;
+
+        private ViewReference(Plane view, Row row, ReferenceQueue<Plane> queue) {
+            super(view, queue);
+            this.row = row;
+        }
+    }
+
+    /**
+     * Position of the view in the list or its own values after removal.
+     */
+    private static final class Row {
+        private ColumnarPlaneList list;
+        private int index;
+        private int passengerCapacity;
+        private int cargoCapacity;
+        private int crewSize;
+
+        private Row(ColumnarPlaneList list, int index) {
+            this.list = list;
+            this.index = index;
+        }
+
+        private int get(Column column) {
+            if (list != null) {
+                return list.column(column)[index];
+            }
+            switch (column) {
+                case PASSENGER_CAPACITY:
+                    return passengerCapacity;
+                case CARGO_CAPACITY:
+                    return cargoCapacity;
+                default:
+                    return crewSize;
+            }
+        }
+
+        private void set(Column column, int value) {
+            if (list != null) {
+                list.column(column)[index] = value;
+                return;
+            }
+            switch (column) {
+                case PASSENGER_CAPACITY:
+                    passengerCapacity = value;
+                    break;
+                case CARGO_CAPACITY:
+                    cargoCapacity = value;
+                    break;
+                default:
+                    crewSize = value;
+            }
+        }
+
+        private void beforeChange(Plane view) {
+            if (list != null) {
+                for (PlaneChangeListener listener : list.changeListeners) {
+                    listener.beforeChange(view);
+                }
+            }
+        }
+
+        private void afterChange(Plane view) {
+            if (list != null) {
+                for (PlaneChangeListener listener : list.changeListeners) {
+                    listener.afterChange(view);
+                }
+            }
+        }
+
+        private String toString(String type, Plane view) {
+            return type + "|"
+                    + view.getSerialNumber() + "|"
+                    + view.getModelName() + "|"
+                    + view.getPassengerCapacity() + "|"
+                    + view.getCargoCapacity() + "|"
+                    + view.getCrewSize() + "|"
+                    + view.getEngine().getCodeName();
+        }
+    }
+
+    private static final class PassengerView extends PassengerPlane {
+        private final Row row;
+
+        private PassengerView(Row row, int serialNumber, String modelName, Engine engine) {
+            super(serialNumber, modelName, 0, 0, 0, engine);
+            this.row = row;
+        }
+
+        @Override
+        public int getPassengerCapacity() {
+            return row.get(Column.PASSENGER_CAPACITY);
+        }
+
+        @Override
+        public void setPassengerCapacity(int passengerCapacity) {
+            change(Column.PASSENGER_CAPACITY, passengerCapacity);
+        }
+
+        @Override
+        public int getCargoCapacity() {
+            return row.get(Column.CARGO_CAPACITY);
+        }
+
+        @Override
+        public void setCargoCapacity(int cargoCapacity) {
+            change(Column.CARGO_CAPACITY, cargoCapacity);
+        }
+
+        @Override
+        public int getCrewSize() {
+            return row.get(Column.CREW_SIZE);
+        }
+
+        @Override
+        public void setCrewSize(int crewSize) {
+            change(Column.CREW_SIZE, crewSize);
+        }
+
+        private void change(Column column, int value) {
+            fireBeforeChange();
+            row.beforeChange(this);
+            row.set(column, value);
+            fireAfterChange();
+            row.afterChange(this);
+        }
+
+        @Override
+        public String toString() {
+            return row.toString("Passenger", this);
+        }
+    }
+
+    private static final class CargoView extends CargoPlane {
+        private final Row row;
+
+        private CargoView(Row row, int serialNumber, String modelName, Engine engine) {
+            super(serialNumber, modelName, 0, 0, 0, engine);
+            this.row = row;
+        }
+
+        @Override
+        public int getPassengerCapacity() {
+            return row.get(Column.PASSENGER_CAPACITY);
+        }
+
+        @Override
+        public void setPassengerCapacity(int passengerCapacity) {
+            change(Column.PASSENGER_CAPACITY, passengerCapacity);
+        }
+
+        @Override
+        public int getCargoCapacity() {
+            return row.get(Column.CARGO_CAPACITY);
+        }
+
+        @Override
+        public void setCargoCapacity(int cargoCapacity) {
+            change(Column.CARGO_CAPACITY, cargoCapacity);
+        }
+
+        @Override
+        public int getCrewSize() {
+            return row.get(Column.CREW_SIZE);
+        }
+
+        @Override
+        public void setCrewSize(int crewSize) {
+            change(Column.CREW_SIZE, crewSize);
+        }
+
+        private void change(Column column, int value) {
+            fireBeforeChange();
+            row.beforeChange(this);
+            row.set(column, value);
+            fireAfterChange();
+            row.afterChange(this);
+        }
+
+        @Override
+        public String toString() {
+            return row.toString("Cargo", this);
+        }
+    }
+}
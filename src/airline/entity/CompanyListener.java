@@ -0,0 +1,71 @@
+package airline.entity;
+
+import airline.entity.comparators.CompareType;
+import airline.entity.planes.Plane;
+
+/**
+ * Listener of AirlineCompany mutations.
+ * <p>
+ * Listeners are called on the thread, that mutates the company, after the mutation is done
+ * (except {@code planeChanging}, that is called before plane is changed).
+ * Changes, made directly through the list from {@code getPlanesList()}, are not tracked.
+ *
+ * @see AirlineCompany#addListener(CompanyListener)
+ */
+public interface CompanyListener {
+
+    /**
+     * Called after plane is added to the end of planes list.
+     *
+     * @param plane - added plane
+     */
+    default void planeAdded(Plane plane) {
+    }
+
+    /**
+     * Called after plane is removed from planes list.
+     *
+     * @param index - index of plane before removal
+     * @param plane - removed plane
+     */
+    default void planeRemoved(int index, Plane plane) {
+    }
+
+    /**
+     * Called before plane of this company is changed through its setters.
+     *
+     * @param plane - plane with old values
+     */
+    default void planeChanging(Plane plane) {
+    }
+
+    /**
+     * Called after plane of this company is changed through its setters.
+     *
+     * @param plane - plane with new values
+     */
+    default void planeChanged(Plane plane) {
+    }
+
+    /**
+     * Called after planes list is sorted.
+     *
+     * @param sortMode - comparator, that was used
+     */
+    default void planesSorted(CompareType sortMode) {
+    }
+
+    /**
+     * Called after planes list is replaced by {@code setPlanesList()}.
+     */
+    default void planesListReplaced() {
+    }
+
+    /**
+     * Called after company name is changed.
+     *
+     * @param name - new name
+     */
+    default void nameChanged(String name) {
+    }
+}
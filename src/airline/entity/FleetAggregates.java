@@ -0,0 +1,298 @@
+package airline.entity;
+
+import airline.entity.components.Engine;
+import airline.entity.planes.CargoPlane;
+import airline.entity.planes.PassengerPlane;
+import airline.entity.planes.Plane;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.TreeMap;
+
+/**
+ * Aggregates of company planes: amount of planes, totals, minimal and maximal values of passenger capacity,
+ * cargo capacity and crew size for the whole fleet, for every plane type and for every engine.
+ * <p>
+ * Aggregates are kept by the company: they are updated on addition and deletion of planes, on changes through
+ * setters and on replacement of planes list, so reading costs O(1). Totals are 64-bit and can't overflow.
+ * Minimal and maximal values are kept with amounts of planes per value, so removal of the current minimum
+ * costs O(log n) instead of scan. Changes, made directly through the list from {@code getPlanesList()},
+ * are not tracked. If such change is detected (removed plane or value was never counted), aggregates
+ * are rebuilt from the planes list.
+ * <p>
+ * Aggregates aren't thread safe, they are changed and read under the company monitor like the planes list
+ * (changes through setters take the monitor themselves).
+ *
+ * @see AirlineCompany#getAggregates()
+ */
+public class FleetAggregates {
+    private static final Group EMPTY = new Group();
+
+    private Group fleet = new Group();
+    private final Map<Class<? extends Plane>, Group> byType = new HashMap<>();
+    private final Map<Engine, Group> byEngine = new EnumMap<>(Engine.class);
+
+    /**
+     * Aggregates of a group of planes.
+     */
+    public static class Group {
+        private int count;
+        private final Summary passengerCapacity = new Summary();
+        private final Summary cargoCapacity = new Summary();
+        private final Summary crewSize = new Summary();
+
+        /**
+         * @return amount of planes in the group
+         */
+        public int getCount() {
+            return count;
+        }
+
+        public Summary getPassengerCapacity() {
+            return passengerCapacity;
+        }
+
+        public Summary getCargoCapacity() {
+            return cargoCapacity;
+        }
+
+        public Summary getCrewSize() {
+            return crewSize;
+        }
+
+        private void add(Plane plane) {
+            add(plane.getPassengerCapacity(), plane.getCargoCapacity(), plane.getCrewSize());
+        }
+
+        private void add(int passengers, int cargo, int crew) {
+            count++;
+            passengerCapacity.add(passengers);
+            cargoCapacity.add(cargo);
+            crewSize.add(crew);
+        }
+
+        /**
+         * @return false, if the plane wasn't counted in the group, then group isn't changed
+         */
+        private boolean remove(Plane plane) {
+            if (count == 0 || !passengerCapacity.contains(plane.getPassengerCapacity())
+                    || !cargoCapacity.contains(plane.getCargoCapacity()) || !crewSize.contains(plane.getCrewSize())) {
+                return false;
+            }
+            count--;
+            passengerCapacity.remove(plane.getPassengerCapacity());
+            cargoCapacity.remove(plane.getCargoCapacity());
+            crewSize.remove(plane.getCrewSize());
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "Group{" +
+                    "count=" + count +
+                    ", passengerCapacity=" + passengerCapacity +
+                    ", cargoCapacity=" + cargoCapacity +
+                    ", crewSize=" + crewSize +
+                    '}';
+        }
+    }
+
+    /**
+     * Total, minimal and maximal value of one attribute.
+     */
+    public static class Summary {
+        private long total;
+        /**
+         * Amount of planes per value.
+         */
+        private final TreeMap<Integer, Integer> amounts = new TreeMap<>();
+        private int min;
+        private int max;
+
+        /**
+         * @return sum of values, 0 if the group is empty
+         */
+        public long getTotal() {
+            return total;
+        }
+
+        /**
+         * @return minimal value, empty if the group is empty
+         */
+        public OptionalInt getMin() {
+            return amounts.isEmpty() ? OptionalInt.empty() : OptionalInt.of(min);
+        }
+
+        /**
+         * @return maximal value, empty if the group is empty
+         */
+        public OptionalInt getMax() {
+            return amounts.isEmpty() ? OptionalInt.empty() : OptionalInt.of(max);
+        }
+
+        private void add(int value) {
+            if (amounts.isEmpty()) {
+                min = value;
+                max = value;
+            } else {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            total += value;
+            amounts.merge(value, 1, Integer::sum);
+        }
+
+        private boolean contains(int value) {
+            return amounts.containsKey(value);
+        }
+
+        /**
+         * Value must be counted.
+         */
+        private void remove(int value) {
+            total -= value;
+            if (amounts.merge(value, -1, Integer::sum) == 0) {
+                amounts.remove(value);
+                if (!amounts.isEmpty()) {
+                    min = amounts.firstKey();
+                    max = amounts.lastKey();
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Summary{" +
+                    "total=" + total +
+                    ", min=" + (amounts.isEmpty() ? "none" : String.valueOf(min)) +
+                    ", max=" + (amounts.isEmpty() ? "none" : String.valueOf(max)) +
+                    '}';
+        }
+    }
+
+    /**
+     * @return aggregates of all planes of the company
+     */
+    public Group getFleet() {
+        return fleet;
+    }
+
+    /**
+     * @param planeType - class of planes, for example {@code CargoPlane.class}
+     * @return aggregates of planes of the type, empty group if there are no such planes
+     */
+    public Group getByType(Class<? extends Plane> planeType) {
+        return byType.getOrDefault(planeType, EMPTY);
+    }
+
+    /**
+     * @param engine - engine model
+     * @return aggregates of planes with the engine, empty group if there are no such planes
+     */
+    public Group getByEngine(Engine engine) {
+        return byEngine.getOrDefault(engine, EMPTY);
+    }
+
+    void add(Plane plane) {
+        fleet.add(plane);
+        byType.computeIfAbsent(typeOf(plane), type -> new Group()).add(plane);
+        if (plane.getEngine() != null) {
+            byEngine.computeIfAbsent(plane.getEngine(), engine -> new Group()).add(plane);
+        }
+    }
+
+    /**
+     * Removes plane from aggregates.
+     *
+     * @return false, if plane wasn't counted (for example, it was added through {@code getPlanesList()}),
+     * then aggregates aren't changed and must be rebuilt
+     */
+    boolean remove(Plane plane) {
+        Class<? extends Plane> type = typeOf(plane);
+        Group typeGroup = byType.get(type);
+        Group engineGroup = plane.getEngine() == null ? null : byEngine.get(plane.getEngine());
+        if (typeGroup == null || !typeGroup.remove(plane)) {
+            return false;
+        }
+        if (plane.getEngine() != null && (engineGroup == null || !engineGroup.remove(plane))) {
+            typeGroup.add(plane);
+            return false;
+        }
+        if (!fleet.remove(plane)) {
+            typeGroup.add(plane);
+            if (engineGroup != null) {
+                engineGroup.add(plane);
+            }
+            return false;
+        }
+        if (typeGroup.count == 0) {
+            byType.remove(type);
+        }
+        if (engineGroup != null && engineGroup.count == 0) {
+            byEngine.remove(plane.getEngine());
+        }
+        return true;
+    }
+
+    void addAll(Iterable<Plane> planes) {
+        if (planes instanceof ColumnarPlaneList) {
+            addRows((ColumnarPlaneList) planes);
+            return;
+        }
+        for (Plane plane : planes) {
+            add(plane);
+        }
+    }
+
+    /**
+     * Counts rows by columns, without views of rows.
+     */
+    private void addRows(ColumnarPlaneList planes) {
+        for (int row = 0; row < planes.size(); row++) {
+            int passengers = planes.getValue(row, ColumnarPlaneList.Column.PASSENGER_CAPACITY);
+            int cargo = planes.getValue(row, ColumnarPlaneList.Column.CARGO_CAPACITY);
+            int crew = planes.getValue(row, ColumnarPlaneList.Column.CREW_SIZE);
+            fleet.add(passengers, cargo, crew);
+            byType.computeIfAbsent(planes.getType(row), type -> new Group()).add(passengers, cargo, crew);
+            byEngine.computeIfAbsent(planes.getEngine(row), engine -> new Group()).add(passengers, cargo, crew);
+        }
+    }
+
+    /**
+     * Recounts aggregates of given planes. Columnar list is read by columns.
+     */
+    void rebuild(Iterable<Plane> planes) {
+        clear();
+        addAll(planes);
+    }
+
+    void clear() {
+        fleet = new Group();
+        byType.clear();
+        byEngine.clear();
+    }
+
+    /**
+     * Views of columnar planes list are subclasses of plane types, so they are grouped by the base type.
+     */
+    private static Class<? extends Plane> typeOf(Plane plane) {
+        if (plane instanceof CargoPlane) {
+            return CargoPlane.class;
+        }
+        if (plane instanceof PassengerPlane) {
+            return PassengerPlane.class;
+        }
+        return plane.getClass();
+    }
+
+    @Override
+    public String toString() {
+        return "FleetAggregates{" +
+                "fleet=" + fleet +
+                ", byType=" + byType +
+                ", byEngine=" + byEngine +
+                '}';
+    }
+}
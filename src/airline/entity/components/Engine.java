@@ -1,5 +1,8 @@
 package airline.entity.components;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public enum Engine {
 
     PW_JT8D("PW_JT8D","Pratt & Whitney ", "JT8D", 0.744),
@@ -20,6 +23,16 @@ public enum Engine {
      */
     private double fuelConsumption;
 
+    /**Engines by code names.
+     * Precomputed, so code names, read from file, are resolved without {@code valueOf()} and its exception handling.
+     */
+    private static final Map<String, Engine> BY_CODE_NAME = new HashMap<>();
+
+    static {
+        for (Engine engine : values()) {
+            BY_CODE_NAME.put(engine.codeName, engine);
+        }
+    }
 
     Engine(String codeName, String manufacturer, String model, double fuelConsumption){
         this.codeName=codeName;
@@ -44,6 +57,20 @@ public enum Engine {
         return codeName;
     }
 
+    /**Returns engine by its code name.
+     *
+     * @param codeName - code name of engine, as it is stored in the file
+     * @return Engine object
+     * @throws IllegalArgumentException if there is no engine with such code name
+     */
+    public static Engine byCodeName(String codeName) {
+        Engine engine = BY_CODE_NAME.get(codeName);
+        if (engine == null) {
+            throw new IllegalArgumentException("No enum constant " + Engine.class.getCanonicalName() + "." + codeName);
+        }
+        return engine;
+    }
+
     @Override
     public String toString() {
         return "Engine{" +
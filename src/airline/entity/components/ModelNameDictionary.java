@@ -0,0 +1,221 @@
+package airline.entity.components;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded dictionary of canonical model names.
+ * <p>
+ * Big fleets contain millions of planes, but only hundreds of distinct models. Dictionary returns one shared
+ * String instance for equal model names, so planes of the same model don't keep their own copies.
+ * Parsers look names up straight from row bytes/chars, so for already known model no String is allocated at all.
+ * <p>
+ * Dictionary is an open-addressing hash table, which slots are only filled and never cleared, so lookups are
+ * lock-free and dictionary can be shared by parsing threads. When dictionary is full, new names are returned
+ * as is (not interned) and counted as misses.
+ */
+public class ModelNameDictionary {
+    private static final int DEFAULT_MAX_SIZE = 16 * 1024;
+    /**
+     * Approximate size of String object without its content (object header, fields and array header).
+     */
+    private static final int STRING_OVERHEAD = 24 + 16;
+    private static final ModelNameDictionary SHARED = new ModelNameDictionary(DEFAULT_MAX_SIZE);
+
+    private final AtomicReferenceArray<String> table;
+    private final int mask;
+    private final int maxSize;
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong savedBytes = new AtomicLong();
+
+    /**
+     * @param maxSize - maximal amount of distinct names in the dictionary
+     */
+    public ModelNameDictionary(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Size of dictionary must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        // table is kept at most half full, so probe sequences stay short
+        int capacity = Integer.highestOneBit(maxSize) << 2;
+        table = new AtomicReferenceArray<>(capacity);
+        mask = capacity - 1;
+    }
+
+    /**
+     * Returns dictionary, that is used by parsers and {@code Plane.constructPlane()}.
+     *
+     * @return shared dictionary
+     */
+    public static ModelNameDictionary shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns canonical instance of the name.
+     *
+     * @param name - model name
+     * @return equal String from dictionary or given name, if dictionary is full
+     */
+    public String intern(String name) {
+        if (name == null) {
+            return null;
+        }
+        return lookup(name, 0, name.length(), name.hashCode(), null, name);
+    }
+
+    /**
+     * Returns canonical instance of the name, that is the part of given chars.
+     *
+     * @param chars - row with the name
+     * @param start - position of the first symbol of the name
+     * @param end   - position after the last symbol of the name
+     * @return equal String from dictionary or new String, if dictionary doesn't contain it and is full
+     */
+    public String intern(CharSequence chars, int start, int end) {
+        int hash = 0;
+        for (int index = start; index < end; index++) {
+            hash = 31 * hash + chars.charAt(index);
+        }
+        return lookup(chars, start, end, hash, null, null);
+    }
+
+    /**
+     * Returns canonical instance of the name, which bytes are the part of given array.
+     * Every byte is treated as one ISO-8859-1 symbol.
+     *
+     * @param bytes - row with the name
+     * @param start - position of the first byte of the name
+     * @param end   - position after the last byte of the name
+     * @return equal String from dictionary or new String, if dictionary doesn't contain it and is full
+     */
+    public String intern(byte[] bytes, int start, int end) {
+        int hash = 0;
+        for (int index = start; index < end; index++) {
+            hash = 31 * hash + (bytes[index] & 0xff);
+        }
+        return lookup(null, start, end, hash, bytes, null);
+    }
+
+    /**
+     * Finds the name in the table or inserts it. Name is given either by chars or by bytes.
+     *
+     * @param existing - already created String with the name or null
+     */
+    private String lookup(CharSequence chars, int start, int end, int hash, byte[] bytes, String existing) {
+        int length = end - start;
+        int slot = spread(hash) & mask;
+        while (true) {
+            String candidate = table.get(slot);
+            if (candidate == null) {
+                String name = existing != null ? existing : newString(chars, bytes, start, end);
+                if (size.incrementAndGet() > maxSize) {
+                    size.decrementAndGet();
+                    misses.incrementAndGet();
+                    return name;
+                }
+                if (table.compareAndSet(slot, null, name)) {
+                    return name;
+                }
+                // other thread filled the slot, it can contain the same name
+                size.decrementAndGet();
+                existing = name;
+                continue;
+            }
+            if (candidate.hashCode() == hash && candidate.length() == length
+                    && matches(candidate, chars, bytes, start)) {
+                hits.incrementAndGet();
+                if (candidate != existing) {
+                    savedBytes.addAndGet(stringSize(candidate));
+                }
+                return candidate;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static boolean matches(String candidate, CharSequence chars, byte[] bytes, int start) {
+        for (int index = 0; index < candidate.length(); index++) {
+            char symbol = bytes != null ? (char) (bytes[start + index] & 0xff) : chars.charAt(start + index);
+            if (candidate.charAt(index) != symbol) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String newString(CharSequence chars, byte[] bytes, int start, int end) {
+        if (bytes != null) {
+            return new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+        }
+        return chars.subSequence(start, end).toString();
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Estimates heap size of the String: object, array header and content (one byte per symbol for Latin-1
+     * strings, two bytes otherwise), aligned to 8 bytes.
+     */
+    private static long stringSize(String value) {
+        int bytesPerSymbol = 1;
+        for (int index = 0; index < value.length(); index++) {
+            if (value.charAt(index) > 0xff) {
+                bytesPerSymbol = 2;
+                break;
+            }
+        }
+        return (STRING_OVERHEAD + (long) value.length() * bytesPerSymbol + 7) & ~7L;
+    }
+
+    /**
+     * @return amount of distinct names in the dictionary
+     */
+    public int size() {
+        return size.get();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return amount of lookups, that returned already existing instance
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return amount of names, that weren't interned, because dictionary was full
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns estimated amount of heap bytes, that would be occupied by duplicated names without dictionary.
+     *
+     * @return amount of bytes
+     */
+    public long getSavedBytes() {
+        return savedBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ModelNameDictionary{" +
+                "size=" + size() +
+                ", maxSize=" + maxSize +
+                ", hits=" + getHits() +
+                ", misses=" + getMisses() +
+                ", savedBytes=" + getSavedBytes() +
+                '}';
+    }
+}
@@ -42,12 +42,18 @@ public class CargoPlane extends Plane {
         return engineModel.getFuelConsumption();
     }
 
+    public Engine getEngine() {
+        return engineModel;
+    }
+
     public int getPassengerCapacity() {
         return passengerCapacity;
     }
 
     public void setPassengerCapacity(int passengerCapacity) {
+        fireBeforeChange();
         this.passengerCapacity = passengerCapacity;
+        fireAfterChange();
     }
 
     public int getCargoCapacity() {
@@ -55,7 +61,9 @@ public class CargoPlane extends Plane {
     }
 
     public void setCargoCapacity(int cargoCapacity) {
+        fireBeforeChange();
         this.cargoCapacity = cargoCapacity;
+        fireAfterChange();
     }
 
     @Override
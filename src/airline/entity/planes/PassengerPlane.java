@@ -40,20 +40,32 @@ public class PassengerPlane extends Plane {
         return engineModel.getFuelConsumption();
     }
 
+    public Engine getEngine() {
+        return engineModel;
+    }
+
     public int getPassengerCapacity() {
         return passengerCapacity;
     }
 
     public void setPassengerCapacity(int passengerCapacity) {
+        fireBeforeChange();
         this.passengerCapacity = passengerCapacity;
+        fireAfterChange();
     }
 
     public int getCargoCapacity() {
         return cargoCapacity;
     }
 
-    public void setCarryingCapacity(int cargoCapacity) {
+    public void setCargoCapacity(int cargoCapacity) {
+        fireBeforeChange();
         this.cargoCapacity = cargoCapacity;
+        fireAfterChange();
+    }
+
+    public void setCarryingCapacity(int cargoCapacity) {
+        setCargoCapacity(cargoCapacity);
     }
 
     @Override
@@ -2,6 +2,9 @@ package airline.entity.planes;
 
 
 import airline.entity.components.Engine;
+import airline.entity.components.ModelNameDictionary;
+
+import java.util.Arrays;
 
 public abstract class Plane {
     /**Serial number for current plane.
@@ -16,6 +19,11 @@ public abstract class Plane {
      *
      */
     private String modelName;
+    /**Listeners of changes of this plane.
+     *
+     */
+    private PlaneChangeListener[] changeListeners = NO_LISTENERS;
+    private static final PlaneChangeListener[] NO_LISTENERS = new PlaneChangeListener[0];
 
     /**Constructs the base of plane.
      *
@@ -34,6 +42,8 @@ public abstract class Plane {
      * <p>
      * Plane factory. Constructs and Returns plane by given parameters.
      * If (int) plane type would be less than 1 and bigger than 2 will be returned null.
+     * Model name is replaced by its canonical instance from shared {@code ModelNameDictionary},
+     * so planes of the same model share one String.
      *
      * @param planeType         1 - for PassengerPlane object, 2 - for CargoPlane object
      * @param serialNumber      - (int) plane serial number
@@ -46,6 +56,7 @@ public abstract class Plane {
      */
     public static Plane constructPlane(int planeType, int serialNumber, String modelName, int crew, int cargoCapacity,
                                        int passengerCapacity, Engine engineModel) {
+        modelName = ModelNameDictionary.shared().intern(modelName);
         switch (planeType) {
             case (1):
                 return new PassengerPlane(serialNumber, modelName,
@@ -71,15 +82,70 @@ public abstract class Plane {
     }
 
     public void setCrewSize(int crewSize) {
+        fireBeforeChange();
         this.crewSize = crewSize;
+        fireAfterChange();
+    }
+
+    /**Adds listener, that will be notified about changes of this plane.
+     *
+     * The same listener can be added several times (for example, if plane is added to the company twice),
+     * in this case it will be notified several times.
+     *
+     * @param listener - PlaneChangeListener obj
+     */
+    public void addChangeListener(PlaneChangeListener listener) {
+        PlaneChangeListener[] listeners = Arrays.copyOf(changeListeners, changeListeners.length + 1);
+        listeners[changeListeners.length] = listener;
+        changeListeners = listeners;
+    }
+
+    /**Removes one occurrence of given listener.
+     *
+     * @param listener - PlaneChangeListener obj
+     */
+    public void removeChangeListener(PlaneChangeListener listener) {
+        for (int index = 0; index < changeListeners.length; index++) {
+            if (changeListeners[index] == listener) {
+                PlaneChangeListener[] listeners = new PlaneChangeListener[changeListeners.length - 1];
+                System.arraycopy(changeListeners, 0, listeners, 0, index);
+                System.arraycopy(changeListeners, index + 1, listeners, index, listeners.length - index);
+                changeListeners = listeners.length == 0 ? NO_LISTENERS : listeners;
+                return;
+            }
+        }
+    }
+
+    /**Must be called by setters before the field is changed.
+     *
+     */
+    protected void fireBeforeChange() {
+        for (PlaneChangeListener listener : changeListeners) {
+            listener.beforeChange(this);
+        }
+    }
+
+    /**Must be called by setters after the field is changed.
+     *
+     */
+    protected void fireAfterChange() {
+        for (PlaneChangeListener listener : changeListeners) {
+            listener.afterChange(this);
+        }
     }
 
     public abstract int getPassengerCapacity();
 
+    public abstract void setPassengerCapacity(int passengerCapacity);
+
     public abstract int getCargoCapacity();
 
+    public abstract void setCargoCapacity(int cargoCapacity);
+
     public abstract double getFuelConsumption();
 
+    public abstract Engine getEngine();
+
     public abstract String toString();
 
     public abstract boolean equals(Object o);
@@ -0,0 +1,24 @@
+package airline.entity.planes;
+
+/**
+ * Listener of changes of plane fields.
+ * <p>
+ * Used by owners of planes (for example AirlineCompany) to keep their state consistent,
+ * when plane is changed through its setters.
+ */
+public interface PlaneChangeListener {
+
+    /**
+     * Called before plane fields are changed. Plane still has old values.
+     *
+     * @param plane - plane, that will be changed
+     */
+    void beforeChange(Plane plane);
+
+    /**
+     * Called after plane fields are changed. Plane already has new values.
+     *
+     * @param plane - changed plane
+     */
+    void afterChange(Plane plane);
+}
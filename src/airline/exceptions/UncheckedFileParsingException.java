@@ -0,0 +1,31 @@
+package airline.exceptions;
+
+/**
+ * Unchecked wrapper of FileParsingException.
+ * <p>
+ * Used where checked exception cannot be thrown, for example from {@code Iterator} and {@code Stream} methods.
+ */
+public class UncheckedFileParsingException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final FileParsingException cause;
+
+    public UncheckedFileParsingException(FileParsingException cause) {
+        super(cause);
+        this.cause = cause;
+    }
+
+    @Override
+    public FileParsingException getCause() {
+        return cause;
+    }
+
+    public String getCustomMessage() {
+        return cause.getCustomMessage();
+    }
+
+    @Override
+    public String toString() {
+        return cause.toString();
+    }
+}
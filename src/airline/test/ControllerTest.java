@@ -3,20 +3,64 @@ package airline.test;
 import airline.entity.comparators.CompareType;
 import airline.exceptions.FileParsingException;
 import airline.exceptions.PlaneParseException;
+import airline.exceptions.UncheckedFileParsingException;
 import airline.entity.AirlineCompany;
+import airline.entity.ColumnarPlaneList;
+import airline.entity.FleetAggregates;
 import airline.entity.components.Engine;
+import airline.entity.components.ModelNameDictionary;
+import airline.entity.planes.CargoPlane;
+import airline.entity.planes.PassengerPlane;
 import airline.entity.planes.Plane;
+import airline.util.BinarySnapshot;
+import airline.util.BlockFleetFile;
 import airline.util.Controller;
 import airline.util.FileHandler;
+import airline.util.FleetCompression;
+import airline.util.FleetJournal;
+import airline.util.FleetFileFollower;
+import airline.util.FleetFormat;
+import airline.util.FleetImportResult;
+import airline.util.FleetImporter;
+import airline.util.FleetWriteResult;
+import airline.util.ModelNameTrie;
+import airline.util.ParallelScanner;
+import airline.util.PlaneCondition;
+import airline.util.PlaneCursor;
+import airline.util.PlaneIndexes;
+import airline.util.PlaneKdTree;
+import airline.util.PlanePage;
+import airline.util.PlaneQuery;
+import airline.util.QueryCache;
+import airline.util.PlaneRecordParser;
+import airline.util.RangeQueryBatch;
 import airline.util.SearchEngine;
+import airline.util.WriteBehindPersister;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
 
 
 public class ControllerTest {
@@ -208,6 +252,1331 @@ public class ControllerTest {
         }
     }
 
+    @Test
+    public void parallelParsing_SKIP_BROKEN_LINES() throws FileParsingException {
+        sortedBySerialNumber.deletePlane(0);
+        AirlineCompany testParsedCompany = FileHandler.parseFileAndConstructCompanyInParallel(
+                "src/airline/test/testfiles/stop test.txt", true);
+        Assert.assertEquals(sortedBySerialNumber, testParsedCompany);
+    }
+
+    @Test
+    public void parallelParsing_BROKEN_LINE_NUMBER_MESSAGE() {
+        try {
+            FileHandler.parseFileAndConstructCompanyInParallel("src/airline/test/testfiles/stop test.txt", false);
+            Assert.fail("Broken line was not reported");
+        } catch (FileParsingException e) {
+            Assert.assertTrue(e.getCustomMessage().contains("at line 2."));
+        }
+    }
+
+    @Test
+    public void parallelParsing_BIG_FILE_KEEPS_ORDER() throws FileParsingException {
+        AirlineCompany bigCompany = new AirlineCompany("Big");
+        for (int index = 0; index < 100000; index++) {
+            bigCompany.addPlane(Plane.constructPlane(index % 2 + 1, index, "Model " + index, 4, index, index * 2,
+                    Engine.values()[index % Engine.values().length]));
+        }
+        File file = new File("src/airline/data/Big test.txt");
+        FileHandler.writeCompany(bigCompany, file.getPath());
+        AirlineCompany testParsedCompany = FileHandler.parseFileAndConstructCompanyInParallel(file.getPath(), false);
+        file.delete();
+        Assert.assertEquals(bigCompany.amountOfPlanes(), testParsedCompany.amountOfPlanes());
+        Assert.assertTrue(areCollectionsEquals(bigCompany.getPlanesList(), testParsedCompany.getPlanesList()));
+        Assert.assertEquals(99999, testParsedCompany.getPlane(99999).getSerialNumber());
+    }
+
+    /**
+     * Previous realization of {@code FileHandler.parseAndConstructPlane}, based on {@code String.split}.
+     */
+    private String parseWithSplit(String row) {
+        String[] parameters = row.split("\\|");
+        try {
+            int planeType;
+            switch (parameters[0]) {
+                case ("Passenger"):
+                    planeType = 1;
+                    break;
+                case ("Cargo"):
+                    planeType = 2;
+                    break;
+                default:
+                    return "Unknown plane type before the first | symbol";
+            }
+            int serialNumber = Integer.parseInt(parameters[1]);
+            String modelName = parameters[2];
+            int passengerCapacity = Integer.parseInt(parameters[3]);
+            int cargoCapacity = Integer.parseInt(parameters[4]);
+            int crew = Integer.parseInt((parameters[5]));
+            Engine engine = Engine.valueOf(parameters[6]);
+            return Plane.constructPlane(planeType, serialNumber, modelName, crew, cargoCapacity, passengerCapacity,
+                    engine).toString();
+        } catch (NumberFormatException e) {
+            return "Cannot convert String to Integer";
+        } catch (RuntimeException e) {
+            return e.getClass().getName() + ": " + e.getMessage();
+        }
+    }
+
+    private String parseWithCursor(String row) {
+        try {
+            return FileHandler.parseAndConstructPlane(row).toString();
+        } catch (PlaneParseException e) {
+            return e.getCustomMessage();
+        } catch (RuntimeException e) {
+            return e.getClass().getName() + ": " + e.getMessage();
+        }
+    }
+
+    @Test
+    public void cursorParser_SAME_AS_SPLIT() {
+        String[] rows = {"Cargo|1|C-130 HERCULES|50|50|4|GE_GE90", "Passenger|-2|A340|+280|25|6|PW_JT8D|extra",
+                "Passenger|2147483647|A|-2147483648|0|6|PW_JT9D||", "Cargo|2147483648|A|1|1|1|GE_GE90",
+                "Cargo|1||1|1|1|GE_GE90", "Cargo|1|M|1|1|1|", "Cargo|1|M|1|1|1|GE_GE9", "Cargo|1||||",
+                "Cargo|1", "|||", "", "Cargo|+|M|1|1|1|GE_GE90", "Cargo|1|M|1|1|-|GE_GE90", "Cargo|1|M|1 |1|1|GE_GE90",
+                "|Cargo|1|M|1|1|1|GE_GE90", "cargo|1|M|1|1|1|GE_GE90", "Cargo|\u0661\u0662|M|1|1|1|GE_GE90"};
+        PlaneRecordParser parser = new PlaneRecordParser();
+        for (String row : rows) {
+            Assert.assertEquals(row, parseWithSplit(row), parseWithCursor(row));
+            byte[] bytes = row.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+            try {
+                Assert.assertEquals(row, parseWithSplit(row),
+                        parser.parse(bytes, 0, bytes.length, java.nio.charset.StandardCharsets.UTF_8).toString());
+            } catch (PlaneParseException e) {
+                Assert.assertEquals(row, parseWithSplit(row), e.getCustomMessage());
+            } catch (RuntimeException e) {
+                Assert.assertEquals(row, parseWithSplit(row), e.getClass().getName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void streamPlanes_SKIP_BROKEN_LINES() throws FileParsingException {
+        try (Stream<Plane> planes = FileHandler.streamPlanes("src/airline/test/testfiles/stop test.txt", true)) {
+            Assert.assertEquals(65, planes.mapToLong(Plane::getCargoCapacity).sum());
+        }
+    }
+
+    @Test(expected = UncheckedFileParsingException.class)
+    public void streamPlanes_BROKEN_LINE() throws FileParsingException {
+        try (Stream<Plane> planes = FileHandler.streamPlanes("src/airline/test/testfiles/stop test.txt", false)) {
+            planes.count();
+        }
+    }
+
+    @Test
+    public void writeAndReadBinarySnapshot() throws FileParsingException {
+        File file = new File("src/airline/data/Test.snapshot");
+        Controller controller = new Controller("Test", true);
+        for (Plane plane : sortedBySerialNumber.getPlanesList()) {
+            controller.addPlane(plane);
+        }
+        controller.toFile(file.getPath(), FleetFormat.BINARY_SNAPSHOT);
+        boolean isSnapshot = BinarySnapshot.isSnapshot(file.getPath());
+        Controller loaded = new Controller(file.getPath(), FleetFormat.BINARY_SNAPSHOT);
+        file.delete();
+        Assert.assertTrue(isSnapshot);
+        Assert.assertEquals("Test", loaded.getCompanyName());
+        Assert.assertTrue(areCollectionsEquals(sortedBySerialNumber.getPlanesList(), loaded.getPlanesList()));
+        Assert.assertEquals(sortedBySerialNumber.getPlane(1).getModelName(), loaded.getPlane(1).getModelName());
+        Assert.assertEquals(sortedBySerialNumber.getPlane(2).getSerialNumber(), loaded.getPlane(2).getSerialNumber());
+    }
+
+    @Test
+    public void readBinarySnapshot_CORRUPTED_COUNTS() throws IOException {
+        File file = new File("src/airline/data/Corrupted.snapshot");
+        try {
+            Controller controller = new Controller("Corrupted", true);
+            for (Plane plane : sortedBySerialNumber.getPlanesList()) {
+                controller.addPlane(plane);
+            }
+            controller.toFile(file.getPath(), FleetFormat.BINARY_SNAPSHOT);
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            bytes[bytes.length - 10] ^= 1;
+            Files.write(file.toPath(), bytes);
+            try {
+                BinarySnapshot.readCompany(file.getPath());
+                Assert.fail("Flipped bit must be found by checksum");
+            } catch (FileParsingException e) {
+                Assert.assertTrue(e.toString(), e.getCustomMessage().contains("checksum"));
+            }
+            // snapshot of version 1 has no checksum: huge count must not be allocated
+            ByteBuffer header = ByteBuffer.allocate(17);
+            header.putInt(0x464C5453).putInt(1).putInt(1).put((byte) 'x').putInt(Integer.MAX_VALUE);
+            Files.write(file.toPath(), header.array());
+            try {
+                BinarySnapshot.readCompany(file.getPath());
+                Assert.fail("Wrong engines count must be reported");
+            } catch (FileParsingException e) {
+                Assert.assertTrue(e.toString(), e.getCustomMessage().contains("corrupted"));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(expected = FileParsingException.class)
+    public void readBinarySnapshot_TEXT_FILE() throws FileParsingException {
+        BinarySnapshot.readCompany("src/airline/test/testfiles/stop test.txt");
+    }
+
+    @Test
+    public void writeCompany_OVERWRITES_EXISTING_FILE() throws FileParsingException {
+        File file = new File("src/airline/data/Test.txt");
+        FileHandler.writeCompany(sortedByCargoCapacity, file.getPath());
+        FleetWriteResult result = FileHandler.writeCompany(sortedBySerialNumber, file.getPath());
+        AirlineCompany testParsedCompany = FileHandler.parseFileAndConstructCompany(file.getPath());
+        long fileSize = file.length();
+        file.delete();
+        Assert.assertTrue(areCollectionsEquals(sortedBySerialNumber.getPlanesList(), testParsedCompany.getPlanesList()));
+        Assert.assertEquals(3, result.getRowsWritten());
+        Assert.assertEquals(fileSize, result.getBytesWritten());
+    }
+
+    @Test
+    public void writeCompany_SAME_ROWS_AS_TO_STRING() throws FileParsingException {
+        File file = new File("src/airline/data/Test.txt");
+        simpleTest.addPlane(1, -2147483648, "Tu-154", 0, 2147483647, -1, Engine.PW_JT8D);
+        simpleTest.toFile(file.getPath());
+        List<String> rows = new ArrayList<>();
+        try (Stream<Plane> planes = FileHandler.streamPlanes(file.getPath(), false)) {
+            planes.forEach(plane -> rows.add(plane.toString()));
+        }
+        file.delete();
+        for (int index = 0; index < simpleTest.getPlanesList().size(); index++) {
+            Assert.assertEquals(simpleTest.getPlane(index).toString(), rows.get(index));
+        }
+    }
+
+    @Test
+    public void toFile_KEEPS_PERMISSIONS() throws IOException {
+        File file = new File("src/airline/data/Test.txt");
+        simpleTest.toFile(file.getPath());
+        Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-rw-r--");
+        try {
+            Files.setPosixFilePermissions(file.toPath(), permissions);
+        } catch (UnsupportedOperationException e) {
+            file.delete();
+            return;
+        }
+        simpleTest.toFile(file.getPath());
+        Set<PosixFilePermission> saved = Files.getPosixFilePermissions(file.toPath());
+        simpleTest.toFile(file.getPath(), FleetFormat.BINARY_SNAPSHOT);
+        Set<PosixFilePermission> savedSnapshot = Files.getPosixFilePermissions(file.toPath());
+        file.delete();
+        Assert.assertEquals(permissions, saved);
+        Assert.assertEquals(permissions, savedSnapshot);
+    }
+
+    @Test
+    public void compressedFile_READ_BY_EVERY_LOADER() throws FileParsingException, IOException {
+        AirlineCompany bigCompany = new AirlineCompany("Big");
+        for (int index = 0; index < 50000; index++) {
+            bigCompany.addPlane(Plane.constructPlane(index % 2 + 1, index, "Model " + index % 100, 4, index,
+                    index * 2, Engine.values()[index % Engine.values().length]));
+        }
+        for (FleetCompression compression : new FleetCompression[]{FleetCompression.GZIP, FleetCompression.DEFLATE}) {
+            File file = new File("src/airline/data/Compressed test.txt");
+            FleetWriteResult result = FileHandler.writeCompany(bigCompany, file.getPath(), compression);
+            FleetCompression detected = FleetCompression.detect(file.getPath());
+            long fileSize = file.length();
+            AirlineCompany parsed = FileHandler.parseFileAndConstructCompany(file.getPath());
+            AirlineCompany parsedInParallel = FileHandler.parseFileAndConstructCompanyInParallel(file.getPath(), false);
+            List<Plane> streamed = new ArrayList<>();
+            try (Stream<Plane> planes = FileHandler.streamPlanes(file.getPath(), false)) {
+                planes.forEach(streamed::add);
+            }
+            file.delete();
+            Assert.assertEquals(compression, detected);
+            Assert.assertEquals(fileSize, result.getBytesWritten());
+            Assert.assertEquals("Big", parsed.getName());
+            Assert.assertTrue(areCollectionsEquals(bigCompany.getPlanesList(), parsed.getPlanesList()));
+            Assert.assertTrue(areCollectionsEquals(bigCompany.getPlanesList(), parsedInParallel.getPlanesList()));
+            Assert.assertTrue(areCollectionsEquals(bigCompany.getPlanesList(), streamed));
+        }
+    }
+
+    @Test
+    public void detectCompression_PLAIN_TEXT() throws IOException {
+        File file = new File("src/airline/data/Test.txt");
+        simpleTest.setCompanyName("x^");
+        simpleTest.toFile(file.getPath());
+        FleetCompression detected = FleetCompression.detect(file.getPath());
+        file.delete();
+        Assert.assertEquals(FleetCompression.NONE, detected);
+    }
+
+    @Test
+    public void importDirectory_REGISTRY_AND_FAILURES() throws FileParsingException, IOException {
+        File directory = new File("src/airline/data/Import test");
+        directory.mkdir();
+        FileHandler.writeCompany(sortedBySerialNumber, directory.getPath() + "/a.txt");
+        simpleTest.setCompanyName("Second");
+        simpleTest.toFile(directory.getPath() + "/b.txt", FleetFormat.BINARY_SNAPSHOT);
+        FileHandler.writeCompany(sortedByModelName, directory.getPath() + "/c.txt", FleetCompression.GZIP);
+        new File(directory, "d.txt").createNewFile();
+        new File(directory, "e.log").createNewFile();
+        FleetImportResult result = new FleetImporter(2, false).importFiles(directory.getPath(), "*.txt");
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+        Assert.assertEquals(2, result.getCompanies().size());
+        Assert.assertTrue(areCollectionsEquals(sortedBySerialNumber.getPlanesList(),
+                result.getCompany("Test").getPlanesList()));
+        Assert.assertEquals(3, result.getCompany("Second").amountOfPlanes());
+        Assert.assertEquals(4, result.getReports().size());
+        Assert.assertEquals(2, result.getFailures().size());
+        Assert.assertTrue(result.getReports().get(2).getFailure().startsWith("Company with the same name"));
+        Assert.assertTrue(result.getReports().get(3).isFailed());
+    }
+
+    @Test(expected = FileParsingException.class)
+    public void importDirectory_NO_DIRECTORY() throws FileParsingException {
+        new FleetImporter(false).importDirectory("src/airline/data/No such directory");
+    }
+
+    @Test
+    public void modelNames_SHARED_BY_PLANES_OF_SAME_MODEL() throws PlaneParseException {
+        ModelNameDictionary dictionary = new ModelNameDictionary(2);
+        PlaneRecordParser parser = new PlaneRecordParser(dictionary);
+        byte[] row = "Cargo|2|AN-124|0|120|6|PW_JT9D".getBytes();
+        Plane first = parser.parse("Passenger|1|AN-124|10|20|4|GE_GE90");
+        Plane second = parser.parse(row, 0, row.length, Charset.defaultCharset());
+        Plane third = parser.parse("Passenger|3|A380|10|20|4|GE_GE90");
+        Plane notInterned = parser.parse("Passenger|4|A340|10|20|4|GE_GE90");
+        Assert.assertSame(first.getModelName(), second.getModelName());
+        Assert.assertEquals("A340", notInterned.getModelName());
+        Assert.assertEquals(Engine.PW_JT9D, second.getEngine());
+        Assert.assertEquals(2, dictionary.size());
+        Assert.assertEquals(1, dictionary.getHits());
+        Assert.assertEquals(1, dictionary.getMisses());
+        Assert.assertTrue(dictionary.getSavedBytes() > 0);
+        Assert.assertSame(third.getModelName(), dictionary.intern(new String("A380")));
+        Assert.assertSame(Plane.constructPlane(1, 5, new String("C-130 HERCULES"), 1, 1, 1, Engine.GE_GE90)
+                .getModelName(), simpleTest.getPlane(1).getModelName());
+    }
+
+    @Test
+    public void blockFile_QUARANTINES_DAMAGED_BLOCK() throws FileParsingException, IOException {
+        AirlineCompany bigCompany = new AirlineCompany("Big");
+        for (int index = 0; index < 1000; index++) {
+            bigCompany.addPlane(Plane.constructPlane(index % 2 + 1, index, "Model " + index % 10, 4, index,
+                    index * 2, Engine.values()[index % Engine.values().length]));
+        }
+        File file = new File("src/airline/data/Block test.txt");
+        FleetWriteResult result = BlockFleetFile.writeCompany(bigCompany, file.getPath(), 4096);
+        long fileSize = file.length();
+        BlockFleetFile.LoadResult intact = BlockFleetFile.readCompany(file.getPath(), false);
+        List<Plane> secondBlock = BlockFleetFile.readBlock(file.getPath(), 1);
+        try (RandomAccessFile damaged = new RandomAccessFile(file, "rw")) {
+            damaged.seek(fileSize / 2);
+            damaged.write(damaged.read() ^ 0x10);
+        }
+        BlockFleetFile.LoadResult quarantined = BlockFleetFile.readCompany(file.getPath(), true);
+        boolean strictLoadFailed = false;
+        try {
+            BlockFleetFile.readCompany(file.getPath(), false);
+        } catch (FileParsingException e) {
+            strictLoadFailed = true;
+        }
+        file.delete();
+        Assert.assertEquals(fileSize, result.getBytesWritten());
+        Assert.assertTrue(intact.getBlocksCount() > 2);
+        Assert.assertTrue(areCollectionsEquals(bigCompany.getPlanesList(), intact.getCompany().getPlanesList()));
+        Assert.assertEquals(1000, intact.getCompany().amountOfPlanes());
+        Assert.assertEquals(bigCompany.getPlanesList().subList(secondBlock.get(0).getSerialNumber(),
+                secondBlock.get(0).getSerialNumber() + secondBlock.size()).toString(), secondBlock.toString());
+        Assert.assertEquals(1, quarantined.getDamagedBlocks().size());
+        Assert.assertEquals(1000 - quarantined.getLostRows(), quarantined.getCompany().amountOfPlanes());
+        Assert.assertTrue(strictLoadFailed);
+    }
+
+    @Test
+    public void blockFile_DAMAGED_INDEX_IS_SCANNED() throws FileParsingException, IOException {
+        File file = new File("src/airline/data/Block test.txt");
+        simpleTest.toFile(file.getPath(), FleetFormat.CHECKSUMMED_BLOCKS);
+        try (RandomAccessFile damaged = new RandomAccessFile(file, "rw")) {
+            damaged.seek(file.length() - 5);
+            damaged.write(0);
+        }
+        BlockFleetFile.LoadResult result = BlockFleetFile.readCompany(file.getPath(), true);
+        boolean isBlockFile = BlockFleetFile.isBlockFile(file.getPath());
+        file.delete();
+        Assert.assertTrue(isBlockFile);
+        Assert.assertEquals("Test", result.getCompany().getName());
+        Assert.assertTrue(areCollectionsEquals(simpleTest.getPlanesList(), result.getCompany().getPlanesList()));
+        Assert.assertEquals(3, result.getCompany().amountOfPlanes());
+    }
+
+    @Test
+    public void writeBehind_COALESCES_CHANGES() throws FileParsingException, IOException {
+        File file = new File("src/airline/data/Write behind test.txt");
+        simpleTest.startWriteBehind(file.getPath(), FleetFormat.TEXT, 60000, 1000000);
+        for (int index = 0; index < 100; index++) {
+            simpleTest.addPlane(1, 10 + index, "A320", 6, 20, 180, Engine.PW_JT8D);
+        }
+        simpleTest.setCompanyName("Write behind");
+        simpleTest.flush();
+        AirlineCompany flushed = FileHandler.parseFileAndConstructCompany(file.getPath());
+        simpleTest.getPlane(0).setPassengerCapacity(310);
+        simpleTest.sortPlanesList(CompareType.BY_PASSENGER_CAPACITY);
+        simpleTest.stopWriteBehind();
+        AirlineCompany stopped = FileHandler.parseFileAndConstructCompany(file.getPath());
+        file.delete();
+        Assert.assertEquals("Write behind", flushed.getName());
+        Assert.assertEquals(103, flushed.amountOfPlanes());
+        Assert.assertEquals(simpleTest.getPlanesList().toString(), stopped.getPlanesList().toString());
+        Assert.assertEquals(310, stopped.getPlane(102).getPassengerCapacity());
+    }
+
+    @Test
+    public void writeBehind_WRITES_ON_THRESHOLD() throws FileParsingException, IOException {
+        File file = new File("src/airline/data/Write behind test.txt");
+        simpleTest.startWriteBehind(file.getPath(), FleetFormat.BINARY_SNAPSHOT, 60000, 2);
+        simpleTest.addPlane(2, 4, "AN-124", 6, 120, 0, Engine.PW_JT9D);
+        simpleTest.addPlane(2, 5, "AN-225", 6, 250, 0, Engine.PW_JT9D);
+        simpleTest.awaitPersisted();
+        AirlineCompany persisted = BinarySnapshot.readCompany(file.getPath());
+        simpleTest.stopWriteBehind();
+        file.delete();
+        Assert.assertEquals(5, persisted.amountOfPlanes());
+    }
+
+    @Test
+    public void writeBehind_REPORTS_FAILURES_AND_WRITES_ON_CLOSE() throws FileParsingException, IOException {
+        File directory = new File("src/airline/data/Write behind directory");
+        File file = new File(directory, "Write behind test.txt");
+        directory.mkdir();
+        AirlineCompany company = new AirlineCompany("Failing");
+        WriteBehindPersister persister = new WriteBehindPersister(company, file.getPath(), FleetFormat.TEXT,
+                60000, 1);
+        // plane without engine can be copied, but can't be written to text file
+        company.addPlane(Plane.constructPlane(1, 1, "A320", 6, 20, 180, null));
+        boolean writeFailed = false;
+        try {
+            persister.awaitPersisted();
+        } catch (IOException e) {
+            writeFailed = true;
+        }
+        company.deletePlane(0);
+        directory.delete();
+        company.addPlane(Plane.constructPlane(1, 2, "A320", 6, 20, 180, Engine.PW_JT8D));
+        boolean directoryMissing = false;
+        try {
+            persister.flush();
+        } catch (IOException e) {
+            directoryMissing = true;
+        }
+        directory.mkdir();
+        company.setName("Written on close");
+        persister.close();
+        AirlineCompany closed = FileHandler.parseFileAndConstructCompany(file.getPath());
+        file.delete();
+        directory.delete();
+        Assert.assertTrue(writeFailed);
+        Assert.assertTrue(directoryMissing);
+        Assert.assertEquals("Written on close", closed.getName());
+        Assert.assertEquals(company.getPlanesList().toString(), closed.getPlanesList().toString());
+    }
+
+    @Test
+    public void indexedSearch_MATCHES_LINEAR_SCAN() {
+        AirlineCompany company = new AirlineCompany("Indexed");
+        Controller controller = new Controller(company);
+        for (int serialNumber = 0; serialNumber < 300; serialNumber++) {
+            controller.addPlane(1 + serialNumber % 2, serialNumber, "A3" + serialNumber % 7, 5,
+                    serialNumber * 7 % 50, serialNumber * 13 % 400, Engine.GE_GE90);
+        }
+        controller.getIndexes();
+        // enough changes to merge delta of indexes several times
+        for (int serialNumber = 300; serialNumber < 1000; serialNumber++) {
+            controller.addPlane(1 + serialNumber % 2, serialNumber, "A3" + serialNumber % 7, 5,
+                    serialNumber * 7 % 50, serialNumber * 13 % 400, Engine.GE_GE90);
+        }
+        for (int index = 0; index < 400; index++) {
+            company.deletePlane(index);
+        }
+        for (int index = 0; index < company.amountOfPlanes(); index += 3) {
+            company.getPlane(index).setPassengerCapacity(index % 100);
+            company.getPlane(index).setCargoCapacity(index % 30);
+        }
+        controller.sortPlanesList(CompareType.BY_SERIAL_NUMBER);
+        List<Plane> planes = controller.getPlanesList();
+        assertSameSearchResult(SearchEngine.getPlanesBySerialNumber(planes, 250, 700),
+                SearchEngine.getPlanesBySerialNumber(controller.getIndexes(), 700, 250), Plane::getSerialNumber);
+        assertSameSearchResult(SearchEngine.getPlanesByCargoCapacity(planes, 10, 20),
+                SearchEngine.getPlanesByCargoCapacity(controller.getIndexes(), 10, 20), Plane::getCargoCapacity);
+        assertSameSearchResult(SearchEngine.getPlanesByPassengerCapacity(planes, 0, 150),
+                SearchEngine.getPlanesByPassengerCapacity(controller.getIndexes(), 0, 150),
+                Plane::getPassengerCapacity);
+        Assert.assertEquals(company.amountOfPlanes(), controller.getIndexes().size());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void indexedSearch_NO_MATCH() {
+        simpleTest.getIndexes();
+        simpleTest.getPlane(0).setCargoCapacity(1000);
+        SearchEngine.getPlanesByCargoCapacity(simpleTest.getIndexes(), 400, 500);
+    }
+
+    @Test
+    public void modelNameIndex_LOOKUPS() {
+        AirlineCompany company = new AirlineCompany("Indexed");
+        Controller controller = new Controller(company);
+        controller.addPlane(1, 30, "A320", 5, 10, 180, Engine.GE_GE90);
+        controller.addPlane(1, 20, "a320", 5, 10, 180, Engine.GE_GE90);
+        controller.addPlane(1, 10, "A320", 5, 10, 180, Engine.GE_GE90);
+        controller.addPlane(2, 40, "AN-124", 6, 120, 0, Engine.PW_JT9D);
+        Assert.assertEquals(30, controller.getPlane("A320").getSerialNumber());
+        Assert.assertEquals(20, controller.getPlaneByModelName("a320").getSerialNumber());
+        Assert.assertNull(controller.getPlane("B737"));
+        Assert.assertEquals(3, SearchEngine.getPlanesByModel(controller.getIndexes(), "A320").size());
+        Assert.assertEquals(SearchEngine.getPlanesByModel(company.getPlanesList(), "an-124"),
+                SearchEngine.getPlanesByModel(controller.getIndexes(), "an-124"));
+        controller.sortPlanesList(CompareType.BY_SERIAL_NUMBER);
+        Assert.assertEquals(10, controller.getPlane("A320").getSerialNumber());
+        company.deletePlane("A320");
+        Assert.assertEquals(30, controller.getPlane("A320").getSerialNumber());
+        company.deletePlane("a320");
+        Assert.assertNull(controller.getPlane("a320"));
+        Assert.assertEquals(1, SearchEngine.getPlanesByModel(controller.getIndexes(), "a320").size());
+    }
+
+    @Test
+    public void engineBitmapIndex_COMBINED_FILTERS() {
+        AirlineCompany company = new AirlineCompany("Indexed");
+        Controller controller = new Controller(company);
+        Engine[] engines = Engine.values();
+        for (int serialNumber = 0; serialNumber < 500; serialNumber++) {
+            controller.addPlane(1 + serialNumber % 2, serialNumber, "A3" + serialNumber % 7, 5,
+                    serialNumber % 50, serialNumber * 13 % 400, engines[serialNumber % engines.length]);
+        }
+        PlaneIndexes indexes = controller.getIndexes();
+        for (int index = 0; index < 100; index++) {
+            company.deletePlane(index * 2);
+        }
+        controller.addPlane(1, 1000, "A380", 20, 30, 500, Engine.GE_GE90);
+        List<Plane> planes = controller.getPlanesList();
+        double fuel = Engine.PW_JT9D.getFuelConsumption();
+        assertSameSearchResult(SearchEngine.getPlanesByFuelConsumption(planes, fuel),
+                SearchEngine.getPlanesByFuelConsumption(indexes, fuel), plane -> 0);
+        assertSameSearchResult(SearchEngine.getPlanesByFuelConsumption(planes, 0.4, 0.7),
+                SearchEngine.getPlanesByFuelConsumption(indexes, 0.7, 0.4), plane -> 0);
+        BitSet combined = indexes.getFuelConsumptionBitmap(0.4, 0.5);
+        combined.and(indexes.getCargoCapacityBitmap(20, 30));
+        int expected = 0;
+        for (Plane plane : planes) {
+            if (plane.getEngine() == Engine.GE_GE90 && plane.getCargoCapacity() >= 20
+                    && plane.getCargoCapacity() <= 30) {
+                expected++;
+            }
+        }
+        Assert.assertEquals(expected, indexes.toPlanes(combined).size());
+        Assert.assertEquals(planes.get(1), controller.getPlaneByFuelConsumption(planes,
+                planes.get(1).getFuelConsumption()));
+    }
+
+    @Test
+    public void getPlaneByFuelConsumption_LINKED_LIST() {
+        AirlineCompany company = new AirlineCompany("Linked", new LinkedList<>());
+        Controller controller = new Controller(company);
+        for (int serialNumber = 0; serialNumber < 2000; serialNumber++) {
+            controller.addPlane(1, serialNumber, "A320", 5, 10, 150, Engine.GE_GE90);
+        }
+        controller.addPlane(2, 5000, "AN-124", 6, 120, 0, Engine.PW_JT9D);
+        Assert.assertEquals(5000, controller.getPlaneByFuelConsumption(company.getPlanesList(),
+                Engine.PW_JT9D.getFuelConsumption()).getSerialNumber());
+        company.deletePlane(2000);
+        try {
+            controller.getPlaneByFuelConsumption(company.getPlanesList(), Engine.PW_JT9D.getFuelConsumption());
+            Assert.fail("Engine without planes must be rejected");
+        } catch (NoSuchElementException e) {
+            Assert.assertEquals(0, controller.getIndexes().getEngineBitmap(Engine.PW_JT9D).cardinality());
+        }
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void engineBitmapIndex_NO_ENGINE() {
+        SearchEngine.getPlanesByFuelConsumption(simpleTest.getIndexes(), 0.1, 0.2);
+    }
+
+    @Test
+    public void planeQuery_PLAN_AND_RESULT() {
+        AirlineCompany company = new AirlineCompany("Indexed");
+        Controller controller = new Controller(company);
+        Engine[] engines = Engine.values();
+        for (int serialNumber = 0; serialNumber < 1000; serialNumber++) {
+            controller.addPlane(1 + serialNumber % 2, serialNumber, "A3" + serialNumber % 10, 5,
+                    serialNumber % 50, serialNumber * 13 % 400, engines[serialNumber % engines.length]);
+        }
+        PlaneCondition condition = PlaneCondition.and(PlaneCondition.model("a35"),
+                PlaneCondition.serialNumber(100, 900), PlaneCondition.planeType(CargoPlane.class),
+                PlaneCondition.or(PlaneCondition.engine(Engine.GE_GE90), PlaneCondition.cargoCapacity(0, 10)));
+        List<Plane> expected = new ArrayList<>();
+        for (Plane plane : controller.getPlanesList()) {
+            if (condition.test(plane)) {
+                expected.add(plane);
+            }
+        }
+        expected.sort(CompareType.BY_SERIAL_NUMBER.reversed());
+        PlaneQuery query = controller.query().where(condition)
+                .orderBy(CompareType.BY_SERIAL_NUMBER, true).offset(2).limit(5);
+        List<Plane> found = query.execute();
+        Assert.assertEquals(expected.subList(2, 7), found);
+        String plan = query.explain();
+        // model bucket (100 planes) is more selective than serial number range (801 planes)
+        Assert.assertTrue(plan, plan.contains("Access: INDEX model = 'a35' (estimated rows: 100)"));
+        Assert.assertTrue(plan, plan.contains("matched " + expected.size() + ", returned 5"));
+        Assert.assertTrue(controller.query().where(PlaneCondition.model("B737")).execute().isEmpty());
+        Assert.assertTrue(controller.query().where(PlaneCondition.planeType(CargoPlane.class)).explain()
+                .startsWith("Access: FULL SCAN"));
+        Assert.assertEquals(3, controller.query().limit(3).execute().size());
+    }
+
+    @Test
+    public void parallelScanner_KEEPS_ORDER() {
+        List<Plane> planes = new ArrayList<>();
+        for (int serialNumber = 0; serialNumber < 40000; serialNumber++) {
+            planes.add(Plane.constructPlane(1 + serialNumber % 2, serialNumber, "A3" + serialNumber % 10, 5,
+                    serialNumber % 50, serialNumber * 13 % 400, Engine.GE_GE90));
+        }
+        List<Plane> expected = new ArrayList<>();
+        for (Plane plane : planes) {
+            if (plane.getPassengerCapacity() >= 100 && plane.getPassengerCapacity() <= 120) {
+                expected.add(plane);
+            }
+        }
+        ParallelScanner defaultScanner = SearchEngine.getScanner();
+        try (ParallelScanner scanner = new ParallelScanner(4, 10000)) {
+            Assert.assertTrue(scanner.isParallel(planes.size()));
+            Assert.assertFalse(scanner.isParallel(100));
+            SearchEngine.setScanner(scanner);
+            List<Plane> found = SearchEngine.getPlanesByPassengerCapacity(planes, 120, 100);
+            Assert.assertEquals(expected.size(), found.size());
+            for (int index = 0; index < found.size(); index++) {
+                Assert.assertSame(expected.get(index), found.get(index));
+            }
+            Assert.assertEquals(expected.size(), scanner.count(planes,
+                    plane -> plane.getPassengerCapacity() >= 100 && plane.getPassengerCapacity() <= 120));
+        } finally {
+            SearchEngine.setScanner(defaultScanner);
+        }
+    }
+
+    @Test
+    public void columnarPlaneList_SAME_AS_OBJECTS() {
+        ColumnarPlaneList columns = new ColumnarPlaneList();
+        AirlineCompany columnar = new AirlineCompany("Columnar", columns);
+        AirlineCompany objects = new AirlineCompany("Objects");
+        Engine[] engines = Engine.values();
+        for (int serialNumber = 0; serialNumber < 300; serialNumber++) {
+            int planeType = 1 + serialNumber % 2;
+            int passengerCapacity = serialNumber * 13 % 400;
+            columnar.addPlane(Plane.constructPlane(planeType, serialNumber, "A3" + serialNumber % 10, 5,
+                    serialNumber % 50, passengerCapacity, engines[serialNumber % engines.length]));
+            objects.addPlane(Plane.constructPlane(planeType, serialNumber, "A3" + serialNumber % 10, 5,
+                    serialNumber % 50, passengerCapacity, engines[serialNumber % engines.length]));
+        }
+        Controller controller = new Controller(columnar);
+        PlaneIndexes indexes = controller.getIndexes();
+        columnar.getPlane(7).setPassengerCapacity(1000);
+        objects.getPlane(7).setPassengerCapacity(1000);
+        Assert.assertTrue(columnar.getPlane(7) instanceof CargoPlane);
+        Assert.assertSame(columnar.getPlane(7), indexes.getPlanesByPassengerCapacity(1000, 1000).get(0));
+        columnar.deletePlane(3);
+        objects.deletePlane(3);
+        columnar.sortPlanes(CompareType.BY_PASSENGER_CAPACITY);
+        objects.sortPlanes(CompareType.BY_PASSENGER_CAPACITY);
+        Assert.assertEquals(objects.getPlanesList().toString(), columnar.getPlanesList().toString());
+        Assert.assertEquals(controller.totalPassengerCapacity(),
+                columns.sum(ColumnarPlaneList.Column.PASSENGER_CAPACITY));
+        Assert.assertEquals(SearchEngine.getPlanesByCargoCapacity(objects.getPlanesList(), 10, 20).toString(),
+                columns.filter(ColumnarPlaneList.Column.CARGO_CAPACITY, 10, 20).toString());
+        Assert.assertEquals(SearchEngine.getPlanesByCargoCapacity(objects.getPlanesList(), 10, 20).size(),
+                columns.count(ColumnarPlaneList.Column.CARGO_CAPACITY, 10, 20));
+        Assert.assertEquals(SearchEngine.getPlanesByFuelConsumption(objects.getPlanesList(),
+                Engine.PW_JT9D.getFuelConsumption()).size(), columns.countByEngine(Engine.PW_JT9D));
+        Assert.assertEquals(1, indexes.getPlanesByPassengerCapacity(1000, 1000).size());
+        Assert.assertEquals(columnar.amountOfPlanes(), indexes.size());
+    }
+
+    @Test
+    public void columnarPlaneList_DOESNT_KEEP_VIEWS() throws InterruptedException {
+        ColumnarPlaneList columns = new ColumnarPlaneList();
+        AirlineCompany columnar = new AirlineCompany("Columnar", columns);
+        for (int serialNumber = 0; serialNumber < 100; serialNumber++) {
+            columnar.addPlane(Plane.constructPlane(1 + serialNumber % 2, serialNumber, "A3" + serialNumber % 10, 5,
+                    serialNumber % 50, serialNumber * 13 % 400, Engine.GE_GE90));
+        }
+        Plane kept = columnar.getPlane(10);
+        WeakReference<Plane> dropped = new WeakReference<>(columnar.getPlane(20));
+        for (int attempt = 0; attempt < 50 && dropped.get() != null; attempt++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assert.assertNull("View, that nobody keeps, must be collected", dropped.get());
+        columnar.deletePlane(0);
+        columnar.sortPlanes(CompareType.BY_PASSENGER_CAPACITY);
+        Assert.assertSame(kept, columnar.getPlanesList().get(columnar.getPlanesList().indexOf(kept)));
+        kept.setCargoCapacity(1000);
+        Assert.assertEquals(1000, columns.filter(ColumnarPlaneList.Column.CARGO_CAPACITY, 1000, 1000)
+                .get(0).getCargoCapacity());
+        // aggregates and range search are read by columns
+        Assert.assertEquals(columns.sum(ColumnarPlaneList.Column.CARGO_CAPACITY),
+                columnar.getAggregates().getFleet().getCargoCapacity().getTotal());
+        Assert.assertSame(kept, SearchEngine.getPlanesByCargoCapacity(columns, 1000, 1000).get(0));
+        Assert.assertEquals(columns.count(ColumnarPlaneList.Column.CARGO_CAPACITY, 10, 20),
+                SearchEngine.getPlanesByCargoCapacity(columns, 10, 20).size());
+    }
+
+    @Test
+    public void queryCache_QUOTED_MODEL_NAMES() {
+        AirlineCompany company = new AirlineCompany("Quoted");
+        Controller controller = new Controller(company);
+        controller.addPlane(1, 1, "a", 5, 10, 100, Engine.GE_GE90);
+        controller.addPlane(1, 2, "b", 5, 10, 100, Engine.GE_GE90);
+        controller.addPlane(1, 3, "a' or model = 'b", 5, 10, 100, Engine.GE_GE90);
+        controller.addPlane(1, 4, "c\\", 5, 10, 100, Engine.GE_GE90);
+        QueryCache cache = controller.enableQueryCache(8);
+        Assert.assertEquals(2, controller.query().where(PlaneCondition.or(PlaneCondition.model("a"),
+                PlaneCondition.model("b"))).execute().size());
+        Assert.assertEquals(1, controller.query().where(PlaneCondition.or(
+                PlaneCondition.model("a' or model = 'b"))).execute().size());
+        Assert.assertEquals(1, controller.query().where(PlaneCondition.modelPrefix("c\\")).execute().size());
+        Assert.assertEquals(0, controller.query().where(PlaneCondition.modelPrefix("c\\'")).execute().size());
+        Assert.assertEquals(0, cache.getHits());
+        Assert.assertEquals(4, cache.getMisses());
+    }
+
+    @Test
+    public void queryCache_INVALIDATED_BY_VERSION() {
+        AirlineCompany company = new AirlineCompany("Cached");
+        Controller controller = new Controller(company);
+        for (int serialNumber = 0; serialNumber < 100; serialNumber++) {
+            controller.addPlane(1 + serialNumber % 2, serialNumber, "A3" + serialNumber % 10, 5,
+                    serialNumber % 50, serialNumber * 13 % 400, Engine.GE_GE90);
+        }
+        QueryCache cache = controller.enableQueryCache(2);
+        PlaneCondition condition = PlaneCondition.and(PlaneCondition.model("A35"),
+                PlaneCondition.cargoCapacity(0, 30));
+        List<Plane> first = controller.query().where(condition).execute();
+        // the same query with other spelling and order of conditions
+        List<Plane> second = controller.query().where(PlaneCondition.and(PlaneCondition.cargoCapacity(0, 30),
+                PlaneCondition.model("a35"))).execute();
+        Assert.assertEquals(first, second);
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+        long version = company.getVersion();
+        controller.getPlane("A35").setCargoCapacity(45);
+        Assert.assertTrue(company.getVersion() > version);
+        List<Plane> changed = controller.query().where(condition).execute();
+        Assert.assertEquals(first.size() - 1, changed.size());
+        Assert.assertEquals(1, cache.getInvalidations());
+        controller.query().where(PlaneCondition.serialNumber(0, 10)).execute();
+        controller.query().where(PlaneCondition.serialNumber(0, 20)).execute();
+        Assert.assertEquals(1, cache.getEvictions());
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void planeQuery_PAGES_AND_TOP_K() {
+        AirlineCompany company = new AirlineCompany("Paged");
+        Controller controller = new Controller(company);
+        Engine[] engines = Engine.values();
+        for (int serialNumber = 0; serialNumber < 1000; serialNumber++) {
+            controller.addPlane(1 + serialNumber % 2, serialNumber, "A3" + serialNumber % 10, 5,
+                    serialNumber * 7 % 300, serialNumber % 120, engines[serialNumber % engines.length]);
+        }
+        PlaneCondition condition = PlaneCondition.cargoCapacity(50, 250);
+        List<Plane> expected = new ArrayList<>();
+        for (Plane plane : controller.getPlanesList()) {
+            if (condition.test(plane)) {
+                expected.add(plane);
+            }
+        }
+        expected.sort(CompareType.BY_CARGO_CAPACITY.reversed());
+        // top 10 are read from the end of cargo index without visiting other planes of the range
+        PlaneQuery top = controller.query().where(condition).orderBy(CompareType.BY_CARGO_CAPACITY, true).limit(10);
+        List<Plane> found = top.execute();
+        Assert.assertEquals(10, found.size());
+        for (int index = 0; index < found.size(); index++) {
+            Assert.assertEquals(expected.get(index).getCargoCapacity(), found.get(index).getCargoCapacity());
+        }
+        Assert.assertTrue(top.explain(), top.explain().contains("fetched 10,"));
+        String heap = controller.query().where(PlaneCondition.serialNumber(0, 500))
+                .orderBy(CompareType.BY_MODEL_NAME).limit(5).explain();
+        Assert.assertTrue(heap, heap.contains("(top 5 by heap)") && heap.contains("returned 5"));
+        // pages are continued by token even after the company is changed
+        Set<Plane> paged = Collections.newSetFromMap(new IdentityHashMap<>());
+        PlanePage page = controller.query().where(condition).orderBy(CompareType.BY_CARGO_CAPACITY, true).page(37);
+        Plane removed = page.getPlanes().get(0);
+        company.deletePlane(company.getPlanesList().indexOf(removed));
+        int previous = Integer.MAX_VALUE;
+        while (true) {
+            for (Plane plane : page.getPlanes()) {
+                Assert.assertTrue(plane.getCargoCapacity() <= previous);
+                Assert.assertTrue(paged.add(plane));
+                previous = plane.getCargoCapacity();
+            }
+            if (!page.hasNext()) {
+                break;
+            }
+            page = controller.query().where(condition).orderBy(CompareType.BY_CARGO_CAPACITY, true)
+                    .after(page.getNextToken()).page(37);
+        }
+        Assert.assertEquals(expected.size(), paged.size());
+        PlaneCursor cursor = controller.query().orderBy(CompareType.BY_MODEL_NAME).cursor();
+        Assert.assertEquals(3, cursor.next(3).size());
+        controller.getPlanesList().get(0).setCrewSize(6);
+        try {
+            cursor.next();
+            Assert.fail("Cursor must fail after change of the company");
+        } catch (ConcurrentModificationException e) {
+            List<Plane> rest = controller.query().orderBy(CompareType.BY_MODEL_NAME)
+                    .after(cursor.getToken()).execute();
+            Assert.assertEquals(controller.getPlanesList().size() - 3, rest.size());
+        }
+        try {
+            controller.query().orderBy(CompareType.BY_SERIAL_NUMBER).after(cursor.getToken()).cursor();
+            Assert.fail("Token of other order must be rejected");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains("BY_MODEL_NAME"));
+        }
+    }
+
+    @Test
+    public void planeQuery_PAGES_OF_EQUAL_VALUES() {
+        AirlineCompany company = new AirlineCompany("Equal");
+        Controller controller = new Controller(company);
+        for (int serialNumber = 0; serialNumber < 3000; serialNumber++) {
+            controller.addPlane(1, serialNumber, "A320", 5, 100, 150, Engine.values()[0]);
+        }
+        for (CompareType order : new CompareType[]{CompareType.BY_PASSENGER_CAPACITY, CompareType.BY_MODEL_NAME}) {
+            for (boolean descending : new boolean[]{false, true}) {
+                // every plane is returned exactly once, though all planes have the same sort value
+                Set<Plane> paged = Collections.newSetFromMap(new IdentityHashMap<>());
+                PlanePage page = controller.query().orderBy(order, descending).page(7);
+                while (true) {
+                    for (Plane plane : page.getPlanes()) {
+                        Assert.assertTrue(order + " " + plane, paged.add(plane));
+                    }
+                    if (!page.hasNext()) {
+                        break;
+                    }
+                    page = controller.query().orderBy(order, descending).after(page.getNextToken()).page(7);
+                }
+                Assert.assertEquals(order.toString(), company.getPlanesList().size(), paged.size());
+            }
+        }
+        // plane, added after the token was created, follows the token
+        PlanePage page = controller.query().orderBy(CompareType.BY_PASSENGER_CAPACITY).page(10);
+        company.deletePlane(company.getPlanesList().indexOf(page.getPlanes().get(0)));
+        controller.addPlane(1, 5000, "A320", 5, 100, 150, Engine.values()[0]);
+        List<Plane> rest = controller.query().orderBy(CompareType.BY_PASSENGER_CAPACITY)
+                .after(page.getNextToken()).execute();
+        Assert.assertEquals(company.getPlanesList().size() - 9, rest.size());
+        Assert.assertEquals(5000, rest.get(rest.size() - 1).getSerialNumber());
+    }
+
+    @Test
+    public void planeQuery_AGGREGATES_WITHOUT_EXCEPTIONS() {
+        AirlineCompany company = new AirlineCompany("Aggregated");
+        Controller controller = new Controller(company);
+        Assert.assertEquals(0, controller.query().where(PlaneCondition.cargoCapacity(0, 100)).count());
+        Assert.assertFalse(controller.query().exists());
+        Assert.assertEquals(0, controller.query().sum(Plane::getCargoCapacity));
+        Assert.assertFalse(controller.query().min(CompareType.BY_CARGO_CAPACITY).isPresent());
+        Engine[] engines = Engine.values();
+        for (int serialNumber = 0; serialNumber < 500; serialNumber++) {
+            controller.addPlane(1 + serialNumber % 2, serialNumber, "A3" + serialNumber % 10, 5,
+                    serialNumber * 7 % 300, serialNumber % 120, engines[serialNumber % engines.length]);
+        }
+        // removed plane, that isn't merged out of the index yet, isn't counted
+        company.deletePlane(0);
+        PlaneCondition range = PlaneCondition.cargoCapacity(0, 99);
+        PlaneCondition filtered = PlaneCondition.and(range, PlaneCondition.planeType(CargoPlane.class));
+        PlaneCondition united = PlaneCondition.or(range, PlaneCondition.engine(Engine.GE_GE90));
+        for (PlaneCondition condition : new PlaneCondition[]{range, filtered, united}) {
+            int count = 0;
+            long sum = 0;
+            Plane min = null;
+            for (Plane plane : controller.getPlanesList()) {
+                if (condition.test(plane)) {
+                    count++;
+                    sum += plane.getPassengerCapacity();
+                    if (min == null || plane.getCargoCapacity() < min.getCargoCapacity()) {
+                        min = plane;
+                    }
+                }
+            }
+            Assert.assertEquals(condition.toString(), count, controller.query().where(condition).count());
+            Assert.assertEquals(sum, controller.query().where(condition).sum(Plane::getPassengerCapacity));
+            Assert.assertEquals(min.getCargoCapacity(), controller.query().where(condition)
+                    .min(CompareType.BY_CARGO_CAPACITY).get().getCargoCapacity());
+            Assert.assertTrue(controller.query().where(condition).exists());
+        }
+        Assert.assertEquals(299, controller.query().max(CompareType.BY_CARGO_CAPACITY).get().getCargoCapacity());
+        Assert.assertEquals(499, controller.query().count());
+        PlaneQuery empty = controller.query().where(PlaneCondition.and(range, PlaneCondition.cargoCapacity(200, 300)));
+        Assert.assertEquals(0, empty.count());
+        Assert.assertFalse(empty.exists());
+        Assert.assertFalse(empty.max(CompareType.BY_MODEL_NAME).isPresent());
+    }
+
+    @Test
+    public void modelNameTrie_PREFIX_AND_FUZZY() {
+        AirlineCompany company = new AirlineCompany("Trie");
+        Controller controller = new Controller(company);
+        PlaneIndexes indexes = controller.getIndexes();
+        String[] models = {"A320", "A321", "a330", "B737", "B747", "C-130", "C-17"};
+        for (int serialNumber = 0; serialNumber < 70; serialNumber++) {
+            controller.addPlane(1, serialNumber, models[serialNumber % models.length], 5, 10, 100, Engine.GE_GE90);
+        }
+        Assert.assertEquals(Arrays.asList("A320", "A321", "a330"), indexes.getModelNamesByPrefix("a3"));
+        Assert.assertEquals(30, indexes.getPlanesByModelPrefix("A3").size());
+        Assert.assertEquals(70, indexes.getPlanesByModelPrefix("").size());
+        Assert.assertEquals(Arrays.asList("B737", "B747"), indexes.getSimilarModelNames("b737", 1));
+        Assert.assertTrue(indexes.getSimilarModelNames("A302", 1).isEmpty());
+        Assert.assertEquals(Arrays.asList("A320", "A321", "a330"), indexes.getSimilarModelNames("A302", 2));
+        List<Plane> similar = SearchEngine.getPlanesBySimilarModel(indexes, "C-31", 2);
+        Assert.assertEquals("C-130", similar.get(0).getModelName());
+        Assert.assertEquals(3, ModelNameTrie.distance("kitten", "sitting", 3));
+        Assert.assertEquals(3, ModelNameTrie.distance("kitten", "sitting", 2));
+        // trie follows removal of the last plane of the model
+        for (int index = company.getPlanesList().size() - 1; index >= 0; index--) {
+            if (company.getPlanesList().get(index).getModelName().equals("C-17")) {
+                company.deletePlane(index);
+            }
+        }
+        Assert.assertEquals(Collections.singletonList("C-130"), indexes.getModelNamesByPrefix("c-1"));
+        PlaneQuery query = controller.query().where(PlaneCondition.and(PlaneCondition.modelPrefix("c-"),
+                PlaneCondition.serialNumber(0, 69)));
+        Assert.assertEquals(10, query.count());
+        Assert.assertTrue(query.explain().contains("Access: INDEX model LIKE 'c-%'"));
+        Assert.assertEquals(20, controller.query().where(PlaneCondition.similarModel("B757", 1)).count());
+        try {
+            SearchEngine.getPlanesByModelPrefix(indexes, "D");
+            Assert.fail("Empty result must throw NoSuchElementException");
+        } catch (NoSuchElementException e) {
+            Assert.assertFalse(controller.query().where(PlaneCondition.modelPrefix("D")).exists());
+        }
+    }
+
+    @Test
+    public void rangeQueryBatch_ONE_PASS_RESULTS() {
+        AirlineCompany company = new AirlineCompany("Batch");
+        Controller controller = new Controller(company);
+        Engine[] engines = Engine.values();
+        for (int serialNumber = 0; serialNumber < 2000; serialNumber++) {
+            controller.addPlane(1 + serialNumber % 2, serialNumber, "A3" + serialNumber % 10, 5,
+                    serialNumber * 7 % 300, serialNumber * 13 % 400, engines[serialNumber % engines.length]);
+        }
+        RangeQueryBatch batch = new RangeQueryBatch();
+        ColumnarPlaneList.Column[] columns = {ColumnarPlaneList.Column.SERIAL_NUMBER,
+                ColumnarPlaneList.Column.CARGO_CAPACITY, ColumnarPlaneList.Column.PASSENGER_CAPACITY};
+        for (int query = 0; query < 300; query++) {
+            // overlapping, nested, swapped and empty ranges
+            batch.add(columns[query % 3], query * 31 % 500, query * 17 % 700);
+        }
+        batch.add(ColumnarPlaneList.Column.CARGO_CAPACITY, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        int none = batch.add(ColumnarPlaneList.Column.SERIAL_NUMBER, 5000, 6000);
+        List<List<Plane>> results = controller.search(batch);
+        List<List<Plane>> columnarResults = batch.execute(new ColumnarPlaneList(controller.getPlanesList()));
+        Assert.assertEquals(batch.size(), results.size());
+        Assert.assertTrue(results.get(none).isEmpty());
+        for (int query = 0; query < 300; query++) {
+            int min = Math.min(query * 31 % 500, query * 17 % 700);
+            int max = Math.max(query * 31 % 500, query * 17 % 700);
+            List<Plane> expected = new ArrayList<>();
+            for (Plane plane : controller.getPlanesList()) {
+                int value = query % 3 == 0 ? plane.getSerialNumber()
+                        : query % 3 == 1 ? plane.getCargoCapacity() : plane.getPassengerCapacity();
+                if (value >= min && value <= max) {
+                    expected.add(plane);
+                }
+            }
+            Assert.assertEquals(expected, results.get(query));
+            Assert.assertEquals(expected.toString(), columnarResults.get(query).toString());
+        }
+        Assert.assertEquals(2000, results.get(300).size());
+    }
+
+    @Test
+    public void kdTree_BOX_QUERIES() {
+        AirlineCompany company = new AirlineCompany("Tree");
+        Controller controller = new Controller(company);
+        Engine[] engines = Engine.values();
+        for (int serialNumber = 0; serialNumber < 500; serialNumber++) {
+            controller.addPlane(1 + serialNumber % 2, serialNumber, "A3" + serialNumber % 10, serialNumber % 9,
+                    serialNumber * 7 % 300, serialNumber * 13 % 400, engines[serialNumber % engines.length]);
+        }
+        PlaneIndexes indexes = controller.getIndexes();
+        // ascending serial numbers make the tree unbalanced without rebuilding of subtrees
+        for (int serialNumber = 500; serialNumber < 3000; serialNumber++) {
+            controller.addPlane(1 + serialNumber % 2, serialNumber, "A3" + serialNumber % 10, serialNumber % 9,
+                    serialNumber * 7 % 300, serialNumber * 13 % 400, engines[serialNumber % engines.length]);
+        }
+        for (int index = 0; index < 300; index++) {
+            controller.getPlane(index * 7).setCargoCapacity(index);
+            controller.getPlane(index * 5).setCrewSize(20);
+        }
+        for (int index = 0; index < 200; index++) {
+            company.deletePlane(index * 3);
+        }
+        Assert.assertEquals(controller.getPlanesList().size(), PlaneKdTree.of(company).size());
+        for (int query = 0; query < 50; query++) {
+            PlaneKdTree.Box box = new PlaneKdTree.Box()
+                    .with(ColumnarPlaneList.Column.CARGO_CAPACITY, query * 11 % 400, query * 23 % 400)
+                    .with(ColumnarPlaneList.Column.PASSENGER_CAPACITY, query * 3, query * 3 + 150);
+            if (query % 2 == 0) {
+                box.with(ColumnarPlaneList.Column.SERIAL_NUMBER, query * 40, query * 40 + 1000);
+            }
+            List<Plane> expected = new ArrayList<>();
+            for (Plane plane : controller.getPlanesList()) {
+                if (box.contains(plane)) {
+                    expected.add(plane);
+                }
+            }
+            List<Plane> found = indexes.getPlanesInBox(box);
+            found.sort(CompareType.BY_SERIAL_NUMBER);
+            assertSameSearchResult(expected, found, Plane::getSerialNumber);
+            Assert.assertEquals(expected.size(), indexes.countInBox(box));
+        }
+        PlaneQuery query = controller.query().where(PlaneCondition.and(PlaneCondition.cargoCapacity(0, 20),
+                PlaneCondition.passengerCapacity(0, 50), PlaneCondition.crewSize(20, 20)));
+        List<Plane> expected = new ArrayList<>();
+        for (Plane plane : controller.getPlanesList()) {
+            if (plane.getCargoCapacity() <= 20 && plane.getPassengerCapacity() <= 50 && plane.getCrewSize() == 20) {
+                expected.add(plane);
+            }
+        }
+        Assert.assertEquals(expected, query.execute());
+        Assert.assertTrue(query.explain(), query.explain().contains("Access: INDEX BOX("));
+    }
+
+    @Test
+    public void fleetAggregates_KEPT_ON_CHANGES() {
+        AirlineCompany objects = new AirlineCompany("Objects", new LinkedList<>());
+        AirlineCompany columnar = new AirlineCompany("Columnar", new ColumnarPlaneList());
+        Engine[] engines = Engine.values();
+        for (AirlineCompany company : new AirlineCompany[]{objects, columnar}) {
+            Controller controller = new Controller(company);
+            for (int serialNumber = 0; serialNumber < 300; serialNumber++) {
+                controller.addPlane(1 + serialNumber % 2, serialNumber, "A3" + serialNumber % 10,
+                        serialNumber % 9, serialNumber * 7 % 300, Integer.MAX_VALUE - serialNumber,
+                        engines[serialNumber % engines.length]);
+            }
+            for (int index = 0; index < 50; index++) {
+                company.getPlane(index * 5).setPassengerCapacity(index);
+                company.getPlane(index * 3).setCargoCapacity(1000 + index);
+                company.getPlane(index).setCrewSize(index % 4);
+            }
+            for (int index = 0; index < 40; index++) {
+                company.deletePlane(index * 2);
+            }
+            List<Plane> planes = company.getPlanesList();
+            FleetAggregates aggregates = company.getAggregates();
+            Assert.assertEquals(planes.stream().mapToLong(Plane::getPassengerCapacity).sum(),
+                    controller.totalPassengerCapacity());
+            Assert.assertEquals(planes.stream().mapToLong(Plane::getCargoCapacity).sum(),
+                    controller.totalCargoCapacity());
+            Assert.assertEquals(planes.size(), aggregates.getFleet().getCount());
+            Assert.assertEquals(planes.stream().mapToInt(Plane::getPassengerCapacity).min(),
+                    aggregates.getFleet().getPassengerCapacity().getMin());
+            Assert.assertEquals(planes.stream().mapToInt(Plane::getCargoCapacity).max(),
+                    aggregates.getFleet().getCargoCapacity().getMax());
+            for (Engine engine : engines) {
+                FleetAggregates.Group group = aggregates.getByEngine(engine);
+                Assert.assertEquals(planes.stream().filter(plane -> plane.getEngine() == engine).count(),
+                        group.getCount());
+                Assert.assertEquals(planes.stream().filter(plane -> plane.getEngine() == engine)
+                        .mapToInt(Plane::getCrewSize).min(), group.getCrewSize().getMin());
+            }
+            FleetAggregates.Group cargo = aggregates.getByType(CargoPlane.class);
+            Assert.assertEquals(planes.stream().filter(plane -> plane instanceof CargoPlane)
+                    .mapToLong(Plane::getCargoCapacity).sum(), cargo.getCargoCapacity().getTotal());
+            Assert.assertEquals(planes.size(), cargo.getCount()
+                    + aggregates.getByType(PassengerPlane.class).getCount());
+        }
+        objects.setPlanesList(new ArrayList<>());
+        Assert.assertEquals(0, objects.getAggregates().getFleet().getCount());
+        Assert.assertFalse(objects.getAggregates().getFleet().getCrewSize().getMax().isPresent());
+    }
+
+    @Test
+    public void fleetAggregates_PLANES_ADDED_THROUGH_LIST() {
+        AirlineCompany company = new AirlineCompany("Direct");
+        company.addPlane(Plane.constructPlane(1, 1, "A320", 6, 20, 180, Engine.PW_JT8D));
+        Plane direct = Plane.constructPlane(2, 2, "AN-124", 6, 120, 0, Engine.PW_JT9D);
+        company.getPlanesList().add(direct);
+        company.getPlanesList().add(Plane.constructPlane(1, 3, "A320", 6, 20, 180, Engine.PW_JT8D));
+        company.deletePlane(1);
+        Assert.assertEquals(2, company.getAggregates().getFleet().getCount());
+        Assert.assertEquals(360, company.getAggregates().getFleet().getPassengerCapacity().getTotal());
+        company.deletePlane(1);
+        company.getPlane(0).setCargoCapacity(40);
+        company.getPlanesList().clear();
+        company.addPlane(Plane.constructPlane(2, 4, "AN-225", 6, 250, 0, Engine.PW_JT9D));
+        FleetAggregates.Group fleet = company.getAggregates().getFleet();
+        Assert.assertEquals(1, fleet.getCount());
+        Assert.assertEquals(250, fleet.getCargoCapacity().getTotal());
+        Assert.assertEquals(250, fleet.getCargoCapacity().getMin().getAsInt());
+        Assert.assertEquals(0, company.getAggregates().getByType(PassengerPlane.class).getCount());
+    }
+
+    @Test
+    public void fleetAggregates_CONCURRENT_SETTERS() throws InterruptedException {
+        AirlineCompany company = new AirlineCompany("Concurrent");
+        Controller controller = new Controller(company);
+        for (int serialNumber = 0; serialNumber < 400; serialNumber++) {
+            controller.addPlane(1 + serialNumber % 2, serialNumber, "A320", 5, serialNumber % 50,
+                    serialNumber % 70, Engine.values()[serialNumber % Engine.values().length]);
+        }
+        List<Plane> planes = new ArrayList<>(company.getPlanesList());
+        Thread[] threads = new Thread[4];
+        for (int number = 0; number < threads.length; number++) {
+            int first = number;
+            threads[number] = new Thread(() -> {
+                for (int round = 0; round < 200; round++) {
+                    for (int index = first; index < planes.size(); index += threads.length) {
+                        planes.get(index).setCargoCapacity(round + index);
+                    }
+                    if (first == 0) {
+                        controller.addPlane(2, 1000 + round, "AN-124", 6, round, 0, Engine.PW_JT9D);
+                    }
+                }
+            });
+            threads[number].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long total = 0;
+        int max = 0;
+        for (Plane plane : company.getPlanesList()) {
+            total += plane.getCargoCapacity();
+            max = Math.max(max, plane.getCargoCapacity());
+        }
+        FleetAggregates.Group fleet = company.getAggregates().getFleet();
+        Assert.assertEquals(600, fleet.getCount());
+        Assert.assertEquals(total, fleet.getCargoCapacity().getTotal());
+        Assert.assertEquals(max, fleet.getCargoCapacity().getMax().getAsInt());
+    }
+
+    private void assertSameSearchResult(List<Plane> scanned, List<Plane> indexed,
+                                        ToIntFunction<Plane> attribute) {
+        Assert.assertEquals(scanned.size(), indexed.size());
+        Set<Plane> scannedPlanes = Collections.newSetFromMap(new IdentityHashMap<>());
+        scannedPlanes.addAll(scanned);
+        for (int index = 0; index < indexed.size(); index++) {
+            Assert.assertTrue(scannedPlanes.contains(indexed.get(index)));
+            if (index > 0) {
+                Assert.assertTrue(attribute.applyAsInt(indexed.get(index - 1))
+                        <= attribute.applyAsInt(indexed.get(index)));
+            }
+        }
+    }
+
+    private void deleteJournalFiles(String basePath) {
+        File directory = new File(basePath).getAbsoluteFile().getParentFile();
+        String baseName = new File(basePath).getName();
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(baseName + "."));
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void journalReplay() throws IOException, FileParsingException {
+        String basePath = "src/airline/data/Journal test";
+        simpleTest.startJournal(basePath);
+        simpleTest.addPlane(2, 4, "AN-124", 6, 120, 0, Engine.PW_JT9D);
+        simpleTest.setCompanyName("Journaled");
+        simpleTest.getPlane(0).setPassengerCapacity(310);
+        simpleTest.sortPlanesList();
+        simpleTest.getPlane(3).setCrewSize(7);
+        simpleTest.syncJournal();
+        simpleTest.closeJournal();
+        Controller restored = new Controller(FleetJournal.open(basePath));
+        restored.closeJournal();
+        deleteJournalFiles(basePath);
+        Assert.assertEquals("Journaled", restored.getCompanyName());
+        Assert.assertEquals(simpleTest.getPlanesList().toString(), restored.getPlanesList().toString());
+    }
+
+    @Test
+    public void journalCompactionAndTornTail() throws IOException, FileParsingException {
+        String basePath = "src/airline/data/Journal test";
+        AirlineCompany company = new AirlineCompany("Compacted");
+        FleetJournal journal = FleetJournal.create(company, basePath, 1, 512);
+        for (int index = 0; index < 200; index++) {
+            company.addPlane(Plane.constructPlane(index % 2 + 1, index, "Model " + index, 4, index, index,
+                    Engine.GE_GE90));
+        }
+        company.deletePlane("Model 7");
+        journal.checkpoint();
+        company.deletePlane(0);
+        journal.close();
+        File[] journals = new File("src/airline/data").listFiles((dir, name) -> name.startsWith("Journal test.journal."));
+        try (java.io.FileOutputStream tail = new java.io.FileOutputStream(journals[journals.length - 1], true)) {
+            tail.write(new byte[]{0, 0, 0, 40, 1, 2});
+        }
+        FleetJournal restored = FleetJournal.open(basePath);
+        restored.close();
+        File[] snapshots = new File("src/airline/data").listFiles((dir, name) -> name.startsWith("Journal test.snapshot."));
+        deleteJournalFiles(basePath);
+        Assert.assertEquals(1, snapshots.length);
+        Assert.assertEquals(company.getPlanesList().toString(), restored.getCompany().getPlanesList().toString());
+    }
+
+    @Test
+    public void journalUpdates_AFTER_SHIFTED_POSITIONS() throws IOException, FileParsingException {
+        String basePath = "src/airline/data/Journal test";
+        AirlineCompany company = new AirlineCompany("Shifted", new ColumnarPlaneList());
+        FleetJournal journal = FleetJournal.create(company, basePath);
+        for (int index = 0; index < 50; index++) {
+            company.addPlane(Plane.constructPlane(index % 2 + 1, index, "Model " + index, 4, index, 50 - index,
+                    Engine.GE_GE90));
+        }
+        company.getPlane(10).setCrewSize(9);
+        company.deletePlane(5);
+        company.getPlane(10).setCrewSize(8);
+        company.deletePlane(company.amountOfPlanes() - 1);
+        company.addPlane(Plane.constructPlane(1, 99, "Model 99", 3, 1, 1, Engine.PW_JT9D));
+        company.getPlane(company.amountOfPlanes() - 1).setCargoCapacity(77);
+        company.sortPlanes(CompareType.BY_PASSENGER_CAPACITY);
+        for (int index = 0; index < company.amountOfPlanes(); index += 3) {
+            company.getPlane(index).setPassengerCapacity(index);
+        }
+        journal.close();
+        FleetJournal restored = FleetJournal.open(basePath);
+        restored.close();
+        deleteJournalFiles(basePath);
+        Assert.assertEquals(company.getPlanesList().toString(), restored.getCompany().getPlanesList().toString());
+    }
+
+    @Test
+    public void journalReplacement_DURABLE_ON_RETURN() throws IOException, FileParsingException {
+        String basePath = "src/airline/data/Journal test";
+        AirlineCompany company = new AirlineCompany("Replaced");
+        FleetJournal journal = FleetJournal.create(company, basePath);
+        for (int index = 0; index < 20; index++) {
+            company.addPlane(Plane.constructPlane(index % 2 + 1, index, "Model " + index, 4, index, index,
+                    Engine.GE_GE90));
+        }
+        company.deletePlane(3);
+        List<Plane> replacement = new ArrayList<>();
+        for (int index = 0; index < 5; index++) {
+            replacement.add(Plane.constructPlane(2, 100 + index, "New " + index, 2, 50, 0, Engine.PW_JT9D));
+        }
+        company.setPlanesList(replacement);
+        // files are read without closing the journal, as after crash
+        FleetJournal crashed = FleetJournal.open(basePath);
+        crashed.close();
+        company.getPlane(1).setCargoCapacity(70);
+        company.deletePlane(0);
+        journal.sync();
+        FleetJournal restored = FleetJournal.open(basePath);
+        restored.close();
+        journal.close();
+        deleteJournalFiles(basePath);
+        Assert.assertEquals(5, crashed.getCompany().amountOfPlanes());
+        Assert.assertEquals("New 0", crashed.getCompany().getPlane(0).getModelName());
+        Assert.assertEquals(company.getPlanesList().toString(), restored.getCompany().getPlanesList().toString());
+    }
+
+    @Test
+    public void followFile_INGESTS_APPENDED_LINES() throws IOException, FileParsingException, InterruptedException {
+        File file = new File("src/airline/data/Follow test.txt");
+        FileHandler.writeCompany(sortedBySerialNumber, file.getPath());
+        FleetFileFollower follower = new FleetFileFollower(file.getPath(), true);
+        Controller controller = new Controller(follower);
+        long loadedOffset = follower.getOffset();
+        try (java.io.FileWriter output = new java.io.FileWriter(file, true)) {
+            output.write("Cargo|4|AN-124|0|120|6|PW_JT9D\nbroken line\nPassenger|5|A3");
+        }
+        int added = follower.poll();
+        Assert.assertEquals(1, added);
+        Assert.assertEquals(4, controller.getPlanesList().size());
+        follower.start();
+        try (java.io.FileWriter output = new java.io.FileWriter(file, true)) {
+            output.write("20|300|20|10|GE_GE90\n");
+        }
+        for (int attempt = 0; attempt < 50 && controller.getPlanesList().size() < 5; attempt++) {
+            Thread.sleep(100);
+        }
+        follower.close();
+        file.delete();
+        Assert.assertEquals(5, controller.getPlanesList().size());
+        Assert.assertEquals("A320", controller.getPlane(4).getModelName());
+        Assert.assertTrue(follower.getOffset() > loadedOffset);
+    }
+
+    @Test
+    public void followFile_SURVIVES_SHORT_ROWS() throws IOException, FileParsingException, InterruptedException {
+        File file = new File("src/airline/data/Follow test.txt");
+        FileHandler.writeCompany(sortedBySerialNumber, file.getPath());
+        FleetFileFollower strict = new FleetFileFollower(file.getPath(), false);
+        FleetFileFollower follower = new FleetFileFollower(file.getPath(), true);
+        Controller controller = new Controller(follower);
+        follower.start();
+        try (java.io.FileWriter output = new java.io.FileWriter(file, true)) {
+            output.write("Passenger|1|A\nCargo|9|AN-124|0|120|6|NO_SUCH_ENGINE\n");
+        }
+        try (java.io.FileWriter output = new java.io.FileWriter(file, true)) {
+            output.write("Cargo|4|AN-124|0|120|6|PW_JT9D\n");
+        }
+        for (int attempt = 0; attempt < 50 && controller.getPlanesList().size() < 4; attempt++) {
+            Thread.sleep(100);
+        }
+        follower.close();
+        FileParsingException strictFailure = null;
+        try {
+            strict.poll();
+        } catch (FileParsingException e) {
+            strictFailure = e;
+        }
+        file.delete();
+        Assert.assertEquals(4, controller.getPlanesList().size());
+        Assert.assertNotNull(strictFailure);
+    }
+
+    @Test
+    public void followFile_RELOADS_REWRITTEN_FILE() throws IOException, FileParsingException {
+        File file = new File("src/airline/data/Follow test.txt");
+        try {
+            try (java.io.FileWriter output = new java.io.FileWriter(file)) {
+                output.write("Only name");
+            }
+            FleetFileFollower follower = new FleetFileFollower(file.getPath(), true);
+            Assert.assertEquals("Only name", follower.getCompany().getName());
+            Assert.assertEquals(0, follower.getCompany().amountOfPlanes());
+            try (java.io.FileWriter output = new java.io.FileWriter(file, true)) {
+                output.write("\nCargo|4|AN-124|0|120|6|PW_JT9D\nPassenger|5|A320|300|20|10|GE_GE90\n");
+            }
+            Assert.assertEquals(2, follower.poll());
+            // shorter content
+            try (java.io.FileWriter output = new java.io.FileWriter(file)) {
+                output.write("Only name\nCargo|7|AN-225|0|250|6|PW_JT9D\n");
+            }
+            Assert.assertEquals(1, follower.poll());
+            Assert.assertEquals(1, follower.getCompany().amountOfPlanes());
+            Assert.assertEquals("AN-225", follower.getCompany().getPlane(0).getModelName());
+            // longer content of other company
+            try (java.io.FileWriter output = new java.io.FileWriter(file)) {
+                output.write("Other name\nCargo|8|AN-124|0|120|6|PW_JT9D\nCargo|9|AN-124|0|120|6|PW_JT9D\n"
+                        + "Cargo|10|AN-124|0|120|6|PW_JT9D\n");
+            }
+            Assert.assertEquals(3, follower.poll());
+            Assert.assertEquals("Other name", follower.getCompany().getName());
+            Assert.assertEquals(3, follower.getCompany().amountOfPlanes());
+            Assert.assertEquals(8, follower.getCompany().getPlane(0).getSerialNumber());
+        } finally {
+            file.delete();
+        }
+    }
+
     @Test
     public void getPlanesBySerialNumber() {
         List<Plane> testingValue = SearchEngine.getPlanesBySerialNumber(sortedBySerialNumber.getPlanesList(), 1,1);
@@ -0,0 +1,77 @@
+package airline.util;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Helpers for replacing files through temporary file and rename.
+ * <p>
+ * File is written to the temporary file in the same directory and then renamed over the target,
+ * so readers see either old or new content, but never half-written file.
+ */
+class AtomicFiles {
+
+    /**
+     * Creates temporary file next to the target file.
+     * <p>
+     * File is created with default permissions (unlike {@code Files.createTempFile}, that makes owner-only
+     * file), so new target file gets the same permissions as other files of the user.
+     *
+     * @param target - file, that will be replaced
+     * @return path to the new empty temporary file
+     * @throws IOException if file can't be created
+     */
+    static Path createTempFile(Path target) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        String prefix = "." + target.getFileName().toString();
+        while (true) {
+            Path temp = directory.resolve(prefix + Long.toUnsignedString(ThreadLocalRandom.current().nextLong())
+                    + ".tmp");
+            try {
+                return Files.createFile(temp);
+            } catch (FileAlreadyExistsException e) {
+                // name is taken, next random name is tried
+            }
+        }
+    }
+
+    /**
+     * Renames temporary file over the target.
+     * <p>
+     * Uses atomic move, if file system supports it. Otherwise falls back to simple replace.
+     * If target file exists, its POSIX permissions are copied to the temporary file before the move.
+     *
+     * @param temp   - fully written and synced temporary file
+     * @param target - file to replace
+     * @throws IOException if file can't be moved. Temporary file is deleted in this case.
+     */
+    static void replace(Path temp, Path target) throws IOException {
+        try {
+            copyPermissions(target, temp);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    private static void copyPermissions(Path from, Path to) throws IOException {
+        if (!Files.exists(from)) {
+            return;
+        }
+        try {
+            Files.setPosixFilePermissions(to, Files.getPosixFilePermissions(from));
+        } catch (UnsupportedOperationException e) {
+            // file system has no POSIX permissions
+        }
+    }
+}
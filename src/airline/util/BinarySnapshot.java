@@ -0,0 +1,301 @@
+package airline.util;
+
+import airline.entity.AirlineCompany;
+import airline.entity.components.Engine;
+import airline.entity.planes.CargoPlane;
+import airline.entity.planes.Plane;
+import airline.exceptions.FileParsingException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Columnar binary snapshot of airline company.
+ * <p>
+ * Snapshot doesn't need tokenizing and validation of every row, so it is loaded much faster than text file.
+ * Layout (all numbers are big-endian):
+ * <pre>
+ * magic "FLTS" | version (int)
+ * company name (string)
+ * engines count (int) | engine code names (string)...   - engine table, ordinals below point into it
+ * models count (int)  | model names (string)...         - model names dictionary
+ * planes count (int) = n
+ * type column    byte[n]  1 - passenger, 2 - cargo (the same codes, as in Plane.constructPlane)
+ * serial column  int[n]
+ * model column   int[n]   indexes in models dictionary
+ * passenger capacity column int[n]
+ * cargo capacity column     int[n]
+ * crew column    int[n]
+ * engine column  byte[n]  indexes in engine table
+ * crc32c (int) of all previous bytes                     - since version 2
+ * </pre>
+ * string is stored as length (int) and UTF-8 bytes.
+ * Engine table is stored with code names, so snapshot stays readable after new engines are added to Engine enum.
+ * Snapshots of version 1 (without checksum) are still read. Every count and length is checked against the rest
+ * of the file before allocation, so corrupted file is reported by FileParsingException.
+ */
+public class BinarySnapshot {
+    private static final Logger LOGGER = LogManager.getLogger(BinarySnapshot.class);
+    private static final int MAGIC = 0x464C5453; // "FLTS"
+    private static final int VERSION = 2;
+    /**
+     * Version without checksum.
+     */
+    private static final int VERSION_WITHOUT_CRC = 1;
+    /**
+     * Size of one plane in columns: type and engine bytes, 5 int columns.
+     */
+    private static final int PLANE_SIZE = 2 + 5 * Integer.BYTES;
+    private static final byte PASSENGER_TYPE = 1;
+    private static final byte CARGO_TYPE = 2;
+
+    /**
+     * Checks, whether the file starts with snapshot magic bytes.
+     *
+     * @param filePath - path to the file.
+     * @return true, if file is binary snapshot
+     */
+    public static boolean isSnapshot(String filePath) {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+            while (header.hasRemaining() && channel.read(header) > 0) {
+                // reading magic bytes
+            }
+            return !header.hasRemaining() && header.getInt(0) == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes company to the file as binary snapshot.
+     * <p>
+     * If file already exists, it will be replaced through temporary file, so it is never left half-written.
+     *
+     * @param company  AirlineCompany obj.
+     * @param filePath - path to file.
+     * @return amount of written planes and bytes
+     * @throws IOException if got problems with file location or access.
+     */
+    public static FleetWriteResult writeCompany(AirlineCompany company, String filePath) throws IOException {
+        List<Plane> planes = company.getPlanesList();
+        int amount = planes.size();
+        Map<String, Integer> modelIndexes = new HashMap<>();
+        List<byte[]> models = new ArrayList<>();
+        int[] modelColumn = new int[amount];
+        byte[] typeColumn = new byte[amount];
+        byte[] engineColumn = new byte[amount];
+        int dictionarySize = 0;
+        int index = 0;
+        for (Plane plane : planes) {
+            Integer modelIndex = modelIndexes.get(plane.getModelName());
+            if (modelIndex == null) {
+                modelIndex = models.size();
+                modelIndexes.put(plane.getModelName(), modelIndex);
+                byte[] model = plane.getModelName().getBytes(StandardCharsets.UTF_8);
+                models.add(model);
+                dictionarySize += Integer.BYTES + model.length;
+            }
+            modelColumn[index] = modelIndex;
+            typeColumn[index] = plane instanceof CargoPlane ? CARGO_TYPE : PASSENGER_TYPE;
+            engineColumn[index] = (byte) plane.getEngine().ordinal();
+            index++;
+        }
+        byte[] name = company.getName().getBytes(StandardCharsets.UTF_8);
+        Engine[] engines = Engine.values();
+        int enginesSize = 0;
+        for (Engine engine : engines) {
+            enginesSize += Integer.BYTES + engine.getCodeName().getBytes(StandardCharsets.UTF_8).length;
+        }
+        long size = 3L * Integer.BYTES + name.length + Integer.BYTES + enginesSize + Integer.BYTES + dictionarySize
+                + Integer.BYTES + (long) amount * PLANE_SIZE + Integer.BYTES;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Company is too big for binary snapshot: " + amount + " planes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC).putInt(VERSION);
+        buffer.putInt(name.length).put(name);
+        buffer.putInt(engines.length);
+        for (Engine engine : engines) {
+            byte[] codeName = engine.getCodeName().getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(codeName.length).put(codeName);
+        }
+        buffer.putInt(models.size());
+        for (byte[] model : models) {
+            buffer.putInt(model.length).put(model);
+        }
+        buffer.putInt(amount);
+        buffer.put(typeColumn);
+        for (Plane plane : planes) {
+            buffer.putInt(plane.getSerialNumber());
+        }
+        buffer.asIntBuffer().put(modelColumn);
+        buffer.position(buffer.position() + amount * Integer.BYTES);
+        for (Plane plane : planes) {
+            buffer.putInt(plane.getPassengerCapacity());
+        }
+        for (Plane plane : planes) {
+            buffer.putInt(plane.getCargoCapacity());
+        }
+        for (Plane plane : planes) {
+            buffer.putInt(plane.getCrewSize());
+        }
+        buffer.put(engineColumn);
+        buffer.putInt(crc(buffer.array(), buffer.position()));
+        buffer.flip();
+        Path target = Paths.get(filePath);
+        Path temp = AtomicFiles.createTempFile(target);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        AtomicFiles.replace(temp, target);
+        return new FleetWriteResult(amount, size);
+    }
+
+    /**
+     * Reads binary snapshot and creates AirlineCompany obj.
+     * <p>
+     * The whole file is read by one bulk read, then columns are copied to int arrays and planes are constructed.
+     *
+     * @param filePath - path to the file.
+     * @return AirlineCompany obj.
+     * @throws FileParsingException if file not found, can't be read, isn't a snapshot, has unsupported version
+     *                              or is corrupted.
+     */
+    public static AirlineCompany readCompany(String filePath) throws FileParsingException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new FileParsingException("Snapshot is too big: " + filePath);
+            }
+            buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                // reading whole file
+            }
+            buffer.flip();
+        } catch (NoSuchFileException e) {
+            LOGGER.debug("No file found. Given file path:  " + filePath);
+            LOGGER.error("No file found by given pass.");
+            throw new FileParsingException("No such file by given pass: " + filePath);
+        } catch (IOException e) {
+            LOGGER.debug("Caught IOException: " + e.getMessage());
+            LOGGER.error("Caught IOException.");
+            throw new FileParsingException("An error with Input/Output stream. Message: " + e.getMessage());
+        }
+        try {
+            return decode(buffer);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+                | NegativeArraySizeException e) {
+            LOGGER.debug("Snapshot is corrupted. Given file path:  " + filePath);
+            LOGGER.error("Failed to decode binary snapshot.");
+            throw new FileParsingException("Binary snapshot is corrupted: " + filePath);
+        }
+    }
+
+    private static AirlineCompany decode(ByteBuffer buffer) throws FileParsingException {
+        if (buffer.remaining() < 2 * Integer.BYTES || buffer.getInt() != MAGIC) {
+            LOGGER.error("File is not a binary snapshot.");
+            throw new FileParsingException("File is not a binary snapshot");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION && version != VERSION_WITHOUT_CRC) {
+            LOGGER.error("Unsupported snapshot version: " + version);
+            throw new FileParsingException("Unsupported binary snapshot version: " + version);
+        }
+        if (version != VERSION_WITHOUT_CRC) {
+            int end = buffer.limit() - Integer.BYTES;
+            if (end < buffer.position() || crc(buffer.array(), end) != buffer.getInt(end)) {
+                LOGGER.error("Checksum of binary snapshot doesn't match.");
+                throw new FileParsingException("Binary snapshot checksum mismatch");
+            }
+            buffer.limit(end);
+        }
+        String name = readString(buffer);
+        Engine[] engines = new Engine[readCount(buffer, Integer.BYTES, "engines")];
+        for (int index = 0; index < engines.length; index++) {
+            engines[index] = Engine.byCodeName(readString(buffer));
+        }
+        String[] models = new String[readCount(buffer, Integer.BYTES, "models")];
+        for (int index = 0; index < models.length; index++) {
+            models[index] = readString(buffer);
+        }
+        int amount = readCount(buffer, PLANE_SIZE, "planes");
+        byte[] typeColumn = new byte[amount];
+        buffer.get(typeColumn);
+        int[] serialColumn = readIntColumn(buffer, amount);
+        int[] modelColumn = readIntColumn(buffer, amount);
+        int[] passengerColumn = readIntColumn(buffer, amount);
+        int[] cargoColumn = readIntColumn(buffer, amount);
+        int[] crewColumn = readIntColumn(buffer, amount);
+        byte[] engineColumn = new byte[amount];
+        buffer.get(engineColumn);
+        List<Plane> planes = new ArrayList<>(amount);
+        for (int index = 0; index < amount; index++) {
+            Plane plane = Plane.constructPlane(typeColumn[index], serialColumn[index], models[modelColumn[index]],
+                    crewColumn[index], cargoColumn[index], passengerColumn[index], engines[engineColumn[index]]);
+            if (plane == null) {
+                throw new IllegalArgumentException("Unknown plane type: " + typeColumn[index]);
+            }
+            planes.add(plane);
+        }
+        AirlineCompany company = new AirlineCompany(name);
+        for (Plane plane : planes) {
+            company.addPlane(plane);
+        }
+        return company;
+    }
+
+    private static int[] readIntColumn(ByteBuffer buffer, int amount) {
+        int[] column = new int[amount];
+        buffer.asIntBuffer().get(column);
+        buffer.position(buffer.position() + amount * Integer.BYTES);
+        return column;
+    }
+
+    /**
+     * Reads count of elements and checks, that so many elements of given minimal size fit into the rest of buffer.
+     */
+    private static int readCount(ByteBuffer buffer, int elementSize, String elements) {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / elementSize) {
+            throw new IllegalArgumentException("Wrong count of " + elements + ": " + count);
+        }
+        return count;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = readCount(buffer, 1, "string bytes");
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static int crc(byte[] bytes, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, length);
+        return (int) crc.getValue();
+    }
+}
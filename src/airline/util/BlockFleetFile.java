@@ -0,0 +1,515 @@
+package airline.util;
+
+import airline.entity.AirlineCompany;
+import airline.entity.planes.Plane;
+import airline.exceptions.FileParsingException;
+import airline.exceptions.PlaneParseException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32C;
+
+/**
+ * Block-structured fleet file with checksums.
+ * <p>
+ * Rows (the same, as in text format) are grouped into blocks. Every block is protected by CRC32C,
+ * and the footer contains index of all blocks, so blocks are verified and parsed independently
+ * and in parallel, any block can be read without scanning from the beginning, and damaged block
+ * costs only its own rows. Layout (all numbers are big-endian):
+ * <pre>
+ * magic "FLTB" | version (int) | name length (int) | company name (UTF-8) | name crc32c (int)
+ * block:  magic "BLK1" | payload length (int) | rows count (int) | payload crc32c (int) | payload (rows)
+ * ...
+ * footer: blocks count (int) | (block offset (long) | payload length (int) | rows count (int) | crc32c (int))...
+ * trailer: footer offset (long) | footer crc32c (int) | magic "FLTB"
+ * </pre>
+ * If the footer is damaged, blocks are found by scanning for block magic, so loader resynchronizes
+ * after damaged region instead of giving up.
+ */
+public class BlockFleetFile {
+    private static final Logger LOGGER = LogManager.getLogger(BlockFleetFile.class);
+    private static final int MAGIC = 0x464C5442; // "FLTB"
+    private static final int BLOCK_MAGIC = 0x424C4B31; // "BLK1"
+    private static final int VERSION = 1;
+    private static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+    private static final int BLOCK_HEADER_SIZE = 4 * Integer.BYTES;
+    private static final int INDEX_ENTRY_SIZE = Long.BYTES + 3 * Integer.BYTES;
+    private static final int TRAILER_SIZE = Long.BYTES + 2 * Integer.BYTES;
+    /**
+     * Maximal payload length, that is accepted while scanning for blocks without index.
+     */
+    private static final int MAX_BLOCK_SIZE = 256 * 1024 * 1024;
+    private static final byte NEW_LINE = '\n';
+    /**
+     * Free bytes after the payload limit of block buffer, rows with long model names grow the buffer.
+     */
+    private static final int ROW_RESERVE = 256;
+
+    /**
+     * Result of loading of block file.
+     */
+    public static class LoadResult {
+        private final AirlineCompany company;
+        private final int blocksCount;
+        private final List<Integer> damagedBlocks;
+        private final int lostRows;
+
+        LoadResult(AirlineCompany company, int blocksCount, List<Integer> damagedBlocks, int lostRows) {
+            this.company = company;
+            this.blocksCount = blocksCount;
+            this.damagedBlocks = Collections.unmodifiableList(damagedBlocks);
+            this.lostRows = lostRows;
+        }
+
+        public AirlineCompany getCompany() {
+            return company;
+        }
+
+        public int getBlocksCount() {
+            return blocksCount;
+        }
+
+        /**
+         * @return indexes of quarantined blocks, which planes weren't loaded
+         */
+        public List<Integer> getDamagedBlocks() {
+            return damagedBlocks;
+        }
+
+        /**
+         * @return amount of rows in quarantined blocks (as it is written in the index)
+         */
+        public int getLostRows() {
+            return lostRows;
+        }
+
+        @Override
+        public String toString() {
+            return "LoadResult{" +
+                    "planes=" + company.amountOfPlanes() +
+                    ", blocksCount=" + blocksCount +
+                    ", damagedBlocks=" + damagedBlocks +
+                    ", lostRows=" + lostRows +
+                    '}';
+        }
+    }
+
+    /**
+     * Location and checksum of one block.
+     */
+    private static class BlockInfo {
+        private final long offset;
+        private final int length;
+        private final int rows;
+        private final int crc;
+
+        private BlockInfo(long offset, int length, int rows, int crc) {
+            this.offset = offset;
+            this.length = length;
+            this.rows = rows;
+            this.crc = crc;
+        }
+    }
+
+    /**
+     * Planes of one block or the reason, why block is damaged.
+     */
+    private static class BlockResult {
+        private List<Plane> planes;
+        private String damage;
+    }
+
+    /**
+     * Checks, whether the file starts with block file magic bytes.
+     *
+     * @param filePath - path to the file.
+     * @return true, if file is block file
+     */
+    public static boolean isBlockFile(String filePath) {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+            return readFully(channel, header, 0) && header.getInt(0) == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes company to the block file with default block size (64KB).
+     *
+     * @param company  AirlineCompany obj.
+     * @param filePath - path to file.
+     * @return amount of written planes and bytes
+     * @throws IOException if got problems with file location or access.
+     */
+    public static FleetWriteResult writeCompany(AirlineCompany company, String filePath) throws IOException {
+        return writeCompany(company, filePath, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Writes company to the block file.
+     * <p>
+     * If file already exists, it will be replaced through temporary file, so it is never left half-written.
+     *
+     * @param company   AirlineCompany obj.
+     * @param filePath  - path to file.
+     * @param blockSize - size of block payload, after which the next block is started
+     * @return amount of written planes and bytes
+     * @throws IOException if got problems with file location or access.
+     */
+    public static FleetWriteResult writeCompany(AirlineCompany company, String filePath, int blockSize)
+            throws IOException {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        Path target = Paths.get(filePath);
+        Path temp = AtomicFiles.createTempFile(target);
+        List<BlockInfo> index = new ArrayList<>();
+        int rowsWritten = 0;
+        long position;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            byte[] name = company.getName().getBytes(StandardCharsets.UTF_8);
+            ByteBuffer header = ByteBuffer.allocate(4 * Integer.BYTES + name.length);
+            header.putInt(MAGIC).putInt(VERSION).putInt(name.length).put(name).putInt(crc(name, 0, name.length));
+            header.flip();
+            position = write(channel, header, 0);
+            FleetTextWriter.RowEncoder encoder = new FleetTextWriter.RowEncoder(StandardCharsets.UTF_8);
+            // rows are encoded straight into the block, buffer has room for one row after the payload limit
+            ByteBuffer block = ByteBuffer.allocate(BLOCK_HEADER_SIZE + blockSize + ROW_RESERVE);
+            block.position(BLOCK_HEADER_SIZE);
+            int blockRows = 0;
+            for (Plane plane : company.getPlanesList()) {
+                int maxRowSize = encoder.maxRowSize(plane);
+                if (block.remaining() < maxRowSize) {
+                    ByteBuffer grown = ByteBuffer.allocate(block.position() + maxRowSize);
+                    block.flip();
+                    grown.put(block);
+                    block = grown;
+                }
+                int rowStart = block.position();
+                encoder.putPlane(plane, block);
+                int rowLength = block.position() - rowStart;
+                if (block.position() - BLOCK_HEADER_SIZE > blockSize && blockRows > 0) {
+                    // row doesn't fit into the block, it is moved to the beginning of the next block
+                    block.position(rowStart);
+                    position = writeBlock(channel, block, blockRows, position, index);
+                    System.arraycopy(block.array(), rowStart, block.array(), BLOCK_HEADER_SIZE, rowLength);
+                    block.position(BLOCK_HEADER_SIZE + rowLength);
+                    blockRows = 0;
+                }
+                blockRows++;
+                rowsWritten++;
+            }
+            if (blockRows > 0) {
+                position = writeBlock(channel, block, blockRows, position, index);
+            }
+            ByteBuffer footer = ByteBuffer.allocate(Integer.BYTES + index.size() * INDEX_ENTRY_SIZE + TRAILER_SIZE);
+            footer.putInt(index.size());
+            for (BlockInfo info : index) {
+                footer.putLong(info.offset).putInt(info.length).putInt(info.rows).putInt(info.crc);
+            }
+            int footerCrc = crc(footer.array(), 0, footer.position());
+            footer.putLong(position).putInt(footerCrc).putInt(MAGIC);
+            footer.flip();
+            position += write(channel, footer, position);
+            channel.force(false);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        AtomicFiles.replace(temp, target);
+        return new FleetWriteResult(rowsWritten, position);
+    }
+
+    /**
+     * Fills header of the block, writes it and starts the next block in the same buffer.
+     *
+     * @return position after written block
+     */
+    private static long writeBlock(FileChannel channel, ByteBuffer block, int rows, long position,
+                                   List<BlockInfo> index) throws IOException {
+        int length = block.position() - BLOCK_HEADER_SIZE;
+        int crc = crc(block.array(), BLOCK_HEADER_SIZE, length);
+        block.putInt(0, BLOCK_MAGIC).putInt(4, length).putInt(8, rows).putInt(12, crc);
+        block.flip();
+        index.add(new BlockInfo(position, length, rows, crc));
+        long written = write(channel, block, position);
+        block.clear();
+        block.position(BLOCK_HEADER_SIZE);
+        return position + written;
+    }
+
+    /**
+     * Reads block file and creates AirlineCompany obj.
+     * <p>
+     * Blocks are verified and parsed in parallel on fork-join pool, planes are added in file order.
+     * If skipDamagedBlocks is true, damaged blocks (wrong checksum, wrong header or broken row) are quarantined:
+     * their planes are not loaded and their indexes are reported in the result. Otherwise, the first damaged
+     * block stops the loading.
+     *
+     * @param filePath          - path to the file.
+     * @param skipDamagedBlocks - true to skip damaged blocks
+     * @return loaded company and report about damaged blocks
+     * @throws FileParsingException if file not found, can't be read, isn't a block file or (if skipDamagedBlocks
+     *                              is false) contains damaged block.
+     */
+    public static LoadResult readCompany(String filePath, boolean skipDamagedBlocks) throws FileParsingException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            String name = readName(channel, filePath, skipDamagedBlocks);
+            List<BlockInfo> index = readIndex(channel, filePath, skipDamagedBlocks);
+            BlockResult[] results = IntStream.range(0, index.size()).parallel()
+                    .mapToObj(block -> readBlock(channel, index.get(block)))
+                    .toArray(BlockResult[]::new);
+            AirlineCompany company = new AirlineCompany(name);
+            List<Integer> damagedBlocks = new ArrayList<>();
+            int lostRows = 0;
+            for (int block = 0; block < results.length; block++) {
+                if (results[block].damage == null) {
+                    for (Plane plane : results[block].planes) {
+                        company.addPlane(plane);
+                    }
+                    continue;
+                }
+                String message = "Block " + block + " is damaged: " + results[block].damage;
+                if (!skipDamagedBlocks) {
+                    LOGGER.error("A damaged block was met. skipDamagedBlocks is false. Throwing FileParsingException");
+                    throw new FileParsingException(message);
+                }
+                LOGGER.warn(message + ". " + index.get(block).rows + " rows are skipped.");
+                damagedBlocks.add(block);
+                lostRows += index.get(block).rows;
+            }
+            return new LoadResult(company, index.size(), damagedBlocks, lostRows);
+        } catch (NoSuchFileException e) {
+            LOGGER.debug("No file found. Given file path:  " + filePath);
+            LOGGER.error("No file found by given pass.");
+            throw new FileParsingException("No such file by given pass: " + filePath);
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.debug("Caught IOException: " + e.getMessage());
+            LOGGER.error("Caught IOException.");
+            throw new FileParsingException("An error with Input/Output stream. Message: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads planes of one block, found through the index.
+     *
+     * @param filePath   - path to the file.
+     * @param blockIndex - index of the block
+     * @return planes of the block
+     * @throws FileParsingException if file can't be read, index is damaged, there is no such block
+     *                              or block is damaged.
+     */
+    public static List<Plane> readBlock(String filePath, int blockIndex) throws FileParsingException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            List<BlockInfo> index = readIndex(channel, filePath, false);
+            if (blockIndex < 0 || blockIndex >= index.size()) {
+                LOGGER.error("No block with index " + blockIndex);
+                throw new FileParsingException("No block with index " + blockIndex + " in file " + filePath
+                        + " (blocks count: " + index.size() + ")");
+            }
+            BlockResult result = readBlock(channel, index.get(blockIndex));
+            if (result.damage != null) {
+                LOGGER.error("Block " + blockIndex + " is damaged.");
+                throw new FileParsingException("Block " + blockIndex + " is damaged: " + result.damage);
+            }
+            return result.planes;
+        } catch (NoSuchFileException e) {
+            LOGGER.debug("No file found. Given file path:  " + filePath);
+            LOGGER.error("No file found by given pass.");
+            throw new FileParsingException("No such file by given pass: " + filePath);
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.debug("Caught IOException: " + e.getMessage());
+            LOGGER.error("Caught IOException.");
+            throw new FileParsingException("An error with Input/Output stream. Message: " + e.getMessage());
+        }
+    }
+
+    private static String readName(FileChannel channel, String filePath, boolean skipDamagedBlocks)
+            throws IOException, FileParsingException {
+        ByteBuffer header = ByteBuffer.allocate(3 * Integer.BYTES);
+        if (!readFully(channel, header, 0) || header.getInt(0) != MAGIC) {
+            LOGGER.error("File is not a block file.");
+            throw new FileParsingException("File is not a block fleet file: " + filePath);
+        }
+        if (header.getInt(4) != VERSION) {
+            LOGGER.error("Unsupported block file version: " + header.getInt(4));
+            throw new FileParsingException("Unsupported block file version: " + header.getInt(4));
+        }
+        int length = header.getInt(8);
+        if (length >= 0 && length <= channel.size() - header.capacity() - Integer.BYTES) {
+            ByteBuffer name = ByteBuffer.allocate(length + Integer.BYTES);
+            if (readFully(channel, name, header.capacity()) && crc(name.array(), 0, length) == name.getInt(length)) {
+                return new String(name.array(), 0, length, StandardCharsets.UTF_8);
+            }
+        }
+        if (!skipDamagedBlocks) {
+            LOGGER.error("Company name is damaged.");
+            throw new FileParsingException("Company name is damaged in file " + filePath);
+        }
+        LOGGER.warn("Company name is damaged in file " + filePath + ". Company is loaded as unnamed.");
+        return "Unnamed company";
+    }
+
+    /**
+     * Reads block index from the footer. If footer is damaged, finds blocks by scanning the file.
+     */
+    private static List<BlockInfo> readIndex(FileChannel channel, String filePath, boolean skipDamagedBlocks)
+            throws IOException, FileParsingException {
+        long size = channel.size();
+        List<BlockInfo> index = size >= TRAILER_SIZE ? readFooter(channel, size) : null;
+        if (index != null) {
+            return index;
+        }
+        if (!skipDamagedBlocks) {
+            LOGGER.error("Block index is damaged.");
+            throw new FileParsingException("Block index is damaged in file " + filePath);
+        }
+        LOGGER.warn("Block index is damaged in file " + filePath + ". Looking for blocks by scanning the file.");
+        return scanBlocks(channel, size);
+    }
+
+    /**
+     * @return index from the footer or null, if footer is damaged
+     */
+    private static List<BlockInfo> readFooter(FileChannel channel, long size) throws IOException {
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+        readFully(channel, trailer, size - TRAILER_SIZE);
+        long footerOffset = trailer.getLong(0);
+        if (trailer.getInt(Long.BYTES + Integer.BYTES) != MAGIC || footerOffset < 0
+                || footerOffset > size - TRAILER_SIZE - Integer.BYTES
+                || size - TRAILER_SIZE - footerOffset > Integer.MAX_VALUE) {
+            return null;
+        }
+        ByteBuffer footer = ByteBuffer.allocate((int) (size - TRAILER_SIZE - footerOffset));
+        readFully(channel, footer, footerOffset);
+        if (crc(footer.array(), 0, footer.capacity()) != trailer.getInt(Long.BYTES)) {
+            return null;
+        }
+        footer.flip();
+        int count = footer.getInt();
+        if (count < 0 || (long) count * INDEX_ENTRY_SIZE != footer.remaining()) {
+            return null;
+        }
+        List<BlockInfo> index = new ArrayList<>(count);
+        for (int block = 0; block < count; block++) {
+            index.add(new BlockInfo(footer.getLong(), footer.getInt(), footer.getInt(), footer.getInt()));
+        }
+        return index;
+    }
+
+    /**
+     * Finds blocks by their magic and headers. Bytes between found blocks are skipped.
+     */
+    private static List<BlockInfo> scanBlocks(FileChannel channel, long size) throws IOException {
+        List<BlockInfo> index = new ArrayList<>();
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        long position = 0;
+        while (position + BLOCK_HEADER_SIZE <= size) {
+            header.clear();
+            readFully(channel, header, position);
+            int length = header.getInt(4);
+            if (header.getInt(0) == BLOCK_MAGIC && length >= 0 && length <= MAX_BLOCK_SIZE
+                    && position + BLOCK_HEADER_SIZE + length <= size) {
+                index.add(new BlockInfo(position, length, header.getInt(8), header.getInt(12)));
+                position += BLOCK_HEADER_SIZE + length;
+            } else {
+                position++;
+            }
+        }
+        return index;
+    }
+
+    private static BlockResult readBlock(FileChannel channel, BlockInfo info) {
+        BlockResult result = new BlockResult();
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_HEADER_SIZE + info.length);
+        try {
+            if (!readFully(channel, block, info.offset)) {
+                result.damage = "block is cut off";
+                return result;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] bytes = block.array();
+        if (block.getInt(0) != BLOCK_MAGIC || block.getInt(4) != info.length || block.getInt(8) != info.rows
+                || block.getInt(12) != info.crc) {
+            result.damage = "block header doesn't match the index";
+        } else if (crc(bytes, BLOCK_HEADER_SIZE, info.length) != info.crc) {
+            result.damage = "checksum mismatch";
+        } else {
+            parseRows(bytes, info, result);
+        }
+        return result;
+    }
+
+    private static void parseRows(byte[] bytes, BlockInfo info, BlockResult result) {
+        PlaneRecordParser parser = new PlaneRecordParser();
+        List<Plane> planes = new ArrayList<>(info.rows);
+        int end = BLOCK_HEADER_SIZE + info.length;
+        int rowStart = BLOCK_HEADER_SIZE;
+        for (int position = rowStart; position < end; position++) {
+            if (bytes[position] != NEW_LINE) {
+                continue;
+            }
+            try {
+                planes.add(parser.parse(bytes, rowStart, position - rowStart, StandardCharsets.UTF_8));
+            } catch (PlaneParseException e) {
+                result.damage = "broken row " + planes.size() + ". Message: " + e.getCustomMessage();
+                return;
+            } catch (RuntimeException e) {
+                result.damage = "broken row " + planes.size() + ". Message: " + e.getMessage();
+                return;
+            }
+            rowStart = position + 1;
+        }
+        if (rowStart != end || planes.size() != info.rows) {
+            result.damage = "block contains " + planes.size() + " rows instead of " + info.rows;
+            return;
+        }
+        result.planes = planes;
+    }
+
+    private static int crc(byte[] bytes, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static long write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    /**
+     * Reads bytes from given position until buffer is full.
+     *
+     * @return false, if the end of file was reached before
+     */
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -8,7 +8,9 @@ import airline.entity.planes.Plane;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.NoSuchElementException;
 
@@ -17,12 +19,72 @@ public class Controller {
      * Main AirlineCompany (planes list) storage.
      */
     private AirlineCompany company;
+    /**
+     * Journal of company mutations. Null, if journaling is off.
+     */
+    private FleetJournal journal;
+    /**
+     * Background writer of company. Null, if write-behind persistence is off.
+     */
+    private WriteBehindPersister writeBehind;
+    /**
+     * Sorted indexes for range queries. Null until the first {@code getIndexes()} call.
+     */
+    private PlaneIndexes indexes;
+    /**
+     * Cache of query results. Null, if caching is off.
+     */
+    private QueryCache queryCache;
     private static final Logger LOGGER = LogManager.getLogger(Controller.class);
 
     public Controller(String filePath) throws FileParsingException {
        company=FileHandler.parseFileAndConstructCompany(filePath);
     }
 
+    /**
+     * Constructs controller with company, loaded from file of given format.
+     *
+     * @param filePath - path to the file.
+     * @param format   - format of the file.
+     * @throws FileParsingException if file can't be loaded
+     * @see FleetFormat available formats
+     */
+    public Controller(String filePath, FleetFormat format) throws FileParsingException {
+        if (format == FleetFormat.BINARY_SNAPSHOT) {
+            company = BinarySnapshot.readCompany(filePath);
+        } else if (format == FleetFormat.CHECKSUMMED_BLOCKS) {
+            company = BlockFleetFile.readCompany(filePath, false).getCompany();
+        } else {
+            company = FileHandler.parseFileAndConstructCompany(filePath);
+        }
+    }
+
+    /**
+     * Constructs controller with company, restored from journal.
+     * <p>
+     * Further mutations of company are appended to the journal.
+     *
+     * @param journal - journal, opened by {@code FleetJournal.open()}
+     * @see FleetJournal#open(String)
+     */
+    public Controller(FleetJournal journal) {
+        this.company = journal.getCompany();
+        this.journal = journal;
+    }
+
+    /**
+     * Constructs controller with company, loaded by file follower.
+     * <p>
+     * Rows, appended to the file, will be added to the company by {@code follower.poll()}
+     * or by background thread after {@code follower.start()}.
+     *
+     * @param follower - follower of fleet file
+     * @see FleetFileFollower
+     */
+    public Controller(FleetFileFollower follower) {
+        this.company = follower.getCompany();
+    }
+
     public Controller(String companyName, boolean notFromFile){
         company= new AirlineCompany(companyName);
     }
@@ -44,8 +106,9 @@ public class Controller {
      * Initializes controller with already built AirlineCompany object.
      *
      * @param company - already exists object or object, that was built before
+     *                (for example, imported by {@code FleetImporter})
      */
-    Controller(AirlineCompany company) {
+    public Controller(AirlineCompany company) {
         this.company = company;
     }
 
@@ -84,7 +147,7 @@ public class Controller {
 
     /**Returns plane by model name.
      *
-     * Returns first met plane with given model name.
+     * Returns first met plane with given model name, found by model name index in O(1).
      *
      * @param modelName - (String) model name
      * @return Plane obj
@@ -93,7 +156,7 @@ public class Controller {
         if (modelName == null) {
             throw new NullPointerException("Model name cannot be null");
         }
-        return company.getPlane(modelName);
+        return getIndexes().getFirstPlaneByModel(modelName);
     }
 
 
@@ -111,33 +174,232 @@ public class Controller {
             LOGGER.error("Empty company name");
             throw new IllegalArgumentException("Company name cannot be empty");
         }
+        if (journal != null) {
+            LOGGER.warn("New company is created. Journal of previous company is closed.");
+            closeJournal();
+        }
+        if (writeBehind != null) {
+            LOGGER.warn("New company is created. Write-behind persistence of previous company is stopped.");
+            stopWriteBehind();
+        }
+        if (indexes != null) {
+            indexes.close();
+            indexes = null;
+        }
+        if (queryCache != null) {
+            queryCache.clear();
+        }
         company = new AirlineCompany(name);
     }
 
     /**
-     * Counts total passenger capacity for current company.
+     * Starts journaling of company mutations.
+     * <p>
+     * Writes snapshot of the company and then appends every change to the journal, so changes are saved
+     * without rewriting the whole fleet. Company can be restored by {@code new Controller(FleetJournal.open(basePath))}.
+     *
+     * @param basePath - path and base name of journal files. Existing journal by this path will be replaced.
+     * @throws IOException if journal can't be written
+     * @see FleetJournal
+     */
+    public void startJournal(String basePath) throws IOException {
+        if (basePath == null) {
+            LOGGER.error("Journal path came with null");
+            throw new NullPointerException("Journal path cannot be null");
+        }
+        closeJournal();
+        journal = FleetJournal.create(company, basePath);
+    }
+
+    /**
+     * Waits until all changes are written to the journal.
+     *
+     * @throws IOException if journal can't be written
+     * @throws IllegalStateException if journaling is off
+     */
+    public void syncJournal() throws IOException {
+        if (journal == null) {
+            throw new IllegalStateException("Journal is not started");
+        }
+        journal.sync();
+    }
+
+    /**
+     * Stops journaling. All changes are written to the journal before return.
+     */
+    public void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            LOGGER.debug("Caught IOException: " + e.getMessage());
+            LOGGER.error("Failed to close journal.");
+        }
+        journal = null;
+    }
+
+    /**
+     * Starts write-behind persistence to the text file with default settings:
+     * company is written in 1 second after the first unsaved change or after 10000 changes.
+     *
+     * @param filePath - path to the file. If file exists, it will be overwritten.
+     * @see #startWriteBehind(String, FleetFormat, long, int)
+     */
+    public void startWriteBehind(String filePath) {
+        startWriteBehind(filePath, FleetFormat.TEXT, 1000, 10000);
+    }
+
+    /**
+     * Starts write-behind persistence.
+     * <p>
+     * Mutations of company only mark it dirty, background thread coalesces them and writes the whole company
+     * on interval or changes threshold, so callers don't wait for the file. Unsaved changes are written by
+     * {@code stopWriteBehind()} and on JVM shutdown.
+     *
+     * @param filePath            - path to the file. If file exists, it will be overwritten.
+     * @param format              - format of the file
+     * @param flushIntervalMillis - maximal time between the first unsaved change and the write
+     * @param changesThreshold    - amount of unsaved changes, after which company is written without waiting
+     * @see WriteBehindPersister
+     */
+    public void startWriteBehind(String filePath, FleetFormat format, long flushIntervalMillis, int changesThreshold) {
+        stopWriteBehind();
+        writeBehind = new WriteBehindPersister(company, filePath, format, flushIntervalMillis, changesThreshold);
+    }
+
+    /**
+     * Writes unsaved changes immediately and waits for the write.
+     *
+     * @throws IOException if company can't be written
+     * @throws IllegalStateException if write-behind persistence is off
+     */
+    public void flush() throws IOException {
+        if (writeBehind == null) {
+            throw new IllegalStateException("Write-behind persistence is not started");
+        }
+        writeBehind.flush();
+    }
+
+    /**
+     * Waits until all changes, made before the call, are written by background thread.
      *
-     * @return (int) total passenger capacity
+     * @throws IOException if company can't be written
+     * @throws IllegalStateException if write-behind persistence is off
      */
-    public int totalPassengerCapacity() {
-        int totalCapacity = 0;
-        for (int index = 0; index < company.amountOfPlanes(); index++) {
-            totalCapacity += company.getPlane(index).getPassengerCapacity();
+    public void awaitPersisted() throws IOException {
+        if (writeBehind == null) {
+            throw new IllegalStateException("Write-behind persistence is not started");
         }
-        return totalCapacity;
+        writeBehind.awaitPersisted();
     }
 
     /**
-     * Counts total cargo capacity for current company.
+     * Stops write-behind persistence. Unsaved changes are written before return.
+     */
+    public void stopWriteBehind() {
+        if (writeBehind == null) {
+            return;
+        }
+        try {
+            writeBehind.close();
+        } catch (IOException e) {
+            LOGGER.debug("Caught IOException: " + e.getMessage());
+            LOGGER.error("Failed to write company on stop of write-behind persistence.");
+        }
+        writeBehind = null;
+    }
+
+    /**
+     * Returns indexes of company planes for range and model name queries. Indexes are built on the first call
+     * and then are updated with every change of the company.
+     *
+     * @return PlaneIndexes obj.
+     * @see SearchEngine#getPlanesBySerialNumber(PlaneIndexes, int, int)
+     */
+    public PlaneIndexes getIndexes() {
+        if (indexes == null) {
+            indexes = new PlaneIndexes(company);
+        }
+        return indexes;
+    }
+
+    /**
+     * Starts new query of company planes, that is planned by indexes.
+     *
+     * @return PlaneQuery obj.
+     * @see PlaneQuery
+     */
+    public PlaneQuery query() {
+        return new PlaneQuery(getIndexes()).cache(queryCache);
+    }
+
+    /**
+     * Answers all range queries of the batch by one pass over company planes.
+     *
+     * @param batch - RangeQueryBatch obj.
+     * @return results in the order of queries, empty if nothing found
+     * @see RangeQueryBatch
+     */
+    public List<List<Plane>> search(RangeQueryBatch batch) {
+        if (batch == null) {
+            LOGGER.error("Batch object came with null");
+            throw new NullPointerException("Batch cannot be null.");
+        }
+        synchronized (company) {
+            return batch.execute(company.getPlanesList());
+        }
+    }
+
+    /**
+     * Turns on caching of results of queries, started by {@code query()}. Cached results are returned,
+     * while the company isn't changed.
+     *
+     * @param maxEntries - maximal amount of cached results
+     * @return new QueryCache obj., which statistics can be read
+     */
+    public QueryCache enableQueryCache(int maxEntries) {
+        queryCache = new QueryCache(maxEntries);
+        return queryCache;
+    }
+
+    /**
+     * Turns off caching of query results.
+     */
+    public void disableQueryCache() {
+        queryCache = null;
+    }
+
+    /**
+     * @return cache of query results or null, if caching is off
+     */
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    /**
+     * Returns total passenger capacity for current company. Total is kept by the company, so it costs O(1).
      *
-     * @return (int) total cargo capacity
+     * @return (long) total passenger capacity
+     * @see AirlineCompany#getAggregates()
      */
-    public int totalCargoCapacity() {
-        int totalCapacity = 0;
-        for (int index = 0; index < company.amountOfPlanes(); index++) {
-            totalCapacity += company.getPlane(index).getCargoCapacity();
+    public long totalPassengerCapacity() {
+        synchronized (company) {
+            return company.getAggregates().getFleet().getPassengerCapacity().getTotal();
+        }
+    }
+
+    /**
+     * Returns total cargo capacity for current company. Total is kept by the company, so it costs O(1).
+     *
+     * @return (long) total cargo capacity
+     * @see AirlineCompany#getAggregates()
+     */
+    public long totalCargoCapacity() {
+        synchronized (company) {
+            return company.getAggregates().getFleet().getCargoCapacity().getTotal();
         }
-        return totalCapacity;
     }
 
     /**Adds already existing Plane object.
@@ -150,7 +412,9 @@ public class Controller {
             LOGGER.error("Plane object came with null");
             throw new NullPointerException("Plane cannot be null.");
         }
-        company.addPlane(plane);
+        synchronized (company) {
+            company.addPlane(plane);
+        }
     }
 
     /**Constructs and adds new plane to company's planes list.
@@ -165,8 +429,11 @@ public class Controller {
      */
     public void addPlane(int planeType, int serialNumber, String modelName, int crew, int cargoCapacity,
                          int passengerCapacity, Engine engineModel) {
-        company.addPlane(Plane.constructPlane(planeType, serialNumber, modelName, crew, cargoCapacity,
-                passengerCapacity, engineModel));
+        Plane plane = Plane.constructPlane(planeType, serialNumber, modelName, crew, cargoCapacity,
+                passengerCapacity, engineModel);
+        synchronized (company) {
+            company.addPlane(plane);
+        }
     }
 
     /**
@@ -181,26 +448,76 @@ public class Controller {
      * @see com.completedtasks.airline.entity.components.Engine more information about fuel consumption
      */
     public Plane getPlaneByFuelConsumption(List<Plane> planes, double fuelConsumption) throws NoSuchElementException {
-        for (int index = 0; index < company.amountOfPlanes(); index++) {
-            if (company.getPlane(index).getFuelConsumption() == fuelConsumption) {
-                return company.getPlane(index);
+        // fuel consumption is defined by engine, so value without planes of such engines is rejected without scan
+        EnumSet<Engine> engines = EngineBitmapIndex.enginesByFuelConsumption(fuelConsumption, fuelConsumption);
+        PlaneIndexes planeIndexes = getIndexes();
+        synchronized (company) {
+            if (!engines.isEmpty() && planeIndexes.engineIndex().count(engines) > 0) {
+                // one pass by iterator, indexed access is slow for LinkedList
+                for (Plane plane : company.getPlanesList()) {
+                    if (engines.contains(plane.getEngine())) {
+                        return plane;
+                    }
+                }
             }
         }
         LOGGER.info("No founded plane");
         throw new NoSuchElementException("No such plane found");
     }
 
+    /**Returns plane by model name.
+     *
+     * Returns first met plane with given model name, found by model name index.
+     *
+     * @param modelName - (String) model name
+     * @return Plane obj or null, if nothing found
+     */
     public Plane getPlaneByModelName(String modelName){
-      return company.getPlane(modelName);
+      return getIndexes().getFirstPlaneByModel(modelName);
     }
 
-    public void toFile(String filePath){
+    /**
+     * Saves company to the text file.
+     *
+     * @param filePath - path to the file. If file exists, it will be overwritten.
+     * @return amount of written rows and bytes or null, if file can't be written
+     * @see FileHandler#writeCompany(AirlineCompany, String)
+     */
+    public FleetWriteResult toFile(String filePath){
         if (filePath==null){
             LOGGER.debug("Given file path: "+filePath);
             LOGGER.error("File path came with null");
             throw new NullPointerException("File path cannot be null");
         }
-        FileHandler.writeCompany(company,filePath);
+        return FileHandler.writeCompany(company,filePath);
+    }
+
+    /**
+     * Saves company to the file of given format.
+     *
+     * @param filePath - path to the file. If file exists, it will be overwritten.
+     * @param format   - format of the file.
+     * @return amount of written rows and bytes or null, if file can't be written
+     * @see FleetFormat available formats
+     */
+    public FleetWriteResult toFile(String filePath, FleetFormat format) {
+        if (format == FleetFormat.TEXT) {
+            return toFile(filePath);
+        }
+        if (filePath == null) {
+            LOGGER.error("File path came with null");
+            throw new NullPointerException("File path cannot be null");
+        }
+        try {
+            if (format == FleetFormat.CHECKSUMMED_BLOCKS) {
+                return BlockFleetFile.writeCompany(company, filePath);
+            }
+            return BinarySnapshot.writeCompany(company, filePath);
+        } catch (IOException e) {
+            LOGGER.debug("Caught IOException: " + e.getMessage());
+            LOGGER.error("Failed to write " + format + " file.");
+            return null;
+        }
     }
     /**
      * Sorts planes list.
@@ -211,7 +528,9 @@ public class Controller {
      * @see CompareType for more information about available mods.
      */
     public void sortPlanesList(CompareType mode) {
-        company.sortPlanes(mode);
+        synchronized (company) {
+            company.sortPlanes(mode);
+        }
     }
 
     /**
@@ -222,7 +541,7 @@ public class Controller {
      * @see CompareType#BY_SERIAL_NUMBER for more information about BY_SERIAL_NUMBER mode
      */
     public void sortPlanesList() {
-        company.sortPlanes(CompareType.BY_SERIAL_NUMBER);
+        sortPlanesList(CompareType.BY_SERIAL_NUMBER);
     }
 
     /**Returns list of engines from Engine enum.
@@ -245,7 +564,9 @@ public class Controller {
             LOGGER.error("Company name is null");
             throw new NullPointerException("Company name cannot be null");
         }
-        company.setName(name);
+        synchronized (company) {
+            company.setName(name);
+        }
     }
 
 }
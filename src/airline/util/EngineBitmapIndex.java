@@ -0,0 +1,117 @@
+package airline.util;
+
+import airline.entity.components.Engine;
+
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+
+/**
+ * Bitmap index of planes by engine.
+ * <p>
+ * Fuel consumption of the plane is defined by its engine, so there are only as many distinct values
+ * as engines. Index keeps one bitmap of plane slots per engine: fuel consumption query is resolved to the set
+ * of matching engines and their bitmaps are OR-ed. Result is a bitmap too, so it can be intersected
+ * with bitmaps of other predicates before planes are materialized.
+ * <p>
+ * Index isn't thread safe.
+ *
+ * @see PlaneSlots
+ */
+public class EngineBitmapIndex {
+    private final Map<Engine, BitSet> bitmaps = new EnumMap<>(Engine.class);
+
+    public EngineBitmapIndex() {
+        for (Engine engine : Engine.values()) {
+            bitmaps.put(engine, new BitSet());
+        }
+    }
+
+    /**
+     * Removes all planes.
+     */
+    public void clear() {
+        for (BitSet bitmap : bitmaps.values()) {
+            bitmap.clear();
+        }
+    }
+
+    /**
+     * @param slot   - slot of the plane
+     * @param engine - engine of the plane
+     */
+    public void add(int slot, Engine engine) {
+        bitmaps.get(engine).set(slot);
+    }
+
+    /**
+     * @param slot   - slot of the plane
+     * @param engine - engine of the plane
+     */
+    public void remove(int slot, Engine engine) {
+        bitmaps.get(engine).clear(slot);
+    }
+
+    /**
+     * Returns engines with fuel consumption between min and max (including both).
+     *
+     * @param min - minimal fuel consumption
+     * @param max - maximal fuel consumption
+     * @return {@code EnumSet<Engine>}, empty if nothing matches
+     */
+    public static EnumSet<Engine> enginesByFuelConsumption(double min, double max) {
+        EnumSet<Engine> engines = EnumSet.noneOf(Engine.class);
+        for (Engine engine : Engine.values()) {
+            if (engine.getFuelConsumption() >= min && engine.getFuelConsumption() <= max) {
+                engines.add(engine);
+            }
+        }
+        return engines;
+    }
+
+    /**
+     * Returns bitmap of planes with given engines.
+     *
+     * @param engines - engines
+     * @return new BitSet obj., that can be changed by caller
+     */
+    public BitSet bitmap(EnumSet<Engine> engines) {
+        BitSet result = new BitSet();
+        for (Engine engine : engines) {
+            result.or(bitmaps.get(engine));
+        }
+        return result;
+    }
+
+    /**
+     * Returns bitmap of planes with fuel consumption between min and max (including both).
+     *
+     * @param min - minimal fuel consumption
+     * @param max - maximal fuel consumption
+     * @return new BitSet obj., that can be changed by caller
+     */
+    public BitSet bitmapByFuelConsumption(double min, double max) {
+        return bitmap(enginesByFuelConsumption(min, max));
+    }
+
+    /**
+     * @param engines - engines
+     * @return amount of planes with given engines
+     */
+    public int count(EnumSet<Engine> engines) {
+        int count = 0;
+        for (Engine engine : engines) {
+            count += count(engine);
+        }
+        return count;
+    }
+
+    /**
+     * @param engine - engine
+     * @return amount of planes with the engine
+     */
+    public int count(Engine engine) {
+        return bitmaps.get(engine).cardinality();
+    }
+}
@@ -3,7 +3,6 @@ package airline.util;
 import airline.exceptions.FileParsingException;
 import airline.exceptions.PlaneParseException;
 import airline.entity.AirlineCompany;
-import airline.entity.components.Engine;
 import airline.entity.planes.CargoPlane;
 import airline.entity.planes.PassengerPlane;
 import airline.entity.planes.Plane;
@@ -12,6 +11,7 @@ import org.apache.logging.log4j.Logger;
 
 import java.io.*;
 import java.util.Scanner;
+import java.util.stream.Stream;
 
 /**
  * A class, that carries out I/O to/from file.
@@ -28,69 +28,52 @@ public class FileHandler {
      *           PlaneType|serialNumber|modelName|passengerCapacity|cargoCapacity|crew|engineModel
      * @return airline company object
      * @throws PlaneParseException - if
+     * @see PlaneRecordParser for parsing rules
      */
     public static Plane parseAndConstructPlane(String row) throws PlaneParseException {//поменять название
-        String[] parameters = row.split("\\|");
-        try {
-            switch (parameters[0]) {
-                case ("Passenger"):
-                    int serialNumber = Integer.parseInt(parameters[1]);
-                    String modelName = parameters[2];
-                    int passengerCapacity = Integer.parseInt(parameters[3]);
-                    int cargoCapacity = Integer.parseInt(parameters[4]);
-                    int crew = Integer.parseInt((parameters[5]));
-                    Engine engine = Engine.valueOf(parameters[6]);
-                    return new PassengerPlane(serialNumber, modelName, crew, cargoCapacity, passengerCapacity, engine);
-
-                case ("Cargo"):
-                    serialNumber = Integer.parseInt(parameters[1]);
-                    modelName = parameters[2];
-                    passengerCapacity = Integer.parseInt(parameters[3]);
-                    cargoCapacity = Integer.parseInt(parameters[4]);
-                    crew = Integer.parseInt((parameters[5]));
-                    engine = Engine.valueOf(parameters[6]);
-                    return new CargoPlane(serialNumber, modelName, crew, cargoCapacity, passengerCapacity, engine);
-
-                default:
-                    LOGGER.error("Failed to convert plane type");
-                    throw new PlaneParseException("Unknown plane type before the first | symbol");
-            }
-        } catch (NumberFormatException e) {
-            LOGGER.error("Failed to convert row to Plane object");
-            throw new PlaneParseException("Cannot convert String to Integer");
-        }
+        return new PlaneRecordParser().parse(row);
     }
 
     /**
      * Writes given information about company and it's planes list to the file.
      * <p>
      * In the first row will be placed name of the company.
-     * All lines below will be the result of method {@code toString} from class PassengerPlane/CargoPlane.
+     * All lines below will be the same, as result of method {@code toString} from class PassengerPlane/CargoPlane.
+     * Company is written to the temporary file, that replaces the target file only after successful write,
+     * so the target file is never left half-written.
      *
      * @param company  AirlineCompany obj.
-     * @param filePath - path to file. If it not exists, it will be created.
-     * @exception  IOException - if got problems with file location or access.
+     * @param filePath - path to file. If it not exists, it will be created. Otherwise it will be overwritten.
+     * @return amount of written rows and bytes or null, if got problems with file location or access.
      * @see PassengerPlane#toString() PassengerPlane toString method.
      * @see CargoPlane#toString() CargoPlane toString method.
+     * @see FleetTextWriter for more information about writing
      */
-    public static void writeCompany(AirlineCompany company, String filePath) {
-        File textFile = new File(filePath);
-        //checking file on existence. If it not exists, it will be created.
-        if (!textFile.exists()) {
-            try {
-                textFile.createNewFile();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            //Writing company to the file
-            try (FileWriter fileOutput = new FileWriter(textFile)){
-                fileOutput.write(company.getName() + "\n");
-                for (Plane plane : company.getPlanesList()) {
-                    fileOutput.write(plane.toString() + "\n");
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+    public static FleetWriteResult writeCompany(AirlineCompany company, String filePath) {
+        return writeCompany(company, filePath, FleetCompression.NONE);
+    }
+
+    /**
+     * Writes company to the compressed text file.
+     * <p>
+     * Content is the same, as written by {@code writeCompany(AirlineCompany, String)}. Compressed files are
+     * detected by magic bytes, so they are read by the same parse methods, as plain files.
+     *
+     * @param company     AirlineCompany obj.
+     * @param filePath    - path to file.
+     * @param compression - compression of the file
+     * @return amount of written rows and bytes of the compressed file or null, if file wasn't written
+     */
+    public static FleetWriteResult writeCompany(AirlineCompany company, String filePath,
+                                                FleetCompression compression) {
+        try {
+            FleetWriteResult result = new FleetTextWriter(compression).write(company, filePath);
+            LOGGER.debug("Company written to " + filePath + ": " + result);
+            return result;
+        } catch (IOException e) {
+            LOGGER.debug("Caught IOException: " + e.getMessage());
+            LOGGER.error("Failed to write company to the file.");
+            return null;
         }
     }
 
@@ -111,14 +94,15 @@ public class FileHandler {
      */
     public static AirlineCompany parseFileAndConstructCompany(String filePath, boolean skipBrokenLineMode) throws FileParsingException {// переимновать
         AirlineCompany company;
-        try (FileReader fileInput = new FileReader(filePath)){
+        try (Reader fileInput = new InputStreamReader(FleetCompression.openInputStream(filePath))){
             Scanner input = new Scanner(fileInput);
             company = new AirlineCompany(input.nextLine());
+            PlaneRecordParser parser = new PlaneRecordParser();
             String currentLine;
             while (input.hasNextLine()) {
                 currentLine=input.nextLine();
                 try{
-                company.addPlane(FileHandler.parseAndConstructPlane(currentLine));
+                company.addPlane(parser.parse(currentLine));
             } catch(PlaneParseException e) {
                     if (skipBrokenLineMode) {
                         LOGGER.info("Skipped broken line");
@@ -143,6 +127,42 @@ public class FileHandler {
            throw new FileParsingException("An error with Input/Output stream. Message: "+e.getMessage());
         }
     }
+    /**
+     * Reads file in parallel and creates AirlineCompany obj.
+     * <p>
+     * Parallel version of {@code parseFileAndConstructCompany} method for big files. File is memory-mapped,
+     * split at newline boundaries into chunks and the chunks are parsed on fork-join pool.
+     * Planes are added to the company in file order. skipBrokenLineMode works the same way, as in
+     * {@code parseFileAndConstructCompany(String, boolean)}, but each report contains the line number.
+     *
+     * @param filePath - path to the file.
+     * @param skipBrokenLineMode - true to skip lines, where was met {@code PlaneParseException}
+     * @return AirlineCompany obj.
+     * @throws FileParsingException - if file not found, is empty, can't be read or (if skipBrokenLineMode is false)
+     * contains broken line. Message contains number of the broken line.
+     * @see MappedFleetLoader for more information about chunks
+     */
+    public static AirlineCompany parseFileAndConstructCompanyInParallel(String filePath, boolean skipBrokenLineMode)
+            throws FileParsingException {
+        return new MappedFleetLoader(filePath, skipBrokenLineMode).load();
+    }
+
+    /**
+     * Returns lazy stream of planes from the file.
+     * <p>
+     * Planes are read one by one, so whole company is never kept in memory. Stream must be closed after use
+     * (for example, by try-with-resources) to close the file.
+     *
+     * @param filePath           - path to the file.
+     * @param skipBrokenLineMode - true to skip lines, where was met {@code PlaneParseException}
+     * @return {@code Stream<Plane>}
+     * @throws FileParsingException if file not found, is empty or can't be read
+     * @see FleetFileReader for more information about broken lines handling
+     */
+    public static Stream<Plane> streamPlanes(String filePath, boolean skipBrokenLineMode) throws FileParsingException {
+        return new FleetFileReader(filePath, skipBrokenLineMode).stream();
+    }
+
     /**
      * Reads file and creates AirlineCompany obj.
      * <p>
@@ -159,14 +179,15 @@ public class FileHandler {
      */
     public static AirlineCompany parseFileAndConstructCompany(String filePath) throws FileParsingException {// переимновать
         AirlineCompany company;
-        try (FileReader fileInput = new FileReader(filePath)){
+        try (Reader fileInput = new InputStreamReader(FleetCompression.openInputStream(filePath))){
             Scanner input = new Scanner(fileInput);
             company = new AirlineCompany(input.nextLine());
+            PlaneRecordParser parser = new PlaneRecordParser();
             String currentLine;
             while (input.hasNextLine()) {
                 currentLine=input.nextLine();
                 try{
-                    company.addPlane(FileHandler.parseAndConstructPlane(currentLine));
+                    company.addPlane(parser.parse(currentLine));
                 } catch(PlaneParseException e) {
                     LOGGER.debug("Failed to convert row to Plane object. Current line: "+currentLine);
                     LOGGER.error("Failed to convert row to Plane object.");
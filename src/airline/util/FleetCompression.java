@@ -0,0 +1,163 @@
+package airline.util;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compression of text fleet files.
+ * <p>
+ * Fleet files are very repetitive (the same plane types, model names and engine code names in every row),
+ * so they are compressed well. Compressed files are detected by magic bytes, so they can be read by
+ * the same methods of FileHandler, as plain files.
+ */
+public enum FleetCompression {
+    /**
+     * Plain text file.
+     */
+    NONE,
+    /**
+     * Gzip file (RFC 1952), starts with bytes 1F 8B.
+     */
+    GZIP,
+    /**
+     * Zlib-wrapped deflate stream (RFC 1950), starts with 2-byte header, that is divisible by 31.
+     */
+    DEFLATE;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int GZIP_MAGIC = 0x1F8B;
+    /**
+     * Amount of bytes, that are inflated to make sure, that the file, which looks like deflate stream, really is.
+     */
+    private static final int PROBE_SIZE = 4096;
+
+    /**
+     * Detects compression of the file by its first bytes.
+     *
+     * @param filePath - path to the file.
+     * @return compression of the file
+     * @throws IOException if file not found or can't be read
+     */
+    public static FleetCompression detect(String filePath) throws IOException {
+        try (InputStream input = new FileInputStream(filePath)) {
+            byte[] probe = input.readNBytes(PROBE_SIZE);
+            return detect(probe, probe.length);
+        }
+    }
+
+    private static FleetCompression detect(byte[] probe, int length) {
+        if (length < 2) {
+            return NONE;
+        }
+        int header = (probe[0] & 0xff) << 8 | (probe[1] & 0xff);
+        if (header == GZIP_MAGIC) {
+            return GZIP;
+        }
+        // compression method 8 (deflate), window up to 32K, no preset dictionary, valid header check sum
+        boolean zlibHeader = (probe[0] & 0x0f) == 8 && (probe[0] & 0xff) >> 4 <= 7 && (probe[1] & 0x20) == 0
+                && header % 31 == 0;
+        if (!zlibHeader) {
+            return NONE;
+        }
+        // such header can be the start of text too ("x^"), so trying to inflate the beginning of file
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(probe, 0, length);
+            inflater.inflate(new byte[PROBE_SIZE]);
+            return DEFLATE;
+        } catch (DataFormatException e) {
+            return NONE;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Opens the file for reading and decompresses it, if it is compressed.
+     * <p>
+     * If the host has more than one processor, compressed file is decompressed by background thread
+     * block by block, so the next block is decompressed while the previous one is parsed.
+     *
+     * @param filePath - path to the file.
+     * @return stream of decompressed file content
+     * @throws java.io.FileNotFoundException if file not found
+     * @throws IOException                   if file can't be read
+     */
+    public static InputStream openInputStream(String filePath) throws IOException {
+        BufferedInputStream input = new BufferedInputStream(new FileInputStream(filePath), BUFFER_SIZE);
+        try {
+            input.mark(PROBE_SIZE);
+            byte[] probe = input.readNBytes(PROBE_SIZE);
+            input.reset();
+            FleetCompression compression = detect(probe, probe.length);
+            if (compression == NONE) {
+                return input;
+            }
+            InputStream decompressed = compression.decompress(input);
+            if (Runtime.getRuntime().availableProcessors() > 1) {
+                return new PipelinedInputStream(decompressed, BUFFER_SIZE * 4);
+            }
+            return decompressed;
+        } catch (IOException | RuntimeException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Wraps stream, so everything written to it will be compressed.
+     *
+     * @param output - stream of the file
+     * @return compressing stream. It must be closed to finish compression.
+     * @throws IOException if gzip header can't be written
+     */
+    public OutputStream compress(OutputStream output) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPOutputStream(output, BUFFER_SIZE);
+            case DEFLATE:
+                return new DeflaterOutputStream(output, new Deflater(Deflater.DEFAULT_COMPRESSION), BUFFER_SIZE) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            def.end();
+                        }
+                    }
+                };
+            default:
+                return output;
+        }
+    }
+
+    private InputStream decompress(InputStream input) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPInputStream(input, BUFFER_SIZE);
+            case DEFLATE:
+                return new InflaterInputStream(input, new Inflater(), BUFFER_SIZE) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            inf.end();
+                        }
+                    }
+                };
+            default:
+                return input;
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package airline.util;
+
+import airline.entity.AirlineCompany;
+import airline.entity.planes.Plane;
+import airline.exceptions.FileParsingException;
+import airline.exceptions.PlaneParseException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follower of fleet file, that ingests rows appended to the file.
+ * <p>
+ * Loads the company from the file and remembers byte offset after the last complete line.
+ * Every {@link #poll()} reads only bytes after that offset, parses new complete lines and adds planes
+ * to the live AirlineCompany through {@code addPlane()}, so company listeners (indexes, journal and so on)
+ * are updated incrementally. Cost of refresh depends on the size of appended part, not on the size of file.
+ * Incomplete last line is left in the file until its line separator is written, except the company name
+ * of the first load: file may consist of the name only, without line separator.
+ * <p>
+ * Before every poll the follower checks, that the file still continues the consumed part: it isn't shorter than
+ * offset, the consumed part ends by line separator, the file starts with the same company name line and
+ * (if file system reports it) is the same file. Otherwise file was rewritten, it is reloaded from the beginning
+ * and planes list of the company is replaced by planes of the new content.
+ * <p>
+ * {@link #start()} starts background thread, that watches the file with WatchService and polls it on every change.
+ * Background thread adds (or replaces) planes while holding the company monitor, so other threads, that read
+ * the company during following, should synchronize on it too.
+ */
+public class FleetFileFollower implements Closeable {
+    private static final Logger LOGGER = LogManager.getLogger(FleetFileFollower.class);
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    /**
+     * Time, after which file is polled even without WatchService events
+     * (some file systems don't report modifications reliably).
+     */
+    private static final long FALLBACK_POLL_MILLIS = 1000;
+
+    private final Path path;
+    private final boolean skipBrokenLineMode;
+    private final AirlineCompany company;
+    private final PlaneRecordParser parser = new PlaneRecordParser();
+    private final Charset charset = Charset.defaultCharset();
+    /**
+     * Guards reading state: buffers, offset, line number, company name line and file key.
+     */
+    private final Object readLock = new Object();
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private byte[] line = new byte[256];
+    /**
+     * Position in file after the last consumed line.
+     */
+    private volatile long offset;
+    private int lineNumber;
+    /**
+     * Bytes of the first line (without line separator), that every consumed version of the file starts with.
+     */
+    private byte[] nameLine;
+    /**
+     * True, if company name was consumed without line separator, that is expected at offset.
+     */
+    private boolean separatorPending;
+    /**
+     * Identity of the consumed file, null if file system doesn't report it.
+     */
+    private Object fileKey;
+    /**
+     * Company name, that was read from the first line and isn't taken by constructor or poll yet.
+     */
+    private String readCompanyName;
+    private WatchService watchService;
+    private Thread watcher;
+
+    /**
+     * Loads company from the file and prepares to follow it.
+     *
+     * @param filePath           - path to the file.
+     * @param skipBrokenLineMode - true to skip lines, where was met {@code PlaneParseException}
+     * @throws FileParsingException if file not found, has no complete first line, can't be read or
+     *                              (if skipBrokenLineMode is false) contains broken line.
+     */
+    public FleetFileFollower(String filePath, boolean skipBrokenLineMode) throws FileParsingException {
+        this.path = Paths.get(filePath);
+        this.skipBrokenLineMode = skipBrokenLineMode;
+        List<Plane> planes = new ArrayList<>();
+        String companyName;
+        synchronized (readLock) {
+            readNewLines(planes, true);
+            companyName = takeCompanyName();
+        }
+        if (companyName == null) {
+            LOGGER.error("Given file has no company name row.");
+            throw new FileParsingException("File is empty: " + filePath);
+        }
+        company = new AirlineCompany(companyName);
+        for (Plane plane : planes) {
+            company.addPlane(plane);
+        }
+    }
+
+    public AirlineCompany getCompany() {
+        return company;
+    }
+
+    /**
+     * Returns position in file after the last consumed line.
+     *
+     * @return (long) offset in bytes
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Reads lines, appended after the last poll, and adds planes from them to the company. If the file was
+     * rewritten, planes list of the company is replaced by planes of the new content (when its first line
+     * is complete).
+     *
+     * @return amount of added planes
+     * @throws FileParsingException if file can't be read or (if skipBrokenLineMode is false) contains broken line.
+     *                              Planes before broken line are added, broken line is consumed.
+     */
+    public int poll() throws FileParsingException {
+        List<Plane> planes = new ArrayList<>();
+        synchronized (readLock) {
+            try {
+                readNewLines(planes, false);
+            } finally {
+                String reloadedName = takeCompanyName();
+                synchronized (company) {
+                    if (reloadedName != null) {
+                        if (!reloadedName.equals(company.getName())) {
+                            company.setName(reloadedName);
+                        }
+                        company.setPlanesList(new ArrayList<>(planes));
+                    } else {
+                        for (Plane plane : planes) {
+                            company.addPlane(plane);
+                        }
+                    }
+                }
+            }
+        }
+        return planes.size();
+    }
+
+    /**
+     * Starts background thread, that polls the file on every change.
+     *
+     * @throws IOException if WatchService can't be started
+     */
+    public synchronized void start() throws IOException {
+        if (watcher != null) {
+            return;
+        }
+        Path directory = path.toAbsolutePath().getParent();
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watcher = new Thread(this::watchLoop, "fleet-file-follower");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Stops background thread, if it was started.
+     *
+     * @throws IOException if WatchService can't be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (watcher == null) {
+            return;
+        }
+        watchService.close();
+        try {
+            watcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        watcher = null;
+    }
+
+    private void watchLoop() {
+        Path fileName = path.getFileName();
+        try {
+            while (true) {
+                WatchKey key = watchService.poll(FALLBACK_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                boolean changed = key == null;
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                                || fileName.equals(event.context());
+                    }
+                    key.reset();
+                }
+                if (changed) {
+                    pollQuietly();
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            LOGGER.debug("Following of " + path + " is stopped");
+        }
+    }
+
+    private void pollQuietly() {
+        try {
+            int added = poll();
+            if (added > 0) {
+                LOGGER.info("Added " + added + " planes from " + path);
+            }
+        } catch (FileParsingException e) {
+            LOGGER.error(e.getCustomMessage());
+        } catch (RuntimeException e) {
+            // watcher must survive any failure of one poll, lines are read again by the next poll
+            LOGGER.debug("Caught " + e);
+            LOGGER.error("Failed to read appended lines of " + path);
+        }
+    }
+
+    private String takeCompanyName() {
+        String companyName = readCompanyName;
+        readCompanyName = null;
+        return companyName;
+    }
+
+    /**
+     * Reads complete lines after offset. Must be called while holding {@code readLock}. First line of file
+     * is kept as company name (see {@link #takeCompanyName()}), other lines are parsed to planes.
+     *
+     * @param firstLoad - true, if incomplete first line is accepted as company name
+     */
+    private void readNewLines(List<Plane> planes, boolean firstLoad) throws FileParsingException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            Object key = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+            if (lineNumber > 0 && isRewritten(channel, size, key)) {
+                LOGGER.warn("File " + path + " was truncated or rewritten. It is reloaded from the beginning.");
+                offset = 0;
+                lineNumber = 0;
+                separatorPending = false;
+            }
+            fileKey = key;
+            int lineLength = 0;
+            long position = offset;
+            while (position < size) {
+                readBuffer.clear();
+                int read = channel.read(readBuffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                for (int index = 0; index < read; index++) {
+                    byte symbol = readBuffer.get(index);
+                    if (symbol != '\n') {
+                        if (lineLength == line.length) {
+                            line = Arrays.copyOf(line, line.length * 2);
+                        }
+                        line[lineLength++] = symbol;
+                        continue;
+                    }
+                    if (lineLength > 0 && line[lineLength - 1] == '\r') {
+                        lineLength--;
+                    }
+                    offset = position + index + 1;
+                    if (separatorPending) {
+                        separatorPending = false;
+                        if (lineLength == 0) {
+                            // separator after company name, that was consumed without it
+                            continue;
+                        }
+                    }
+                    lineNumber++;
+                    if (lineNumber == 1) {
+                        readName(lineLength);
+                    } else {
+                        parseLine(planes, lineLength);
+                    }
+                    lineLength = 0;
+                }
+                position += read;
+            }
+            if (firstLoad && lineNumber == 0 && lineLength > 0) {
+                // the only line of the file is company name without line separator
+                if (line[lineLength - 1] == '\r') {
+                    lineLength--;
+                }
+                offset = position;
+                lineNumber = 1;
+                separatorPending = true;
+                readName(lineLength);
+            }
+        } catch (NoSuchFileException e) {
+            LOGGER.debug("No file found. Given file path:  " + path);
+            LOGGER.error("No file found by given pass.");
+            throw new FileParsingException("No such file by given pass: " + path);
+        } catch (IOException e) {
+            LOGGER.debug("Caught IOException: " + e.getMessage());
+            LOGGER.error("Caught IOException.");
+            throw new FileParsingException("An error with Input/Output stream. Message: " + e.getMessage());
+        }
+    }
+
+    private void readName(int lineLength) {
+        nameLine = Arrays.copyOf(line, lineLength);
+        readCompanyName = new String(line, 0, lineLength, charset);
+    }
+
+    /**
+     * @return true, if the file doesn't continue the consumed part
+     */
+    private boolean isRewritten(FileChannel channel, long size, Object key) throws IOException {
+        if (size < offset || fileKey != null && key != null && !Objects.equals(fileKey, key)) {
+            return true;
+        }
+        if (!separatorPending && !startsWith(channel, offset - 1, new byte[]{'\n'})) {
+            return true;
+        }
+        return !startsWith(channel, 0, nameLine);
+    }
+
+    private boolean startsWith(FileChannel channel, long position, byte[] expected) throws IOException {
+        ByteBuffer actual = ByteBuffer.allocate(expected.length);
+        while (actual.hasRemaining() && channel.read(actual, position + actual.position()) > 0) {
+            // reading expected amount of bytes
+        }
+        return !actual.hasRemaining() && Arrays.equals(actual.array(), expected);
+    }
+
+    private void parseLine(List<Plane> planes, int lineLength) throws FileParsingException {
+        try {
+            planes.add(parser.parse(line, 0, lineLength, charset));
+        } catch (PlaneParseException e) {
+            brokenLine(lineLength, e.getCustomMessage());
+        } catch (RuntimeException e) {
+            // parser fails with unchecked exceptions on short rows and unknown engines
+            brokenLine(lineLength, e.toString());
+        }
+    }
+
+    private void brokenLine(int lineLength, String message) throws FileParsingException {
+        String currentLine = new String(line, 0, lineLength, charset);
+        if (skipBrokenLineMode) {
+            LOGGER.info("Skipped broken line " + lineNumber);
+            LOGGER.debug("A broken line was skipped. Variables status: {lineNumber=\"" + lineNumber
+                    + "\", currentLine=\"" + currentLine + "\"}");
+        } else {
+            LOGGER.debug("Line " + lineNumber + ": " + currentLine);
+            LOGGER.error("A broken line was met. skipBrokenLineMode is false. Throwing FileParsingException");
+            throw new FileParsingException("An error occurred while parsing string row as Plane object at line "
+                    + lineNumber + ". Message: " + message);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package airline.util;
+
+import airline.entity.planes.Plane;
+import airline.exceptions.FileParsingException;
+import airline.exceptions.PlaneParseException;
+import airline.exceptions.UncheckedFileParsingException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazy reader of fleet file.
+ * <p>
+ * Reads planes one by one, without building AirlineCompany, so the file of any size can be filtered
+ * or totalled in constant memory:
+ * <pre>{@code
+ * try (FleetFileReader reader = new FleetFileReader(filePath, true)) {
+ *     long total = reader.stream().mapToLong(Plane::getCargoCapacity).sum();
+ * }
+ * }</pre>
+ * Company name (the first row of file) is read on construction and available through {@code getCompanyName()}.
+ * Broken lines are skipped or reported the same way, as in
+ * {@link FileHandler#parseFileAndConstructCompany(String, boolean)}. As iterator can't throw checked exceptions,
+ * broken line (if skipBrokenLineMode is false) and I/O errors are thrown as UncheckedFileParsingException.
+ */
+public class FleetFileReader implements Iterator<Plane>, Closeable {
+    private static final Logger LOGGER = LogManager.getLogger(FleetFileReader.class);
+
+    private final BufferedReader input;
+    private final boolean skipBrokenLineMode;
+    private final PlaneRecordParser parser = new PlaneRecordParser();
+    private final String companyName;
+    /**
+     * Plane, that was read by {@code hasNext()}, but not returned by {@code next()} yet.
+     */
+    private Plane nextPlane;
+    private int lineNumber = 1;
+    private boolean finished;
+
+    /**
+     * Opens file and reads company name.
+     *
+     * @param filePath           - path to the file.
+     * @param skipBrokenLineMode - true to skip lines, where was met {@code PlaneParseException}
+     * @throws FileParsingException if file not found, is empty or can't be read
+     */
+    public FleetFileReader(String filePath, boolean skipBrokenLineMode) throws FileParsingException {
+        this.skipBrokenLineMode = skipBrokenLineMode;
+        try {
+            input = new BufferedReader(new InputStreamReader(FleetCompression.openInputStream(filePath)));
+        } catch (FileNotFoundException e) {
+            LOGGER.debug("No file found. Given file path:  " + filePath);
+            LOGGER.error("No file found by given pass.");
+            throw new FileParsingException("No such file by given pass: " + filePath);
+        } catch (IOException e) {
+            LOGGER.debug("Caught IOException: " + e.getMessage());
+            LOGGER.error("Caught IOException.");
+            throw new FileParsingException("An error with Input/Output stream. Message: " + e.getMessage());
+        }
+        try {
+            companyName = input.readLine();
+        } catch (IOException e) {
+            closeQuietly();
+            LOGGER.debug("Caught IOException: " + e.getMessage());
+            LOGGER.error("Caught IOException.");
+            throw new FileParsingException("An error with Input/Output stream. Message: " + e.getMessage());
+        }
+        if (companyName == null) {
+            closeQuietly();
+            LOGGER.error("Given file is empty.");
+            throw new FileParsingException("File is empty: " + filePath);
+        }
+    }
+
+    public String getCompanyName() {
+        return companyName;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextPlane == null && !finished) {
+            nextPlane = readPlane();
+        }
+        return nextPlane != null;
+    }
+
+    @Override
+    public Plane next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more planes in file");
+        }
+        Plane plane = nextPlane;
+        nextPlane = null;
+        return plane;
+    }
+
+    /**
+     * Returns sequential stream of planes from the file.
+     * <p>
+     * Stream shares state with this reader, so it can be consumed only once. Closing the stream closes the reader.
+     *
+     * @return {@code Stream<Plane>}
+     */
+    public Stream<Plane> stream() {
+        Spliterator<Plane> spliterator = Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Reads lines until plane is parsed or file is over.
+     *
+     * @return Plane obj or null, if there are no more planes in file
+     */
+    private Plane readPlane() {
+        try {
+            String currentLine;
+            while ((currentLine = input.readLine()) != null) {
+                lineNumber++;
+                try {
+                    return parser.parse(currentLine);
+                } catch (PlaneParseException e) {
+                    if (skipBrokenLineMode) {
+                        LOGGER.info("Skipped broken line " + lineNumber);
+                        LOGGER.debug("A broken line was skipped. Variables status: {lineNumber=\"" + lineNumber
+                                + "\", currentLine=\"" + currentLine + "\"}");
+                    } else {
+                        LOGGER.debug("Line " + lineNumber + ": " + currentLine);
+                        LOGGER.error("A broken line was met. skipBrokenLineMode is false. Throwing FileParsingException");
+                        finished = true;
+                        throw new UncheckedFileParsingException(new FileParsingException(
+                                "An error occurred while parsing string row as Plane object at line " + lineNumber
+                                        + ". Message: " + e.getCustomMessage()));
+                    }
+                }
+            }
+            finished = true;
+            return null;
+        } catch (IOException e) {
+            finished = true;
+            LOGGER.debug("Caught IOException: " + e.getMessage());
+            LOGGER.error("Caught IOException.");
+            throw new UncheckedFileParsingException(new FileParsingException(
+                    "An error with Input/Output stream. Message: " + e.getMessage()));
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            input.close();
+        } catch (IOException e) {
+            LOGGER.debug("Caught IOException while closing file: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        nextPlane = null;
+        input.close();
+    }
+}
@@ -0,0 +1,25 @@
+package airline.util;
+
+/**
+ * Formats of fleet files, that can be saved and loaded by Controller.
+ */
+public enum FleetFormat {
+    /**
+     * Text format: company name in the first row and one plane per row.
+     *
+     * @see FileHandler#writeCompany(airline.entity.AirlineCompany, String)
+     */
+    TEXT,
+    /**
+     * Versioned columnar binary snapshot.
+     *
+     * @see BinarySnapshot
+     */
+    BINARY_SNAPSHOT,
+    /**
+     * Text rows, grouped into blocks with CRC32C and block index in the footer.
+     *
+     * @see BlockFleetFile
+     */
+    CHECKSUMMED_BLOCKS
+}
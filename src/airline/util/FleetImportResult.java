@@ -0,0 +1,147 @@
+package airline.util;
+
+import airline.entity.AirlineCompany;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of bulk import of fleet files.
+ * <p>
+ * Contains registry of loaded companies keyed by company name and report about every file.
+ *
+ * @see FleetImporter
+ */
+public class FleetImportResult {
+    /**
+     * Report about one imported file.
+     */
+    public static class FileReport {
+        private final String filePath;
+        private final String companyName;
+        private final int planesCount;
+        private final long millis;
+        private final String failure;
+
+        FileReport(String filePath, String companyName, int planesCount, long millis, String failure) {
+            this.filePath = filePath;
+            this.companyName = companyName;
+            this.planesCount = planesCount;
+            this.millis = millis;
+            this.failure = failure;
+        }
+
+        public String getFilePath() {
+            return filePath;
+        }
+
+        /**
+         * @return name of loaded company or null, if file wasn't loaded
+         */
+        public String getCompanyName() {
+            return companyName;
+        }
+
+        public int getPlanesCount() {
+            return planesCount;
+        }
+
+        /**
+         * @return time of parsing of the file in milliseconds
+         */
+        public long getMillis() {
+            return millis;
+        }
+
+        public boolean isFailed() {
+            return failure != null;
+        }
+
+        /**
+         * @return message of the failure or null, if file was loaded
+         */
+        public String getFailure() {
+            return failure;
+        }
+
+        @Override
+        public String toString() {
+            if (failure != null) {
+                return filePath + ": failed in " + millis + " ms. " + failure;
+            }
+            return filePath + ": company \"" + companyName + "\", " + planesCount + " planes in " + millis + " ms";
+        }
+    }
+
+    private final Map<String, AirlineCompany> companies = new LinkedHashMap<>();
+    private final List<FileReport> reports = new ArrayList<>();
+    private final long millis;
+
+    FleetImportResult(long millis) {
+        this.millis = millis;
+    }
+
+    void addCompany(AirlineCompany company) {
+        companies.put(company.getName(), company);
+    }
+
+    boolean containsCompany(String name) {
+        return companies.containsKey(name);
+    }
+
+    void addReport(FileReport report) {
+        reports.add(report);
+    }
+
+    /**
+     * Returns loaded companies keyed by name in the order of files.
+     *
+     * @return unmodifiable map
+     */
+    public Map<String, AirlineCompany> getCompanies() {
+        return Collections.unmodifiableMap(companies);
+    }
+
+    public AirlineCompany getCompany(String name) {
+        return companies.get(name);
+    }
+
+    /**
+     * Returns reports about every file in the order of files.
+     *
+     * @return unmodifiable list
+     */
+    public List<FileReport> getReports() {
+        return Collections.unmodifiableList(reports);
+    }
+
+    public List<FileReport> getFailures() {
+        List<FileReport> failures = new ArrayList<>();
+        for (FileReport report : reports) {
+            if (report.isFailed()) {
+                failures.add(report);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * @return wall-clock time of the whole import in milliseconds
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    @Override
+    public String toString() {
+        return "FleetImportResult{" +
+                "companies=" + companies.size() +
+                ", files=" + reports.size() +
+                ", failures=" + getFailures().size() +
+                ", millis=" + millis +
+                '}';
+    }
+}
@@ -0,0 +1,208 @@
+package airline.util;
+
+import airline.entity.AirlineCompany;
+import airline.entity.components.ModelNameDictionary;
+import airline.exceptions.FileParsingException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Importer of many fleet files at once.
+ * <p>
+ * Files are parsed concurrently on fixed pool, which size is bounded by the amount of processors
+ * (by default), so wall-clock time of import depends on the amount of cores, not on the amount of files.
+ * Every file is parsed by one worker sequentially, text files (plain or compressed), binary snapshots and
+ * block files are detected automatically (in block files skipBrokenLineMode skips damaged blocks).
+ * Failure of one file doesn't stop the import, it is written to the report.
+ * <p>
+ * Companies are registered by name. If several files contain companies with the same name,
+ * the first file (in sorted order) wins, others are reported as failed.
+ *
+ * @see FleetImportResult
+ */
+public class FleetImporter {
+    private static final Logger LOGGER = LogManager.getLogger(FleetImporter.class);
+
+    private final int threads;
+    private final boolean skipBrokenLineMode;
+
+    /**
+     * Constructs importer with one worker per processor.
+     *
+     * @param skipBrokenLineMode - true to skip lines, where was met {@code PlaneParseException}
+     */
+    public FleetImporter(boolean skipBrokenLineMode) {
+        this(Runtime.getRuntime().availableProcessors(), skipBrokenLineMode);
+    }
+
+    /**
+     * @param threads            - maximal amount of files, that are parsed at the same time
+     * @param skipBrokenLineMode - true to skip lines, where was met {@code PlaneParseException}
+     */
+    public FleetImporter(int threads, boolean skipBrokenLineMode) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Amount of threads must be positive: " + threads);
+        }
+        this.threads = threads;
+        this.skipBrokenLineMode = skipBrokenLineMode;
+    }
+
+    /**
+     * Imports every regular file of the directory.
+     *
+     * @param directory - path to the directory
+     * @return registry of companies and reports about files
+     * @throws FileParsingException if directory not found or can't be listed
+     */
+    public FleetImportResult importDirectory(String directory) throws FileParsingException {
+        return importFiles(directory, "*");
+    }
+
+    /**
+     * Imports regular files of the directory, which names match glob pattern (for example "*.txt").
+     *
+     * @param directory - path to the directory
+     * @param glob      - pattern of file names
+     * @return registry of companies and reports about files
+     * @throws FileParsingException if directory not found, can't be listed or pattern is wrong
+     * @see java.nio.file.FileSystem#getPathMatcher(String) glob syntax
+     */
+    public FleetImportResult importFiles(String directory, String glob) throws FileParsingException {
+        List<String> filePaths = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(directory), glob)) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file)) {
+                    filePaths.add(file.toString());
+                }
+            }
+        } catch (NoSuchFileException | NotDirectoryException e) {
+            LOGGER.debug("No directory found. Given path:  " + directory);
+            LOGGER.error("No directory found by given pass.");
+            throw new FileParsingException("No such directory by given pass: " + directory);
+        } catch (PatternSyntaxException e) {
+            LOGGER.debug("Wrong glob pattern: " + glob);
+            LOGGER.error("Wrong glob pattern.");
+            throw new FileParsingException("Wrong glob pattern: " + glob + ". Message: " + e.getMessage());
+        } catch (IOException e) {
+            LOGGER.debug("Caught IOException: " + e.getMessage());
+            LOGGER.error("Caught IOException.");
+            throw new FileParsingException("An error with Input/Output stream. Message: " + e.getMessage());
+        }
+        Collections.sort(filePaths);
+        return importFiles(filePaths);
+    }
+
+    /**
+     * Imports given files.
+     *
+     * @param filePaths - paths to the files
+     * @return registry of companies and reports about files in the given order
+     */
+    public FleetImportResult importFiles(List<String> filePaths) {
+        long start = System.nanoTime();
+        List<Future<FileImport>> futures = new ArrayList<>(filePaths.size());
+        List<FileImport> imports = new ArrayList<>(filePaths.size());
+        if (!filePaths.isEmpty()) {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, filePaths.size()), task -> {
+                Thread thread = new Thread(task, "fleet-importer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                for (String filePath : filePaths) {
+                    futures.add(executor.submit(() -> importFile(filePath)));
+                }
+                for (int index = 0; index < futures.size(); index++) {
+                    imports.add(await(futures.get(index), filePaths.get(index)));
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        FleetImportResult result = new FleetImportResult((System.nanoTime() - start) / 1_000_000);
+        for (FileImport fileImport : imports) {
+            String failure = fileImport.failure;
+            if (fileImport.company != null) {
+                if (result.containsCompany(fileImport.company.getName())) {
+                    failure = "Company with the same name is already imported: " + fileImport.company.getName();
+                    LOGGER.error(failure + " (file " + fileImport.filePath + ")");
+                } else {
+                    result.addCompany(fileImport.company);
+                }
+            }
+            result.addReport(new FleetImportResult.FileReport(fileImport.filePath,
+                    failure == null ? fileImport.company.getName() : null,
+                    failure == null ? fileImport.company.amountOfPlanes() : 0, fileImport.millis, failure));
+        }
+        LOGGER.info("Imported " + result.getCompanies().size() + " companies from " + filePaths.size()
+                + " files in " + result.getMillis() + " ms");
+        LOGGER.debug("Model names: " + ModelNameDictionary.shared());
+        return result;
+    }
+
+    /**
+     * Result of parsing of one file.
+     */
+    private static class FileImport {
+        private final String filePath;
+        private final AirlineCompany company;
+        private final String failure;
+        private final long millis;
+
+        private FileImport(String filePath, AirlineCompany company, String failure, long millis) {
+            this.filePath = filePath;
+            this.company = company;
+            this.failure = failure;
+            this.millis = millis;
+        }
+    }
+
+    private FileImport importFile(String filePath) {
+        long start = System.nanoTime();
+        try {
+            AirlineCompany company;
+            if (BinarySnapshot.isSnapshot(filePath)) {
+                company = BinarySnapshot.readCompany(filePath);
+            } else if (BlockFleetFile.isBlockFile(filePath)) {
+                company = BlockFleetFile.readCompany(filePath, skipBrokenLineMode).getCompany();
+            } else {
+                company = FileHandler.parseFileAndConstructCompany(filePath, skipBrokenLineMode);
+            }
+            return new FileImport(filePath, company, null, (System.nanoTime() - start) / 1_000_000);
+        } catch (FileParsingException e) {
+            LOGGER.error("Failed to import " + filePath + ". " + e.getCustomMessage());
+            return new FileImport(filePath, null, e.getCustomMessage(), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            // for example, empty file (Scanner has no first line)
+            LOGGER.error("Failed to import " + filePath + ". " + e);
+            return new FileImport(filePath, null, e.toString(), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private FileImport await(Future<FileImport> future, String filePath) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new FileImport(filePath, null, "Import was interrupted", 0);
+        } catch (ExecutionException e) {
+            return new FileImport(filePath, null, String.valueOf(e.getCause()), 0);
+        }
+    }
+}
@@ -0,0 +1,792 @@
+package airline.util;
+
+import airline.entity.AirlineCompany;
+import airline.entity.CompanyListener;
+import airline.entity.comparators.CompareType;
+import airline.entity.components.Engine;
+import airline.entity.planes.CargoPlane;
+import airline.entity.planes.Plane;
+import airline.exceptions.FileParsingException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal of AirlineCompany mutations.
+ * <p>
+ * Every mutation of the company (adding, deleting, changing of planes, sorting and renaming) is appended
+ * to the journal as a compact record, so saving the change costs O(change) instead of rewriting the whole fleet.
+ * Records are collected in memory and written by background thread in groups with one fsync per group
+ * (group commit), {@link #sync()} waits until all appended records are durable.
+ * <p>
+ * Journal lives in the files {@code <base>.snapshot.<generation>} (BinarySnapshot) and
+ * {@code <base>.journal.<generation>} (records, appended after that snapshot). When journal grows over
+ * compaction threshold, new generation is started and fresh snapshot is written in background,
+ * then files of old generation are deleted. On startup {@link #open(String)} loads the last snapshot and
+ * replays journals over it. Torn record at the end of the last journal (after crash) is cut off.
+ * <p>
+ * Record layout: body length (int), CRC32 of body (int), body. Body starts with record type (byte):
+ * <pre>
+ * ADD    - plane type (byte), serial (int), model (string), passengers (int), cargo (int), crew (int), engine (string)
+ * DELETE - index (int)
+ * UPDATE - index (int), crew (int), passengers (int), cargo (int)
+ * RENAME - name (string)
+ * SORT   - CompareType name (string)
+ * </pre>
+ * Changes made directly through {@code getPlanesList()} are not tracked. Replacing the whole list through
+ * {@code setPlanesList()} writes snapshot of the new list synchronously and starts new generation after it,
+ * so replacement is durable, when {@code setPlanesList()} returns.
+ * <p>
+ * Positions of changed planes are found by identity map of the planes list, that is rebuilt only after
+ * deletions from the middle, sorting and replacement, so bulk changes through setters cost O(n + changes).
+ */
+public class FleetJournal implements Closeable {
+    private static final Logger LOGGER = LogManager.getLogger(FleetJournal.class);
+    private static final byte ADD = 1;
+    private static final byte DELETE = 2;
+    private static final byte UPDATE = 3;
+    private static final byte RENAME = 4;
+    private static final byte SORT = 5;
+    private static final byte PASSENGER_TYPE = 1;
+    private static final byte CARGO_TYPE = 2;
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final String SNAPSHOT_SUFFIX = ".snapshot.";
+    private static final String JOURNAL_SUFFIX = ".journal.";
+    /**
+     * Default time, that flusher waits for other records to join the group.
+     */
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 10;
+    /**
+     * Default size of journal, after which it is compacted to the new snapshot.
+     */
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 64L << 20;
+    /**
+     * Size of pending records, after which they are flushed without waiting for the flush interval.
+     */
+    private static final int FLUSH_THRESHOLD = 64 * 1024;
+
+    private final AirlineCompany company;
+    private final Path directory;
+    private final String baseName;
+    private final long flushIntervalMillis;
+    private final long compactionThreshold;
+    private final CRC32 checksum = new CRC32();
+    private final CompanyListener listener = new JournalListener();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "fleet-journal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Thread flusher;
+
+    /**
+     * Guards all fields below.
+     */
+    private final Object lock = new Object();
+    /**
+     * Records, that are appended, but not written yet.
+     */
+    private ByteBuffer pending = ByteBuffer.allocate(FLUSH_THRESHOLD * 2);
+    /**
+     * Buffer, that is written by flusher now (or free buffer for the next swap).
+     */
+    private ByteBuffer spare = ByteBuffer.allocate(FLUSH_THRESHOLD * 2);
+    private FileChannel channel;
+    private long generation;
+    private long journalSize;
+    private long appendedRecords;
+    private long durableRecords;
+    private boolean writing;
+    private boolean syncRequested;
+    private boolean closed;
+    private IOException failure;
+    private Future<?> compaction;
+
+    private FleetJournal(AirlineCompany company, Path basePath, long generation, long flushIntervalMillis,
+                         long compactionThreshold) throws IOException {
+        this.company = company;
+        this.directory = basePath.toAbsolutePath().getParent();
+        this.baseName = basePath.getFileName().toString();
+        this.generation = generation;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.compactionThreshold = compactionThreshold;
+        channel = FileChannel.open(journalPath(generation), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        journalSize = channel.size();
+        flusher = new Thread(this::flushLoop, "fleet-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        company.addListener(listener);
+    }
+
+    /**
+     * Starts new journal for given company.
+     * <p>
+     * Existing journal with the same base path is deleted. Initial snapshot of the company is written synchronously.
+     *
+     * @param company  - company, whose mutations will be journaled
+     * @param basePath - path and base name of journal files
+     * @return started journal
+     * @throws IOException if journal files can't be written
+     */
+    public static FleetJournal create(AirlineCompany company, String basePath) throws IOException {
+        return create(company, basePath, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Starts new journal for given company with custom flush interval and compaction threshold.
+     *
+     * @see #create(AirlineCompany, String)
+     */
+    public static FleetJournal create(AirlineCompany company, String basePath, long flushIntervalMillis,
+                                      long compactionThreshold) throws IOException {
+        Path path = Paths.get(basePath);
+        for (Path file : journalFiles(path, SNAPSHOT_SUFFIX).values()) {
+            Files.delete(file);
+        }
+        for (Path file : journalFiles(path, JOURNAL_SUFFIX).values()) {
+            Files.delete(file);
+        }
+        BinarySnapshot.writeCompany(company, basePath + SNAPSHOT_SUFFIX + 0);
+        return new FleetJournal(company, path, 0, flushIntervalMillis, compactionThreshold);
+    }
+
+    /**
+     * Restores company from the last snapshot and journals after it and continues journaling.
+     *
+     * @param basePath - path and base name of journal files
+     * @return journal with restored company
+     * @throws FileParsingException if there is no snapshot, snapshot or journal is corrupted or can't be read
+     * @see #getCompany()
+     */
+    public static FleetJournal open(String basePath) throws FileParsingException {
+        return open(basePath, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Restores company with custom flush interval and compaction threshold.
+     *
+     * @see #open(String)
+     */
+    public static FleetJournal open(String basePath, long flushIntervalMillis, long compactionThreshold)
+            throws FileParsingException {
+        Path path = Paths.get(basePath);
+        try {
+            NavigableMap<Long, Path> snapshots = journalFiles(path, SNAPSHOT_SUFFIX);
+            if (snapshots.isEmpty()) {
+                LOGGER.error("No journal snapshot found.");
+                throw new FileParsingException("No journal snapshot found by given pass: " + basePath);
+            }
+            long snapshotGeneration = snapshots.lastKey();
+            AirlineCompany company = BinarySnapshot.readCompany(snapshots.lastEntry().getValue().toString());
+            NavigableMap<Long, Path> journals = journalFiles(path, JOURNAL_SUFFIX);
+            long generation = snapshotGeneration;
+            for (Map.Entry<Long, Path> journal : journals.tailMap(snapshotGeneration, true).entrySet()) {
+                boolean last = journal.getKey().equals(journals.lastKey());
+                replay(company, journal.getValue(), last);
+                generation = journal.getKey();
+            }
+            // files of previous generations, that were not deleted because of crash
+            for (Path file : snapshots.headMap(snapshotGeneration).values()) {
+                Files.deleteIfExists(file);
+            }
+            for (Path file : journals.headMap(snapshotGeneration).values()) {
+                Files.deleteIfExists(file);
+            }
+            return new FleetJournal(company, path, generation, flushIntervalMillis, compactionThreshold);
+        } catch (IOException e) {
+            LOGGER.debug("Caught IOException: " + e.getMessage());
+            LOGGER.error("Caught IOException.");
+            throw new FileParsingException("An error with Input/Output stream. Message: " + e.getMessage());
+        }
+    }
+
+    public AirlineCompany getCompany() {
+        return company;
+    }
+
+    /**
+     * Waits until all appended records are written and synced to disk and running compaction is finished.
+     *
+     * @throws IOException if journal or snapshot can't be written
+     */
+    public void sync() throws IOException {
+        Future<?> running;
+        synchronized (lock) {
+            long target = appendedRecords;
+            syncRequested = true;
+            lock.notifyAll();
+            while (durableRecords < target && failure == null && flusher.isAlive()) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for journal sync", e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            running = compaction;
+        }
+        waitFor(running);
+    }
+
+    /**
+     * Compacts journal to the fresh snapshot.
+     * <p>
+     * Waits for the running compaction, then starts new generation. Snapshot is written in background.
+     *
+     * @throws IOException if journal can't be written
+     */
+    public void checkpoint() throws IOException {
+        Future<?> running;
+        synchronized (lock) {
+            running = compaction;
+        }
+        waitFor(running);
+        startCompaction();
+    }
+
+    /**
+     * Stops journaling. Appended records are synced and running compaction is finished before return.
+     *
+     * @throws IOException if journal can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        company.removeListener(listener);
+        Future<?> running;
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            running = compaction;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        waitFor(running);
+        compactor.shutdown();
+        synchronized (lock) {
+            channel.close();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private void waitFor(Future<?> running) throws IOException {
+        if (running == null) {
+            return;
+        }
+        try {
+            running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for journal compaction", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Journal compaction failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Writes pending records in groups: waits for the flush interval (or size threshold or sync request)
+     * after the first record, then writes all collected records with one fsync.
+     */
+    private void flushLoop() {
+        while (true) {
+            ByteBuffer batch;
+            FileChannel target;
+            long batchRecords;
+            synchronized (lock) {
+                try {
+                    while (!closed && pending.position() == 0) {
+                        lock.wait();
+                    }
+                    long deadline = System.currentTimeMillis() + flushIntervalMillis;
+                    long remaining = flushIntervalMillis;
+                    while (!closed && !syncRequested && pending.position() < FLUSH_THRESHOLD && remaining > 0) {
+                        lock.wait(remaining);
+                        remaining = deadline - System.currentTimeMillis();
+                    }
+                } catch (InterruptedException e) {
+                    closed = true;
+                }
+                if (pending.position() == 0) {
+                    if (closed) {
+                        lock.notifyAll();
+                        return;
+                    }
+                    continue;
+                }
+                batch = pending;
+                pending = spare;
+                spare = null;
+                batchRecords = appendedRecords;
+                target = channel;
+                syncRequested = false;
+                writing = true;
+            }
+            IOException error = null;
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    target.write(batch);
+                }
+                target.force(false);
+            } catch (IOException e) {
+                error = e;
+                LOGGER.debug("Caught IOException: " + e.getMessage());
+                LOGGER.error("Failed to write journal.");
+            }
+            synchronized (lock) {
+                batch.clear();
+                spare = batch;
+                writing = false;
+                if (error != null && failure == null) {
+                    failure = error;
+                }
+                if (error == null) {
+                    durableRecords = batchRecords;
+                }
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Starts new generation and writes snapshot of the current state in background.
+     * <p>
+     * Must be called on the thread, that mutates the company, so the copied state matches the end of journal.
+     */
+    private void startCompaction() throws IOException {
+        long newGeneration;
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            // waiting until current journal is fully written, then switching to the new file
+            drain();
+            newGeneration = generation + 1;
+            switchJournal(newGeneration);
+        }
+        AirlineCompany copy = copyOf(company);
+        Future<?> task = compactor.submit(() -> {
+            BinarySnapshot.writeCompany(copy, snapshotPath(newGeneration).toString());
+            deleteOldGenerations(newGeneration);
+            LOGGER.info("Journal compacted to generation " + newGeneration);
+            return null;
+        });
+        synchronized (lock) {
+            compaction = task;
+        }
+    }
+
+    /**
+     * Writes snapshot of the replaced planes list synchronously and starts new generation after it.
+     * <p>
+     * Replacement has no journal record, so new generation is started only when its snapshot is written:
+     * after crash the journal is restored either before or after the replacement, but never mixes them.
+     * If snapshot can't be written, journal is failed: further records aren't written, and {@code sync()}
+     * and {@code close()} throw the failure.
+     */
+    private void replaceSnapshot() {
+        Future<?> running;
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            running = compaction;
+        }
+        try {
+            waitFor(running);
+            long newGeneration;
+            synchronized (lock) {
+                drain();
+                newGeneration = generation + 1;
+            }
+            BinarySnapshot.writeCompany(company, snapshotPath(newGeneration).toString());
+            synchronized (lock) {
+                switchJournal(newGeneration);
+            }
+            deleteOldGenerations(newGeneration);
+            LOGGER.info("Journal restarted from snapshot of replaced planes list, generation " + newGeneration);
+        } catch (IOException e) {
+            LOGGER.debug("Caught IOException: " + e.getMessage());
+            LOGGER.error("Failed to write journal snapshot after planes list replacement.");
+            synchronized (lock) {
+                if (failure == null) {
+                    failure = e;
+                }
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Waits until pending records are written. Must be called under the lock.
+     *
+     * @throws IOException if journal can't be written
+     */
+    private void drain() throws IOException {
+        syncRequested = true;
+        lock.notifyAll();
+        while ((pending.position() > 0 || writing) && failure == null) {
+            try {
+                lock.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for journal sync", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Continues journal in the file of new generation. Must be called under the lock.
+     */
+    private void switchJournal(long newGeneration) throws IOException {
+        FileChannel newChannel = FileChannel.open(journalPath(newGeneration), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        channel.close();
+        channel = newChannel;
+        generation = newGeneration;
+        journalSize = 0;
+    }
+
+    private void deleteOldGenerations(long newGeneration) throws IOException {
+        for (Path file : journalFiles(directory.resolve(baseName), SNAPSHOT_SUFFIX)
+                .headMap(newGeneration).values()) {
+            Files.deleteIfExists(file);
+        }
+        for (Path file : journalFiles(directory.resolve(baseName), JOURNAL_SUFFIX)
+                .headMap(newGeneration).values()) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private boolean isCompactionRunning() {
+        synchronized (lock) {
+            return compaction != null && !compaction.isDone();
+        }
+    }
+
+    /**
+     * Deep copy of company, so snapshot can be written in background while company is changed.
+     */
+    static AirlineCompany copyOf(AirlineCompany company) {
+        List<Plane> planes = new ArrayList<>(company.amountOfPlanes());
+        for (Plane plane : company.getPlanesList()) {
+            planes.add(Plane.constructPlane(typeOf(plane), plane.getSerialNumber(), plane.getModelName(),
+                    plane.getCrewSize(), plane.getCargoCapacity(), plane.getPassengerCapacity(), plane.getEngine()));
+        }
+        return new AirlineCompany(company.getName(), planes);
+    }
+
+    private static byte typeOf(Plane plane) {
+        return plane instanceof CargoPlane ? CARGO_TYPE : PASSENGER_TYPE;
+    }
+
+    private Path snapshotPath(long generation) {
+        return directory.resolve(baseName + SNAPSHOT_SUFFIX + generation);
+    }
+
+    private Path journalPath(long generation) {
+        return directory.resolve(baseName + JOURNAL_SUFFIX + generation);
+    }
+
+    /**
+     * Finds journal files of given kind, sorted by generation.
+     */
+    private static NavigableMap<Long, Path> journalFiles(Path basePath, String suffix) throws IOException {
+        Path directory = basePath.toAbsolutePath().getParent();
+        String prefix = basePath.getFileName().toString() + suffix;
+        NavigableMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path file : stream) {
+                String generation = file.getFileName().toString().substring(prefix.length());
+                if (!generation.isEmpty() && generation.chars().allMatch(Character::isDigit)) {
+                    files.put(Long.parseLong(generation), file);
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Appends record to pending buffer. Encoder puts record body to {@code pending} under the lock.
+     */
+    private void append(Runnable encoder) {
+        boolean compact;
+        synchronized (lock) {
+            // after failure journal can't be replayed anymore, so records are not written
+            if (closed || failure != null) {
+                return;
+            }
+            ensureCapacity(RECORD_HEADER_SIZE);
+            int start = pending.position();
+            pending.position(start + RECORD_HEADER_SIZE);
+            encoder.run();
+            int bodyLength = pending.position() - start - RECORD_HEADER_SIZE;
+            checksum.reset();
+            checksum.update(pending.array(), start + RECORD_HEADER_SIZE, bodyLength);
+            pending.putInt(start, bodyLength);
+            pending.putInt(start + Integer.BYTES, (int) checksum.getValue());
+            appendedRecords++;
+            journalSize += RECORD_HEADER_SIZE + bodyLength;
+            if (start == 0 || pending.position() >= FLUSH_THRESHOLD) {
+                lock.notifyAll();
+            }
+            compact = journalSize > compactionThreshold;
+        }
+        if (compact && !isCompactionRunning()) {
+            try {
+                startCompaction();
+            } catch (IOException e) {
+                LOGGER.debug("Caught IOException: " + e.getMessage());
+                LOGGER.error("Failed to start journal compaction.");
+            }
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (pending.remaining() < required) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + required));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+    }
+
+    private void putByte(byte value) {
+        ensureCapacity(1);
+        pending.put(value);
+    }
+
+    private void putInt(int value) {
+        ensureCapacity(Integer.BYTES);
+        pending.putInt(value);
+    }
+
+    private void putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensureCapacity(Integer.BYTES + bytes.length);
+        pending.putInt(bytes.length);
+        pending.put(bytes);
+    }
+
+    /**
+     * Encodes company mutations to journal records.
+     */
+    private class JournalListener implements CompanyListener {
+        /**
+         * Position of every plane in the planes list (the first one, if plane is added several times).
+         */
+        private final Map<Plane, Integer> positions = new IdentityHashMap<>();
+        /**
+         * False, when positions are shifted by deletion or sorting and must be rebuilt.
+         */
+        private boolean positionsValid;
+
+        @Override
+        public void planeAdded(Plane plane) {
+            if (positionsValid) {
+                positions.putIfAbsent(plane, company.amountOfPlanes() - 1);
+            }
+            append(() -> {
+                putByte(ADD);
+                putByte(typeOf(plane));
+                putInt(plane.getSerialNumber());
+                putString(plane.getModelName());
+                putInt(plane.getPassengerCapacity());
+                putInt(plane.getCargoCapacity());
+                putInt(plane.getCrewSize());
+                putString(plane.getEngine().getCodeName());
+            });
+        }
+
+        @Override
+        public void planeRemoved(int index, Plane plane) {
+            if (index == company.amountOfPlanes()) {
+                // removal of the last plane doesn't shift others
+                positions.remove(plane, index);
+            } else {
+                positionsValid = false;
+            }
+            append(() -> {
+                putByte(DELETE);
+                putInt(index);
+            });
+        }
+
+        @Override
+        public void planeChanged(Plane plane) {
+            if (!positionsValid) {
+                rebuildPositions();
+            }
+            Integer index = positions.get(plane);
+            if (index == null) {
+                return;
+            }
+            append(() -> {
+                putByte(UPDATE);
+                putInt(index);
+                putInt(plane.getCrewSize());
+                putInt(plane.getPassengerCapacity());
+                putInt(plane.getCargoCapacity());
+            });
+        }
+
+        @Override
+        public void planesSorted(CompareType sortMode) {
+            positionsValid = false;
+            append(() -> {
+                putByte(SORT);
+                putString(sortMode.name());
+            });
+        }
+
+        @Override
+        public void nameChanged(String name) {
+            append(() -> {
+                putByte(RENAME);
+                putString(name);
+            });
+        }
+
+        @Override
+        public void planesListReplaced() {
+            positionsValid = false;
+            replaceSnapshot();
+        }
+
+        private void rebuildPositions() {
+            positions.clear();
+            int index = 0;
+            for (Plane plane : company.getPlanesList()) {
+                positions.putIfAbsent(plane, index++);
+            }
+            positionsValid = true;
+        }
+    }
+
+    /**
+     * Applies records of journal file to the company.
+     *
+     * @param last - true, if it is the last journal. Torn record at its end is cut off, in other journals
+     *             it is treated as corruption.
+     */
+    private static void replay(AirlineCompany company, Path journal, boolean last)
+            throws IOException, FileParsingException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(journal));
+        CRC32 crc = new CRC32();
+        int records = 0;
+        while (buffer.remaining() > 0) {
+            int recordStart = buffer.position();
+            int length = buffer.remaining() >= RECORD_HEADER_SIZE ? buffer.getInt() : -1;
+            int expectedChecksum = length >= 0 ? buffer.getInt() : 0;
+            boolean valid = length > 0 && length <= buffer.remaining();
+            if (valid) {
+                crc.reset();
+                crc.update(buffer.array(), buffer.position(), length);
+                valid = (int) crc.getValue() == expectedChecksum;
+            }
+            if (!valid) {
+                if (!last) {
+                    LOGGER.error("Corrupted record in journal " + journal);
+                    throw new FileParsingException("Journal is corrupted: " + journal);
+                }
+                LOGGER.warn("Torn record at the end of journal " + journal + " was cut off at " + recordStart);
+                try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+                    channel.truncate(recordStart);
+                }
+                break;
+            }
+            ByteBuffer body = buffer.slice();
+            body.limit(length);
+            buffer.position(buffer.position() + length);
+            try {
+                apply(company, body);
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+                    | NegativeArraySizeException e) {
+                LOGGER.error("Failed to apply journal record " + records + " from " + journal);
+                throw new FileParsingException("Journal is inconsistent with snapshot: " + journal
+                        + ", record " + records);
+            }
+            records++;
+        }
+        LOGGER.info("Replayed " + records + " records from " + journal);
+    }
+
+    private static void apply(AirlineCompany company, ByteBuffer body) {
+        switch (body.get()) {
+            case ADD:
+                byte type = body.get();
+                int serialNumber = body.getInt();
+                String modelName = getString(body);
+                int passengerCapacity = body.getInt();
+                int cargoCapacity = body.getInt();
+                int crew = body.getInt();
+                Engine engine = Engine.byCodeName(getString(body));
+                Plane plane = Plane.constructPlane(type, serialNumber, modelName, crew, cargoCapacity,
+                        passengerCapacity, engine);
+                if (plane == null) {
+                    throw new IllegalArgumentException("Unknown plane type: " + type);
+                }
+                company.addPlane(plane);
+                break;
+            case DELETE:
+                company.deletePlane(body.getInt());
+                break;
+            case UPDATE:
+                Plane changedPlane = company.getPlane(body.getInt());
+                changedPlane.setCrewSize(body.getInt());
+                changedPlane.setPassengerCapacity(body.getInt());
+                changedPlane.setCargoCapacity(body.getInt());
+                break;
+            case RENAME:
+                company.setName(getString(body));
+                break;
+            case SORT:
+                company.sortPlanes(CompareType.valueOf(getString(body)));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown journal record type");
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,278 @@
+package airline.util;
+
+import airline.entity.AirlineCompany;
+import airline.entity.components.Engine;
+import airline.entity.planes.CargoPlane;
+import airline.entity.planes.Plane;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writer of text fleet files.
+ * <p>
+ * Encodes rows straight into reusable byte buffer, without building String for every plane.
+ * Rows are the same, as {@code toString()} of PassengerPlane/CargoPlane returns. Company is written
+ * to the temporary file, which is synced and then renamed over the target file, so target file is never
+ * left half-written. Text is encoded with default charset, the same one, that is used while reading.
+ * Optionally text is compressed, then reported amount of bytes is the size of compressed file.
+ *
+ * @see AtomicFiles
+ */
+public class FleetTextWriter {
+    private static final int BUFFER_SIZE = 256 * 1024;
+    /**
+     * Maximal length of int value in decimal form ("-2147483648").
+     */
+    private static final int MAX_INT_LENGTH = 11;
+    private static final byte SEPARATOR = '|';
+    private static final byte NEW_LINE = '\n';
+
+    private final FleetCompression compression;
+    private final RowEncoder encoder;
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private FileChannel channel;
+    /**
+     * Compressing stream over the channel, null if file isn't compressed.
+     */
+    private OutputStream compressedOutput;
+    private long bytesWritten;
+
+    public FleetTextWriter() {
+        this(Charset.defaultCharset());
+    }
+
+    public FleetTextWriter(Charset charset) {
+        this(charset, FleetCompression.NONE);
+    }
+
+    public FleetTextWriter(FleetCompression compression) {
+        this(Charset.defaultCharset(), compression);
+    }
+
+    public FleetTextWriter(Charset charset, FleetCompression compression) {
+        this.compression = compression;
+        encoder = new RowEncoder(charset);
+    }
+
+    /**
+     * Encoder of rows into byte buffer. Is shared with other writers of the same rows.
+     */
+    static class RowEncoder {
+        private final Charset charset;
+        /**
+         * True, if ASCII symbols are encoded by charset as single bytes with the same code.
+         */
+        private final boolean asciiCompatible;
+        private final int maxBytesPerChar;
+        private final byte[] passengerTag;
+        private final byte[] cargoTag;
+        private final byte[][] engineCodeNames;
+        /**
+         * Amount of bytes in the row without model name in the worst case.
+         */
+        private final int rowFrameSize;
+
+        RowEncoder(Charset charset) {
+            this.charset = charset;
+            asciiCompatible = charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)
+                    || charset.equals(StandardCharsets.ISO_8859_1);
+            maxBytesPerChar = (int) Math.ceil(charset.newEncoder().maxBytesPerChar());
+            passengerTag = "Passenger".getBytes(charset);
+            cargoTag = "Cargo".getBytes(charset);
+            Engine[] engines = Engine.values();
+            engineCodeNames = new byte[engines.length][];
+            int maxCodeNameLength = 0;
+            for (Engine engine : engines) {
+                engineCodeNames[engine.ordinal()] = engine.getCodeName().getBytes(charset);
+                maxCodeNameLength = Math.max(maxCodeNameLength, engineCodeNames[engine.ordinal()].length);
+            }
+            // type, 4 numbers, engine, 6 separators and new line
+            rowFrameSize = Math.max(passengerTag.length, cargoTag.length) + 4 * MAX_INT_LENGTH
+                    + maxCodeNameLength + 7;
+        }
+
+        /**
+         * @return amount of bytes of the row of the plane in the worst case
+         */
+        int maxRowSize(Plane plane) {
+            return rowFrameSize + maxStringSize(plane.getModelName());
+        }
+
+        /**
+         * @return amount of bytes of encoded value in the worst case
+         */
+        int maxStringSize(String value) {
+            return value.length() * maxBytesPerChar;
+        }
+
+        /**
+         * Writes row of the plane with new line. Buffer must have at least {@code maxRowSize(plane)} free bytes.
+         */
+        void putPlane(Plane plane, ByteBuffer buffer) {
+            buffer.put(plane instanceof CargoPlane ? cargoTag : passengerTag);
+            buffer.put(SEPARATOR);
+            putInt(plane.getSerialNumber(), buffer);
+            buffer.put(SEPARATOR);
+            putString(plane.getModelName(), buffer);
+            buffer.put(SEPARATOR);
+            putInt(plane.getPassengerCapacity(), buffer);
+            buffer.put(SEPARATOR);
+            putInt(plane.getCargoCapacity(), buffer);
+            buffer.put(SEPARATOR);
+            putInt(plane.getCrewSize(), buffer);
+            buffer.put(SEPARATOR);
+            buffer.put(engineCodeNames[plane.getEngine().ordinal()]);
+            buffer.put(NEW_LINE);
+        }
+
+        /**
+         * Writes decimal form of value. Buffer must have at least MAX_INT_LENGTH free bytes.
+         */
+        private static void putInt(int value, ByteBuffer buffer) {
+            long number = value;
+            if (number < 0) {
+                buffer.put((byte) '-');
+                number = -number;
+            }
+            int start = buffer.position();
+            do {
+                buffer.put((byte) ('0' + number % 10));
+                number /= 10;
+            } while (number > 0);
+            // digits were written in reverse order
+            for (int left = start, right = buffer.position() - 1; left < right; left++, right--) {
+                byte digit = buffer.get(left);
+                buffer.put(left, buffer.get(right));
+                buffer.put(right, digit);
+            }
+        }
+
+        /**
+         * Writes encoded value. Buffer must have at least {@code maxStringSize(value)} free bytes.
+         */
+        void putString(String value, ByteBuffer buffer) {
+            int length = value.length();
+            if (asciiCompatible) {
+                int start = buffer.position();
+                byte[] array = buffer.array();
+                int offset = buffer.arrayOffset();
+                for (int index = 0; index < length; index++) {
+                    char symbol = value.charAt(index);
+                    if (symbol >= 0x80) {
+                        // not ASCII row, encoding it with charset
+                        buffer.position(start);
+                        buffer.put(value.getBytes(charset));
+                        return;
+                    }
+                    array[offset + start + index] = (byte) symbol;
+                }
+                buffer.position(start + length);
+            } else {
+                buffer.put(value.getBytes(charset));
+            }
+        }
+    }
+
+    /**
+     * Writes company to the file.
+     * <p>
+     * In the first row will be placed name of the company, then every plane in its own row.
+     * If file already exists, it will be replaced.
+     *
+     * @param company  - AirlineCompany obj.
+     * @param filePath - path to the file.
+     * @return amount of written rows and bytes
+     * @throws IOException if got problems with file location or access. Target file stays untouched in this case.
+     */
+    public FleetWriteResult write(AirlineCompany company, String filePath) throws IOException {
+        Path target = Paths.get(filePath);
+        Path temp = AtomicFiles.createTempFile(target);
+        int rowsWritten = 0;
+        bytesWritten = 0;
+        buffer.clear();
+        try (FileChannel output = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel = output;
+            if (compression != FleetCompression.NONE) {
+                compressedOutput = compression.compress(unclosable(Channels.newOutputStream(output)));
+            }
+            ensureCapacity(encoder.maxStringSize(company.getName()) + 1);
+            encoder.putString(company.getName(), buffer);
+            buffer.put(NEW_LINE);
+            for (Plane plane : company.getPlanesList()) {
+                ensureCapacity(encoder.maxRowSize(plane));
+                encoder.putPlane(plane, buffer);
+                rowsWritten++;
+            }
+            flush();
+            if (compressedOutput != null) {
+                // writes the rest of compressed data, channel stays open
+                compressedOutput.close();
+                bytesWritten = output.size();
+            }
+            output.force(false);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            channel = null;
+            compressedOutput = null;
+        }
+        AtomicFiles.replace(temp, target);
+        return new FleetWriteResult(rowsWritten, bytesWritten);
+    }
+
+    /**
+     * Returns stream, that doesn't close the channel, so compressing stream can be closed before
+     * the channel is synced.
+     */
+    private static OutputStream unclosable(OutputStream output) {
+        return new FilterOutputStream(output) {
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                out.write(bytes, offset, length);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+
+    /**
+     * Flushes buffer, if it has less than required free bytes. Grows buffer, if required more than its size.
+     */
+    private void ensureCapacity(int required) throws IOException {
+        if (buffer.remaining() >= required) {
+            return;
+        }
+        flush();
+        if (buffer.capacity() < required) {
+            buffer = ByteBuffer.allocate(required);
+        }
+    }
+
+    private void flush() throws IOException {
+        if (compressedOutput != null) {
+            compressedOutput.write(buffer.array(), 0, buffer.position());
+            buffer.clear();
+            return;
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,33 @@
+package airline.util;
+
+/**
+ * Report about written fleet file.
+ */
+public class FleetWriteResult {
+    /**
+     * Amount of written planes (the company name row is not counted).
+     */
+    private final int rowsWritten;
+    private final long bytesWritten;
+
+    public FleetWriteResult(int rowsWritten, long bytesWritten) {
+        this.rowsWritten = rowsWritten;
+        this.bytesWritten = bytesWritten;
+    }
+
+    public int getRowsWritten() {
+        return rowsWritten;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public String toString() {
+        return "FleetWriteResult{" +
+                "rowsWritten=" + rowsWritten +
+                ", bytesWritten=" + bytesWritten +
+                '}';
+    }
+}
@@ -0,0 +1,301 @@
+package airline.util;
+
+import airline.entity.AirlineCompany;
+import airline.entity.planes.Plane;
+import airline.exceptions.FileParsingException;
+import airline.exceptions.PlaneParseException;
+import airline.exceptions.UncheckedFileParsingException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Loader, that parses fleet file in parallel.
+ * <p>
+ * File is memory-mapped and split at newline boundaries into chunks. Every chunk is parsed
+ * on fork-join pool independently, then results are merged into AirlineCompany in file order.
+ * Line numbers are counted per chunk and converted to the file line numbers after merge,
+ * so every error report contains the original line number.
+ *
+ * @see FileHandler#parseFileAndConstructCompanyInParallel(String, boolean)
+ */
+class MappedFleetLoader {
+    private static final Logger LOGGER = LogManager.getLogger(MappedFleetLoader.class);
+    /**
+     * Minimal size of one chunk. Files smaller than that are parsed by single task.
+     */
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    /**
+     * Maximal size of one chunk. Keeps every mapped region far below 2GB mapping limit.
+     */
+    private static final long MAX_CHUNK_SIZE = 64L << 20;
+    /**
+     * Size of window, that is read while looking for the nearest newline.
+     */
+    private static final int PROBE_SIZE = 8 * 1024;
+
+    private final String filePath;
+    private final boolean skipBrokenLineMode;
+    private final Charset charset = Charset.defaultCharset();
+
+    MappedFleetLoader(String filePath, boolean skipBrokenLineMode) {
+        this.filePath = filePath;
+        this.skipBrokenLineMode = skipBrokenLineMode;
+    }
+
+    /**
+     * Result of parsing of one chunk.
+     */
+    private static class ChunkResult {
+        private final List<Plane> planes = new ArrayList<>();
+        /**
+         * Line numbers (counted from the chunk start) of broken lines.
+         */
+        private final List<Integer> brokenLines = new ArrayList<>();
+        private final List<String> brokenRows = new ArrayList<>();
+        private final List<String> messages = new ArrayList<>();
+        private int linesCount;
+    }
+
+    AirlineCompany load() throws FileParsingException {
+        if (isCompressed()) {
+            return loadCompressed();
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                LOGGER.error("Given file is empty.");
+                throw new FileParsingException("File is empty: " + filePath);
+            }
+            long headerEnd = findNewline(channel, 0, size);
+            AirlineCompany company = new AirlineCompany(readHeader(channel, headerEnd));
+            long[] bounds = splitToChunks(channel, Math.min(headerEnd + 1, size), size);
+            ChunkResult[] results = new ChunkResult[bounds.length - 1];
+            ForkJoinPool.commonPool().invoke(new ChunkTask(channel, bounds, results, 0, results.length));
+            mergeResults(company, results);
+            return company;
+        } catch (NoSuchFileException e) {
+            LOGGER.debug("No file found. Given file path:  " + filePath);
+            LOGGER.error("No file found by given pass.");
+            throw new FileParsingException("No such file by given pass: " + filePath);
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.debug("Caught IOException: " + e.getMessage());
+            LOGGER.error("Caught IOException.");
+            throw new FileParsingException("An error with Input/Output stream. Message: " + e.getMessage());
+        }
+    }
+
+    private boolean isCompressed() {
+        try {
+            return FleetCompression.detect(filePath) != FleetCompression.NONE;
+        } catch (IOException e) {
+            // reported by load()
+            return false;
+        }
+    }
+
+    /**
+     * Compressed file can't be mapped and split to chunks, so it is read sequentially.
+     * Decompression of the next block still runs in parallel with parsing.
+     */
+    private AirlineCompany loadCompressed() throws FileParsingException {
+        try (FleetFileReader reader = new FleetFileReader(filePath, skipBrokenLineMode)) {
+            AirlineCompany company = new AirlineCompany(reader.getCompanyName());
+            while (reader.hasNext()) {
+                company.addPlane(reader.next());
+            }
+            return company;
+        } catch (UncheckedFileParsingException e) {
+            throw e.getCause();
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.debug("Caught IOException: " + e.getMessage());
+            LOGGER.error("Caught IOException.");
+            throw new FileParsingException("An error with Input/Output stream. Message: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Adds planes of every chunk to the company and reports broken lines in file order.
+     * <p>
+     * Company name occupies the first line, so planes start from the second line of file.
+     */
+    private void mergeResults(AirlineCompany company, ChunkResult[] results) throws FileParsingException {
+        int firstLine = 2;
+        for (ChunkResult result : results) {
+            for (int index = 0; index < result.brokenLines.size(); index++) {
+                int lineNumber = firstLine + result.brokenLines.get(index);
+                if (skipBrokenLineMode) {
+                    LOGGER.info("Skipped broken line " + lineNumber);
+                    LOGGER.debug("A broken line was skipped. Variables status: {lineNumber=\"" + lineNumber
+                            + "\", currentLine=\"" + result.brokenRows.get(index) + "\"}");
+                } else {
+                    LOGGER.debug("Line " + lineNumber + ": " + result.brokenRows.get(index));
+                    LOGGER.error("A broken line was met. skipBrokenLineMode is false. Throwing FileParsingException");
+                    throw new FileParsingException("An error occurred while parsing string row as Plane object at line "
+                            + lineNumber + ". Message: " + result.messages.get(index));
+                }
+            }
+            for (Plane plane : result.planes) {
+                company.addPlane(plane);
+            }
+            firstLine += result.linesCount;
+        }
+    }
+
+    private String readHeader(FileChannel channel, long headerEnd) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) headerEnd);
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+            // reading until header is fully loaded
+        }
+        int length = buffer.position();
+        if (length > 0 && buffer.get(length - 1) == '\r') {
+            length--;
+        }
+        return new String(buffer.array(), 0, length, charset);
+    }
+
+    /**
+     * Splits [from, size) region of file to chunks, that are ending on newline.
+     *
+     * @return array of chunk bounds, where chunk i is [bounds[i], bounds[i + 1])
+     */
+    private long[] splitToChunks(FileChannel channel, long from, long size) throws IOException {
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        long chunkSize = Math.max(MIN_CHUNK_SIZE, (size - from) / (parallelism * 4L));
+        chunkSize = Math.min(chunkSize, MAX_CHUNK_SIZE);
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(from);
+        long position = from;
+        while (size - position > chunkSize) {
+            long newline = findNewline(channel, position + chunkSize, size);
+            if (newline >= size - 1) {
+                break;
+            }
+            position = newline + 1;
+            bounds.add(position);
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int index = 0; index < result.length; index++) {
+            result[index] = bounds.get(index);
+        }
+        return result;
+    }
+
+    /**
+     * Returns position of the first '\n' symbol starting from given position or size of file, if there is none.
+     */
+    private long findNewline(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(PROBE_SIZE);
+        long position = from;
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int index = 0; index < read; index++) {
+                if (probe.get(index) == '\n') {
+                    return position + index;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Parses range of chunks, splitting it in halves until single chunk remains.
+     */
+    private class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long[] bounds;
+        private final ChunkResult[] results;
+        private final int from;
+        private final int to;
+
+        ChunkTask(FileChannel channel, long[] bounds, ChunkResult[] results, int from, int to) {
+            this.channel = channel;
+            this.bounds = bounds;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ChunkTask(channel, bounds, results, from, middle),
+                        new ChunkTask(channel, bounds, results, middle, to));
+                return;
+            }
+            if (to - from == 1) {
+                try {
+                    results[from] = parseChunk(channel, bounds[from], bounds[from + 1]);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    private ChunkResult parseChunk(FileChannel channel, long start, long end) throws IOException {
+        ChunkResult result = new ChunkResult();
+        if (end <= start) {
+            return result;
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        PlaneRecordParser parser = new PlaneRecordParser();
+        byte[] line = new byte[256];
+        int lineLength = 0;
+        int limit = buffer.limit();
+        for (int index = 0; index < limit; index++) {
+            byte symbol = buffer.get(index);
+            if (symbol == '\n') {
+                parseLine(parser, result, line, lineLength);
+                lineLength = 0;
+                continue;
+            }
+            if (lineLength == line.length) {
+                line = Arrays.copyOf(line, line.length * 2);
+            }
+            line[lineLength++] = symbol;
+        }
+        // last line of file may be not terminated by '\n'
+        if (lineLength > 0) {
+            parseLine(parser, result, line, lineLength);
+        }
+        return result;
+    }
+
+    private void parseLine(PlaneRecordParser parser, ChunkResult result, byte[] line, int length) {
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        try {
+            result.planes.add(parser.parse(line, 0, length, charset));
+        } catch (PlaneParseException e) {
+            result.brokenLines.add(result.linesCount);
+            result.brokenRows.add(new String(line, 0, length, charset));
+            result.messages.add(e.getCustomMessage());
+        }
+        result.linesCount++;
+    }
+}
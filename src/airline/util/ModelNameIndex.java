@@ -0,0 +1,282 @@
+package airline.util;
+
+import airline.entity.planes.Plane;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hash index of planes by model name.
+ * <p>
+ * Every distinct model name is mapped to the bucket of its planes, that are kept in the order of planes list,
+ * so the first plane of the bucket is the first met plane with this name. Names are also grouped by
+ * normalized (case-folded) form, so both case-sensitive and case-insensitive lookups cost O(1).
+ * Fleets have only hundreds of distinct models, so the maps stay small even for millions of planes.
+ * <p>
+ * Normalized names are also kept in {@link ModelNameTrie} for prefix and fuzzy (bounded edit distance) search.
+ * Found names are turned into planes through the buckets.
+ * <p>
+ * Index isn't thread safe.
+ */
+public class ModelNameIndex {
+    private final Map<String, List<Plane>> buckets = new HashMap<>();
+    /**
+     * Normalized name -> distinct model names with this normalized form.
+     */
+    private final Map<String, List<String>> spellings = new HashMap<>();
+    private final ModelNameTrie names = new ModelNameTrie();
+    private int size;
+
+    /**
+     * Replaces content of the index with given planes.
+     *
+     * @param source - planes to index in the order of planes list
+     */
+    public void build(Collection<Plane> source) {
+        buckets.clear();
+        spellings.clear();
+        names.clear();
+        size = 0;
+        for (Plane plane : source) {
+            add(plane);
+        }
+    }
+
+    /**
+     * @return amount of planes in the index
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds plane to the end of its model bucket.
+     *
+     * @param plane - Plane obj.
+     */
+    public void add(Plane plane) {
+        List<Plane> bucket = buckets.get(plane.getModelName());
+        if (bucket == null) {
+            bucket = new ArrayList<>();
+            buckets.put(plane.getModelName(), bucket);
+            String normalizedName = normalize(plane.getModelName());
+            List<String> spelling = spellings.get(normalizedName);
+            if (spelling == null) {
+                spelling = new ArrayList<>(1);
+                spellings.put(normalizedName, spelling);
+                names.add(normalizedName);
+            }
+            spelling.add(plane.getModelName());
+        }
+        bucket.add(plane);
+        size++;
+    }
+
+    /**
+     * Removes plane. Costs O(k), where k is amount of planes of the same model.
+     *
+     * @param plane - Plane obj.
+     * @return true, if plane was found
+     */
+    public boolean remove(Plane plane) {
+        List<Plane> bucket = buckets.get(plane.getModelName());
+        if (bucket == null) {
+            return false;
+        }
+        for (int index = 0; index < bucket.size(); index++) {
+            if (bucket.get(index) == plane) {
+                bucket.remove(index);
+                size--;
+                if (bucket.isEmpty()) {
+                    buckets.remove(plane.getModelName());
+                    String normalizedName = normalize(plane.getModelName());
+                    List<String> spelling = spellings.get(normalizedName);
+                    spelling.remove(plane.getModelName());
+                    if (spelling.isEmpty()) {
+                        spellings.remove(normalizedName);
+                        names.remove(normalizedName);
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the first plane (in planes list order) with exactly the same model name.
+     *
+     * @param modelName - model name
+     * @return Plane obj. or null, if nothing found
+     */
+    public Plane getFirstPlane(String modelName) {
+        List<Plane> bucket = buckets.get(modelName);
+        return bucket == null ? null : bucket.get(0);
+    }
+
+    /**
+     * Returns planes with exactly the same model name in planes list order.
+     *
+     * @param modelName - model name
+     * @return unmodifiable {@code List<Plane>}, empty if nothing found
+     */
+    public List<Plane> getPlanes(String modelName) {
+        List<Plane> bucket = buckets.get(modelName);
+        return bucket == null ? Collections.emptyList() : Collections.unmodifiableList(bucket);
+    }
+
+    /**
+     * Returns planes with model name, that is equal to the given one ignoring case (as
+     * {@code String.equalsIgnoreCase()}). Planes are grouped by spelling of the name, every group
+     * is in planes list order.
+     *
+     * @param modelName - model name
+     * @return {@code List<Plane>}, empty if nothing found
+     */
+    public List<Plane> getPlanesIgnoreCase(String modelName) {
+        List<String> spelling = spellings.get(normalize(modelName));
+        if (spelling == null) {
+            return new ArrayList<>();
+        }
+        if (spelling.size() == 1) {
+            return new ArrayList<>(buckets.get(spelling.get(0)));
+        }
+        List<Plane> found = new ArrayList<>();
+        for (String name : spelling) {
+            found.addAll(buckets.get(name));
+        }
+        return found;
+    }
+
+    /**
+     * Returns amount of planes with model name, that is equal to the given one ignoring case.
+     *
+     * @param modelName - model name
+     * @return amount of planes
+     */
+    public int countIgnoreCase(String modelName) {
+        List<String> spelling = spellings.get(normalize(modelName));
+        if (spelling == null) {
+            return 0;
+        }
+        int count = 0;
+        for (String name : spelling) {
+            count += buckets.get(name).size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns planes, which model name starts with given prefix ignoring case. Planes are grouped by model name
+     * in alphabetical order of normalized names, every group is in planes list order.
+     * Costs O(prefix + found planes).
+     *
+     * @param prefix - beginning of model name, for example "A3"
+     * @return {@code List<Plane>}, empty if nothing found
+     */
+    public List<Plane> getPlanesByPrefix(String prefix) {
+        return planesOf(names.withPrefix(normalize(prefix)));
+    }
+
+    /**
+     * @param prefix - beginning of model name
+     * @return amount of planes, which model name starts with given prefix ignoring case
+     */
+    public int countByPrefix(String prefix) {
+        return countOf(names.withPrefix(normalize(prefix)));
+    }
+
+    /**
+     * Returns distinct model names, that start with given prefix ignoring case, in alphabetical order
+     * of normalized names.
+     *
+     * @param prefix - beginning of model name
+     * @return {@code List<String>}, empty if nothing found
+     */
+    public List<String> getModelNamesByPrefix(String prefix) {
+        return spellingsOf(names.withPrefix(normalize(prefix)));
+    }
+
+    /**
+     * Returns planes, which model name differs from given one ignoring case by not more than
+     * {@code maxDistance} inserted, deleted or replaced symbols. Planes are grouped by model name:
+     * the closest names go first.
+     *
+     * @param modelName   - model name, for example mistyped "A302"
+     * @param maxDistance - maximal Levenshtein distance, for example 2
+     * @return {@code List<Plane>}, empty if nothing found
+     */
+    public List<Plane> getPlanesBySimilarName(String modelName, int maxDistance) {
+        return planesOf(names.similarTo(normalize(modelName), maxDistance));
+    }
+
+    /**
+     * @param modelName   - model name
+     * @param maxDistance - maximal Levenshtein distance
+     * @return amount of planes, which model name is within given distance ignoring case
+     */
+    public int countBySimilarName(String modelName, int maxDistance) {
+        return countOf(names.similarTo(normalize(modelName), maxDistance));
+    }
+
+    /**
+     * Returns distinct model names within given Levenshtein distance ignoring case, the closest names go first.
+     *
+     * @param modelName   - model name
+     * @param maxDistance - maximal Levenshtein distance
+     * @return {@code List<String>}, empty if nothing found
+     */
+    public List<String> getSimilarModelNames(String modelName, int maxDistance) {
+        return spellingsOf(names.similarTo(normalize(modelName), maxDistance));
+    }
+
+    private List<String> spellingsOf(List<String> normalizedNames) {
+        List<String> found = new ArrayList<>();
+        for (String normalizedName : normalizedNames) {
+            found.addAll(spellings.get(normalizedName));
+        }
+        return found;
+    }
+
+    private List<Plane> planesOf(List<String> normalizedNames) {
+        List<Plane> found = new ArrayList<>();
+        for (String name : spellingsOf(normalizedNames)) {
+            found.addAll(buckets.get(name));
+        }
+        return found;
+    }
+
+    private int countOf(List<String> normalizedNames) {
+        int count = 0;
+        for (String name : spellingsOf(normalizedNames)) {
+            count += buckets.get(name).size();
+        }
+        return count;
+    }
+
+    /**
+     * Folds case of every symbol the same way, as {@code String.equalsIgnoreCase()} compares them,
+     * so names are equal ignoring case only if their normalized forms are equal.
+     */
+    static String normalize(String name) {
+        for (int index = 0; index < name.length(); index++) {
+            char symbol = name.charAt(index);
+            if (fold(symbol) != symbol) {
+                char[] symbols = name.toCharArray();
+                for (int position = index; position < symbols.length; position++) {
+                    symbols[position] = fold(symbols[position]);
+                }
+                return new String(symbols);
+            }
+        }
+        return name;
+    }
+
+    private static char fold(char symbol) {
+        return Character.toLowerCase(Character.toUpperCase(symbol));
+    }
+}
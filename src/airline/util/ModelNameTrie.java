@@ -0,0 +1,282 @@
+package airline.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Trie of distinct model names for prefix and fuzzy search.
+ * <p>
+ * Every node keeps its children in sorted primitive array of symbols and parallel array of nodes, so node costs
+ * two small arrays instead of a map, and names are visited in alphabetical order. Prefix query walks the prefix
+ * and collects the subtree: it costs O(prefix + matched names).
+ * <p>
+ * Fuzzy query finds names within given Levenshtein distance. It walks the trie together with the Levenshtein
+ * automaton of the query, which state is a row of edit distances between the query and the current path
+ * (states are computed on demand, as rows of the dynamic programming table). Subtrees, where every distance
+ * of the state is bigger than allowed, are skipped, so for distance 1 or 2 only a small part of the trie
+ * is visited.
+ * <p>
+ * Trie isn't thread safe.
+ *
+ * @see ModelNameIndex
+ */
+public class ModelNameTrie {
+    private static final char[] NO_SYMBOLS = new char[0];
+    private static final Node[] NO_NODES = new Node[0];
+
+    private final Node root = new Node();
+    private int size;
+
+    /**
+     * Node of the trie.
+     */
+    private static class Node {
+        private char[] symbols = NO_SYMBOLS;
+        private Node[] children = NO_NODES;
+        /**
+         * Name, that ends in this node, null if there is no such name.
+         */
+        private String name;
+
+        private Node child(char symbol) {
+            int position = Arrays.binarySearch(symbols, symbol);
+            return position < 0 ? null : children[position];
+        }
+
+        private Node addChild(char symbol) {
+            int position = Arrays.binarySearch(symbols, symbol);
+            if (position >= 0) {
+                return children[position];
+            }
+            position = -position - 1;
+            char[] newSymbols = new char[symbols.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(symbols, 0, newSymbols, 0, position);
+            System.arraycopy(children, 0, newChildren, 0, position);
+            newSymbols[position] = symbol;
+            newChildren[position] = new Node();
+            System.arraycopy(symbols, position, newSymbols, position + 1, symbols.length - position);
+            System.arraycopy(children, position, newChildren, position + 1, children.length - position);
+            symbols = newSymbols;
+            children = newChildren;
+            return newChildren[position];
+        }
+
+        private void removeChild(char symbol) {
+            int position = Arrays.binarySearch(symbols, symbol);
+            if (symbols.length == 1) {
+                symbols = NO_SYMBOLS;
+                children = NO_NODES;
+                return;
+            }
+            char[] newSymbols = new char[symbols.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(symbols, 0, newSymbols, 0, position);
+            System.arraycopy(children, 0, newChildren, 0, position);
+            System.arraycopy(symbols, position + 1, newSymbols, position, newSymbols.length - position);
+            System.arraycopy(children, position + 1, newChildren, position, newChildren.length - position);
+            symbols = newSymbols;
+            children = newChildren;
+        }
+
+        private boolean isEmpty() {
+            return name == null && symbols.length == 0;
+        }
+    }
+
+    /**
+     * Removes all names.
+     */
+    public void clear() {
+        root.symbols = NO_SYMBOLS;
+        root.children = NO_NODES;
+        root.name = null;
+        size = 0;
+    }
+
+    /**
+     * @return amount of names in the trie
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds name. Costs O(length).
+     *
+     * @param name - name
+     * @return true, if name wasn't in the trie
+     */
+    public boolean add(String name) {
+        Node node = root;
+        for (int index = 0; index < name.length(); index++) {
+            node = node.addChild(name.charAt(index));
+        }
+        if (node.name != null) {
+            return false;
+        }
+        node.name = name;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes name and nodes, that are left without names. Costs O(length).
+     *
+     * @param name - name
+     * @return true, if name was found
+     */
+    public boolean remove(String name) {
+        Node[] path = new Node[name.length() + 1];
+        path[0] = root;
+        for (int index = 0; index < name.length(); index++) {
+            path[index + 1] = path[index].child(name.charAt(index));
+            if (path[index + 1] == null) {
+                return false;
+            }
+        }
+        Node node = path[name.length()];
+        if (node.name == null) {
+            return false;
+        }
+        node.name = null;
+        size--;
+        for (int index = name.length(); index > 0 && path[index].isEmpty(); index--) {
+            path[index - 1].removeChild(name.charAt(index - 1));
+        }
+        return true;
+    }
+
+    /**
+     * @param name - name
+     * @return true, if name is in the trie
+     */
+    public boolean contains(String name) {
+        Node node = find(name);
+        return node != null && node.name != null;
+    }
+
+    /**
+     * Returns names, that start with given prefix, in alphabetical order.
+     *
+     * @param prefix - prefix, empty prefix matches all names
+     * @return {@code List<String>}, empty if nothing found
+     */
+    public List<String> withPrefix(String prefix) {
+        List<String> names = new ArrayList<>();
+        Node node = find(prefix);
+        if (node != null) {
+            collect(node, names);
+        }
+        return names;
+    }
+
+    /**
+     * Returns names within given Levenshtein distance (insertions, deletions and replacements of symbols)
+     * from the query. Names are ordered by distance, names with the same distance are in alphabetical order.
+     *
+     * @param query       - searched name
+     * @param maxDistance - maximal distance, for example 2
+     * @return {@code List<String>}, empty if nothing found
+     */
+    public List<String> similarTo(String query, int maxDistance) {
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("Distance cannot be less than 0: " + maxDistance);
+        }
+        // found names are grouped by distance, every group is filled in alphabetical order
+        List<List<String>> byDistance = new ArrayList<>();
+        for (int distance = 0; distance <= maxDistance; distance++) {
+            byDistance.add(new ArrayList<>());
+        }
+        int[] start = new int[query.length() + 1];
+        for (int index = 0; index < start.length; index++) {
+            start[index] = index;
+        }
+        walk(root, query, start, maxDistance, byDistance);
+        List<String> names = new ArrayList<>();
+        for (List<String> group : byDistance) {
+            names.addAll(group);
+        }
+        return names;
+    }
+
+    /**
+     * Returns Levenshtein distance between names, if it isn't bigger than given maximum.
+     *
+     * @param first       - name
+     * @param second      - name
+     * @param maxDistance - maximal distance
+     * @return distance or {@code maxDistance + 1}, if names are more distant
+     */
+    public static int distance(String first, String second, int maxDistance) {
+        if (Math.abs(first.length() - second.length()) > maxDistance) {
+            return maxDistance + 1;
+        }
+        int[] row = new int[second.length() + 1];
+        for (int index = 0; index < row.length; index++) {
+            row[index] = index;
+        }
+        for (int index = 0; index < first.length(); index++) {
+            row = nextState(row, second, first.charAt(index));
+            if (min(row) > maxDistance) {
+                return maxDistance + 1;
+            }
+        }
+        return Math.min(row[second.length()], maxDistance + 1);
+    }
+
+    private Node find(String prefix) {
+        Node node = root;
+        for (int index = 0; index < prefix.length() && node != null; index++) {
+            node = node.child(prefix.charAt(index));
+        }
+        return node;
+    }
+
+    private static void collect(Node node, List<String> names) {
+        if (node.name != null) {
+            names.add(node.name);
+        }
+        for (Node child : node.children) {
+            collect(child, names);
+        }
+    }
+
+    /**
+     * @param state - distances between the path to the node and every prefix of the query
+     */
+    private static void walk(Node node, String query, int[] state, int maxDistance, List<List<String>> found) {
+        if (node.name != null && state[query.length()] <= maxDistance) {
+            found.get(state[query.length()]).add(node.name);
+        }
+        for (int index = 0; index < node.symbols.length; index++) {
+            int[] next = nextState(state, query, node.symbols[index]);
+            // distance can't decrease on longer paths
+            if (min(next) <= maxDistance) {
+                walk(node.children[index], query, next, maxDistance, found);
+            }
+        }
+    }
+
+    /**
+     * Returns state of the automaton after one more symbol of the path.
+     */
+    private static int[] nextState(int[] state, String query, char symbol) {
+        int[] next = new int[state.length];
+        next[0] = state[0] + 1;
+        for (int index = 1; index < state.length; index++) {
+            int replacement = state[index - 1] + (query.charAt(index - 1) == symbol ? 0 : 1);
+            next[index] = Math.min(replacement, Math.min(state[index], next[index - 1]) + 1);
+        }
+        return next;
+    }
+
+    private static int min(int[] state) {
+        int min = state[0];
+        for (int value : state) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+}
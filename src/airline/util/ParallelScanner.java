@@ -0,0 +1,233 @@
+package airline.util;
+
+import airline.entity.ColumnarPlaneList;
+import airline.entity.ColumnarPlaneList.Column;
+import airline.entity.planes.Plane;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
+
+/**
+ * Scanner of planes list, that checks predicate on ForkJoinPool.
+ * <p>
+ * List is split into fixed chunks of adjacent planes, so every worker walks its own contiguous range.
+ * Every chunk writes matches to its own cell of results array, so workers don't share any mutable state,
+ * and cells are concatenated in chunk order after the scan: planes are returned in the order of the list.
+ * <p>
+ * Lists, that are smaller than threshold (or don't support fast random access), are scanned on the calling
+ * thread, so small queries don't pay for tasks. Range filters over columnar list read its column
+ * on the calling thread, see {@link #filter(List, Column, int, int)}.
+ *
+ * @see SearchEngine#setScanner(ParallelScanner)
+ */
+public class ParallelScanner implements AutoCloseable {
+    /**
+     * Default minimal size of list, that is scanned in parallel.
+     */
+    public static final int DEFAULT_THRESHOLD = 50_000;
+    /**
+     * Amount of planes, that is checked by one task.
+     */
+    private static final int CHUNK_SIZE = 8 * 1024;
+    private static final ParallelScanner SHARED = new ParallelScanner(ForkJoinPool.commonPool(),
+            DEFAULT_THRESHOLD, false);
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+    private final boolean ownPool;
+
+    /**
+     * Constructs scanner with its own pool. Pool is stopped by {@link #close()}.
+     *
+     * @param parallelism - amount of worker threads
+     * @param threshold   - minimal size of list, that is scanned in parallel
+     */
+    public ParallelScanner(int parallelism, int threshold) {
+        this(new ForkJoinPool(parallelism), threshold, true);
+    }
+
+    private ParallelScanner(ForkJoinPool pool, int threshold, boolean ownPool) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold cannot be less than 0: " + threshold);
+        }
+        this.pool = pool;
+        this.threshold = threshold;
+        this.ownPool = ownPool;
+    }
+
+    /**
+     * Returns scanner on common ForkJoinPool with default threshold.
+     *
+     * @return shared scanner
+     */
+    public static ParallelScanner shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param size - size of the list
+     * @return true, if list of this size is scanned in parallel
+     */
+    public boolean isParallel(int size) {
+        return size >= threshold && size > CHUNK_SIZE && pool.getParallelism() > 1;
+    }
+
+    /**
+     * Returns planes, that match the predicate, in the order of the list.
+     *
+     * @param planes    - planes list
+     * @param predicate - condition, that must be thread safe for parallel scan
+     * @return {@code List<Plane>}, empty if nothing found
+     */
+    public List<Plane> filter(List<Plane> planes, Predicate<? super Plane> predicate) {
+        if (!isParallel(planes.size()) || !(planes instanceof RandomAccess)) {
+            List<Plane> found = new ArrayList<>();
+            for (Plane plane : planes) {
+                if (predicate.test(plane)) {
+                    found.add(plane);
+                }
+            }
+            return found;
+        }
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        List<Plane>[] chunks = new List[chunksCount(planes.size())];
+        pool.invoke(new ScanTask(planes, predicate, 0, chunks.length, chunks, null));
+        int size = 0;
+        for (List<Plane> chunk : chunks) {
+            size += chunk.size();
+        }
+        List<Plane> found = new ArrayList<>(size);
+        for (List<Plane> chunk : chunks) {
+            found.addAll(chunk);
+        }
+        return found;
+    }
+
+    /**
+     * Returns planes, which value of the column is between min and max (including both), in the order of the list.
+     * Columnar list is filtered by its column loop without views of not matched rows, other lists are scanned
+     * by predicate.
+     *
+     * @param planes - planes list
+     * @param column - numeric attribute
+     * @param min    - minimal value
+     * @param max    - maximal value
+     * @return {@code List<Plane>}, empty if nothing found
+     */
+    public List<Plane> filter(List<Plane> planes, Column column, int min, int max) {
+        if (planes instanceof ColumnarPlaneList) {
+            return ((ColumnarPlaneList) planes).filter(column, min, max);
+        }
+        return filter(planes, plane -> {
+            int value = column.get(plane);
+            return value >= min && value <= max;
+        });
+    }
+
+    /**
+     * Counts planes, that match the predicate.
+     *
+     * @param planes    - planes list
+     * @param predicate - condition, that must be thread safe for parallel scan
+     * @return amount of matched planes
+     */
+    public int count(List<Plane> planes, Predicate<? super Plane> predicate) {
+        if (!isParallel(planes.size()) || !(planes instanceof RandomAccess)) {
+            int count = 0;
+            for (Plane plane : planes) {
+                if (predicate.test(plane)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        int[] counts = new int[chunksCount(planes.size())];
+        pool.invoke(new ScanTask(planes, predicate, 0, counts.length, null, counts));
+        int count = 0;
+        for (int chunkCount : counts) {
+            count += chunkCount;
+        }
+        return count;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Stops own pool of the scanner. Shared scanner isn't affected.
+     */
+    @Override
+    public void close() {
+        if (ownPool) {
+            pool.shutdown();
+        }
+    }
+
+    private static int chunksCount(int size) {
+        return (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    /**
+     * Splits range of chunks in halves until one chunk is left. Results are written either
+     * to {@code chunks} (found planes) or to {@code counts}.
+     */
+    private static class ScanTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Plane> planes;
+        private final Predicate<? super Plane> predicate;
+        private final int fromChunk;
+        private final int toChunk;
+        private final List<Plane>[] chunks;
+        private final int[] counts;
+
+        private ScanTask(List<Plane> planes, Predicate<? super Plane> predicate, int fromChunk, int toChunk,
+                         List<Plane>[] chunks, int[] counts) {
+            this.planes = planes;
+            this.predicate = predicate;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+            this.chunks = chunks;
+            this.counts = counts;
+        }
+
+        @Override
+        protected void compute() {
+            if (toChunk - fromChunk > 1) {
+                int middle = (fromChunk + toChunk) >>> 1;
+                invokeAll(new ScanTask(planes, predicate, fromChunk, middle, chunks, counts),
+                        new ScanTask(planes, predicate, middle, toChunk, chunks, counts));
+                return;
+            }
+            int from = fromChunk * CHUNK_SIZE;
+            int to = Math.min(from + CHUNK_SIZE, planes.size());
+            if (chunks != null) {
+                List<Plane> found = new ArrayList<>();
+                for (int index = from; index < to; index++) {
+                    Plane plane = planes.get(index);
+                    if (predicate.test(plane)) {
+                        found.add(plane);
+                    }
+                }
+                chunks[fromChunk] = found;
+            } else {
+                int count = 0;
+                for (int index = from; index < to; index++) {
+                    if (predicate.test(planes.get(index))) {
+                        count++;
+                    }
+                }
+                counts[fromChunk] = count;
+            }
+        }
+    }
+}
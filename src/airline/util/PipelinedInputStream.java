@@ -0,0 +1,138 @@
+package airline.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Input stream, that reads source stream by background thread block by block.
+ * <p>
+ * Used for compressed files: while consumer parses one decompressed block, background thread
+ * decompresses the next one. At most two blocks are waiting in the queue, so memory usage is bounded.
+ * Any failure of the background thread is rethrown to consumer as IOException after the read blocks.
+ */
+class PipelinedInputStream extends InputStream {
+    private static final byte[] END = new byte[0];
+    private static final int QUEUE_SIZE = 2;
+
+    private final InputStream source;
+    private final BlockingQueue<byte[]> blocks = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final Thread producer;
+    private volatile IOException failure;
+    private volatile boolean closed;
+    private byte[] block = new byte[0];
+    private int blockLength;
+    private int position;
+    private boolean finished;
+
+    PipelinedInputStream(InputStream source, int blockSize) {
+        this.source = source;
+        producer = new Thread(() -> produce(blockSize), "fleet-file-decompressor");
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    private void produce(int blockSize) {
+        try {
+            while (!closed) {
+                byte[] next = new byte[blockSize];
+                int length = source.readNBytes(next, 0, blockSize);
+                if (length == 0) {
+                    break;
+                }
+                blocks.put(length == blockSize ? next : Arrays.copyOf(next, length));
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            // stream is closed
+        } catch (Throwable e) {
+            // for example, RuntimeException of decompressor: consumer must not wait forever
+            failure = new IOException("Failed to read source stream: " + e, e);
+        } finally {
+            // end is queued even after failure, so consumer always wakes up
+            if (!closed) {
+                try {
+                    blocks.put(END);
+                } catch (InterruptedException e) {
+                    // stream is closed
+                }
+            }
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextBlock()) {
+            return -1;
+        }
+        return block[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!nextBlock()) {
+            return -1;
+        }
+        int count = Math.min(length, blockLength - position);
+        System.arraycopy(block, position, buffer, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return blockLength - position;
+    }
+
+    /**
+     * Takes the next block from the queue, if the current one is consumed.
+     *
+     * @return false, if the end of stream is reached
+     */
+    private boolean nextBlock() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (position == blockLength) {
+            if (finished) {
+                return false;
+            }
+            try {
+                block = blocks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for decompressed block");
+            }
+            blockLength = block.length;
+            position = 0;
+            if (block == END) {
+                finished = true;
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        producer.interrupt();
+        try {
+            producer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        source.close();
+    }
+}
@@ -0,0 +1,728 @@
+package airline.util;
+
+import airline.entity.ColumnarPlaneList.Column;
+import airline.entity.components.Engine;
+import airline.entity.planes.Plane;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Condition of {@link PlaneQuery}.
+ * <p>
+ * Conditions are built by static factories and combined by {@link #and(PlaneCondition...)} and
+ * {@link #or(PlaneCondition...)}. Every condition can test a plane, and conditions on indexed attributes
+ * can also estimate amount of matching planes and fetch them from {@link PlaneIndexes}, which is used by
+ * the planner to choose access path.
+ * <p>
+ * Conditions are immutable. Index methods must be called while holding the company monitor.
+ */
+public abstract class PlaneCondition {
+
+    PlaneCondition() {
+    }
+
+    /**
+     * @return condition "serial number between min and max (including both)"
+     */
+    public static PlaneCondition serialNumber(int min, int max) {
+        return new RangeCondition("serialNumber", Plane::getSerialNumber, PlaneIndexes::serialNumberIndex, min, max);
+    }
+
+    /**
+     * @return condition "cargo capacity between min and max (including both)"
+     */
+    public static PlaneCondition cargoCapacity(int min, int max) {
+        return new RangeCondition("cargoCapacity", Plane::getCargoCapacity, PlaneIndexes::cargoCapacityIndex,
+                min, max);
+    }
+
+    /**
+     * @return condition "passenger capacity between min and max (including both)"
+     */
+    public static PlaneCondition passengerCapacity(int min, int max) {
+        return new RangeCondition("passengerCapacity", Plane::getPassengerCapacity,
+                PlaneIndexes::passengerCapacityIndex, min, max);
+    }
+
+    /**
+     * Crew size has no index of its own, but AND of it with other ranges can be answered by k-d tree.
+     *
+     * @return condition "crew size between min and max (including both)"
+     */
+    public static PlaneCondition crewSize(int min, int max) {
+        return new RangeCondition("crewSize", Plane::getCrewSize, null, min, max);
+    }
+
+    /**
+     * @param modelName - model name, compared ignoring case
+     * @return condition "model name equals ignoring case"
+     * @throws NullPointerException if model name is null
+     */
+    public static PlaneCondition model(String modelName) {
+        if (modelName == null) {
+            throw new NullPointerException("Model name cannot be null");
+        }
+        return new ModelCondition(modelName);
+    }
+
+    /**
+     * @param prefix - beginning of model name, compared ignoring case
+     * @return condition "model name starts with prefix ignoring case"
+     * @throws NullPointerException if prefix is null
+     */
+    public static PlaneCondition modelPrefix(String prefix) {
+        if (prefix == null) {
+            throw new NullPointerException("Model name prefix cannot be null");
+        }
+        return new SimilarModelCondition(prefix, -1);
+    }
+
+    /**
+     * @param modelName   - model name, compared ignoring case
+     * @param maxDistance - maximal Levenshtein distance, for example 2
+     * @return condition "model name differs by not more than maxDistance inserted, deleted or replaced symbols"
+     * @throws NullPointerException if model name is null
+     */
+    public static PlaneCondition similarModel(String modelName, int maxDistance) {
+        if (modelName == null) {
+            throw new NullPointerException("Model name cannot be null");
+        }
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("Distance cannot be less than 0: " + maxDistance);
+        }
+        return new SimilarModelCondition(modelName, maxDistance);
+    }
+
+    /**
+     * @param engines - allowed engines
+     * @return condition "engine is one of given"
+     */
+    public static PlaneCondition engine(Engine... engines) {
+        EnumSet<Engine> set = EnumSet.noneOf(Engine.class);
+        set.addAll(Arrays.asList(engines));
+        return new EngineCondition(set, "engine IN " + set);
+    }
+
+    /**
+     * Fuel consumption is defined by engine, so condition is resolved to the set of engines.
+     *
+     * @return condition "fuel consumption between min and max (including both)"
+     */
+    public static PlaneCondition fuelConsumption(double min, double max) {
+        return new EngineCondition(EngineBitmapIndex.enginesByFuelConsumption(min, max),
+                "fuelConsumption BETWEEN " + min + " AND " + max);
+    }
+
+    /**
+     * @param planeType - class of planes, for example {@code PassengerPlane.class}
+     * @return condition "plane is instance of given class"
+     */
+    public static PlaneCondition planeType(Class<? extends Plane> planeType) {
+        if (planeType == null) {
+            throw new NullPointerException("Plane type cannot be null");
+        }
+        return new TypeCondition(planeType);
+    }
+
+    /**
+     * @return condition, that is true, if all given conditions are true
+     */
+    public static PlaneCondition and(PlaneCondition... conditions) {
+        return new AndCondition(checkConditions(conditions));
+    }
+
+    /**
+     * @return condition, that is true, if any of given conditions is true
+     */
+    public static PlaneCondition or(PlaneCondition... conditions) {
+        return new OrCondition(checkConditions(conditions));
+    }
+
+    private static List<PlaneCondition> checkConditions(PlaneCondition[] conditions) {
+        if (conditions.length == 0) {
+            throw new IllegalArgumentException("At least one condition is required");
+        }
+        for (PlaneCondition condition : conditions) {
+            if (condition == null) {
+                throw new NullPointerException("Condition cannot be null");
+            }
+        }
+        return Arrays.asList(conditions.clone());
+    }
+
+    /**
+     * @param plane - Plane obj.
+     * @return true, if plane matches the condition
+     */
+    public abstract boolean test(Plane plane);
+
+    /**
+     * Returns normalized description of the condition for cache keys: equal keys mean equal conditions.
+     */
+    String key() {
+        return toString();
+    }
+
+    /**
+     * Counts matching planes by index only, without checking planes by filter.
+     *
+     * @return amount of planes or -1, if condition can't be counted by index
+     */
+    int count(PlaneIndexes indexes) {
+        return -1;
+    }
+
+    /**
+     * @return true, if {@code count()} doesn't return -1
+     */
+    boolean isCountable() {
+        return false;
+    }
+
+    /**
+     * Returns range of the attribute, that planes must have to match the condition. Is used to bound walk
+     * of sorted index, when query is sorted by this attribute.
+     *
+     * @param attribute - name of int attribute, for example "cargoCapacity"
+     * @return {min, max} or null, if condition doesn't limit the attribute
+     */
+    int[] bounds(String attribute) {
+        return null;
+    }
+
+    /**
+     * Returns condition, which index is the cheapest way to get all planes, matching this condition.
+     *
+     * @return condition with index or null, if planes can be found only by scan
+     */
+    abstract PlaneCondition accessPath(PlaneIndexes indexes);
+
+    /**
+     * Estimates amount of matching planes by index. Is called only for conditions, returned by
+     * {@code accessPath()}.
+     */
+    abstract int estimate(PlaneIndexes indexes);
+
+    /**
+     * Returns planes, that can match the condition (superset of matching planes). Is called only for conditions,
+     * returned by {@code accessPath()}.
+     */
+    abstract Collection<Plane> fetch(PlaneIndexes indexes);
+
+    /**
+     * Condition on int attribute, that has sorted index.
+     */
+    private static class RangeCondition extends PlaneCondition {
+        private final String name;
+        private final ToIntFunction<Plane> attribute;
+        private final Function<PlaneIndexes, SortedIntIndex> index;
+        private final int min;
+        private final int max;
+
+        private RangeCondition(String name, ToIntFunction<Plane> attribute,
+                               Function<PlaneIndexes, SortedIntIndex> index, int min, int max) {
+            this.name = name;
+            this.attribute = attribute;
+            this.index = index;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        public boolean test(Plane plane) {
+            int value = attribute.applyAsInt(plane);
+            return value >= min && value <= max;
+        }
+
+        @Override
+        PlaneCondition accessPath(PlaneIndexes indexes) {
+            return index == null ? null : this;
+        }
+
+        @Override
+        int estimate(PlaneIndexes indexes) {
+            return index.apply(indexes).estimate(min, max);
+        }
+
+        @Override
+        Collection<Plane> fetch(PlaneIndexes indexes) {
+            return index.apply(indexes).range(min, max);
+        }
+
+        @Override
+        int count(PlaneIndexes indexes) {
+            return index == null ? -1 : index.apply(indexes).count(min, max);
+        }
+
+        @Override
+        boolean isCountable() {
+            return index != null;
+        }
+
+        @Override
+        int[] bounds(String attribute) {
+            return name.equals(attribute) ? new int[]{min, max} : null;
+        }
+
+        @Override
+        public String toString() {
+            return name + " BETWEEN " + min + " AND " + max;
+        }
+    }
+
+    private static class ModelCondition extends PlaneCondition {
+        private final String modelName;
+
+        private ModelCondition(String modelName) {
+            this.modelName = modelName;
+        }
+
+        @Override
+        public boolean test(Plane plane) {
+            return plane.getModelName().equalsIgnoreCase(modelName);
+        }
+
+        @Override
+        PlaneCondition accessPath(PlaneIndexes indexes) {
+            return this;
+        }
+
+        @Override
+        int estimate(PlaneIndexes indexes) {
+            return indexes.modelNameIndex().countIgnoreCase(modelName);
+        }
+
+        @Override
+        int count(PlaneIndexes indexes) {
+            return estimate(indexes);
+        }
+
+        @Override
+        boolean isCountable() {
+            return true;
+        }
+
+        @Override
+        Collection<Plane> fetch(PlaneIndexes indexes) {
+            return indexes.modelNameIndex().getPlanesIgnoreCase(modelName);
+        }
+
+        @Override
+        String key() {
+            return "model = " + quote(ModelNameIndex.normalize(modelName));
+        }
+
+        @Override
+        public String toString() {
+            return "model = '" + modelName + "'";
+        }
+    }
+
+    /**
+     * Prefix or fuzzy condition on model name, that is answered by trie of model names.
+     */
+    private static class SimilarModelCondition extends PlaneCondition {
+        private final String modelName;
+        private final String normalizedName;
+        /**
+         * Maximal Levenshtein distance, -1 for prefix condition.
+         */
+        private final int maxDistance;
+
+        private SimilarModelCondition(String modelName, int maxDistance) {
+            this.modelName = modelName;
+            this.normalizedName = ModelNameIndex.normalize(modelName);
+            this.maxDistance = maxDistance;
+        }
+
+        @Override
+        public boolean test(Plane plane) {
+            String name = ModelNameIndex.normalize(plane.getModelName());
+            if (maxDistance < 0) {
+                return name.startsWith(normalizedName);
+            }
+            return ModelNameTrie.distance(name, normalizedName, maxDistance) <= maxDistance;
+        }
+
+        @Override
+        PlaneCondition accessPath(PlaneIndexes indexes) {
+            return this;
+        }
+
+        @Override
+        int estimate(PlaneIndexes indexes) {
+            return count(indexes);
+        }
+
+        @Override
+        int count(PlaneIndexes indexes) {
+            return maxDistance < 0 ? indexes.modelNameIndex().countByPrefix(modelName)
+                    : indexes.modelNameIndex().countBySimilarName(modelName, maxDistance);
+        }
+
+        @Override
+        boolean isCountable() {
+            return true;
+        }
+
+        @Override
+        Collection<Plane> fetch(PlaneIndexes indexes) {
+            return maxDistance < 0 ? indexes.modelNameIndex().getPlanesByPrefix(modelName)
+                    : indexes.modelNameIndex().getPlanesBySimilarName(modelName, maxDistance);
+        }
+
+        @Override
+        String key() {
+            return maxDistance < 0 ? "model LIKE " + quote(normalizedName + "%")
+                    : "model ~" + maxDistance + " " + quote(normalizedName);
+        }
+
+        @Override
+        public String toString() {
+            return maxDistance < 0 ? "model LIKE '" + modelName + "%'"
+                    : "model ~" + maxDistance + " '" + modelName + "'";
+        }
+    }
+
+    private static class EngineCondition extends PlaneCondition {
+        private final EnumSet<Engine> engines;
+        private final String description;
+
+        private EngineCondition(EnumSet<Engine> engines, String description) {
+            this.engines = engines;
+            this.description = description;
+        }
+
+        @Override
+        public boolean test(Plane plane) {
+            return engines.contains(plane.getEngine());
+        }
+
+        @Override
+        PlaneCondition accessPath(PlaneIndexes indexes) {
+            return this;
+        }
+
+        @Override
+        int estimate(PlaneIndexes indexes) {
+            return indexes.engineIndex().count(engines);
+        }
+
+        @Override
+        int count(PlaneIndexes indexes) {
+            return estimate(indexes);
+        }
+
+        @Override
+        boolean isCountable() {
+            return true;
+        }
+
+        @Override
+        Collection<Plane> fetch(PlaneIndexes indexes) {
+            return indexes.slots().toPlanes(indexes.engineIndex().bitmap(engines));
+        }
+
+        @Override
+        String key() {
+            // fuel consumption ranges with the same engines are equal
+            return "engine IN " + engines;
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    /**
+     * Condition without index.
+     */
+    private static class TypeCondition extends PlaneCondition {
+        private final Class<? extends Plane> planeType;
+
+        private TypeCondition(Class<? extends Plane> planeType) {
+            this.planeType = planeType;
+        }
+
+        @Override
+        public boolean test(Plane plane) {
+            return planeType.isInstance(plane);
+        }
+
+        @Override
+        PlaneCondition accessPath(PlaneIndexes indexes) {
+            return null;
+        }
+
+        @Override
+        int estimate(PlaneIndexes indexes) {
+            throw new UnsupportedOperationException("Plane type has no index");
+        }
+
+        @Override
+        Collection<Plane> fetch(PlaneIndexes indexes) {
+            throw new UnsupportedOperationException("Plane type has no index");
+        }
+
+        @Override
+        public String toString() {
+            return "type = " + planeType.getSimpleName();
+        }
+    }
+
+    /**
+     * Ranges of several attributes, that are answered by k-d tree. Is created only by planner of AND.
+     */
+    private static class BoxCondition extends PlaneCondition {
+        private final PlaneKdTree.Box box;
+
+        private BoxCondition(PlaneKdTree.Box box) {
+            this.box = box;
+        }
+
+        @Override
+        public boolean test(Plane plane) {
+            return box.contains(plane);
+        }
+
+        @Override
+        PlaneCondition accessPath(PlaneIndexes indexes) {
+            return this;
+        }
+
+        @Override
+        int estimate(PlaneIndexes indexes) {
+            return indexes.capacityTree().count(box);
+        }
+
+        @Override
+        Collection<Plane> fetch(PlaneIndexes indexes) {
+            return indexes.capacityTree().search(box);
+        }
+
+        @Override
+        public String toString() {
+            return box.toString();
+        }
+    }
+
+    /**
+     * Uses the most selective indexed condition, others are checked by filter.
+     */
+    private static class AndCondition extends PlaneCondition {
+        private final List<PlaneCondition> conditions;
+
+        private AndCondition(List<PlaneCondition> conditions) {
+            this.conditions = conditions;
+        }
+
+        @Override
+        public boolean test(Plane plane) {
+            for (PlaneCondition condition : conditions) {
+                if (!condition.test(plane)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        PlaneCondition accessPath(PlaneIndexes indexes) {
+            PlaneCondition best = null;
+            int bestEstimate = Integer.MAX_VALUE;
+            for (PlaneCondition condition : conditions) {
+                PlaneCondition path = condition.accessPath(indexes);
+                if (path != null) {
+                    int estimate = path.estimate(indexes);
+                    if (estimate < bestEstimate) {
+                        best = path;
+                        bestEstimate = estimate;
+                    }
+                }
+            }
+            // ranges of several attributes are intersected by k-d tree instead of filter
+            PlaneKdTree.Box box = new PlaneKdTree.Box();
+            for (Column column : Column.values()) {
+                int[] bounds = bounds(attributeOf(column));
+                if (bounds != null) {
+                    box.with(column, bounds[0], bounds[1]);
+                }
+            }
+            if (box.limited() > 1) {
+                PlaneCondition path = new BoxCondition(box);
+                if (path.estimate(indexes) < bestEstimate) {
+                    best = path;
+                }
+            }
+            return best;
+        }
+
+        @Override
+        int estimate(PlaneIndexes indexes) {
+            throw new UnsupportedOperationException("AND is accessed through one of its conditions");
+        }
+
+        @Override
+        Collection<Plane> fetch(PlaneIndexes indexes) {
+            throw new UnsupportedOperationException("AND is accessed through one of its conditions");
+        }
+
+        @Override
+        int[] bounds(String attribute) {
+            int[] bounds = null;
+            for (PlaneCondition condition : conditions) {
+                int[] conditionBounds = condition.bounds(attribute);
+                if (conditionBounds != null) {
+                    bounds = bounds == null ? conditionBounds : new int[]{Math.max(bounds[0], conditionBounds[0]),
+                            Math.min(bounds[1], conditionBounds[1])};
+                }
+            }
+            return bounds;
+        }
+
+        @Override
+        String key() {
+            return joinKeys(conditions, " AND ");
+        }
+
+        @Override
+        public String toString() {
+            return join(conditions, " AND ");
+        }
+    }
+
+    /**
+     * Is indexed only if every condition is indexed, then bitmaps of their planes are united.
+     */
+    private static class OrCondition extends PlaneCondition {
+        private final List<PlaneCondition> conditions;
+
+        private OrCondition(List<PlaneCondition> conditions) {
+            this.conditions = conditions;
+        }
+
+        @Override
+        public boolean test(Plane plane) {
+            for (PlaneCondition condition : conditions) {
+                if (condition.test(plane)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        PlaneCondition accessPath(PlaneIndexes indexes) {
+            for (PlaneCondition condition : conditions) {
+                if (condition.accessPath(indexes) == null) {
+                    return null;
+                }
+            }
+            return this;
+        }
+
+        @Override
+        int estimate(PlaneIndexes indexes) {
+            long estimate = 0;
+            for (PlaneCondition condition : conditions) {
+                PlaneCondition path = condition.accessPath(indexes);
+                estimate += path.estimate(indexes);
+            }
+            return (int) Math.min(estimate, Integer.MAX_VALUE);
+        }
+
+        @Override
+        int count(PlaneIndexes indexes) {
+            for (PlaneCondition condition : conditions) {
+                if (!condition.isCountable()) {
+                    return -1;
+                }
+            }
+            // every plane of united bitmap matches
+            return fetch(indexes).size();
+        }
+
+        @Override
+        boolean isCountable() {
+            for (PlaneCondition condition : conditions) {
+                if (!condition.isCountable()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        Collection<Plane> fetch(PlaneIndexes indexes) {
+            // planes, that match several conditions, are fetched once
+            BitSet bitmap = new BitSet();
+            for (PlaneCondition condition : conditions) {
+                bitmap.or(indexes.slots().toBitmap(condition.accessPath(indexes).fetch(indexes)));
+            }
+            return indexes.slots().toPlanes(bitmap);
+        }
+
+        @Override
+        String key() {
+            return joinKeys(conditions, " OR ");
+        }
+
+        @Override
+        public String toString() {
+            return join(conditions, " OR ");
+        }
+    }
+
+    /**
+     * @return name of range condition on the column
+     */
+    private static String attributeOf(Column column) {
+        switch (column) {
+            case SERIAL_NUMBER:
+                return "serialNumber";
+            case PASSENGER_CAPACITY:
+                return "passengerCapacity";
+            case CARGO_CAPACITY:
+                return "cargoCapacity";
+            default:
+                return "crewSize";
+        }
+    }
+
+    /**
+     * Quotes string for key of condition: quotes and backslashes inside are escaped, so a name can't end
+     * the literal and look like other operands of the key.
+     */
+    private static String quote(String value) {
+        return "'" + value.replace("\\", "\\\\").replace("'", "\\'") + "'";
+    }
+
+    private static String join(List<PlaneCondition> conditions, String operator) {
+        List<String> parts = new ArrayList<>(conditions.size());
+        for (PlaneCondition condition : conditions) {
+            parts.add(condition.toString());
+        }
+        return "(" + String.join(operator, parts) + ")";
+    }
+
+    /**
+     * Joins keys of conditions in sorted order, because order of AND/OR operands doesn't change result.
+     */
+    private static String joinKeys(List<PlaneCondition> conditions, String operator) {
+        List<String> keys = new ArrayList<>(conditions.size());
+        for (PlaneCondition condition : conditions) {
+            keys.add(condition.key());
+        }
+        Collections.sort(keys);
+        return "(" + String.join(operator, keys) + ")";
+    }
+}
@@ -0,0 +1,114 @@
+package airline.util;
+
+import airline.entity.AirlineCompany;
+import airline.entity.planes.Plane;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Lazy result of {@link PlaneQuery}.
+ * <p>
+ * Planes are read from the source (index or planes list) only when they are requested, so reading of the first page
+ * doesn't depend on amount of matched planes. Every step holds the company monitor. If the company is changed
+ * during iteration, cursor fails with {@code ConcurrentModificationException}: iteration can be continued
+ * by the new query with {@code after(cursor.getToken())}.
+ *
+ * @see PlaneQuery#cursor()
+ */
+public class PlaneCursor implements Iterator<Plane> {
+    private final AirlineCompany company;
+    private final long version;
+    private final Iterator<Plane> source;
+    private final Predicate<Plane> filter;
+    /**
+     * Returns continuation token after given plane, null if query has no sort order.
+     */
+    private final Function<Plane, String> tokens;
+    private long skipped;
+    private long remaining;
+    private Plane next;
+    private String token;
+
+    PlaneCursor(AirlineCompany company, long version, Iterator<Plane> source, Predicate<Plane> filter,
+                int offset, int limit, Function<Plane, String> tokens, String token) {
+        this.company = company;
+        this.version = version;
+        this.source = source;
+        this.filter = filter;
+        this.skipped = offset;
+        this.remaining = limit;
+        this.tokens = tokens;
+        this.token = token;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = advance();
+        }
+        return next != null;
+    }
+
+    @Override
+    public Plane next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Plane plane = next;
+        next = null;
+        if (tokens != null) {
+            token = tokens.apply(plane);
+        }
+        return plane;
+    }
+
+    /**
+     * Returns next planes.
+     *
+     * @param count - maximal amount of planes
+     * @return {@code List<Plane>}, empty if there are no more planes
+     */
+    public List<Plane> next(int count) {
+        List<Plane> planes = new ArrayList<>(Math.min(count, 1024));
+        while (planes.size() < count && hasNext()) {
+            planes.add(next());
+        }
+        return planes;
+    }
+
+    /**
+     * Returns keyset continuation token: query with {@code after(token)} returns planes, that follow the last
+     * returned plane, even if the company was changed since.
+     *
+     * @return token or null, if query has no {@code CompareType} sort order
+     */
+    public String getToken() {
+        return token;
+    }
+
+    private Plane advance() {
+        synchronized (company) {
+            if (company.getVersion() != version) {
+                throw new ConcurrentModificationException("Company was changed during iteration");
+            }
+            while (remaining > 0 && source.hasNext()) {
+                Plane plane = source.next();
+                if (filter.test(plane)) {
+                    if (skipped > 0) {
+                        skipped--;
+                        continue;
+                    }
+                    remaining--;
+                    return plane;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package airline.util;
+
+import airline.entity.AirlineCompany;
+import airline.entity.ColumnarPlaneList;
+import airline.entity.ColumnarPlaneList.Column;
+import airline.entity.CompanyListener;
+import airline.entity.comparators.CompareType;
+import airline.entity.components.Engine;
+import airline.entity.planes.Plane;
+
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Secondary indexes of airline company planes for range, box (several ranges at once), model name
+ * and fuel consumption queries.
+ * <p>
+ * Indexes are built once on construction and then are kept consistent by company listener: added, removed
+ * and changed (through setters) planes are updated incrementally, replaced planes list rebuilds indexes.
+ * Sorting of planes list only reorders model name buckets. Changes, made directly through
+ * {@code getPlanesList()}, aren't tracked, {@link #rebuild()} must be called after them.
+ * <p>
+ * Every query has a bitmap variant over plane slots, so results of several predicates are combined
+ * by {@code BitSet.and()} / {@code or()} and only the final bitmap is turned into planes by {@link #toPlanes(BitSet)}.
+ * <p>
+ * Indexes and queries are guarded by the company monitor, the same as Controller mutators.
+ *
+ * @see SortedIntIndex
+ * @see ModelNameIndex
+ * @see EngineBitmapIndex
+ * @see PlaneKdTree
+ * @see Controller#getIndexes()
+ */
+public class PlaneIndexes implements AutoCloseable {
+    private final AirlineCompany company;
+    /**
+     * Slots must be added before and removed after sorted indexes, that are ordered by sequence numbers.
+     */
+    private final PlaneSlots slots = new PlaneSlots();
+    private final SortedIntIndex serialNumberIndex = new SortedIntIndex(Plane::getSerialNumber, slots::sequenceOf);
+    private final SortedIntIndex cargoCapacityIndex = new SortedIntIndex(Plane::getCargoCapacity, slots::sequenceOf);
+    private final SortedIntIndex passengerCapacityIndex = new SortedIntIndex(Plane::getPassengerCapacity,
+            slots::sequenceOf);
+    private final ModelNameIndex modelNameIndex = new ModelNameIndex();
+    private final EngineBitmapIndex engineIndex = new EngineBitmapIndex();
+    private final PlaneKdTree capacityTree = new PlaneKdTree();
+    private final CompanyListener listener = new IndexesListener();
+
+    /**
+     * Builds indexes of the company planes and starts tracking of its changes.
+     *
+     * @param company - AirlineCompany obj.
+     */
+    public PlaneIndexes(AirlineCompany company) {
+        if (company == null) {
+            throw new NullPointerException("Company cannot be null");
+        }
+        this.company = company;
+        synchronized (company) {
+            rebuild();
+            company.addListener(listener);
+        }
+    }
+
+    /**
+     * Rebuilds indexes from current planes list of the company. Costs O(n log n). Values of columnar list
+     * are read from its columns, indexes keep views of its rows.
+     */
+    public void rebuild() {
+        synchronized (company) {
+            List<Plane> planes = company.getPlanesList();
+            slots.clear();
+            engineIndex.clear();
+            if (planes instanceof ColumnarPlaneList) {
+                ColumnarPlaneList columnar = (ColumnarPlaneList) planes;
+                for (int row = 0; row < columnar.size(); row++) {
+                    engineIndex.add(slots.add(columnar.get(row)), columnar.getEngine(row));
+                }
+                serialNumberIndex.build(planes, row -> columnar.getValue(row, Column.SERIAL_NUMBER));
+                cargoCapacityIndex.build(planes, row -> columnar.getValue(row, Column.CARGO_CAPACITY));
+                passengerCapacityIndex.build(planes, row -> columnar.getValue(row, Column.PASSENGER_CAPACITY));
+            } else {
+                for (Plane plane : planes) {
+                    engineIndex.add(slots.add(plane), plane.getEngine());
+                }
+                serialNumberIndex.build(planes);
+                cargoCapacityIndex.build(planes);
+                passengerCapacityIndex.build(planes);
+            }
+            modelNameIndex.build(planes);
+            capacityTree.build(planes);
+        }
+    }
+
+    /**
+     * Returns the first met plane (in planes list order) with given model name. Costs O(1).
+     *
+     * @param modelName - model name, case-sensitive
+     * @return Plane obj. or null, if nothing found
+     */
+    public Plane getFirstPlaneByModel(String modelName) {
+        synchronized (company) {
+            return modelNameIndex.getFirstPlane(modelName);
+        }
+    }
+
+    /**
+     * Returns planes with model name, equal to given ignoring case. Lookup costs O(1).
+     *
+     * @param modelName - model name
+     * @return {@code List<Plane>}, empty if nothing found
+     * @see ModelNameIndex#getPlanesIgnoreCase(String) order of planes
+     */
+    public List<Plane> getPlanesByModel(String modelName) {
+        synchronized (company) {
+            return modelNameIndex.getPlanesIgnoreCase(modelName);
+        }
+    }
+
+    /**
+     * Returns planes, which model name starts with given prefix ignoring case. Search costs O(prefix + found planes).
+     *
+     * @param prefix - beginning of model name
+     * @return {@code List<Plane>}, empty if nothing found
+     * @see ModelNameIndex#getPlanesByPrefix(String) order of planes
+     */
+    public List<Plane> getPlanesByModelPrefix(String prefix) {
+        synchronized (company) {
+            return modelNameIndex.getPlanesByPrefix(prefix);
+        }
+    }
+
+    /**
+     * Returns planes, which model name is within given Levenshtein distance from given one ignoring case.
+     *
+     * @param modelName   - model name
+     * @param maxDistance - maximal distance
+     * @return {@code List<Plane>}, empty if nothing found
+     * @see ModelNameIndex#getPlanesBySimilarName(String, int) order of planes
+     */
+    public List<Plane> getPlanesBySimilarModel(String modelName, int maxDistance) {
+        synchronized (company) {
+            return modelNameIndex.getPlanesBySimilarName(modelName, maxDistance);
+        }
+    }
+
+    /**
+     * Returns distinct model names, that start with given prefix ignoring case, for completion of user input.
+     *
+     * @param prefix - beginning of model name
+     * @return {@code List<String>}, empty if nothing found
+     */
+    public List<String> getModelNamesByPrefix(String prefix) {
+        synchronized (company) {
+            return modelNameIndex.getModelNamesByPrefix(prefix);
+        }
+    }
+
+    /**
+     * Returns distinct model names within given Levenshtein distance ignoring case, the closest names go first.
+     *
+     * @param modelName   - model name
+     * @param maxDistance - maximal distance
+     * @return {@code List<String>}, empty if nothing found
+     */
+    public List<String> getSimilarModelNames(String modelName, int maxDistance) {
+        synchronized (company) {
+            return modelNameIndex.getSimilarModelNames(modelName, maxDistance);
+        }
+    }
+
+    /**
+     * Returns planes with serial number between min and max (including both) in ascending order of serial number.
+     *
+     * @param min - minimal serial number
+     * @param max - maximal serial number
+     * @return {@code List<Plane>}, empty if nothing found
+     */
+    public List<Plane> getPlanesBySerialNumber(int min, int max) {
+        synchronized (company) {
+            return serialNumberIndex.range(min, max);
+        }
+    }
+
+    /**
+     * Returns planes with cargo capacity between min and max (including both) in ascending order of capacity.
+     *
+     * @param min - minimal cargo capacity
+     * @param max - maximal cargo capacity
+     * @return {@code List<Plane>}, empty if nothing found
+     */
+    public List<Plane> getPlanesByCargoCapacity(int min, int max) {
+        synchronized (company) {
+            return cargoCapacityIndex.range(min, max);
+        }
+    }
+
+    /**
+     * Returns planes with passenger capacity between min and max (including both) in ascending order of capacity.
+     *
+     * @param min - minimal passenger capacity
+     * @param max - maximal passenger capacity
+     * @return {@code List<Plane>}, empty if nothing found
+     */
+    public List<Plane> getPlanesByPassengerCapacity(int min, int max) {
+        synchronized (company) {
+            return passengerCapacityIndex.range(min, max);
+        }
+    }
+
+    /**
+     * Returns planes, which serial number, passenger capacity, cargo capacity and crew size are all in ranges
+     * of the box, in the order of k-d tree.
+     *
+     * @param box - ranges of attributes
+     * @return {@code List<Plane>}, empty if nothing found
+     */
+    public List<Plane> getPlanesInBox(PlaneKdTree.Box box) {
+        synchronized (company) {
+            return capacityTree.search(box);
+        }
+    }
+
+    /**
+     * @param box - ranges of attributes
+     * @return amount of planes in the box
+     */
+    public int countInBox(PlaneKdTree.Box box) {
+        synchronized (company) {
+            return capacityTree.count(box);
+        }
+    }
+
+    /**
+     * Returns planes with fuel consumption between min and max (including both) in the order of slots.
+     * Exact value is queried by equal min and max.
+     *
+     * @param min - minimal fuel consumption
+     * @param max - maximal fuel consumption
+     * @return {@code List<Plane>}, empty if nothing found
+     */
+    public List<Plane> getPlanesByFuelConsumption(double min, double max) {
+        synchronized (company) {
+            return slots.toPlanes(engineIndex.bitmapByFuelConsumption(min, max));
+        }
+    }
+
+    /**
+     * Returns bitmap of planes with fuel consumption between min and max (including both).
+     *
+     * @param min - minimal fuel consumption
+     * @param max - maximal fuel consumption
+     * @return new BitSet obj. of plane slots
+     */
+    public BitSet getFuelConsumptionBitmap(double min, double max) {
+        synchronized (company) {
+            return engineIndex.bitmapByFuelConsumption(min, max);
+        }
+    }
+
+    /**
+     * @param engine - engine
+     * @return new BitSet obj. of slots of planes with the engine
+     */
+    public BitSet getEngineBitmap(Engine engine) {
+        synchronized (company) {
+            return engineIndex.bitmap(EnumSet.of(engine));
+        }
+    }
+
+    /**
+     * @return new BitSet obj. of slots of planes with serial number between min and max (including both)
+     */
+    public BitSet getSerialNumberBitmap(int min, int max) {
+        return toBitmap(serialNumberIndex, min, max);
+    }
+
+    /**
+     * @return new BitSet obj. of slots of planes with cargo capacity between min and max (including both)
+     */
+    public BitSet getCargoCapacityBitmap(int min, int max) {
+        return toBitmap(cargoCapacityIndex, min, max);
+    }
+
+    /**
+     * @return new BitSet obj. of slots of planes with passenger capacity between min and max (including both)
+     */
+    public BitSet getPassengerCapacityBitmap(int min, int max) {
+        return toBitmap(passengerCapacityIndex, min, max);
+    }
+
+    /**
+     * @param modelName - model name
+     * @return new BitSet obj. of slots of planes with model name, equal to given ignoring case
+     */
+    public BitSet getModelBitmap(String modelName) {
+        synchronized (company) {
+            return slots.toBitmap(modelNameIndex.getPlanesIgnoreCase(modelName));
+        }
+    }
+
+    /**
+     * Returns planes, which slots are set in the bitmap.
+     *
+     * @param bitmap - bitmap, returned by queries of these indexes or combination of them
+     * @return {@code List<Plane>} in the order of slots, empty if nothing found
+     */
+    public List<Plane> toPlanes(BitSet bitmap) {
+        synchronized (company) {
+            return slots.toPlanes(bitmap);
+        }
+    }
+
+    private BitSet toBitmap(SortedIntIndex index, int min, int max) {
+        BitSet bitmap = new BitSet();
+        synchronized (company) {
+            index.forEachInRange(min, max, plane -> bitmap.set(slots.slotOf(plane)));
+        }
+        return bitmap;
+    }
+
+    /**
+     * @return amount of indexed planes
+     */
+    public int size() {
+        synchronized (company) {
+            return serialNumberIndex.size();
+        }
+    }
+
+    // indexes for query planner, caller must hold the company monitor
+
+    SortedIntIndex serialNumberIndex() {
+        return serialNumberIndex;
+    }
+
+    SortedIntIndex cargoCapacityIndex() {
+        return cargoCapacityIndex;
+    }
+
+    SortedIntIndex passengerCapacityIndex() {
+        return passengerCapacityIndex;
+    }
+
+    ModelNameIndex modelNameIndex() {
+        return modelNameIndex;
+    }
+
+    EngineBitmapIndex engineIndex() {
+        return engineIndex;
+    }
+
+    PlaneKdTree capacityTree() {
+        return capacityTree;
+    }
+
+    PlaneSlots slots() {
+        return slots;
+    }
+
+    public AirlineCompany getCompany() {
+        return company;
+    }
+
+    /**
+     * Stops tracking of company changes. Indexes mustn't be used after it.
+     */
+    @Override
+    public void close() {
+        company.removeListener(listener);
+    }
+
+    /**
+     * Updates indexes on every change of the company.
+     */
+    private class IndexesListener implements CompanyListener {
+        @Override
+        public void planeAdded(Plane plane) {
+            synchronized (company) {
+                engineIndex.add(slots.add(plane), plane.getEngine());
+                serialNumberIndex.add(plane);
+                cargoCapacityIndex.add(plane);
+                passengerCapacityIndex.add(plane);
+                modelNameIndex.add(plane);
+                capacityTree.add(plane);
+            }
+        }
+
+        @Override
+        public void planeRemoved(int index, Plane plane) {
+            synchronized (company) {
+                serialNumberIndex.remove(plane);
+                cargoCapacityIndex.remove(plane);
+                passengerCapacityIndex.remove(plane);
+                modelNameIndex.remove(plane);
+                capacityTree.remove(plane);
+                int slot = slots.remove(plane);
+                if (slot >= 0) {
+                    engineIndex.remove(slot, plane.getEngine());
+                }
+            }
+        }
+
+        @Override
+        public void planeChanging(Plane plane) {
+            // serial number, model name and engine are final, other indexes are updated with old values
+            synchronized (company) {
+                cargoCapacityIndex.remove(plane);
+                passengerCapacityIndex.remove(plane);
+                capacityTree.remove(plane);
+            }
+        }
+
+        @Override
+        public void planeChanged(Plane plane) {
+            synchronized (company) {
+                cargoCapacityIndex.add(plane);
+                passengerCapacityIndex.add(plane);
+                capacityTree.add(plane);
+            }
+        }
+
+        @Override
+        public void planesSorted(CompareType sortMode) {
+            // buckets must follow the new order of planes list
+            synchronized (company) {
+                modelNameIndex.build(company.getPlanesList());
+            }
+        }
+
+        @Override
+        public void planesListReplaced() {
+            rebuild();
+        }
+    }
+}
@@ -0,0 +1,478 @@
+package airline.util;
+
+import airline.entity.AirlineCompany;
+import airline.entity.ColumnarPlaneList.Column;
+import airline.entity.planes.Plane;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * K-d tree of planes by serial number, passenger capacity, cargo capacity and crew size for box queries
+ * ("all of the attributes are in their ranges").
+ * <p>
+ * Bulk build splits planes by median of the attribute with the widest spread, so every level halves the planes.
+ * Every node keeps bounding box and amount of live planes of its subtree: query skips subtrees outside
+ * the box and takes subtrees inside the box entirely, so it doesn't depend on the fleet size linearly,
+ * and count of planes in the box doesn't visit planes of inner subtrees at all.
+ * <p>
+ * Added planes are inserted as leaves. If insertion makes the tree too deep, the deepest unbalanced subtree
+ * on the path is rebuilt (as in scapegoat tree), so depth stays logarithmic with amortized O(log n) insertion.
+ * Removed planes are marked and dropped, when they are more than live planes.
+ * <p>
+ * Tree isn't thread safe.
+ *
+ * @see PlaneIndexes#getPlanesInBox(Box)
+ */
+public class PlaneKdTree {
+    private static final int DIMENSIONS = Column.values().length;
+    /**
+     * Subtree is unbalanced, if one of its children has more nodes than this part of it.
+     */
+    private static final double BALANCE = 0.75;
+
+    private Node root;
+    private int removedCount;
+
+    /**
+     * Box of ranges (including both bounds). Attributes without range aren't limited.
+     */
+    public static class Box {
+        private final int[] min = new int[DIMENSIONS];
+        private final int[] max = new int[DIMENSIONS];
+
+        public Box() {
+            Arrays.fill(min, Integer.MIN_VALUE);
+            Arrays.fill(max, Integer.MAX_VALUE);
+        }
+
+        /**
+         * Limits the attribute.
+         *
+         * @param column - attribute
+         * @param min    - minimal value
+         * @param max    - maximal value
+         * @return this box
+         */
+        public Box with(Column column, int min, int max) {
+            this.min[column.ordinal()] = min;
+            this.max[column.ordinal()] = max;
+            return this;
+        }
+
+        /**
+         * @param plane - Plane obj.
+         * @return true, if all attributes of the plane are in their ranges
+         */
+        public boolean contains(Plane plane) {
+            return contains(pointOf(plane));
+        }
+
+        private boolean contains(int[] point) {
+            for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+                if (point[dimension] < min[dimension] || point[dimension] > max[dimension]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return amount of limited attributes
+         */
+        int limited() {
+            int limited = 0;
+            for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+                if (min[dimension] != Integer.MIN_VALUE || max[dimension] != Integer.MAX_VALUE) {
+                    limited++;
+                }
+            }
+            return limited;
+        }
+
+        @Override
+        public String toString() {
+            List<String> ranges = new ArrayList<>();
+            for (Column column : Column.values()) {
+                int dimension = column.ordinal();
+                if (min[dimension] != Integer.MIN_VALUE || max[dimension] != Integer.MAX_VALUE) {
+                    ranges.add(column + " BETWEEN " + min[dimension] + " AND " + max[dimension]);
+                }
+            }
+            return "BOX(" + String.join(", ", ranges) + ")";
+        }
+    }
+
+    /**
+     * Node of the tree.
+     */
+    private static class Node {
+        private final Plane plane;
+        /**
+         * Attributes of the plane on insertion.
+         */
+        private final int[] point;
+        private int dimension;
+        private Node left;
+        private Node right;
+        /**
+         * Bounding box of the subtree. It isn't shrunk on removal.
+         */
+        private int[] low;
+        private int[] high;
+        /**
+         * Amount of nodes (including removed) and amount of live planes in the subtree.
+         */
+        private int count;
+        private int size;
+        private boolean removed;
+
+        private Node(Plane plane, int[] point) {
+            this.plane = plane;
+            this.point = point;
+            this.low = point.clone();
+            this.high = point.clone();
+            this.count = 1;
+            this.size = 1;
+        }
+
+        private void extend(int[] other) {
+            for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+                low[dimension] = Math.min(low[dimension], other[dimension]);
+                high[dimension] = Math.max(high[dimension], other[dimension]);
+            }
+        }
+
+        private boolean covers(int[] other) {
+            for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+                if (other[dimension] < low[dimension] || other[dimension] > high[dimension]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isDisjoint(Box box) {
+            for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+                if (high[dimension] < box.min[dimension] || low[dimension] > box.max[dimension]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean isInside(Box box) {
+            for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+                if (low[dimension] < box.min[dimension] || high[dimension] > box.max[dimension]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Builds tree of the company planes.
+     *
+     * @param company - AirlineCompany obj.
+     * @return new PlaneKdTree obj.
+     */
+    public static PlaneKdTree of(AirlineCompany company) {
+        PlaneKdTree tree = new PlaneKdTree();
+        synchronized (company) {
+            tree.build(company.getPlanesList());
+        }
+        return tree;
+    }
+
+    /**
+     * Replaces content of the tree with given planes. Costs O(n log n).
+     *
+     * @param planes - planes to index
+     */
+    public void build(Collection<Plane> planes) {
+        Node[] nodes = new Node[planes.size()];
+        int index = 0;
+        for (Plane plane : planes) {
+            nodes[index++] = new Node(plane, pointOf(plane));
+        }
+        root = build(nodes, 0, nodes.length);
+        removedCount = 0;
+    }
+
+    /**
+     * @return amount of planes in the tree
+     */
+    public int size() {
+        return root == null ? 0 : root.size;
+    }
+
+    /**
+     * Adds plane with its current attributes. Costs amortized O(log n).
+     *
+     * @param plane - Plane obj.
+     */
+    public void add(Plane plane) {
+        Node node = new Node(plane, pointOf(plane));
+        if (root == null) {
+            root = node;
+            return;
+        }
+        List<Node> path = new ArrayList<>();
+        Node current = root;
+        while (current != null) {
+            path.add(current);
+            current.extend(node.point);
+            current.count++;
+            current.size++;
+            current = node.point[current.dimension] < current.point[current.dimension] ? current.left : current.right;
+        }
+        Node parent = path.get(path.size() - 1);
+        node.dimension = (parent.dimension + 1) % DIMENSIONS;
+        if (node.point[parent.dimension] < parent.point[parent.dimension]) {
+            parent.left = node;
+        } else {
+            parent.right = node;
+        }
+        if (path.size() > maxDepth(root.count)) {
+            rebalance(path, node);
+        }
+    }
+
+    /**
+     * Removes plane. Attributes of the plane must be the same, as they were on {@code add()}.
+     *
+     * @param plane - Plane obj.
+     * @return true, if plane was found
+     */
+    public boolean remove(Plane plane) {
+        if (!remove(root, plane, pointOf(plane))) {
+            return false;
+        }
+        removedCount++;
+        if (removedCount > root.size) {
+            // removed planes are dropped by rebuild of the whole tree
+            Node[] nodes = new Node[root.size];
+            collectNodes(root, nodes, 0);
+            root = build(nodes, 0, nodes.length);
+            removedCount = 0;
+        }
+        return true;
+    }
+
+    /**
+     * Returns planes in the box in the order of the tree.
+     *
+     * @param box - ranges of attributes
+     * @return {@code List<Plane>}, empty if nothing found
+     */
+    public List<Plane> search(Box box) {
+        List<Plane> found = new ArrayList<>();
+        search(root, box, found);
+        return found;
+    }
+
+    /**
+     * Counts planes in the box. Subtrees inside the box are counted without visiting their planes.
+     *
+     * @param box - ranges of attributes
+     * @return amount of planes
+     */
+    public int count(Box box) {
+        return count(root, box);
+    }
+
+    /**
+     * @return attributes of the plane in the order of {@code Column} values
+     */
+    static int[] pointOf(Plane plane) {
+        int[] point = new int[DIMENSIONS];
+        point[Column.SERIAL_NUMBER.ordinal()] = plane.getSerialNumber();
+        point[Column.PASSENGER_CAPACITY.ordinal()] = plane.getPassengerCapacity();
+        point[Column.CARGO_CAPACITY.ordinal()] = plane.getCargoCapacity();
+        point[Column.CREW_SIZE.ordinal()] = plane.getCrewSize();
+        return point;
+    }
+
+    private static int maxDepth(int count) {
+        return (int) (Math.log(count) / Math.log(1 / BALANCE)) + 1;
+    }
+
+    /**
+     * Rebuilds the deepest subtree on the path, which child is too big, and drops its removed nodes.
+     */
+    private void rebalance(List<Node> path, Node inserted) {
+        int scapegoat = -1;
+        for (int index = path.size() - 1; index >= 0 && scapegoat < 0; index--) {
+            Node child = index + 1 < path.size() ? path.get(index + 1) : inserted;
+            if (child.count > BALANCE * path.get(index).count) {
+                scapegoat = index;
+            }
+        }
+        if (scapegoat < 0) {
+            return;
+        }
+        Node subtree = path.get(scapegoat);
+        Node[] nodes = new Node[subtree.size];
+        collectNodes(subtree, nodes, 0);
+        int dropped = subtree.count - nodes.length;
+        Node rebuilt = build(nodes, 0, nodes.length);
+        if (scapegoat == 0) {
+            root = rebuilt;
+        } else {
+            Node parent = path.get(scapegoat - 1);
+            if (parent.left == subtree) {
+                parent.left = rebuilt;
+            } else {
+                parent.right = rebuilt;
+            }
+            for (int index = 0; index < scapegoat; index++) {
+                path.get(index).count -= dropped;
+            }
+        }
+        removedCount -= dropped;
+    }
+
+    /**
+     * Builds balanced subtree of the nodes: median by the widest attribute is the root.
+     */
+    private static Node build(Node[] nodes, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int[] low = nodes[from].point.clone();
+        int[] high = nodes[from].point.clone();
+        for (int index = from + 1; index < to; index++) {
+            int[] point = nodes[index].point;
+            for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+                low[dimension] = Math.min(low[dimension], point[dimension]);
+                high[dimension] = Math.max(high[dimension], point[dimension]);
+            }
+        }
+        int widest = 0;
+        for (int dimension = 1; dimension < DIMENSIONS; dimension++) {
+            if ((long) high[dimension] - low[dimension] > (long) high[widest] - low[widest]) {
+                widest = dimension;
+            }
+        }
+        int middle = (from + to) >>> 1;
+        select(nodes, from, to, middle, widest);
+        Node node = nodes[middle];
+        node.dimension = widest;
+        node.low = low;
+        node.high = high;
+        node.count = to - from;
+        node.size = to - from;
+        node.removed = false;
+        node.left = build(nodes, from, middle);
+        node.right = build(nodes, middle + 1, to);
+        return node;
+    }
+
+    /**
+     * Moves node with k-th value of the attribute to position k, smaller values before it and bigger after it.
+     * Equal values are grouped by three-way partition, so many planes with the same value don't slow it down.
+     */
+    private static void select(Node[] nodes, int from, int to, int k, int dimension) {
+        while (to - from > 1) {
+            int pivot = nodes[(from + to) >>> 1].point[dimension];
+            int less = from;
+            int index = from;
+            int greater = to;
+            while (index < greater) {
+                int value = nodes[index].point[dimension];
+                if (value < pivot) {
+                    swap(nodes, less++, index++);
+                } else if (value > pivot) {
+                    swap(nodes, index, --greater);
+                } else {
+                    index++;
+                }
+            }
+            if (k < less) {
+                to = less;
+            } else if (k >= greater) {
+                from = greater;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static void swap(Node[] nodes, int first, int second) {
+        Node node = nodes[first];
+        nodes[first] = nodes[second];
+        nodes[second] = node;
+    }
+
+    /**
+     * Writes live nodes of the subtree to the array.
+     *
+     * @return next free position
+     */
+    private static int collectNodes(Node node, Node[] nodes, int position) {
+        if (node == null || node.size == 0) {
+            return position;
+        }
+        if (!node.removed) {
+            nodes[position++] = node;
+        }
+        position = collectNodes(node.left, nodes, position);
+        return collectNodes(node.right, nodes, position);
+    }
+
+    private static boolean remove(Node node, Plane plane, int[] point) {
+        if (node == null || node.size == 0 || !node.covers(point)) {
+            return false;
+        }
+        if (node.plane == plane && !node.removed && Arrays.equals(node.point, point)) {
+            node.removed = true;
+            node.size--;
+            return true;
+        }
+        if (remove(node.left, plane, point) || remove(node.right, plane, point)) {
+            node.size--;
+            return true;
+        }
+        return false;
+    }
+
+    private static void search(Node node, Box box, List<Plane> found) {
+        if (node == null || node.size == 0 || node.isDisjoint(box)) {
+            return;
+        }
+        if (node.isInside(box)) {
+            collectPlanes(node, found);
+            return;
+        }
+        if (!node.removed && box.contains(node.point)) {
+            found.add(node.plane);
+        }
+        search(node.left, box, found);
+        search(node.right, box, found);
+    }
+
+    private static void collectPlanes(Node node, List<Plane> found) {
+        if (node == null || node.size == 0) {
+            return;
+        }
+        if (!node.removed) {
+            found.add(node.plane);
+        }
+        collectPlanes(node.left, found);
+        collectPlanes(node.right, found);
+    }
+
+    private static int count(Node node, Box box) {
+        if (node == null || node.size == 0 || node.isDisjoint(box)) {
+            return 0;
+        }
+        if (node.isInside(box)) {
+            return node.size;
+        }
+        int count = !node.removed && box.contains(node.point) ? 1 : 0;
+        return count + count(node.left, box) + count(node.right, box);
+    }
+}
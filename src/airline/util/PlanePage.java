@@ -0,0 +1,43 @@
+package airline.util;
+
+import airline.entity.planes.Plane;
+
+import java.util.List;
+
+/**
+ * Page of query result with keyset continuation token of the next page.
+ *
+ * @see PlaneQuery#page(int)
+ */
+public class PlanePage {
+    private final List<Plane> planes;
+    /**
+     * Token after the last plane of the page, null if it is the last page.
+     */
+    private final String nextToken;
+
+    public PlanePage(List<Plane> planes, String nextToken) {
+        this.planes = planes;
+        this.nextToken = nextToken;
+    }
+
+    public List<Plane> getPlanes() {
+        return planes;
+    }
+
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+
+    @Override
+    public String toString() {
+        return "PlanePage{" +
+                "planes=" + planes.size() +
+                ", nextToken=" + nextToken +
+                '}';
+    }
+}
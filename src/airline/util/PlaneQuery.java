@@ -0,0 +1,647 @@
+package airline.util;
+
+import airline.entity.AirlineCompany;
+import airline.entity.comparators.CompareType;
+import airline.entity.planes.Plane;
+
+import airline.entity.planes.PassengerPlane;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Query of airline company planes.
+ * <p>
+ * Query combines conditions (see {@link PlaneCondition}), sort order, offset and limit. Planner estimates amount
+ * of planes, matching every indexed condition, and fetches planes by the most selective index. Remaining
+ * conditions are checked by filter. If no condition is indexed (or index would return the whole fleet), planes list
+ * is scanned (in parallel for big lists, see {@link SearchEngine#setScanner(ParallelScanner)}). Without sort order
+ * planes are returned in the order of chosen index (or planes list).
+ * <p>
+ * Unlike {@code SearchEngine} methods, query returns empty list, if nothing is found. Results can be cached
+ * by {@link #cache(QueryCache)}.
+ * <p>
+ * Sorted queries with limit keep only first {@code offset + limit} planes in bounded heap, so memory doesn't depend
+ * on amount of matched planes. Queries, sorted by serial number, cargo or passenger capacity, walk the sorted index
+ * of this attribute and stop after the last needed plane, so "10 largest cargo capacities in range" are read
+ * without visiting other planes of the range. Planes with equal sort value are ordered by their sequence numbers
+ * in indexes (see {@link PlaneSlots#sequenceOf(Plane)}), which are unique, so order is total and results can be
+ * read by pages: {@link #cursor()} reads planes lazily, {@link #page(int)} returns page with keyset continuation
+ * token, which is passed to {@link #after(String)} of the next query. Sequence numbers live as long as indexes,
+ * so token is valid only for the indexes, that created it: after restart or rebuild of indexes planes get new
+ * numbers, and planes with sort value equal to the token value may be skipped or returned again.
+ * <pre>{@code
+ * List<Plane> planes = controller.query()
+ *         .where(PlaneCondition.and(PlaneCondition.model("A320"), PlaneCondition.passengerCapacity(150, 200)))
+ *         .orderBy(CompareType.BY_SERIAL_NUMBER)
+ *         .limit(10)
+ *         .execute();
+ *
+ * PlanePage page = controller.query().orderBy(CompareType.BY_CARGO_CAPACITY, true).page(20);
+ * PlanePage next = controller.query().orderBy(CompareType.BY_CARGO_CAPACITY, true).after(page.getNextToken()).page(20);
+ * }</pre>
+ *
+ * @see Controller#query()
+ */
+public class PlaneQuery {
+    private final PlaneIndexes indexes;
+    /**
+     * Orders planes with equal sort value, the same as keys of sorted indexes.
+     */
+    private final Comparator<Plane> bySequence;
+    private final AirlineCompany company;
+    private PlaneCondition condition;
+    private Comparator<Plane> baseOrder;
+    private boolean descending;
+    /**
+     * Sort order with ties broken by sequence number.
+     */
+    private Comparator<Plane> order;
+    private String orderDescription;
+    private int offset;
+    private int limit = Integer.MAX_VALUE;
+    private QueryCache cache;
+    private PageToken token;
+
+    /**
+     * @param indexes - indexes of the company, which planes are queried
+     */
+    public PlaneQuery(PlaneIndexes indexes) {
+        if (indexes == null) {
+            throw new NullPointerException("Plane indexes cannot be null");
+        }
+        this.indexes = indexes;
+        this.company = indexes.getCompany();
+        PlaneSlots slots = indexes.slots();
+        this.bySequence = (first, second) ->
+                Integer.compareUnsigned(slots.sequenceOf(first), slots.sequenceOf(second));
+    }
+
+    /**
+     * Sets condition of the query. Without condition all planes match.
+     *
+     * @param condition - PlaneCondition obj.
+     * @return this query
+     */
+    public PlaneQuery where(PlaneCondition condition) {
+        if (condition == null) {
+            throw new NullPointerException("Condition cannot be null");
+        }
+        this.condition = condition;
+        return this;
+    }
+
+    /**
+     * Sorts found planes in ascending order.
+     *
+     * @param order - comparator, for example {@code CompareType.BY_SERIAL_NUMBER}
+     * @return this query
+     */
+    public PlaneQuery orderBy(Comparator<Plane> order) {
+        return orderBy(order, false);
+    }
+
+    /**
+     * Sorts found planes.
+     *
+     * @param order      - comparator, for example {@code CompareType.BY_SERIAL_NUMBER}
+     * @param descending - true for descending order
+     * @return this query
+     */
+    public PlaneQuery orderBy(Comparator<Plane> order, boolean descending) {
+        if (order == null) {
+            throw new NullPointerException("Order cannot be null");
+        }
+        Comparator<Plane> total = order.thenComparing(bySequence);
+        this.baseOrder = order;
+        this.descending = descending;
+        this.order = descending ? total.reversed() : total;
+        this.orderDescription = order + (descending ? " DESC" : " ASC");
+        return this;
+    }
+
+    /**
+     * @param offset - amount of found planes to skip
+     * @return this query
+     */
+    public PlaneQuery offset(int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset cannot be less than 0");
+        }
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * @param limit - maximal amount of returned planes
+     * @return this query
+     */
+    public PlaneQuery limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be less than 0");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Continues the query after the plane, that token was created for: only planes, that follow it in sort order,
+     * are found. Query must have the same {@code CompareType} sort order, as the query, that returned the token.
+     *
+     * @param token - token of {@link PlanePage#getNextToken()} or {@link PlaneCursor#getToken()}
+     * @return this query
+     * @throws IllegalArgumentException if token is malformed
+     */
+    public PlaneQuery after(String token) {
+        if (token == null) {
+            throw new NullPointerException("Token cannot be null");
+        }
+        this.token = PageToken.parse(token);
+        return this;
+    }
+
+    /**
+     * Caches result of the query. Result is taken from the cache, while the company isn't changed.
+     * Queries, sorted by comparators other than {@code CompareType}, aren't cached.
+     *
+     * @param cache - QueryCache obj.
+     * @return this query
+     */
+    public PlaneQuery cache(QueryCache cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    /**
+     * Executes the query.
+     *
+     * @return {@code List<Plane>}, empty if nothing found
+     */
+    public List<Plane> execute() {
+        // other comparators have no stable description, so they can't be a part of the key
+        if (cache == null || baseOrder != null && !(baseOrder instanceof CompareType)) {
+            return run().planes;
+        }
+        synchronized (company) {
+            String key = key();
+            List<Plane> planes = cache.get(company, key);
+            if (planes == null) {
+                long version = company.getVersion();
+                planes = run().planes;
+                cache.put(company, version, key, planes);
+            }
+            return planes;
+        }
+    }
+
+    /**
+     * Returns lazy cursor over the result. Planes of queries without sort order or sorted by indexed attribute
+     * are read from the source on demand, other sorted queries select first {@code offset + limit} planes
+     * on creation.
+     *
+     * @return PlaneCursor obj.
+     */
+    public PlaneCursor cursor() {
+        return cursor(limit);
+    }
+
+    /**
+     * Returns the first page of the query (after the token, if it's set).
+     *
+     * @param size - maximal amount of planes on the page
+     * @return PlanePage obj. with token of the next page, if there are more planes
+     * @throws IllegalStateException if query isn't sorted by {@code CompareType}
+     */
+    public PlanePage page(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Size of page must be positive: " + size);
+        }
+        if (!(baseOrder instanceof CompareType)) {
+            throw new IllegalStateException("Paging requires CompareType sort order");
+        }
+        // one more plane shows, whether the next page exists
+        PlaneCursor cursor = cursor((int) Math.min(limit, size + 1L));
+        List<Plane> planes = cursor.next(size);
+        return new PlanePage(planes, cursor.hasNext() ? cursor.getToken() : null);
+    }
+
+    /**
+     * Counts planes, matching the condition. Condition on one indexed attribute (or OR of such conditions)
+     * is counted by index, other conditions are checked by filter.
+     * <p>
+     * Aggregates ({@code count}, {@code exists}, {@code sum}, {@code min}, {@code max}) depend only on the
+     * condition: sort order, offset, limit and token are ignored. They never throw on empty result.
+     *
+     * @return amount of planes, 0 if nothing found
+     */
+    public int count() {
+        synchronized (company) {
+            List<Plane> allPlanes = company.getPlanesList();
+            if (condition == null) {
+                return allPlanes.size();
+            }
+            int count = condition.count(indexes);
+            if (count >= 0) {
+                return count;
+            }
+            Execution execution = aggregated().plan();
+            if (execution.wholeList) {
+                return SearchEngine.getScanner().count(allPlanes, condition::test);
+            }
+            count = 0;
+            while (execution.candidates.hasNext()) {
+                if (condition.test(execution.candidates.next())) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Checks, whether any plane matches the condition. Reading stops at the first matched plane.
+     *
+     * @return true, if at least one plane is found
+     */
+    public boolean exists() {
+        return !aggregated().limit(1).run().planes.isEmpty();
+    }
+
+    /**
+     * Sums attribute of planes, matching the condition.
+     *
+     * @param attribute - function, that returns summed value, for example {@code Plane::getCargoCapacity}
+     * @return sum, 0 if nothing found
+     */
+    public long sum(ToIntFunction<Plane> attribute) {
+        if (attribute == null) {
+            throw new NullPointerException("Attribute cannot be null");
+        }
+        synchronized (company) {
+            Execution execution = aggregated().plan();
+            long sum = 0;
+            while (execution.candidates.hasNext()) {
+                Plane plane = execution.candidates.next();
+                if (condition == null || condition.test(plane)) {
+                    sum += attribute.applyAsInt(plane);
+                }
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * Returns the first plane, matching the condition, in given order. If planes are compared by indexed
+     * attribute, reading stops at the first matched plane of the index.
+     *
+     * @param order - comparator, for example {@code CompareType.BY_CARGO_CAPACITY}
+     * @return minimal plane or empty Optional, if nothing found
+     */
+    public Optional<Plane> min(Comparator<Plane> order) {
+        return first(order, false);
+    }
+
+    /**
+     * Returns the last plane, matching the condition, in given order. If planes are compared by indexed
+     * attribute, reading stops at the first matched plane of the index.
+     *
+     * @param order - comparator, for example {@code CompareType.BY_CARGO_CAPACITY}
+     * @return maximal plane or empty Optional, if nothing found
+     */
+    public Optional<Plane> max(Comparator<Plane> order) {
+        return first(order, true);
+    }
+
+    private Optional<Plane> first(Comparator<Plane> order, boolean descending) {
+        List<Plane> planes = aggregated().orderBy(order, descending).limit(1).run().planes;
+        return planes.isEmpty() ? Optional.empty() : Optional.of(planes.get(0));
+    }
+
+    /**
+     * @return query with the same condition and without order, offset, limit and token
+     */
+    private PlaneQuery aggregated() {
+        PlaneQuery query = new PlaneQuery(indexes);
+        query.condition = condition;
+        return query;
+    }
+
+    /**
+     * @return normalized description of the query
+     */
+    String key() {
+        return (condition == null ? "" : condition.key()) + " ORDER " + orderDescription
+                + " OFFSET " + offset + " LIMIT " + limit + (token == null ? "" : " AFTER " + token.encode());
+    }
+
+    /**
+     * Executes the query and describes its plan: access path with estimated amount of planes, filter,
+     * sort order, offset and limit, and actual amounts of fetched, matched and returned planes.
+     *
+     * @return description of the plan
+     */
+    public String explain() {
+        Execution execution = run();
+        StringBuilder plan = new StringBuilder();
+        if (execution.accessPath == null) {
+            plan.append("Access: FULL SCAN of planes list (").append(execution.estimate).append(" rows)");
+        } else {
+            plan.append("Access: INDEX ").append(execution.accessPath)
+                    .append(" (estimated rows: ").append(execution.estimate).append(')');
+        }
+        plan.append(System.lineSeparator()).append("Filter: ").append(condition == null ? "none" : condition);
+        plan.append(System.lineSeparator()).append("Order: ").append(order == null ? "none" : orderDescription);
+        if (execution.topLimit > 0) {
+            plan.append(" (top ").append(execution.topLimit).append(" by heap)");
+        }
+        plan.append(", offset: ").append(offset)
+                .append(", limit: ").append(limit == Integer.MAX_VALUE ? "none" : String.valueOf(limit));
+        plan.append(System.lineSeparator()).append("Actual rows: fetched ").append(execution.fetched)
+                .append(", matched ").append(execution.matched)
+                .append(", returned ").append(execution.planes.size());
+        return plan.toString();
+    }
+
+    /**
+     * Plan and result of the query.
+     */
+    private static class Execution {
+        private String accessPath;
+        private int estimate;
+        /**
+         * Candidates from the access path.
+         */
+        private Iterator<Plane> candidates;
+        /**
+         * True, if candidates are in the order of the query, so reading can stop after the last needed plane.
+         */
+        private boolean ordered;
+        private boolean wholeList;
+        private long topLimit;
+        private int fetched;
+        private int matched;
+        private List<Plane> planes;
+    }
+
+    private Execution run() {
+        synchronized (company) {
+            Execution execution = plan();
+            List<Plane> found = collect(execution, limit);
+            int from = Math.min(offset, found.size());
+            int to = (int) Math.min((long) from + limit, found.size());
+            execution.planes = new ArrayList<>(found.subList(from, to));
+            return execution;
+        }
+    }
+
+    private PlaneCursor cursor(int limit) {
+        synchronized (company) {
+            Execution execution = plan();
+            Function<Plane, String> tokens = baseOrder instanceof CompareType
+                    ? plane -> PageToken.of((CompareType) baseOrder, descending, plane,
+                    indexes.slots().sequenceOf(plane)).encode() : null;
+            String initialToken = token == null ? null : token.encode();
+            if (order == null || execution.ordered) {
+                return new PlaneCursor(company, company.getVersion(), execution.candidates, this::matches,
+                        offset, limit, tokens, initialToken);
+            }
+            List<Plane> found = collect(execution, limit);
+            return new PlaneCursor(company, company.getVersion(), found.iterator(), plane -> true,
+                    offset, limit, tokens, initialToken);
+        }
+    }
+
+    /**
+     * Chooses access path. Must be called while holding the company monitor.
+     */
+    private Execution plan() {
+        if (token != null) {
+            if (!(baseOrder instanceof CompareType)) {
+                throw new IllegalStateException("Continuation token requires CompareType sort order");
+            }
+            if (token.order != baseOrder || token.descending != descending) {
+                throw new IllegalArgumentException("Token was created for other sort order: " + token.order
+                        + (token.descending ? " DESC" : " ASC"));
+            }
+        }
+        Execution execution = new Execution();
+        List<Plane> allPlanes = company.getPlanesList();
+        execution.estimate = allPlanes.size();
+        PlaneCondition path = null;
+        if (condition != null) {
+            path = condition.accessPath(indexes);
+            // index, that returns the whole fleet, is not cheaper than scan
+            if (path != null && path.estimate(indexes) >= allPlanes.size()) {
+                path = null;
+            }
+        }
+        IndexedOrder indexedOrder = IndexedOrder.of(baseOrder);
+        // sorted index of the order attribute is walked, unless other index is more selective
+        if (indexedOrder != null && (path == null || path.bounds(indexedOrder.attribute) != null)) {
+            int[] bounds = condition == null ? null : condition.bounds(indexedOrder.attribute);
+            int min = bounds == null ? Integer.MIN_VALUE : bounds[0];
+            int max = bounds == null ? Integer.MAX_VALUE : bounds[1];
+            SortedIntIndex index = indexedOrder.index.apply(indexes);
+            long fromKey = min > max ? 1 : SortedIntIndex.key(min, 0);
+            long toKey = min > max ? 0 : SortedIntIndex.key(max, -1);
+            if (token != null) {
+                // planes up to the token (including it) are skipped by binary search
+                long tokenKey = SortedIntIndex.key(indexedOrder.value.applyAsInt(token.probe), token.sequence);
+                if (tokenKey == (descending ? Long.MIN_VALUE : Long.MAX_VALUE)) {
+                    fromKey = 1;
+                    toKey = 0;
+                } else if (descending) {
+                    toKey = Math.min(toKey, tokenKey - 1);
+                } else {
+                    fromKey = Math.max(fromKey, tokenKey + 1);
+                }
+            }
+            execution.accessPath = indexedOrder.attribute + " BETWEEN " + min + " AND " + max
+                    + (descending ? " (DESC order)" : " (ASC order)");
+            execution.estimate = index.estimate(min, max);
+            execution.candidates = index.iterator(fromKey, toKey, descending);
+            execution.ordered = true;
+        } else if (path != null) {
+            execution.accessPath = path.toString();
+            execution.estimate = path.estimate(indexes);
+            execution.candidates = path.fetch(indexes).iterator();
+        } else {
+            execution.candidates = allPlanes.iterator();
+            execution.wholeList = true;
+        }
+        return execution;
+    }
+
+    /**
+     * Reads candidates and returns matched planes in the order of the query. Only first {@code offset + limit}
+     * planes are returned.
+     */
+    private List<Plane> collect(Execution execution, int limit) {
+        List<Plane> allPlanes = company.getPlanesList();
+        long needed = (long) offset + limit;
+        Iterator<Plane> candidates = execution.candidates;
+        List<Plane> found = new ArrayList<>();
+        if (execution.wholeList && condition != null && needed >= allPlanes.size()
+                && (order == null || needed >= Integer.MAX_VALUE)) {
+            // whole list is checked anyway, big lists are scanned in parallel
+            found = SearchEngine.getScanner().filter(allPlanes, this::matches);
+            execution.fetched = allPlanes.size();
+            execution.matched = found.size();
+        } else if (order == null || execution.ordered) {
+            // planes after offset + limit aren't needed
+            while (found.size() < needed && candidates.hasNext()) {
+                Plane plane = candidates.next();
+                execution.fetched++;
+                if (matches(plane)) {
+                    found.add(plane);
+                }
+            }
+            execution.matched = found.size();
+            return found;
+        } else if (needed < Integer.MAX_VALUE) {
+            // bounded heap keeps first offset + limit planes, the last of them is on the top
+            execution.topLimit = needed;
+            PriorityQueue<Plane> top = new PriorityQueue<>((int) Math.min(needed + 1, 1024), order.reversed());
+            while (candidates.hasNext()) {
+                Plane plane = candidates.next();
+                execution.fetched++;
+                if (matches(plane)) {
+                    execution.matched++;
+                    if (top.size() < needed) {
+                        top.add(plane);
+                    } else if (!top.isEmpty() && order.compare(plane, top.peek()) < 0) {
+                        top.poll();
+                        top.add(plane);
+                    }
+                }
+            }
+            found.addAll(top);
+        } else {
+            while (candidates.hasNext()) {
+                Plane plane = candidates.next();
+                execution.fetched++;
+                if (matches(plane)) {
+                    found.add(plane);
+                }
+            }
+            execution.matched = found.size();
+        }
+        if (order != null) {
+            found.sort(order);
+        }
+        return found;
+    }
+
+    private boolean matches(Plane plane) {
+        return (condition == null || condition.test(plane)) && (token == null || token.isBefore(plane, indexes.slots().sequenceOf(plane)));
+    }
+
+    /**
+     * Sort orders, that have sorted index.
+     */
+    private enum IndexedOrder {
+        SERIAL_NUMBER(CompareType.BY_SERIAL_NUMBER, "serialNumber", Plane::getSerialNumber,
+                PlaneIndexes::serialNumberIndex),
+        CARGO_CAPACITY(CompareType.BY_CARGO_CAPACITY, "cargoCapacity", Plane::getCargoCapacity,
+                PlaneIndexes::cargoCapacityIndex),
+        PASSENGER_CAPACITY(CompareType.BY_PASSENGER_CAPACITY, "passengerCapacity", Plane::getPassengerCapacity,
+                PlaneIndexes::passengerCapacityIndex);
+
+        private final CompareType order;
+        private final String attribute;
+        private final ToIntFunction<Plane> value;
+        private final Function<PlaneIndexes, SortedIntIndex> index;
+
+        IndexedOrder(CompareType order, String attribute, ToIntFunction<Plane> value,
+                     Function<PlaneIndexes, SortedIntIndex> index) {
+            this.order = order;
+            this.attribute = attribute;
+            this.value = value;
+            this.index = index;
+        }
+
+        private static IndexedOrder of(Comparator<Plane> order) {
+            for (IndexedOrder indexedOrder : values()) {
+                if (indexedOrder.order == order) {
+                    return indexedOrder;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Keyset continuation token: sort order and attributes of the last returned plane. Plane itself isn't kept,
+     * so token stays valid after the plane is changed or removed.
+     */
+    private static class PageToken {
+        private static final String SEPARATOR = ":";
+
+        private final CompareType order;
+        private final boolean descending;
+        /**
+         * Sequence number of the plane in indexes.
+         */
+        private final int sequence;
+        /**
+         * Copy of the plane attributes, that is compared by sort order.
+         */
+        private final Plane probe;
+
+        private PageToken(CompareType order, boolean descending, int sequence, Plane probe) {
+            this.order = order;
+            this.descending = descending;
+            this.sequence = sequence;
+            this.probe = probe;
+        }
+
+        private static PageToken of(CompareType order, boolean descending, Plane plane, int sequence) {
+            return new PageToken(order, descending, sequence,
+                    new PassengerPlane(plane.getSerialNumber(), plane.getModelName(), 0, plane.getCargoCapacity(),
+                            plane.getPassengerCapacity(), null));
+        }
+
+        private static PageToken parse(String text) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(text), StandardCharsets.UTF_8)
+                        .split(SEPARATOR, 7);
+                if (parts.length != 7) {
+                    throw new IllegalArgumentException("Wrong amount of token fields: " + parts.length);
+                }
+                return new PageToken(CompareType.valueOf(parts[0]), Boolean.parseBoolean(parts[1]),
+                        Integer.parseInt(parts[2]), new PassengerPlane(Integer.parseInt(parts[3]), parts[6], 0,
+                        Integer.parseInt(parts[5]), Integer.parseInt(parts[4]), null));
+            } catch (IllegalArgumentException e) {
+                // NumberFormatException and unknown CompareType are IllegalArgumentException too
+                throw new IllegalArgumentException("Invalid continuation token: " + text, e);
+            }
+        }
+
+        private String encode() {
+            String text = order.name() + SEPARATOR + descending + SEPARATOR + sequence
+                    + SEPARATOR + probe.getSerialNumber() + SEPARATOR + probe.getPassengerCapacity()
+                    + SEPARATOR + probe.getCargoCapacity() + SEPARATOR + probe.getModelName();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * @param sequence - sequence number of the plane
+         * @return true, if plane follows the token in sort order
+         */
+        private boolean isBefore(Plane plane, int sequence) {
+            int result = order.compare(probe, plane);
+            if (result == 0) {
+                result = Integer.compareUnsigned(this.sequence, sequence);
+            }
+            return descending ? result > 0 : result < 0;
+        }
+    }
+}
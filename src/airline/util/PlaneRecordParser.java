@@ -0,0 +1,303 @@
+package airline.util;
+
+import airline.entity.components.Engine;
+import airline.entity.components.ModelNameDictionary;
+import airline.entity.planes.CargoPlane;
+import airline.entity.planes.PassengerPlane;
+import airline.entity.planes.Plane;
+import airline.exceptions.PlaneParseException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Cursor parser for rows like PlaneType|serialNumber|modelName|passengerCapacity|cargoCapacity|crew|engineModel.
+ * <p>
+ * Walks through the row symbol by symbol without {@code String.split}, decodes integers in place and
+ * resolves engine by code name through precomputed table. Model name is looked up in {@link ModelNameDictionary}
+ * straight from the row, so for already known model the only allocated object is the plane itself. Parsing rules are the same as {@code String.split("\\|")} + {@code Integer.parseInt}
+ * + {@code Engine.valueOf}, so the result (including exceptions and their messages) is the same, as it was
+ * in previous realization of {@link FileHandler#parseAndConstructPlane(String)}.
+ * <p>
+ * Object keeps cursor state between calls, so it is not thread safe. Create one parser per thread and reuse it
+ * for all rows.
+ */
+public class PlaneRecordParser {
+    private static final Logger LOGGER = LogManager.getLogger(PlaneRecordParser.class);
+    private static final char SEPARATOR = '|';
+    private static final String PASSENGER_TYPE = "Passenger";
+    private static final String CARGO_TYPE = "Cargo";
+    private static final Engine[] ENGINES = Engine.values();
+    private static final String[] ENGINE_CODE_NAMES = new String[ENGINES.length];
+
+    static {
+        for (Engine engine : ENGINES) {
+            ENGINE_CODE_NAMES[engine.ordinal()] = engine.getCodeName();
+        }
+    }
+
+    /**
+     * Amount of fields in the row, that are used to construct the plane.
+     */
+    private static final int FIELDS_COUNT = 7;
+
+    private final ModelNameDictionary modelNames;
+
+    /**
+     * Row, that is parsed now. Only one of {@code chars} and {@code bytes} is not null.
+     */
+    private CharSequence chars;
+    private byte[] bytes;
+    private int rowStart;
+    private int rowEnd;
+    /**
+     * Start of the current field.
+     */
+    private int fieldStart;
+    /**
+     * End (exclusive) of the current field. Equals to position of the separator after field or end of row.
+     */
+    private int fieldEnd;
+    /**
+     * Result of the last successful {@code decodeInt()} call.
+     */
+    private int decodedInt;
+
+    /**
+     * Constructs parser, that interns model names in the shared dictionary.
+     */
+    public PlaneRecordParser() {
+        this(ModelNameDictionary.shared());
+    }
+
+    /**
+     * @param modelNames - dictionary of canonical model names
+     */
+    public PlaneRecordParser(ModelNameDictionary modelNames) {
+        this.modelNames = modelNames;
+    }
+
+    /**
+     * Parses given row and returns Plane object.
+     *
+     * @param row - String row like:
+     *            PlaneType|serialNumber|modelName|passengerCapacity|cargoCapacity|crew|engineModel
+     * @return PassengerPlane/CargoPlane object
+     * @throws PlaneParseException if plane type is unknown or numeric field is not an integer
+     * @throws ArrayIndexOutOfBoundsException if row contains less than 7 fields
+     * @throws IllegalArgumentException if there is no engine with such code name
+     */
+    public Plane parse(CharSequence row) throws PlaneParseException {
+        chars = row;
+        bytes = null;
+        try {
+            return parseRow(0, row.length());
+        } finally {
+            chars = null;
+        }
+    }
+
+    /**
+     * Parses row from given part of byte array.
+     * <p>
+     * Rows, that consist of ASCII symbols only, are parsed directly from the array. Other rows are decoded
+     * with given charset first.
+     *
+     * @param row     - array with row bytes, without line separator
+     * @param offset  - position of the first byte of row
+     * @param length  - amount of bytes in row
+     * @param charset - charset of the row
+     * @return PassengerPlane/CargoPlane object
+     * @throws PlaneParseException the same way as {@link #parse(CharSequence)}
+     */
+    public Plane parse(byte[] row, int offset, int length, Charset charset) throws PlaneParseException {
+        for (int index = offset; index < offset + length; index++) {
+            if (row[index] < 0) {
+                return parse(new String(row, offset, length, charset));
+            }
+        }
+        bytes = row;
+        chars = null;
+        try {
+            return parseRow(offset, offset + length);
+        } finally {
+            bytes = null;
+        }
+    }
+
+    private Plane parseRow(int start, int end) throws PlaneParseException {
+        rowStart = start;
+        rowEnd = end;
+        fieldEnd = start - 1;
+        nextField(0);
+        boolean passenger;
+        if (fieldEquals(PASSENGER_TYPE)) {
+            passenger = true;
+        } else if (fieldEquals(CARGO_TYPE)) {
+            passenger = false;
+        } else {
+            LOGGER.error("Failed to convert plane type");
+            throw new PlaneParseException("Unknown plane type before the first | symbol");
+        }
+        int serialNumber = nextInt(1);
+        nextField(2);
+        String modelName = fieldToModelName();
+        int passengerCapacity = nextInt(3);
+        int cargoCapacity = nextInt(4);
+        int crew = nextInt(5);
+        nextField(6);
+        Engine engine = fieldToEngine();
+        if (passenger) {
+            return new PassengerPlane(serialNumber, modelName, crew, cargoCapacity, passengerCapacity, engine);
+        }
+        return new CargoPlane(serialNumber, modelName, crew, cargoCapacity, passengerCapacity, engine);
+    }
+
+    private char charAt(int index) {
+        if (bytes != null) {
+            return (char) (bytes[index] & 0xff);
+        }
+        return chars.charAt(index);
+    }
+
+    /**
+     * Moves cursor to the next field.
+     * <p>
+     * Trailing empty fields don't exist after {@code split()}, so field is absent, if it's
+     * empty and there are only separators after it.
+     *
+     * @param fieldIndex - index of the field in row, used to build exception message.
+     */
+    private void nextField(int fieldIndex) {
+        fieldStart = fieldEnd + 1;
+        if (fieldStart > rowEnd) {
+            throw missingField(fieldIndex);
+        }
+        fieldEnd = fieldStart;
+        while (fieldEnd < rowEnd && charAt(fieldEnd) != SEPARATOR) {
+            fieldEnd++;
+        }
+        // split() returns the row itself for row without separators, even if it's empty
+        if (fieldStart == fieldEnd && rowStart != rowEnd && onlySeparatorsFrom(fieldEnd)) {
+            throw missingField(fieldIndex);
+        }
+    }
+
+    private boolean onlySeparatorsFrom(int position) {
+        for (int index = position; index < rowEnd; index++) {
+            if (charAt(index) != SEPARATOR) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ArrayIndexOutOfBoundsException missingField(int fieldIndex) {
+        // amount of fields, that split() would return: all fields up to the last not empty one
+        int fieldsCount = 0;
+        int currentField = 0;
+        boolean emptyField = true;
+        for (int index = rowStart; index < rowEnd; index++) {
+            if (charAt(index) == SEPARATOR) {
+                currentField++;
+                emptyField = true;
+            } else if (emptyField) {
+                emptyField = false;
+                fieldsCount = currentField + 1;
+            }
+        }
+        LOGGER.error("Row contains less than " + FIELDS_COUNT + " fields");
+        return new ArrayIndexOutOfBoundsException("Index " + fieldIndex + " out of bounds for length " + fieldsCount);
+    }
+
+    private int nextInt(int fieldIndex) throws PlaneParseException {
+        nextField(fieldIndex);
+        if (!decodeInt()) {
+            LOGGER.error("Failed to convert row to Plane object");
+            throw new PlaneParseException("Cannot convert String to Integer");
+        }
+        return decodedInt;
+    }
+
+    /**
+     * Decodes current field as decimal integer by the same rules, as {@code Integer.parseInt(String)} does.
+     *
+     * @return true, if field was decoded. Result will be placed to {@code decodedInt}.
+     */
+    private boolean decodeInt() {
+        int index = fieldStart;
+        if (index == fieldEnd) {
+            return false;
+        }
+        boolean negative = false;
+        int limit = -Integer.MAX_VALUE;
+        char firstChar = charAt(index);
+        if (firstChar < '0') {
+            if (firstChar == '-') {
+                negative = true;
+                limit = Integer.MIN_VALUE;
+            } else if (firstChar != '+') {
+                return false;
+            }
+            if (fieldEnd - fieldStart == 1) {
+                return false;
+            }
+            index++;
+        }
+        // accumulating negatively, so Integer.MIN_VALUE can be decoded too
+        int multiplicationLimit = limit / 10;
+        int result = 0;
+        while (index < fieldEnd) {
+            int digit = Character.digit(charAt(index++), 10);
+            if (digit < 0 || result < multiplicationLimit) {
+                return false;
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                return false;
+            }
+            result -= digit;
+        }
+        decodedInt = negative ? result : -result;
+        return true;
+    }
+
+    private boolean fieldEquals(String expected) {
+        if (fieldEnd - fieldStart != expected.length()) {
+            return false;
+        }
+        for (int index = 0; index < expected.length(); index++) {
+            if (charAt(fieldStart + index) != expected.charAt(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String fieldToString() {
+        if (bytes != null) {
+            return new String(bytes, fieldStart, fieldEnd - fieldStart, StandardCharsets.ISO_8859_1);
+        }
+        return chars.subSequence(fieldStart, fieldEnd).toString();
+    }
+
+    private String fieldToModelName() {
+        if (bytes != null) {
+            return modelNames.intern(bytes, fieldStart, fieldEnd);
+        }
+        return modelNames.intern(chars, fieldStart, fieldEnd);
+    }
+
+    private Engine fieldToEngine() {
+        for (int index = 0; index < ENGINE_CODE_NAMES.length; index++) {
+            if (fieldEquals(ENGINE_CODE_NAMES[index])) {
+                return ENGINES[index];
+            }
+        }
+        LOGGER.error("Failed to convert engine code name");
+        throw new IllegalArgumentException("No enum constant " + Engine.class.getCanonicalName() + "."
+                + fieldToString());
+    }
+}
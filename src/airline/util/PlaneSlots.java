@@ -0,0 +1,170 @@
+package airline.util;
+
+import airline.entity.planes.Plane;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stable numbers (slots) of indexed planes.
+ * <p>
+ * Positions in planes list are shifted by every deletion and sorting, so bitmaps of planes are kept over slots:
+ * every plane gets the smallest free slot on addition and keeps it until it is removed. Freed slots are reused,
+ * so bitmaps stay as dense as the planes list. Plane instance, that is added several times, has one slot.
+ * <p>
+ * Every added plane also gets sequence number. Unlike slots, numbers aren't reused, so they are unique among
+ * planes of the slots (until 2^32 additions) and order planes with equal values in sorted indexes and pages
+ * of queries. Numbers are compared as unsigned.
+ * <p>
+ * Slots aren't thread safe.
+ */
+public class PlaneSlots {
+    private final Map<Plane, Integer> slotByPlane = new IdentityHashMap<>();
+    private Plane[] planes = new Plane[16];
+    /**
+     * Amount of additions of the plane in the slot, slot is freed when it drops to 0.
+     */
+    private int[] references = new int[16];
+    /**
+     * Sequence number of the plane in the slot.
+     */
+    private int[] sequences = new int[16];
+    private final BitSet freeSlots = new BitSet();
+    private int capacity;
+    private int nextSequence;
+
+    /**
+     * Removes all planes.
+     */
+    public void clear() {
+        slotByPlane.clear();
+        Arrays.fill(planes, 0, capacity, null);
+        Arrays.fill(references, 0, capacity, 0);
+        freeSlots.clear();
+        capacity = 0;
+    }
+
+    /**
+     * Adds plane or increments its references.
+     *
+     * @param plane - Plane obj.
+     * @return slot of the plane
+     */
+    public int add(Plane plane) {
+        Integer existing = slotByPlane.get(plane);
+        if (existing != null) {
+            references[existing]++;
+            return existing;
+        }
+        int slot = freeSlots.nextSetBit(0);
+        if (slot < 0) {
+            slot = capacity++;
+            if (slot == planes.length) {
+                planes = Arrays.copyOf(planes, slot * 2);
+                references = Arrays.copyOf(references, slot * 2);
+                sequences = Arrays.copyOf(sequences, slot * 2);
+            }
+        } else {
+            freeSlots.clear(slot);
+        }
+        planes[slot] = plane;
+        references[slot] = 1;
+        sequences[slot] = nextSequence++;
+        slotByPlane.put(plane, slot);
+        return slot;
+    }
+
+    /**
+     * Decrements references of the plane and frees its slot, when plane isn't referenced anymore.
+     *
+     * @param plane - Plane obj.
+     * @return slot of the plane, if it is freed, otherwise -1
+     */
+    public int remove(Plane plane) {
+        Integer slot = slotByPlane.get(plane);
+        if (slot == null || --references[slot] > 0) {
+            return -1;
+        }
+        slotByPlane.remove(plane);
+        planes[slot] = null;
+        freeSlots.set(slot);
+        return slot;
+    }
+
+    /**
+     * @param plane - Plane obj.
+     * @return slot of the plane or -1, if plane isn't added
+     */
+    public int slotOf(Plane plane) {
+        Integer slot = slotByPlane.get(plane);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * @param plane - Plane obj.
+     * @return sequence number of the plane or -1 (the biggest unsigned number), if plane isn't added
+     */
+    public int sequenceOf(Plane plane) {
+        Integer slot = slotByPlane.get(plane);
+        return slot == null ? -1 : sequences[slot];
+    }
+
+    /**
+     * @param slot - slot number
+     * @return plane in the slot or null, if slot is free
+     */
+    public Plane planeAt(int slot) {
+        return slot < capacity ? planes[slot] : null;
+    }
+
+    /**
+     * Returns bitmap, where bits of given planes are set. Planes, that aren't added, are ignored.
+     *
+     * @param source - planes
+     * @return BitSet obj.
+     */
+    public BitSet toBitmap(Iterable<Plane> source) {
+        BitSet bitmap = new BitSet(capacity);
+        for (Plane plane : source) {
+            Integer slot = slotByPlane.get(plane);
+            if (slot != null) {
+                bitmap.set(slot);
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * Returns planes, which bits are set in the bitmap, in the order of slots.
+     *
+     * @param bitmap - bitmap of slots
+     * @return {@code List<Plane>}, empty if nothing found
+     */
+    public List<Plane> toPlanes(BitSet bitmap) {
+        List<Plane> found = new ArrayList<>(bitmap.cardinality());
+        for (int slot = bitmap.nextSetBit(0); slot >= 0 && slot < capacity; slot = bitmap.nextSetBit(slot + 1)) {
+            if (planes[slot] != null) {
+                found.add(planes[slot]);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return amount of used and free slots
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return amount of planes
+     */
+    public int size() {
+        return slotByPlane.size();
+    }
+}
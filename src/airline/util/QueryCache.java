@@ -0,0 +1,155 @@
+package airline.util;
+
+import airline.entity.AirlineCompany;
+import airline.entity.planes.Plane;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of query results.
+ * <p>
+ * Results are kept by normalized query key together with the company and its version at the time of execution.
+ * Every tracked change of the company increments its version, so entry of older version is never returned:
+ * it is dropped on lookup and counted as invalidation. When cache is full, the least recently used entry
+ * is evicted.
+ * <p>
+ * Cache is thread safe.
+ *
+ * @see AirlineCompany#getVersion()
+ * @see PlaneQuery#cache(QueryCache)
+ */
+public class QueryCache {
+    private final int maxEntries;
+    private final Map<String, CachedResult> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * @param maxEntries - maximal amount of cached results
+     */
+    public QueryCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Size of cache must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        entries = new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                if (size() > QueryCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Result of the query with its company and version.
+     */
+    private static class CachedResult {
+        private final AirlineCompany company;
+        private final long version;
+        private final List<Plane> planes;
+
+        private CachedResult(AirlineCompany company, long version, List<Plane> planes) {
+            this.company = company;
+            this.version = version;
+            this.planes = planes;
+        }
+    }
+
+    /**
+     * Returns cached result of the query, if it was computed for the current version of the company.
+     *
+     * @param company - queried company
+     * @param key     - normalized query
+     * @return copy of cached planes or null, if there is no actual result
+     */
+    public synchronized List<Plane> get(AirlineCompany company, String key) {
+        CachedResult entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (entry.company != company || entry.version != company.getVersion()) {
+            entries.remove(key);
+            invalidations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return new ArrayList<>(entry.planes);
+    }
+
+    /**
+     * Puts result of the query, computed for given version of the company.
+     *
+     * @param company - queried company
+     * @param version - version of the company, that was read before execution of the query
+     * @param key     - normalized query
+     * @param planes  - result of the query
+     */
+    public synchronized void put(AirlineCompany company, long version, String key, List<Plane> planes) {
+        if (version != company.getVersion()) {
+            // company was changed during execution
+            return;
+        }
+        entries.put(key, new CachedResult(company, version, Collections.unmodifiableList(new ArrayList<>(planes))));
+    }
+
+    /**
+     * Removes all results.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return amount of results, removed because cache was full
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return amount of results, removed because company was changed
+     */
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "QueryCache{" +
+                "size=" + entries.size() +
+                ", maxEntries=" + maxEntries +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                ", invalidations=" + invalidations +
+                '}';
+    }
+}
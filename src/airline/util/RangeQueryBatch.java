@@ -0,0 +1,205 @@
+package airline.util;
+
+import airline.entity.ColumnarPlaneList;
+import airline.entity.ColumnarPlaneList.Column;
+import airline.entity.planes.Plane;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batch of range queries, that is answered by one pass over planes list.
+ * <p>
+ * Queries of every attribute are turned into stabbing table: bounds of all ranges split values into elementary
+ * segments, and every segment keeps numbers of queries, that cover it. During the pass value of every plane
+ * is located by binary search among segment bounds, and the plane is added to results of covering queries.
+ * So every plane is read once for the whole batch: pass costs O(n * log q + found planes) instead of q scans.
+ * Columnar planes list is read by columns, views of rows are created only for found planes.
+ * <pre>{@code
+ * RangeQueryBatch batch = new RangeQueryBatch();
+ * int light = batch.add(Column.CARGO_CAPACITY, 0, 1000);
+ * int big = batch.add(Column.PASSENGER_CAPACITY, 300, 900);
+ * List<List<Plane>> results = controller.search(batch);
+ * List<Plane> bigPlanes = results.get(big);
+ * }</pre>
+ *
+ * @see Controller#search(RangeQueryBatch)
+ */
+public class RangeQueryBatch {
+    private final List<Column> columns = new ArrayList<>();
+    private int[] mins = new int[16];
+    private int[] maxs = new int[16];
+
+    /**
+     * Adds query "value of the column is between min and max (including both)". If min value is bigger
+     * than max value, values of min and max are swapped.
+     *
+     * @param column - queried attribute
+     * @param min    - minimal value
+     * @param max    - maximal value
+     * @return number of the query, that is index of its result
+     */
+    public int add(Column column, int min, int max) {
+        if (column == null) {
+            throw new NullPointerException("Column cannot be null");
+        }
+        int number = columns.size();
+        if (number == mins.length) {
+            mins = Arrays.copyOf(mins, number * 2);
+            maxs = Arrays.copyOf(maxs, number * 2);
+        }
+        columns.add(column);
+        mins[number] = Math.min(min, max);
+        maxs[number] = Math.max(min, max);
+        return number;
+    }
+
+    /**
+     * @return amount of queries
+     */
+    public int size() {
+        return columns.size();
+    }
+
+    /**
+     * Answers all queries by one pass over the planes.
+     *
+     * @param planes - planes list
+     * @return results in the order of queries, every result is in planes list order and is empty if nothing found
+     */
+    public List<List<Plane>> execute(List<Plane> planes) {
+        List<List<Plane>> results = new ArrayList<>(columns.size());
+        for (int number = 0; number < columns.size(); number++) {
+            results.add(new ArrayList<>());
+        }
+        Map<Column, StabbingTable> tables = new EnumMap<>(Column.class);
+        for (Column column : Column.values()) {
+            StabbingTable table = StabbingTable.build(column, columns, mins, maxs);
+            if (table != null) {
+                tables.put(column, table);
+            }
+        }
+        if (tables.isEmpty()) {
+            return results;
+        }
+        Column[] queried = tables.keySet().toArray(new Column[0]);
+        StabbingTable[] queriedTables = tables.values().toArray(new StabbingTable[0]);
+        if (planes instanceof ColumnarPlaneList) {
+            ColumnarPlaneList columnar = (ColumnarPlaneList) planes;
+            for (int row = 0; row < columnar.size(); row++) {
+                for (int index = 0; index < queried.length; index++) {
+                    int[] covering = queriedTables[index].covering(columnar.getValue(row, queried[index]));
+                    if (covering.length > 0) {
+                        Plane plane = columnar.get(row);
+                        for (int number : covering) {
+                            results.get(number).add(plane);
+                        }
+                    }
+                }
+            }
+            return results;
+        }
+        for (Plane plane : planes) {
+            for (int index = 0; index < queried.length; index++) {
+                for (int number : queriedTables[index].covering(queried[index].get(plane))) {
+                    results.get(number).add(plane);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Elementary segments of one attribute with queries, that cover every segment.
+     */
+    private static class StabbingTable {
+        private static final int[] NONE = new int[0];
+
+        /**
+         * Sorted distinct bounds: segment i is [bounds[i], bounds[i + 1]).
+         */
+        private final long[] bounds;
+        private final int[][] covering;
+
+        private StabbingTable(long[] bounds, int[][] covering) {
+            this.bounds = bounds;
+            this.covering = covering;
+        }
+
+        /**
+         * @return table of queries of the column or null, if there are no such queries
+         */
+        private static StabbingTable build(Column column, List<Column> columns, int[] mins, int[] maxs) {
+            int count = 0;
+            long[] points = new long[columns.size() * 2];
+            for (int number = 0; number < columns.size(); number++) {
+                if (columns.get(number) == column) {
+                    // ends are exclusive, long keeps Integer.MAX_VALUE + 1
+                    points[count++] = mins[number];
+                    points[count++] = maxs[number] + 1L;
+                }
+            }
+            if (count == 0) {
+                return null;
+            }
+            Arrays.sort(points, 0, count);
+            int distinct = 0;
+            for (int index = 0; index < count; index++) {
+                if (distinct == 0 || points[distinct - 1] != points[index]) {
+                    points[distinct++] = points[index];
+                }
+            }
+            long[] bounds = Arrays.copyOf(points, distinct);
+            int[] sizes = new int[distinct];
+            for (int number = 0; number < columns.size(); number++) {
+                if (columns.get(number) == column) {
+                    for (int segment = segmentOf(bounds, mins[number]); bounds[segment] <= maxs[number]; segment++) {
+                        sizes[segment]++;
+                    }
+                }
+            }
+            int[][] covering = new int[distinct][];
+            for (int segment = 0; segment < distinct; segment++) {
+                covering[segment] = sizes[segment] == 0 ? NONE : new int[sizes[segment]];
+                sizes[segment] = 0;
+            }
+            // queries are added in ascending order of numbers
+            for (int number = 0; number < columns.size(); number++) {
+                if (columns.get(number) == column) {
+                    for (int segment = segmentOf(bounds, mins[number]); bounds[segment] <= maxs[number]; segment++) {
+                        covering[segment][sizes[segment]++] = number;
+                    }
+                }
+            }
+            return new StabbingTable(bounds, covering);
+        }
+
+        /**
+         * @return numbers of queries, which range contains the value
+         */
+        private int[] covering(int value) {
+            int segment = segmentOf(bounds, value);
+            return segment < 0 ? NONE : covering[segment];
+        }
+
+        /**
+         * @return index of the last bound, that is not bigger than value, or -1
+         */
+        private static int segmentOf(long[] bounds, long value) {
+            int low = 0;
+            int high = bounds.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (bounds[middle] <= value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low - 1;
+        }
+    }
+}
@@ -1,15 +1,36 @@
 package airline.util;
 
+import airline.entity.ColumnarPlaneList.Column;
 import airline.entity.planes.Plane;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
 
 public class SearchEngine {
     private static final Logger LOGGER = LogManager.getLogger(SearchEngine.class);
+    /**
+     * Scanner of planes lists. Big lists are scanned in parallel.
+     */
+    private static volatile ParallelScanner scanner = ParallelScanner.shared();
+
+    /**
+     * Sets scanner, that is used by methods, which take planes list.
+     *
+     * @param parallelScanner - ParallelScanner obj., for example with custom parallelism and threshold
+     * @throws NullPointerException if scanner is null
+     */
+    public static void setScanner(ParallelScanner parallelScanner) {
+        if (parallelScanner == null) {
+            throw new NullPointerException("Scanner cannot be null");
+        }
+        scanner = parallelScanner;
+    }
+
+    public static ParallelScanner getScanner() {
+        return scanner;
+    }
 
     /**
      * Returns list of planes with matched model name.
@@ -27,20 +48,87 @@ public class SearchEngine {
             LOGGER.warn("Model name came as null. NullPointerException has been thrown");
             throw new NullPointerException("Model name cannot be null");
         }
-        List<Plane> foundedPlanes = new ArrayList<>();
-        boolean noMatches = true;
-        for (Plane plane : planes) {
-            if (plane.getModelName().equalsIgnoreCase(modelName)) {
-                foundedPlanes.add(plane);
-                noMatches = false;
-            }
-        }
-        if (noMatches) {
+        List<Plane> foundedPlanes = scanner.filter(planes,
+                plane -> plane.getModelName().equalsIgnoreCase(modelName));
+        if (foundedPlanes.isEmpty()) {
             throw new NoSuchElementException("No match found");
         }
         return foundedPlanes;
     }
 
+    /**
+     * Returns list of planes with matched model name (ignoring case).
+     * <p>
+     * Uses model name index instead of scan of planes list, so lookup costs O(1).
+     *
+     * @param indexes   indexes of the company planes
+     * @param modelName (String) type row with model name
+     * @return {@code List<Plane> foundedPLanes as ArrayList<>()}
+     * @throws NullPointerException if indexes or modelName are null
+     * @see PlaneIndexes#getPlanesByModel(String)
+     */
+    public static List<Plane> getPlanesByModel(PlaneIndexes indexes, String modelName) {
+        if (indexes == null) {
+            LOGGER.warn("Plane indexes came as null. NullPointerException has been thrown");
+            throw new NullPointerException("Plane indexes cannot be null");
+        }
+        if (modelName == null) {
+            LOGGER.warn("Model name came as null. NullPointerException has been thrown");
+            throw new NullPointerException("Model name cannot be null");
+        }
+        return checkFound(indexes.getPlanesByModel(modelName));
+    }
+
+    /**
+     * Returns list of planes, which model name starts with given prefix (ignoring case).
+     * <p>
+     * Uses trie of model names, so search costs O(prefix + found planes).
+     *
+     * @param indexes indexes of the company planes
+     * @param prefix  (String) beginning of model name, for example "A3"
+     * @return {@code List<Plane> foundedPLanes as ArrayList<>()}
+     * @throws NullPointerException if indexes or prefix are null
+     * @see PlaneIndexes#getPlanesByModelPrefix(String)
+     */
+    public static List<Plane> getPlanesByModelPrefix(PlaneIndexes indexes, String prefix) {
+        if (indexes == null) {
+            LOGGER.warn("Plane indexes came as null. NullPointerException has been thrown");
+            throw new NullPointerException("Plane indexes cannot be null");
+        }
+        if (prefix == null) {
+            LOGGER.warn("Model name prefix came as null. NullPointerException has been thrown");
+            throw new NullPointerException("Model name prefix cannot be null");
+        }
+        return checkFound(indexes.getPlanesByModelPrefix(prefix));
+    }
+
+    /**
+     * Returns list of planes, which model name differs from given one (ignoring case) by not more than
+     * maxDistance inserted, deleted or replaced symbols. Planes of the closest names go first.
+     *
+     * @param indexes     indexes of the company planes
+     * @param modelName   (String) model name, possibly mistyped
+     * @param maxDistance maximal Levenshtein distance, for example 2
+     * @return {@code List<Plane> foundedPLanes as ArrayList<>()}
+     * @throws NullPointerException if indexes or modelName are null
+     * @see PlaneIndexes#getPlanesBySimilarModel(String, int)
+     */
+    public static List<Plane> getPlanesBySimilarModel(PlaneIndexes indexes, String modelName, int maxDistance) {
+        if (indexes == null) {
+            LOGGER.warn("Plane indexes came as null. NullPointerException has been thrown");
+            throw new NullPointerException("Plane indexes cannot be null");
+        }
+        if (modelName == null) {
+            LOGGER.warn("Model name came as null. NullPointerException has been thrown");
+            throw new NullPointerException("Model name cannot be null");
+        }
+        if (maxDistance < 0) {
+            LOGGER.error("Distance is less than 0: " + maxDistance);
+            throw new IllegalArgumentException("Distance cannot be less than 0");
+        }
+        return checkFound(indexes.getPlanesBySimilarModel(modelName, maxDistance));
+    }
+
     /**
      * Returns list of matched planes.
      * <p>
@@ -71,15 +159,10 @@ public class SearchEngine {
             LOGGER.warn("Min and max variables came as min>max. Variables has been swapped.");
             LOGGER.debug("min>max. min: " + min + " max: " + max);
         }
-        List<Plane> foundedPlanes = new ArrayList<>();
-        boolean noMatches = true;
-        for (Plane plane : planes) {
-            if (plane.getSerialNumber() >= min & plane.getSerialNumber() <= max) {
-                foundedPlanes.add(plane);
-                noMatches = false;
-            }
-        }
-        if (noMatches) {
+        int from = min;
+        int to = max;
+        List<Plane> foundedPlanes = scanner.filter(planes, Column.SERIAL_NUMBER, from, to);
+        if (foundedPlanes.isEmpty()) {
             LOGGER.warn("No matcher founded in search. No such element exception has been thrown");
             throw new NoSuchElementException("No match found");
         }
@@ -106,15 +189,8 @@ public class SearchEngine {
             LOGGER.error("Fuel consumption is less than 0.");
             throw new IllegalArgumentException("Fuel consumption cannot be less than 0");
         }
-        boolean noMatches = true;
-        List<Plane> foundedPlanes = new ArrayList<>();
-        for (Plane plane : planes) {
-            if (plane.getFuelConsumption() == fuelConsumption) {
-                foundedPlanes.add(plane);
-                noMatches = false;
-            }
-        }
-        if (noMatches) {
+        List<Plane> foundedPlanes = scanner.filter(planes, plane -> plane.getFuelConsumption() == fuelConsumption);
+        if (foundedPlanes.isEmpty()) {
             LOGGER.warn("No matcher founded in search. No such element exception has been thrown");
             throw new NoSuchElementException("No match found");
         }
@@ -149,15 +225,11 @@ public class SearchEngine {
             max = min - max;
             min = min - max;
         }
-        boolean noMatches = true;
-        List<Plane> foundedPlanes = new ArrayList<>();
-        for (Plane plane : planes) {
-            if (plane.getFuelConsumption() >= min & plane.getFuelConsumption() <= max) {
-                foundedPlanes.add(plane);
-                noMatches = false;
-            }
-        }
-        if (noMatches) {
+        double from = min;
+        double to = max;
+        List<Plane> foundedPlanes = scanner.filter(planes, plane -> plane.getFuelConsumption() >= from
+                && plane.getFuelConsumption() <= to);
+        if (foundedPlanes.isEmpty()) {
             LOGGER.warn("No matcher founded in search. No such element exception has been thrown");
             throw new NoSuchElementException("No match found");
         }
@@ -192,15 +264,10 @@ public class SearchEngine {
             max = min - max;
             min = min - max;
         }
-        boolean noMatches = true;
-        List<Plane> foundedPlanes = new ArrayList<>();
-        for (Plane plane : planes) {
-            if (plane.getCargoCapacity() >= min & plane.getCargoCapacity() <= max) {
-                foundedPlanes.add(plane);
-                noMatches = false;
-            }
-        }
-        if (noMatches) {
+        int from = min;
+        int to = max;
+        List<Plane> foundedPlanes = scanner.filter(planes, Column.CARGO_CAPACITY, from, to);
+        if (foundedPlanes.isEmpty()) {
             LOGGER.warn("No matcher founded in search. No such element exception has been thrown");
             throw new NoSuchElementException("No match found");
         }
@@ -235,15 +302,138 @@ public class SearchEngine {
             max = min - max;
             min = min - max;
         }
-        boolean noMatches = true;
-        List<Plane> foundedPlanes = new ArrayList<>();
-        for (Plane plane : planes) {
-            if (plane.getPassengerCapacity() >= min & plane.getPassengerCapacity() <= max) {
-                foundedPlanes.add(plane);
-                noMatches = false;
-            }
+        int from = min;
+        int to = max;
+        List<Plane> foundedPlanes = scanner.filter(planes, Column.PASSENGER_CAPACITY, from, to);
+        if (foundedPlanes.isEmpty()) {
+            LOGGER.warn("No matcher founded in search. No such element exception has been thrown");
+            throw new NoSuchElementException("No match found");
+        }
+        return foundedPlanes;
+    }
+
+    /**
+     * Returns list of planes with serial number, that placed between min and max values (includes min and max).
+     * <p>
+     * Uses sorted index instead of scan of planes list, so costs O(log n + k). Planes are returned
+     * in ascending order of serial number.
+     * If min value will be bigger than max value, values of min and max will be swapped.
+     *
+     * @param indexes indexes of the company planes
+     * @param min     minimal value of serial number
+     * @param max     maximal value of serial number
+     * @return {@code List<Plane> foundedPLanes as ArrayList<>()}
+     * @throws NullPointerException if indexes are null
+     * @see PlaneIndexes
+     */
+    public static List<Plane> getPlanesBySerialNumber(PlaneIndexes indexes, int min, int max) {
+        checkRange(indexes, min, max, "serial number");
+        return checkFound(indexes.getPlanesBySerialNumber(Math.min(min, max), Math.max(min, max)));
+    }
+
+    /**
+     * Returns list of planes with fuel consumption, that matches the given fuel consumption.
+     * <p>
+     * Uses engine bitmap index instead of scan of planes list. Planes are returned in the order of index slots.
+     *
+     * @param indexes         indexes of the company planes
+     * @param fuelConsumption (double) value of fuel consumption
+     * @return {@code List<Plane> foundedPLanes as ArrayList<>()}
+     * @throws NullPointerException if indexes are null
+     * @see PlaneIndexes#getFuelConsumptionBitmap(double, double)
+     */
+    public static List<Plane> getPlanesByFuelConsumption(PlaneIndexes indexes, double fuelConsumption) {
+        if (indexes == null) {
+            LOGGER.warn("Plane indexes came as null. NullPointerException has been thrown");
+            throw new NullPointerException("Plane indexes cannot be null");
+        }
+        if (fuelConsumption < 0) {
+            LOGGER.debug("Fuel consumption is <0: " + fuelConsumption);
+            LOGGER.error("Fuel consumption is less than 0.");
+            throw new IllegalArgumentException("Fuel consumption cannot be less than 0");
+        }
+        return checkFound(indexes.getPlanesByFuelConsumption(fuelConsumption, fuelConsumption));
+    }
+
+    /**
+     * Returns list of planes with fuel consumption, that placed between min and max values (includes min and max).
+     * <p>
+     * Uses engine bitmap index instead of scan of planes list. Planes are returned in the order of index slots.
+     * If min value will be bigger than max value, values of min and max will be swapped.
+     *
+     * @param indexes indexes of the company planes
+     * @param min     (double) minimal value of fuel consumption
+     * @param max     (double) maximal value of fuel consumption
+     * @return {@code List<Plane> foundedPLanes as ArrayList<>()}
+     * @throws NullPointerException if indexes are null
+     * @see PlaneIndexes#getFuelConsumptionBitmap(double, double)
+     */
+    public static List<Plane> getPlanesByFuelConsumption(PlaneIndexes indexes, double min, double max) {
+        if (indexes == null) {
+            LOGGER.warn("Plane indexes came as null. NullPointerException has been thrown");
+            throw new NullPointerException("Plane indexes cannot be null");
         }
-        if (noMatches) {
+        if (min < 0 || max < 0) {
+            LOGGER.debug("Min: " + min + " Max: " + max);
+            LOGGER.error("Min or max (or both) came as <0.");
+            throw new IllegalArgumentException("Minimal or maximal fuel consumption cannot be less than 0");
+        }
+        return checkFound(indexes.getPlanesByFuelConsumption(Math.min(min, max), Math.max(min, max)));
+    }
+
+    /**
+     * Returns list of planes with cargo capacity, that placed between min and max values (includes min and max).
+     * <p>
+     * Uses sorted index instead of scan of planes list, so costs O(log n + k). Planes are returned
+     * in ascending order of cargo capacity.
+     * If min value will be bigger than max value, values of min and max will be swapped.
+     *
+     * @param indexes indexes of the company planes
+     * @param min     minimal value of cargo capacity
+     * @param max     maximal value of cargo capacity
+     * @return {@code List<Plane> foundedPLanes as ArrayList<>()}
+     * @throws NullPointerException if indexes are null
+     * @see PlaneIndexes
+     */
+    public static List<Plane> getPlanesByCargoCapacity(PlaneIndexes indexes, int min, int max) {
+        checkRange(indexes, min, max, "cargo capacity");
+        return checkFound(indexes.getPlanesByCargoCapacity(Math.min(min, max), Math.max(min, max)));
+    }
+
+    /**
+     * Returns list of planes with passenger capacity, that placed between min and max values
+     * (includes min and max).
+     * <p>
+     * Uses sorted index instead of scan of planes list, so costs O(log n + k). Planes are returned
+     * in ascending order of passenger capacity.
+     * If min value will be bigger than max value, values of min and max will be swapped.
+     *
+     * @param indexes indexes of the company planes
+     * @param min     minimal value of passenger capacity
+     * @param max     maximal value of passenger capacity
+     * @return {@code List<Plane> foundedPLanes as ArrayList<>()}
+     * @throws NullPointerException if indexes are null
+     * @see PlaneIndexes
+     */
+    public static List<Plane> getPlanesByPassengerCapacity(PlaneIndexes indexes, int min, int max) {
+        checkRange(indexes, min, max, "passenger capacity");
+        return checkFound(indexes.getPlanesByPassengerCapacity(Math.min(min, max), Math.max(min, max)));
+    }
+
+    private static void checkRange(PlaneIndexes indexes, int min, int max, String attribute) {
+        if (indexes == null) {
+            LOGGER.warn("Plane indexes came as null. NullPointerException has been thrown");
+            throw new NullPointerException("Plane indexes cannot be null");
+        }
+        if (min < 0 || max < 0) {
+            LOGGER.debug("Min: " + min + " Max: " + max);
+            LOGGER.error("Min or max (or both) came as <0 ");
+            throw new IllegalArgumentException("Minimal or maximal " + attribute + " cannot be less than 0");
+        }
+    }
+
+    private static List<Plane> checkFound(List<Plane> foundedPlanes) {
+        if (foundedPlanes.isEmpty()) {
             LOGGER.warn("No matcher founded in search. No such element exception has been thrown");
             throw new NoSuchElementException("No match found");
         }
@@ -0,0 +1,460 @@
+package airline.util;
+
+import airline.entity.planes.Plane;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ToIntFunction;
+
+/**
+ * Sorted index of planes by int attribute.
+ * <p>
+ * Planes are kept in primitive array of keys and parallel array of planes, sorted by key, so range query
+ * is answered by binary search and costs O(log n + k). Key of the array is the attribute value in high 32 bits
+ * and tiebreak of the plane (its sequence number, see {@link PlaneSlots#sequenceOf(Plane)}) in low 32 bits,
+ * so even among millions of planes with the same value removed plane is found by binary search too. Unique
+ * tiebreak makes the order of planes total.
+ * <p>
+ * Added planes are collected in small unsorted delta, that is merged into sorted arrays when it grows
+ * bigger than square root of index size. Removed planes are marked by null and dropped by the next merge.
+ * So changes cost amortized O(sqrt n), and queries additionally scan only the delta.
+ * <p>
+ * Index isn't thread safe.
+ */
+public class SortedIntIndex {
+    private static final int MIN_DELTA_SIZE = 256;
+    private static final long LOW_BITS = 0xFFFFFFFFL;
+    private static final int INSERTION_SORT_SIZE = 32;
+
+    private final ToIntFunction<Plane> attribute;
+    private final ToIntFunction<Plane> tiebreak;
+    /**
+     * Sorted keys. Planes with the same positions are in {@code planes}, removed planes are null.
+     */
+    private long[] keys = new long[0];
+    private Plane[] planes = new Plane[0];
+    private int sortedSize;
+    private int removedCount;
+    private long[] deltaKeys = new long[MIN_DELTA_SIZE];
+    private Plane[] deltaPlanes = new Plane[MIN_DELTA_SIZE];
+    private int deltaSize;
+
+    /**
+     * @param attribute - function, that returns indexed value of the plane
+     * @param tiebreak  - function, that orders planes with equal value (compared as unsigned). It must return
+     *                  the same number for the plane, while the plane is in the index.
+     */
+    public SortedIntIndex(ToIntFunction<Plane> attribute, ToIntFunction<Plane> tiebreak) {
+        this.attribute = attribute;
+        this.tiebreak = tiebreak;
+    }
+
+    /**
+     * Replaces content of the index with given planes. Costs O(n log n).
+     *
+     * @param source - planes to index
+     */
+    public void build(Collection<Plane> source) {
+        fill(source, null);
+    }
+
+    /**
+     * Replaces content of the index with given planes, which values are already known, for example
+     * are read from columns of {@code ColumnarPlaneList}. Costs O(n log n).
+     *
+     * @param source     - planes to index
+     * @param valueOfRow - function, that returns attribute value of the plane by its position in source
+     */
+    public void build(List<Plane> source, IntUnaryOperator valueOfRow) {
+        fill(source, valueOfRow);
+    }
+
+    private void fill(Collection<Plane> source, IntUnaryOperator valueOfRow) {
+        planes = source.toArray(new Plane[0]);
+        keys = new long[planes.length];
+        for (int index = 0; index < planes.length; index++) {
+            keys[index] = valueOfRow == null ? keyOf(planes[index])
+                    : key(valueOfRow.applyAsInt(index), tiebreak.applyAsInt(planes[index]));
+        }
+        sortByKeys(keys, planes, planes.length);
+        sortedSize = planes.length;
+        removedCount = 0;
+        Arrays.fill(deltaPlanes, 0, deltaSize, null);
+        deltaSize = 0;
+    }
+
+    /**
+     * @return amount of planes in the index
+     */
+    public int size() {
+        return sortedSize - removedCount + deltaSize;
+    }
+
+    /**
+     * Adds plane with its current attribute value.
+     *
+     * @param plane - Plane obj.
+     */
+    public void add(Plane plane) {
+        if (deltaSize == deltaKeys.length) {
+            deltaKeys = Arrays.copyOf(deltaKeys, deltaSize * 2);
+            deltaPlanes = Arrays.copyOf(deltaPlanes, deltaSize * 2);
+        }
+        deltaKeys[deltaSize] = keyOf(plane);
+        deltaPlanes[deltaSize++] = plane;
+        if (deltaSize > maxDeltaSize()) {
+            merge();
+        }
+    }
+
+    /**
+     * Removes plane. Attribute value of the plane must be the same, as it was on {@code add()}.
+     *
+     * @param plane - Plane obj.
+     * @return true, if plane was found
+     */
+    public boolean remove(Plane plane) {
+        long key = keyOf(plane);
+        for (int index = 0; index < deltaSize; index++) {
+            if (deltaPlanes[index] == plane) {
+                deltaSize--;
+                deltaKeys[index] = deltaKeys[deltaSize];
+                deltaPlanes[index] = deltaPlanes[deltaSize];
+                deltaPlanes[deltaSize] = null;
+                return true;
+            }
+        }
+        for (int index = lowerBound(key); index < sortedSize && keys[index] == key; index++) {
+            if (planes[index] == plane) {
+                planes[index] = null;
+                removedCount++;
+                if (removedCount > maxDeltaSize()) {
+                    merge();
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Passes planes with attribute value between min and max (including both) to the consumer
+     * in ascending order of value.
+     *
+     * @param min      - minimal value
+     * @param max      - maximal value
+     * @param consumer - receiver of found planes
+     */
+    public void forEachInRange(int min, int max, Consumer<Plane> consumer) {
+        iterator(min, max, false).forEachRemaining(consumer);
+    }
+
+    /**
+     * Returns lazy iterator over planes with attribute value between min and max (including both). Planes with
+     * the same value are ordered by tiebreak, the same as keys of the index.
+     * <p>
+     * Iterator costs O(log n) plus scan of the delta on creation and O(1) per plane, so reading of the first planes
+     * doesn't depend on size of the range. Index must not be changed during iteration.
+     *
+     * @param min        - minimal value
+     * @param max        - maximal value
+     * @param descending - true for descending order
+     * @return {@code Iterator<Plane>}
+     */
+    public Iterator<Plane> iterator(int min, int max, boolean descending) {
+        if (min > max) {
+            return Collections.emptyIterator();
+        }
+        return iterator(key(min, 0), key(max, -1), descending);
+    }
+
+    /**
+     * Returns lazy iterator over planes with keys between given keys (including both).
+     *
+     * @see #key(int, int)
+     */
+    Iterator<Plane> iterator(long fromKey, long toKey, boolean descending) {
+        return new RangeIterator(fromKey, toKey, descending);
+    }
+
+    /**
+     * Returns key of the index: attribute value in high bits and tiebreak in low bits.
+     *
+     * @param value    - attribute value
+     * @param tiebreak - tiebreak of the plane
+     * @return key
+     */
+    static long key(int value, int tiebreak) {
+        return (long) value << 32 | (tiebreak & LOW_BITS);
+    }
+
+    /**
+     * Returns planes with attribute value between min and max (including both) in ascending order of value.
+     *
+     * @param min - minimal value
+     * @param max - maximal value
+     * @return {@code List<Plane>}, empty if nothing found
+     */
+    public List<Plane> range(int min, int max) {
+        List<Plane> found = new ArrayList<>();
+        forEachInRange(min, max, found::add);
+        return found;
+    }
+
+    /**
+     * Returns amount of planes with attribute value between min and max (including both). Costs O(log n) plus
+     * scan of the delta, if there are no removed planes, that aren't merged yet, otherwise O(log n + k).
+     *
+     * @param min - minimal value
+     * @param max - maximal value
+     * @return amount of planes
+     */
+    public int count(int min, int max) {
+        if (removedCount == 0) {
+            return estimate(min, max);
+        }
+        int[] count = new int[1];
+        forEachInRange(min, max, plane -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * Estimates amount of planes with attribute value between min and max (including both) without visiting them.
+     * Costs O(log n) plus scan of the delta. Removed planes, that aren't merged yet, are counted too.
+     *
+     * @param min - minimal value
+     * @param max - maximal value
+     * @return estimated amount of planes
+     */
+    public int estimate(int min, int max) {
+        if (min > max) {
+            return 0;
+        }
+        long from = key(min, 0);
+        long to = key(max, -1);
+        int estimate = upperBound(to) - lowerBound(from);
+        for (int index = 0; index < deltaSize; index++) {
+            if (deltaKeys[index] >= from && deltaKeys[index] <= to) {
+                estimate++;
+            }
+        }
+        return estimate;
+    }
+
+    private long keyOf(Plane plane) {
+        return key(attribute.applyAsInt(plane), tiebreak.applyAsInt(plane));
+    }
+
+    private int maxDeltaSize() {
+        return Math.max(MIN_DELTA_SIZE, (int) Math.sqrt(sortedSize));
+    }
+
+    /**
+     * @return position of the first key, that is not less than given key
+     */
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = sortedSize;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return position of the first key, that is greater than given key
+     */
+    private int upperBound(long key) {
+        int low = 0;
+        int high = sortedSize;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] <= key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Merges sorted delta into sorted arrays and drops removed planes.
+     */
+    private void merge() {
+        sortByKeys(deltaKeys, deltaPlanes, deltaSize);
+        int newSize = sortedSize - removedCount + deltaSize;
+        long[] newKeys = new long[newSize];
+        Plane[] newPlanes = new Plane[newSize];
+        int target = 0;
+        int deltaIndex = 0;
+        for (int index = 0; index < sortedSize; index++) {
+            if (planes[index] == null) {
+                continue;
+            }
+            while (deltaIndex < deltaSize && deltaKeys[deltaIndex] < keys[index]) {
+                newKeys[target] = deltaKeys[deltaIndex];
+                newPlanes[target++] = deltaPlanes[deltaIndex++];
+            }
+            newKeys[target] = keys[index];
+            newPlanes[target++] = planes[index];
+        }
+        while (deltaIndex < deltaSize) {
+            newKeys[target] = deltaKeys[deltaIndex];
+            newPlanes[target++] = deltaPlanes[deltaIndex++];
+        }
+        keys = newKeys;
+        planes = newPlanes;
+        sortedSize = newSize;
+        removedCount = 0;
+        Arrays.fill(deltaPlanes, 0, deltaSize, null);
+        deltaSize = 0;
+    }
+
+    /**
+     * Merges sorted part of the range with matched planes of the delta, that are sorted on creation.
+     */
+    private class RangeIterator implements Iterator<Plane> {
+        private final long[] sortedKeys = keys;
+        private final Plane[] sortedPlanes = planes;
+        private final int step;
+        private final int end;
+        private int position;
+        private final long[] matchedDeltaKeys;
+        private final Plane[] matchedDeltaPlanes;
+        private final int deltaEnd;
+        private int deltaPosition;
+        private Plane next;
+
+        private RangeIterator(long from, long to, boolean descending) {
+            int deltaMatches = 0;
+            long[] matchedKeys = new long[0];
+            Plane[] matchedPlanes = new Plane[0];
+            for (int index = 0; index < deltaSize; index++) {
+                if (deltaKeys[index] >= from && deltaKeys[index] <= to) {
+                    if (deltaMatches == matchedKeys.length) {
+                        matchedKeys = Arrays.copyOf(matchedKeys, deltaSize);
+                        matchedPlanes = Arrays.copyOf(matchedPlanes, deltaSize);
+                    }
+                    matchedKeys[deltaMatches] = deltaKeys[index];
+                    matchedPlanes[deltaMatches++] = deltaPlanes[index];
+                }
+            }
+            sortByKeys(matchedKeys, matchedPlanes, deltaMatches);
+            matchedDeltaKeys = matchedKeys;
+            matchedDeltaPlanes = matchedPlanes;
+            int first = from > to ? 0 : lowerBound(from);
+            int last = from > to ? 0 : upperBound(to);
+            if (descending) {
+                step = -1;
+                position = last - 1;
+                end = first - 1;
+                deltaPosition = deltaMatches - 1;
+                deltaEnd = -1;
+            } else {
+                step = 1;
+                position = first;
+                end = last;
+                deltaPosition = 0;
+                deltaEnd = deltaMatches;
+            }
+            next = advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Plane next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Plane plane = next;
+            next = advance();
+            return plane;
+        }
+
+        private Plane advance() {
+            while (position != end && sortedPlanes[position] == null) {
+                position += step;
+            }
+            boolean hasSorted = position != end;
+            if (deltaPosition != deltaEnd && (!hasSorted
+                    || (step > 0 ? matchedDeltaKeys[deltaPosition] < sortedKeys[position]
+                    : matchedDeltaKeys[deltaPosition] > sortedKeys[position]))) {
+                Plane plane = matchedDeltaPlanes[deltaPosition];
+                deltaPosition += step;
+                return plane;
+            }
+            if (!hasSorted) {
+                return null;
+            }
+            Plane plane = sortedPlanes[position];
+            position += step;
+            return plane;
+        }
+    }
+
+    /**
+     * Sorts first {@code size} keys by merge sort and moves planes together with them.
+     */
+    private static void sortByKeys(long[] keys, Plane[] planes, int size) {
+        if (size < 2) {
+            return;
+        }
+        long[] bufferKeys = Arrays.copyOf(keys, size);
+        Plane[] bufferPlanes = Arrays.copyOf(planes, size);
+        mergeSort(bufferKeys, bufferPlanes, keys, planes, 0, size);
+    }
+
+    /**
+     * Sorts range of target arrays, using source arrays (with the same content) as buffer.
+     */
+    private static void mergeSort(long[] sourceKeys, Plane[] sourcePlanes, long[] targetKeys, Plane[] targetPlanes,
+                                  int from, int to) {
+        if (to - from <= INSERTION_SORT_SIZE) {
+            for (int index = from + 1; index < to; index++) {
+                long key = targetKeys[index];
+                Plane plane = targetPlanes[index];
+                int position = index - 1;
+                while (position >= from && targetKeys[position] > key) {
+                    targetKeys[position + 1] = targetKeys[position];
+                    targetPlanes[position + 1] = targetPlanes[position];
+                    position--;
+                }
+                targetKeys[position + 1] = key;
+                targetPlanes[position + 1] = plane;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        // halves are sorted into source arrays and then merged into target ones
+        mergeSort(targetKeys, targetPlanes, sourceKeys, sourcePlanes, from, middle);
+        mergeSort(targetKeys, targetPlanes, sourceKeys, sourcePlanes, middle, to);
+        int left = from;
+        int right = middle;
+        for (int index = from; index < to; index++) {
+            if (right >= to || left < middle && sourceKeys[left] <= sourceKeys[right]) {
+                targetKeys[index] = sourceKeys[left];
+                targetPlanes[index] = sourcePlanes[left++];
+            } else {
+                targetKeys[index] = sourceKeys[right];
+                targetPlanes[index] = sourcePlanes[right++];
+            }
+        }
+    }
+}
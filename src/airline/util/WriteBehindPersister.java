@@ -0,0 +1,376 @@
+package airline.util;
+
+import airline.entity.AirlineCompany;
+import airline.entity.CompanyListener;
+import airline.entity.comparators.CompareType;
+import airline.entity.planes.Plane;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Write-behind persistence of airline company.
+ * <p>
+ * Every mutation of the company only marks it dirty. Background flusher waits for the flush interval
+ * after the first unsaved change (or until amount of changes reaches the threshold) and then writes
+ * the whole company once, so bursts of changes are coalesced into one write. Company is copied while
+ * holding its monitor and written without it, so callers are blocked only for the time of copying.
+ * Threads, that add, delete or sort planes directly (not through Controller), should synchronize on it too.
+ * Setters of planes (for example {@code getPlane(i).setCrewSize(n)}) don't need the monitor: value is set
+ * before the change is counted, so a copy, that missed the new value, is always followed by another write.
+ * If copying or writing fails (for example, because of unsynchronized change of planes list), the failure
+ * is reported by {@code awaitPersisted()}, and the company is written again after a delay.
+ * <p>
+ * Unsaved changes are written synchronously by {@link #close()} (and by JVM shutdown hook), failure of this
+ * write is thrown by {@code close()}.
+ *
+ * @see Controller#startWriteBehind(String, FleetFormat, long, int)
+ */
+public class WriteBehindPersister implements Closeable {
+    private static final Logger LOGGER = LogManager.getLogger(WriteBehindPersister.class);
+    /**
+     * Minimal time before the next attempt after failed write.
+     */
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final AirlineCompany company;
+    private final String filePath;
+    private final FleetFormat format;
+    private final long flushIntervalMillis;
+    private final int changesThreshold;
+    private final CompanyListener listener = new DirtyListener();
+    private final Thread flusher;
+    private final Thread shutdownHook;
+
+    /**
+     * Guards all fields below.
+     */
+    private final Object lock = new Object();
+    /**
+     * Amount of changes since start. Every change increments it.
+     */
+    private long changes;
+    /**
+     * Value of {@code changes}, that is written to the file.
+     */
+    private long persistedChanges;
+    private long writesCount;
+    private boolean flushRequested;
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * Starts write-behind persistence of the company. Company is not written until it is changed.
+     *
+     * @param company             - AirlineCompany obj.
+     * @param filePath            - path to the file. Existing file will be overwritten.
+     * @param format              - format of the file
+     * @param flushIntervalMillis - maximal time between the first unsaved change and the write
+     * @param changesThreshold    - amount of unsaved changes, after which company is written without waiting
+     */
+    public WriteBehindPersister(AirlineCompany company, String filePath, FleetFormat format, long flushIntervalMillis,
+                                int changesThreshold) {
+        if (filePath == null) {
+            LOGGER.error("File path came with null");
+            throw new NullPointerException("File path cannot be null");
+        }
+        if (flushIntervalMillis < 0 || changesThreshold < 1) {
+            throw new IllegalArgumentException("Wrong flush interval or changes threshold: " + flushIntervalMillis
+                    + ", " + changesThreshold);
+        }
+        this.company = company;
+        this.filePath = filePath;
+        this.format = format;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.changesThreshold = changesThreshold;
+        flusher = new Thread(this::flushLoop, "fleet-write-behind");
+        flusher.setDaemon(true);
+        shutdownHook = new Thread(this::closeQuietly, "fleet-write-behind-shutdown");
+        company.addListener(listener);
+        flusher.start();
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Marks the company dirty. Is called on every mutation by company listener, can be called
+     * after changes, that company doesn't report (for example, made through {@code getPlanesList()}).
+     */
+    public void markDirty() {
+        synchronized (lock) {
+            changes++;
+            if (changes - persistedChanges == 1 || changes - persistedChanges >= changesThreshold) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Writes all changes immediately and waits until they are written.
+     *
+     * @throws IOException if company can't be written
+     */
+    public void flush() throws IOException {
+        synchronized (lock) {
+            flushRequested = true;
+            lock.notifyAll();
+        }
+        awaitPersisted();
+    }
+
+    /**
+     * Waits until all changes, made before the call, are written by flusher.
+     *
+     * @throws IOException if company can't be written
+     */
+    public void awaitPersisted() throws IOException {
+        synchronized (lock) {
+            long target = changes;
+            while (persistedChanges < target && failure == null && flusher.isAlive()) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for write-behind flush", e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            if (persistedChanges < target) {
+                throw new IOException("Write-behind persistence is stopped before changes were written");
+            }
+        }
+    }
+
+    /**
+     * Waits until all changes, made before the call, are written by flusher, but not longer than given time.
+     *
+     * @param timeoutMillis - maximal time of waiting
+     * @return true, if changes are written
+     * @throws IOException if company can't be written
+     */
+    public boolean awaitPersisted(long timeoutMillis) throws IOException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (lock) {
+            long target = changes;
+            long remaining = timeoutMillis;
+            while (persistedChanges < target && failure == null && flusher.isAlive() && remaining > 0) {
+                try {
+                    lock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for write-behind flush", e);
+                }
+                remaining = deadline - System.currentTimeMillis();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            if (persistedChanges < target && !flusher.isAlive()) {
+                throw new IOException("Write-behind persistence is stopped before changes were written");
+            }
+            return persistedChanges >= target;
+        }
+    }
+
+    /**
+     * @return true, if company has changes, that aren't written yet
+     */
+    public boolean isDirty() {
+        synchronized (lock) {
+            return persistedChanges < changes;
+        }
+    }
+
+    /**
+     * @return amount of writes of the file since start
+     */
+    public long getWritesCount() {
+        synchronized (lock) {
+            return writesCount;
+        }
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * Stops persistence. Unsaved changes are written synchronously before return.
+     *
+     * @throws IOException if company can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        company.removeListener(listener);
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // JVM is shutting down, close() is called by the hook
+        }
+        if (isDirty()) {
+            try {
+                writeCopy();
+            } catch (IOException e) {
+                LOGGER.debug("Caught IOException: " + e.getMessage());
+                LOGGER.error("Failed to write company on close of write-behind persistence.");
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+            }
+        }
+        synchronized (lock) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            LOGGER.error("Failed to write company on shutdown: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Waits for the first unsaved change, then for the flush interval (or threshold or flush request)
+     * and writes the company. On close flusher stops, unsaved changes are written by {@code close()}.
+     */
+    private void flushLoop() {
+        while (true) {
+            synchronized (lock) {
+                try {
+                    while (!closed && !flushRequested && persistedChanges == changes) {
+                        lock.wait();
+                    }
+                    long deadline = System.currentTimeMillis() + flushIntervalMillis;
+                    long remaining = flushIntervalMillis;
+                    while (!closed && !flushRequested && changes - persistedChanges < changesThreshold
+                            && remaining > 0) {
+                        lock.wait(remaining);
+                        remaining = deadline - System.currentTimeMillis();
+                    }
+                } catch (InterruptedException e) {
+                    closed = true;
+                }
+                flushRequested = false;
+                if (closed) {
+                    lock.notifyAll();
+                    return;
+                }
+                if (persistedChanges == changes) {
+                    continue;
+                }
+            }
+            try {
+                writeCopy();
+            } catch (IOException e) {
+                LOGGER.debug("Caught IOException: " + e.getMessage());
+                LOGGER.error("Failed to write company by write-behind flusher.");
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                    // failed changes stay dirty and are written after the delay, with the next flush or on close
+                    try {
+                        lock.wait(Math.max(flushIntervalMillis, RETRY_DELAY_MILLIS));
+                    } catch (InterruptedException interrupted) {
+                        closed = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the company under its monitor and writes the copy.
+     *
+     * @throws IOException if company can't be copied or written
+     */
+    private void writeCopy() throws IOException {
+        AirlineCompany copy;
+        long copiedChanges;
+        try {
+            synchronized (company) {
+                synchronized (lock) {
+                    copiedChanges = changes;
+                }
+                copy = FleetJournal.copyOf(company);
+            }
+            write(copy);
+        } catch (RuntimeException e) {
+            // for example ConcurrentModificationException, if planes list is changed without the monitor
+            throw new IOException("Failed to copy or write company: " + e, e);
+        }
+        synchronized (lock) {
+            persistedChanges = Math.max(persistedChanges, copiedChanges);
+            writesCount++;
+            failure = null;
+            lock.notifyAll();
+        }
+    }
+
+    private void write(AirlineCompany copy) throws IOException {
+        switch (format) {
+            case BINARY_SNAPSHOT:
+                BinarySnapshot.writeCompany(copy, filePath);
+                break;
+            case CHECKSUMMED_BLOCKS:
+                BlockFleetFile.writeCompany(copy, filePath);
+                break;
+            default:
+                new FleetTextWriter().write(copy, filePath);
+        }
+    }
+
+    /**
+     * Marks company dirty on every change.
+     */
+    private class DirtyListener implements CompanyListener {
+        @Override
+        public void planeAdded(Plane plane) {
+            markDirty();
+        }
+
+        @Override
+        public void planeRemoved(int index, Plane plane) {
+            markDirty();
+        }
+
+        @Override
+        public void planeChanged(Plane plane) {
+            markDirty();
+        }
+
+        @Override
+        public void planesSorted(CompareType mode) {
+            markDirty();
+        }
+
+        @Override
+        public void planesListReplaced() {
+            markDirty();
+        }
+
+        @Override
+        public void nameChanged(String name) {
+            markDirty();
+        }
+    }
+}
@@ -1,16 +1,22 @@
 package airline.view;
 
+import airline.entity.AirlineCompany;
+import airline.entity.comparators.CompareType;
 import airline.entity.components.Engine;
 import airline.entity.planes.Plane;
 import airline.exceptions.FileParsingException;
 import airline.util.Controller;
-import airline.util.SearchEngine;
+import airline.util.FleetImportResult;
+import airline.util.FleetImporter;
+import airline.util.FleetWriteResult;
+import airline.util.PlaneCondition;
+import airline.util.PlanePage;
+import airline.util.PlaneQuery;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.InputMismatchException;
 import java.util.List;
-import java.util.NoSuchElementException;
 import java.util.Scanner;
 
 
@@ -21,6 +27,10 @@ import java.util.Scanner;
 public class Viewer {
 
     private static final Logger LOGGER = LogManager.getLogger(Viewer.class);
+    /**
+     * Amount of planes, that are printed at once by search.
+     */
+    private static final int PAGE_SIZE = 20;
 
     private Controller controller;
 
@@ -34,6 +44,7 @@ public class Viewer {
                 "\nPlease, select command:" +
                 "\n1-Create company." +
                 "\n2-Load company from txt file" +
+                "\n3-Import companies from directory" +
                 "\n0-Exit");
             choice = inputIntWithFormatValidation();
             switch (choice) {
@@ -60,6 +71,9 @@ public class Viewer {
                         }
                     }
                     break;
+                case (3):
+                    importCompanies();
+                    break;
                 case (0):
                     System.exit(0);
                 default:
@@ -68,14 +82,60 @@ public class Viewer {
         }
     }
 
+    /**
+     * Imports all fleet files from directory and lets user choose the company to work with.
+     *
+     * @see FleetImporter more information about import
+     */
+    private void importCompanies() {
+        System.out.print("Please, enter path to directory:\n==>");
+        String directory = inputString();
+        System.out.print("Please, enter file name pattern (for example *.txt, * for all files):\n==>");
+        String glob = inputString();
+        FleetImportResult result;
+        try {
+            result = new FleetImporter(true).importFiles(directory, glob);
+        } catch (FileParsingException e) {
+            LOGGER.error(e.getCustomMessage());
+            System.out.println(e.getCustomMessage());
+            return;
+        }
+        for (FleetImportResult.FileReport report : result.getReports()) {
+            System.out.println(report);
+        }
+        System.out.println("Imported " + result.getCompanies().size() + " companies in " + result.getMillis() + " ms");
+        if (result.getCompanies().isEmpty()) {
+            return;
+        }
+        while (true) {
+            System.out.print("Please, enter name of the company to open (type Exit to return to main menu):\n==>");
+            String companyName = inputString();
+            if (companyName.equals("Exit")) {
+                return;
+            }
+            AirlineCompany company = result.getCompany(companyName);
+            if (company == null) {
+                System.out.println("No company with such name was imported.");
+                continue;
+            }
+            controller = new Controller(company);
+            inCompanyMenu();
+        }
+    }
+
     private void saveCompanyToFile() {
         String filePath;
         System.out.print("Please, enter path to file. If no path specified, " +
                 "file wll be created/overwritten by default file path" +
                 "\n==>");
         filePath = inputString();
-        controller.toFile(filePath);
-        System.out.println("File successfully saved by path: " + filePath);
+        FleetWriteResult result = controller.toFile(filePath);
+        if (result == null) {
+            System.out.println("Failed to save file by path: " + filePath);
+            return;
+        }
+        System.out.println("File successfully saved by path: " + filePath + " (" + result.getRowsWritten()
+                + " planes, " + result.getBytesWritten() + " bytes)");
     }
 
     /**
@@ -200,62 +260,101 @@ public class Viewer {
                 "\n2-By fuel consumption" +
                 "\n3-By fuel consumption between min and maximum"
                 + "\n4-By cargo capacity between min and maximum"
-                + "\n5-By cargo capacity between min and maximum");
-        int choice = inputIntWithValidation(1, 4); // minimum- 1, maximum - 4
+                + "\n5-By passenger capacity between min and maximum"
+                + "\n6-By beginning of model name");
+        int choice = inputIntWithValidation(1, 6); // minimum- 1, maximum - 6
         switch (choice) {
             // by serial number min and max
             case (1):
                 System.out.println("Please, input serial number (MIN and MAX)");
-                try {
-                    printPlanes(SearchEngine.getPlanesBySerialNumber(controller.getPlanesList(),
-                            inputIntWithFormatValidation(), inputIntWithFormatValidation()));
-                } catch (NoSuchElementException ex) {
-                    System.out.println("No match found");
-                }
+                int minSerialNumber = inputIntWithFormatValidation();
+                int maxSerialNumber = inputIntWithFormatValidation();
+                printPages(controller.query()
+                        .where(PlaneCondition.serialNumber(Math.min(minSerialNumber, maxSerialNumber),
+                                Math.max(minSerialNumber, maxSerialNumber)))
+                        .orderBy(CompareType.BY_SERIAL_NUMBER));
                 break;
             // by fuel consumption single value
             case (2):
                 System.out.println("Please, input fuel consumption");
-                try {
-                    printPlanes(SearchEngine.getPlanesByFuelConsumption(controller.getPlanesList(),
-                            inputDoubleWithFormatValidation()));
-                } catch (NoSuchElementException ex) {
-                    System.out.println("No match found");
-                }
+                double fuelConsumption = inputDoubleWithFormatValidation();
+                printPages(controller.query()
+                        .where(PlaneCondition.fuelConsumption(fuelConsumption, fuelConsumption))
+                        .orderBy(CompareType.BY_SERIAL_NUMBER));
                 break;
             // by fuel consumption min and max
             case (3):
                 System.out.println("Please, input minimal value and maximal value");
-                try {
-                    printPlanes(SearchEngine.getPlanesByFuelConsumption(controller.getPlanesList(),
-                            inputDoubleWithFormatValidation(), inputDoubleWithFormatValidation()));
-                } catch (NoSuchElementException ex) {
-                    System.out.println("No match found");
-                }
+                double minFuelConsumption = inputDoubleWithFormatValidation();
+                double maxFuelConsumption = inputDoubleWithFormatValidation();
+                printPages(controller.query()
+                        .where(PlaneCondition.fuelConsumption(Math.min(minFuelConsumption, maxFuelConsumption),
+                                Math.max(minFuelConsumption, maxFuelConsumption)))
+                        .orderBy(CompareType.BY_SERIAL_NUMBER));
                 break;
             // by cargo capacity
             case (4):
                 System.out.println("Please, input minimal value and maximal value");
-                try {
-                    printPlanes(SearchEngine.getPlanesByCargoCapacity(controller.getPlanesList(),
-                            inputIntWithFormatValidation(), inputIntWithFormatValidation()));
-                } catch (NoSuchElementException ex) {
-                    System.out.println("No match found");
-                }
+                int minCargoCapacity = inputIntWithFormatValidation();
+                int maxCargoCapacity = inputIntWithFormatValidation();
+                printPages(controller.query()
+                        .where(PlaneCondition.cargoCapacity(Math.min(minCargoCapacity, maxCargoCapacity),
+                                Math.max(minCargoCapacity, maxCargoCapacity)))
+                        .orderBy(CompareType.BY_CARGO_CAPACITY));
                 break;
             // by passenger capacity min and max
             case (5):
                 System.out.println("Please, input minimal value and maximal value");
-                try {
-                    printPlanes(SearchEngine.getPlanesByPassengerCapacity(controller.getPlanesList(),
-                            inputIntWithFormatValidation(), inputIntWithFormatValidation()));
-                } catch (NoSuchElementException ex) {
-                    System.out.println("No match found");
+                int minPassengerCapacity = inputIntWithFormatValidation();
+                int maxPassengerCapacity = inputIntWithFormatValidation();
+                printPages(controller.query()
+                        .where(PlaneCondition.passengerCapacity(Math.min(minPassengerCapacity, maxPassengerCapacity),
+                                Math.max(minPassengerCapacity, maxPassengerCapacity)))
+                        .orderBy(CompareType.BY_PASSENGER_CAPACITY));
+                break;
+            // by model name prefix, mistyped names are suggested
+            case (6):
+                System.out.println("Please, input beginning of model name");
+                String prefix = inputString();
+                if (!printPages(controller.query()
+                        .where(PlaneCondition.modelPrefix(prefix))
+                        .orderBy(CompareType.BY_MODEL_NAME))) {
+                    List<String> similarNames = controller.getIndexes().getSimilarModelNames(prefix, 2);
+                    if (!similarNames.isEmpty()) {
+                        System.out.println("Did you mean: " + String.join(", ", similarNames) + "?");
+                    }
                 }
                 break;
         }
     }
 
+    /**
+     * Prints result of the query by pages of {@code PAGE_SIZE} planes.
+     * <p>
+     * Only the shown page is read, the next one is continued by keyset token after user's confirmation.
+     *
+     * @param query sorted query
+     * @return false, if nothing was found
+     */
+    private boolean printPages(PlaneQuery query) {
+        PlanePage page = query.page(PAGE_SIZE);
+        if (page.getPlanes().isEmpty()) {
+            System.out.println("No match found");
+            return false;
+        }
+        while (true) {
+            printPlanes(page.getPlanes());
+            if (!page.hasNext()) {
+                return true;
+            }
+            System.out.print("1-Next page, 0-Stop\n==>");
+            if (inputIntWithValidation(0, 1) != 1) {
+                return true;
+            }
+            page = query.after(page.getNextToken()).page(PAGE_SIZE);
+        }
+    }
+
     /**
      * Reads int value from console without any validation.
      *